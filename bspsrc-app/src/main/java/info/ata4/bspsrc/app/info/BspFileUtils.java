@@ -46,7 +46,7 @@ public class BspFileUtils {
                 StandardOpenOption.TRUNCATE_EXISTING,
                 StandardOpenOption.WRITE
         )) {
-            ByteBuffer buffer = lump.getBuffer();
+            ByteBuffer buffer = lump.getUncompressedBuffer();
             while (buffer.hasRemaining()) {
                 fout.write(buffer);
             }
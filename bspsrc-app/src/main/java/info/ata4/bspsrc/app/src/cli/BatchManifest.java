@@ -0,0 +1,257 @@
+package info.ata4.bspsrc.app.src.cli;
+
+import info.ata4.bspsrc.decompiler.BspFileEntry;
+import info.ata4.bspsrc.decompiler.BspSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Record of decompiled BSP files for incremental batch runs.
+ * <p>
+ * Every successfully decompiled file is stored with its size, modification
+ * time, CRC32, the fingerprint of the config, its VMF path and the other
+ * output files that were written for it, like the unpacked embedded files
+ * and the NMOS file. A file is up to date if all of these still match and all
+ * outputs still exist. The CRC is only computed if the size matches but the
+ * modification time doesn't, so files that were merely touched don't need to
+ * be decompiled again.
+ * <p>
+ * The manifest is stored as a properties file keyed by the absolute BSP
+ * path. Manifests of other BSPSource versions and unreadable manifests are
+ * ignored.
+ * <p>
+ * {@link #update} and {@link #remove} may be called from several threads,
+ * so the CRC of decompiled files can be computed off the thread that
+ * coordinates the batch.
+ */
+public class BatchManifest {
+
+	private static final Logger L = LogManager.getLogger();
+
+	private static final String VERSION_KEY = "version";
+	private static final String SEP = "\t";
+
+	private final Path file;
+	private final String configFingerprint;
+	private final boolean checkOutput;
+	private final Map<String, Record> records = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @param file manifest file
+	 * @param configFingerprint output fingerprint of the current config
+	 * @param checkOutput {@code true} if the VMF file must exist for an entry
+	 *                    to be up to date
+	 */
+	public BatchManifest(Path file, String configFingerprint, boolean checkOutput) {
+		this.file = requireNonNull(file);
+		this.configFingerprint = requireNonNull(configFingerprint);
+		this.checkOutput = checkOutput;
+	}
+
+	/**
+	 * Loads the records of the manifest file, if it exists.
+	 */
+	public void load() throws IOException {
+		records.clear();
+
+		var props = new Properties();
+		try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			props.load(reader);
+		} catch (NoSuchFileException e) {
+			return;
+		} catch (CharacterCodingException | IllegalArgumentException e) {
+			// invalid UTF-8 or malformed unicode escape
+			L.warn("Ignoring corrupt manifest {}", file, e);
+			return;
+		}
+
+		if (!BspSource.VERSION.equals(props.getProperty(VERSION_KEY))) {
+			L.info("Ignoring manifest of BSPSource {}", props.getProperty(VERSION_KEY));
+			return;
+		}
+
+		props.remove(VERSION_KEY);
+
+		for (String key : props.stringPropertyNames()) {
+			Record record = Record.parse(props.getProperty(key));
+			if (record == null) {
+				L.warn("Ignoring invalid manifest entry for {}", key);
+				continue;
+			}
+			records.put(key, record);
+		}
+	}
+
+	/**
+	 * Writes all records to the manifest file. The file is replaced
+	 * atomically where supported, so an interrupted run keeps the old
+	 * manifest.
+	 */
+	public void save() throws IOException {
+		var props = new Properties();
+		props.setProperty(VERSION_KEY, BspSource.VERSION);
+		records.forEach((key, record) -> props.setProperty(key, record.format()));
+
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (var writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+			props.store(writer, "BSPSource batch manifest");
+		}
+
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Checks if an entry was decompiled with the current config and hasn't
+	 * changed since.
+	 *
+	 * @param entry entry to check
+	 * @return {@code true} if the entry can be skipped
+	 */
+	public boolean isUpToDate(BspFileEntry entry) throws IOException {
+		String key = key(entry);
+		Record record = records.get(key);
+
+		if (record == null
+				|| !record.config.equals(configFingerprint)
+				|| !record.vmfFile.equals(entry.getVmfFile().toAbsolutePath().normalize().toString())) {
+			return false;
+		}
+
+		if (checkOutput && !Files.exists(entry.getVmfFile())) {
+			return false;
+		}
+
+		for (String output : record.outputs) {
+			if (!Files.exists(Path.of(output))) {
+				return false;
+			}
+		}
+
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(entry.getBspFile(), BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+
+		if (attrs.size() != record.size) {
+			return false;
+		}
+
+		long mtime = attrs.lastModifiedTime().toMillis();
+		if (mtime == record.mtime) {
+			return true;
+		}
+
+		// touched, but maybe not changed
+		if (crc(entry.getBspFile()) != record.crc) {
+			return false;
+		}
+
+		records.put(key, new Record(record.size, mtime, record.crc, record.config, record.vmfFile, record.outputs));
+		return true;
+	}
+
+	/**
+	 * Records an entry that was decompiled successfully. Reads the whole BSP
+	 * file to compute its CRC. The other outputs of the entry are recorded if
+	 * they exist, since they are only written for some maps and configs.
+	 *
+	 * @param entry decompiled entry
+	 */
+	public void update(BspFileEntry entry) throws IOException {
+		var attrs = Files.readAttributes(entry.getBspFile(), BasicFileAttributes.class);
+		records.put(key(entry), new Record(
+				attrs.size(),
+				attrs.lastModifiedTime().toMillis(),
+				crc(entry.getBspFile()),
+				configFingerprint,
+				entry.getVmfFile().toAbsolutePath().normalize().toString(),
+				outputs(entry)
+		));
+	}
+
+	/**
+	 * Removes the record of an entry, for example because it failed.
+	 *
+	 * @param entry entry to remove
+	 */
+	public void remove(BspFileEntry entry) {
+		records.remove(key(entry));
+	}
+
+	private static String key(BspFileEntry entry) {
+		return entry.getBspFile().toAbsolutePath().normalize().toString();
+	}
+
+	private static List<String> outputs(BspFileEntry entry) {
+		List<String> outputs = new ArrayList<>();
+		for (Path output : List.of(entry.getPakDir(), entry.getNmosFile())) {
+			if (Files.exists(output)) {
+				outputs.add(output.toAbsolutePath().normalize().toString());
+			}
+		}
+		return outputs;
+	}
+
+	private static long crc(Path file) throws IOException {
+		try (var in = new CheckedInputStream(Files.newInputStream(file), new CRC32())) {
+			in.transferTo(OutputStream.nullOutputStream());
+			return in.getChecksum().getValue();
+		}
+	}
+
+	private record Record(long size, long mtime, long crc, String config, String vmfFile, List<String> outputs) {
+
+		static Record parse(String value) {
+			String[] parts = value.split(SEP, -1);
+			if (parts.length < 5) {
+				return null;
+			}
+
+			try {
+				return new Record(
+						Long.parseLong(parts[0]),
+						Long.parseLong(parts[1]),
+						Long.parseLong(parts[2], 16),
+						parts[3],
+						parts[4],
+						List.of(Arrays.copyOfRange(parts, 5, parts.length))
+				);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		String format() {
+			List<String> parts = new ArrayList<>(List.of(
+					Long.toString(size), Long.toString(mtime), Long.toHexString(crc), config, vmfFile));
+			parts.addAll(outputs);
+			return String.join(SEP, parts);
+		}
+	}
+}
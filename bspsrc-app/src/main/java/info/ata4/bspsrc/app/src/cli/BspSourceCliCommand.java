@@ -19,6 +19,8 @@ import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import static info.ata4.bspsrc.app.util.ErrorMessageUtil.decompileExceptionToMessage;
@@ -165,6 +167,27 @@ public class BspSourceCliCommand implements Callable<Void> {
 				"Smart extracting automatically skips all files generated by vbsp, that are only relevant to running the map in the engine."
 		})
 		private boolean noSmartUnpack;
+		@Option(names = "--threads", description = {
+				"Number of threads used to prepare the geometry of a single map.",
+				"The written VMF is the same for any value."
+		}, paramLabel = "<num>")
+		private int decompileThreads = INITIAL_CONFIG.decompileThreads;
+		@Option(names = "--batch_threads", description = {
+				"Maximum number of maps decompiled at the same time.",
+				"0 uses one per available processor."
+		}, paramLabel = "<num>")
+		private int batchThreads = INITIAL_CONFIG.batchThreads;
+		@Option(names = "--batch_memory", description = {
+				"Heap budget in MiB for maps that are decompiled at the same time.",
+				"Maps are started largest first while their estimated memory fits into the budget.",
+				"0 uses 3/4 of the maximum heap size."
+		}, paramLabel = "<MiB>")
+		private long batchMemory = INITIAL_CONFIG.batchMemoryBudget >> 20;
+		@Option(names = "--manifest", description = {
+				"Incremental mode. Records decompiled files in this manifest file and skips files",
+				"that haven't changed since they were decompiled with the same options."
+		}, paramLabel = "<path>")
+		private Path manifestPath;
 	}
 
 	@Override
@@ -190,21 +213,67 @@ public class BspSourceCliCommand implements Callable<Void> {
 			return null;
 		}
 
+		BatchManifest manifest = null;
+		ExecutorService manifestExecutor = null;
+		if (miscellaneousOptions.manifestPath != null) {
+			manifest = new BatchManifest(miscellaneousOptions.manifestPath,
+					config.getOutputFingerprint(), !config.nullOutput);
+			manifest.load();
+
+			int numEntries = entries.size();
+			for (var it = entries.iterator(); it.hasNext(); ) {
+				if (manifest.isUpToDate(it.next())) {
+					it.remove();
+				}
+			}
+
+			L.info("Skipping {} of {} file(s) that are up to date", numEntries - entries.size(), numEntries);
+			if (entries.isEmpty()) {
+				return null;
+			}
+
+			// hashing finished files would hold up starting the next maps
+			manifestExecutor = Executors.newSingleThreadExecutor();
+		}
+
 		var bspsrc = new BspSource(config, entries);
 
 		try (var scope = Log4jUtil.configureDecompilationLogFileAppender(bspsrc.getEntryUuids(), entries)) {
+			BatchManifest finalManifest = manifest;
+			ExecutorService finalManifestExecutor = manifestExecutor;
 			bspsrc.run(signal -> {
 				if (signal instanceof BspSource.Signal.TaskFinished task) {
 					printTaskFinished(entries, task);
+					if (finalManifest != null) {
+						var entry = entries.get(task.index());
+						finalManifestExecutor.execute(() -> updateManifest(finalManifest, entry));
+					}
 				} else if (signal instanceof BspSource.Signal.TaskFailed task) {
 					printTaskFailed(entries, task);
+					if (finalManifest != null) {
+						finalManifest.remove(entries.get(task.index()));
+					}
 				}
 			});
+		} finally {
+			if (manifest != null) {
+				// waits for all pending updates
+				manifestExecutor.close();
+				manifest.save();
+			}
 		}
 
 		return null;
 	}
 
+	private static void updateManifest(BatchManifest manifest, BspFileEntry entry) {
+		try {
+			manifest.update(entry);
+		} catch (IOException e) {
+			L.warn("Can't add '{}' to the manifest", entry.getBspFile(), e);
+		}
+	}
+
 	private static void printTaskFailed(List<BspFileEntry> entries, BspSource.Signal.TaskFailed task) {
 		Path bspFile = entries.get(task.index()).getBspFile();
 		L.error("'{}' - Failed: {}",
@@ -259,6 +328,9 @@ public class BspSourceCliCommand implements Callable<Void> {
 		config.sourceFormat = miscellaneousOptions.sourceFormat;
 		config.unpackEmbedded = miscellaneousOptions.unpackEmbedded;
 		config.smartUnpack = !miscellaneousOptions.noSmartUnpack;
+		config.decompileThreads = miscellaneousOptions.decompileThreads;
+		config.batchThreads = miscellaneousOptions.batchThreads;
+		config.batchMemoryBudget = miscellaneousOptions.batchMemory << 20;
 
 		return config;
 	}
@@ -0,0 +1,204 @@
+package info.ata4.bspsrc.app.src.cli;
+
+import info.ata4.bspsrc.decompiler.BspFileEntry;
+import info.ata4.bspsrc.decompiler.BspSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BatchManifest Test")
+class BatchManifestTest {
+
+	private static final String FINGERPRINT = "config";
+
+	@TempDir
+	private Path dir;
+
+	private Path manifestFile;
+	private BspFileEntry entry;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		manifestFile = dir.resolve("manifest.properties");
+		entry = new BspFileEntry(dir.resolve("map.bsp"), dir.resolve("map.vmf"));
+
+		Files.write(entry.getBspFile(), new byte[] {1, 2, 3, 4});
+		setMtime(1000);
+		Files.writeString(entry.getVmfFile(), "versioninfo {}");
+	}
+
+	@Test
+	@DisplayName("Decompiled files are up to date after a round trip")
+	void roundTrip() throws IOException {
+		var manifest = manifest(true);
+		assertFalse(manifest.isUpToDate(entry));
+		manifest.update(entry);
+		assertTrue(manifest.isUpToDate(entry));
+		manifest.save();
+
+		assertTrue(Files.exists(manifestFile));
+		assertFalse(Files.exists(dir.resolve("manifest.properties.tmp")));
+		assertTrue(manifest(true).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Files with a different size are stale")
+	void staleSize() throws IOException {
+		save();
+
+		Files.write(entry.getBspFile(), new byte[] {1, 2, 3, 4, 5});
+		setMtime(1000);
+		assertFalse(manifest(true).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Touched files are checked by their CRC")
+	void staleCrc() throws IOException {
+		save();
+
+		// same content, new time
+		setMtime(2000);
+		var manifest = manifest(true);
+		assertTrue(manifest.isUpToDate(entry));
+
+		// the new time is stored, so the same check passes without a CRC
+		manifest.save();
+		Files.write(entry.getBspFile(), new byte[] {4, 3, 2, 1});
+		setMtime(2000);
+		assertTrue(manifest(true).isUpToDate(entry));
+
+		// same size, new time and content
+		setMtime(3000);
+		assertFalse(manifest(true).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Files decompiled with other options are stale")
+	void staleFingerprint() throws IOException {
+		save();
+
+		var manifest = new BatchManifest(manifestFile, "other config", true);
+		manifest.load();
+		assertFalse(manifest.isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Missing VMF files are only stale if the output is checked")
+	void missingOutput() throws IOException {
+		save();
+		Files.delete(entry.getVmfFile());
+
+		assertFalse(manifest(true).isUpToDate(entry));
+		assertTrue(manifest(false).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Missing pak and NMOS outputs are stale")
+	void missingOtherOutputs() throws IOException {
+		Files.createDirectories(entry.getPakDir());
+		Files.writeString(entry.getPakDir().resolve("materials.vmt"), "LightmappedGeneric {}");
+		Files.writeString(entry.getNmosFile(), "nmos");
+		save();
+
+		assertTrue(manifest(true).isUpToDate(entry));
+		assertTrue(manifest(false).isUpToDate(entry));
+
+		Files.delete(entry.getNmosFile());
+		assertFalse(manifest(true).isUpToDate(entry));
+		assertFalse(manifest(false).isUpToDate(entry));
+
+		Files.writeString(entry.getNmosFile(), "nmos");
+		Files.delete(entry.getPakDir().resolve("materials.vmt"));
+		Files.delete(entry.getPakDir());
+		assertFalse(manifest(true).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Outputs that weren't written aren't required")
+	void optionalOutputs() throws IOException {
+		save();
+
+		assertFalse(Files.exists(entry.getPakDir()));
+		assertFalse(Files.exists(entry.getNmosFile()));
+		assertTrue(manifest(true).isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Removed entries are stale")
+	void remove() throws IOException {
+		var manifest = manifest(true);
+		manifest.update(entry);
+		manifest.remove(entry);
+		assertFalse(manifest.isUpToDate(entry));
+	}
+
+	@Test
+	@DisplayName("Corrupt manifests and entries are ignored")
+	void corrupt() throws IOException {
+		var other = new BspFileEntry(dir.resolve("other.bsp"), dir.resolve("other.vmf"));
+		Files.write(other.getBspFile(), new byte[] {5, 6});
+		Files.writeString(other.getVmfFile(), "versioninfo {}");
+
+		var manifest = manifest(true);
+		manifest.update(entry);
+		manifest.update(other);
+		manifest.save();
+
+		// break the record of one entry
+		String content = Files.readString(manifestFile, StandardCharsets.UTF_8);
+		String brokenContent = content.lines()
+				.map(line -> line.contains("map.bsp") ? line.substring(0, line.indexOf('=') + 1) + "garbage" : line)
+				.collect(Collectors.joining("\n", "", "\n"));
+		Files.writeString(manifestFile, brokenContent, StandardCharsets.UTF_8);
+
+		manifest = manifest(true);
+		assertFalse(manifest.isUpToDate(entry));
+		assertTrue(manifest.isUpToDate(other));
+
+		// malformed escape
+		Files.writeString(manifestFile, "version=" + BspSource.VERSION + "\nfoo=\\uXYZW\n", StandardCharsets.UTF_8);
+		assertFalse(manifest(true).isUpToDate(other));
+
+		// binary garbage
+		Files.write(manifestFile, new byte[] {(byte) 0xff, 0, (byte) 0xfe, '=', '\n'});
+		assertFalse(manifest(true).isUpToDate(other));
+	}
+
+	@Test
+	@DisplayName("Manifests of other versions are ignored")
+	void otherVersion() throws IOException {
+		save();
+
+		String content = Files.readString(manifestFile, StandardCharsets.UTF_8)
+				.replace("version=" + BspSource.VERSION, "version=0.0");
+		Files.writeString(manifestFile, content, StandardCharsets.UTF_8);
+
+		assertFalse(manifest(true).isUpToDate(entry));
+	}
+
+	private BatchManifest manifest(boolean checkOutput) throws IOException {
+		var manifest = new BatchManifest(manifestFile, FINGERPRINT, checkOutput);
+		manifest.load();
+		return manifest;
+	}
+
+	private void save() throws IOException {
+		var manifest = manifest(true);
+		manifest.update(entry);
+		manifest.save();
+	}
+
+	private void setMtime(long millis) throws IOException {
+		Files.setLastModifiedTime(entry.getBspFile(), FileTime.fromMillis(millis));
+	}
+}
@@ -0,0 +1,39 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.decompiler.modules.geom.BrushSideFaceMapper;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching brush sides to original faces, including the winding
+ * generation for both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BrushSideFaceMapperBenchmark {
+
+    private BspFileReader reader;
+
+    @Setup(Level.Trial)
+    public void setup(GeneratedMap map) throws IOException, BspException {
+        reader = map.loadAll();
+    }
+
+    @Benchmark
+    public BrushSideFaceMapper load() {
+        // use empty winding caches for every run
+        var windingFactory = WindingFactory.forAppId(reader.getBspFile().getAppId());
+        var mapper = new BrushSideFaceMapper(reader, windingFactory);
+        mapper.load();
+        return mapper;
+    }
+}
@@ -0,0 +1,46 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.struct.BspData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the header and lump table of a map and reading all lumps
+ * into structs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BspFileBenchmark {
+
+    @Param({"true", "false"})
+    public boolean memMapping;
+
+    private BspFile loaded;
+
+    @Setup(Level.Trial)
+    public void setup(GeneratedMap map) throws IOException, BspException {
+        loaded = map.load(memMapping);
+    }
+
+    @Benchmark
+    public BspFile load(GeneratedMap map) throws IOException, BspException {
+        return map.load(memMapping);
+    }
+
+    @Benchmark
+    public BspData loadAll() {
+        // a new reader starts with empty data, the lump buffers are reused
+        var reader = new BspFileReader(loaded);
+        reader.loadAll();
+        return reader.getData();
+    }
+}
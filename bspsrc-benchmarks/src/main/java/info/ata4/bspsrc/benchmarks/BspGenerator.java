@@ -0,0 +1,913 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.common.util.EnumConverter;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.entity.KeyValue;
+import info.ata4.bspsrc.lib.io.EntityOutputStream;
+import info.ata4.bspsrc.lib.lump.GameLump;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.struct.*;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import info.ata4.io.DataWriter;
+import info.ata4.io.DataWriters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates synthetic maps for tests and benchmarks.
+ * <p>
+ * The world is a grid of separated cube brushes, each one in its own leaf of
+ * a balanced BSP tree, with a face and an original face for every brush side.
+ * Displacements are flat patches above the brush grid and static props are
+ * spread over the grid cells. The maps are deterministic for a given
+ * configuration.
+ * <p>
+ * All structs are written straight into the lump buffers, so even maps with a
+ * million brushes only need memory for the lump data itself. BSP versions
+ * 19, 20 and 21 use the usual 16-bit structs and are bound to their index
+ * limits, version 25 uses the 32-bit structs of Strata Source.
+ */
+public class BspGenerator {
+
+    private static final Set<Integer> VERSIONS = Set.of(19, 20, 21, 25);
+
+    // size of a grid cell and of the cube inside it
+    private static final int CELL_SIZE = 128;
+    private static final int CUBE_SIZE = 64;
+
+    // limit of unsigned short indices, like vertices in DEdge or brushes in
+    // the leaf brush lump
+    private static final int MAX_USHORT_INDEX = 65536;
+
+    // limit of signed short indices, like displacements in DFace
+    private static final int MAX_SHORT_INDEX = 32768;
+
+    // displacement size, 9x9 vertices
+    private static final int DISP_POWER = 3;
+    private static final int DISP_VERTS = ((1 << DISP_POWER) + 1) * ((1 << DISP_POWER) + 1);
+    private static final int DISP_TRIS = 2 * (1 << DISP_POWER) * (1 << DISP_POWER);
+
+    // game lump IDs are stored as big-endian ints
+    private static final int STATIC_PROP_ID = 's' << 24 | 'p' << 16 | 'r' << 8 | 'p';
+
+    private static final int SOLID_VPHYSICS = 6;
+
+    private static final String[] TEXTURES = {
+            "BRICK/BRICKWALL001A",
+            "CONCRETE/CONCRETEFLOOR001A",
+            "DEV/DEV_MEASUREGENERIC01B",
+            "METAL/METALWALL001A",
+            "WOOD/WOODWALL001A"
+    };
+
+    private static final String[] PROP_MODELS = {
+            "models/props_c17/oildrum001.mdl",
+            "models/props_junk/wood_crate001a.mdl",
+            "models/props_borealis/bluebarrel001.mdl"
+    };
+
+    // corners of a cube, with bit 0, 1 and 2 set for the max x, y and z
+    // coordinate, for each of the six sides in brush side order
+    private static final int[][] SIDE_CORNERS = new int[6][4];
+
+    // the twelve edges of a cube as pairs of corners
+    private static final int[][] CUBE_EDGES = new int[12][];
+
+    // edges of each side as 1-based cube edge indices, negative if the edge
+    // is used in reverse
+    private static final int[][] SIDE_EDGES = new int[6][4];
+
+    static {
+        int iedge = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            for (int c = 0; c < 8; c++) {
+                if ((c & 1 << axis) == 0) {
+                    CUBE_EDGES[iedge++] = new int[] {c, c | 1 << axis};
+                }
+            }
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                int[] corners = sideCorners(axis, sign);
+                int[] edges = SIDE_EDGES[sideIndex(axis, sign)];
+                for (int i = 0; i < 4; i++) {
+                    edges[i] = cubeEdge(corners[i], corners[(i + 1) % 4]);
+                }
+                SIDE_CORNERS[sideIndex(axis, sign)] = corners;
+            }
+        }
+    }
+
+    private int version = 20;
+    private int brushes = 1000;
+    private int faces = -1;
+    private int displacements = 0;
+    private int entities = 100;
+    private int props = 0;
+
+    public BspGenerator version(int version) {
+        this.version = version;
+        return this;
+    }
+
+    public BspGenerator brushes(int brushes) {
+        this.brushes = brushes;
+        return this;
+    }
+
+    /**
+     * Sets the number of brush sides that get a face and an original face.
+     * The default of -1 adds faces to as many brush sides as the vertex limit
+     * of the BSP version allows.
+     *
+     * @param faces number of brush side faces or -1
+     * @return this generator
+     */
+    public BspGenerator faces(int faces) {
+        this.faces = faces;
+        return this;
+    }
+
+    public BspGenerator displacements(int displacements) {
+        this.displacements = displacements;
+        return this;
+    }
+
+    public BspGenerator entities(int entities) {
+        this.entities = entities;
+        return this;
+    }
+
+    public BspGenerator props(int props) {
+        this.props = props;
+        return this;
+    }
+
+    /**
+     * Generates the map and writes it to a file.
+     *
+     * @param file destination file
+     * @return the written file
+     * @throws IOException if the file couldn't be written
+     */
+    public Path save(Path file) throws IOException {
+        // the file is mapped with its final size, don't leave old data behind
+        Files.deleteIfExists(file);
+        generate().save(file);
+        return file;
+    }
+
+    /**
+     * Generates the map in memory.
+     *
+     * @return new BSP file with all lumps filled
+     * @throws IOException if a lump couldn't be written
+     * @throws IllegalArgumentException if the version isn't supported or the
+     *         map doesn't fit into the limits of the version
+     */
+    public BspFile generate() throws IOException {
+        if (!VERSIONS.contains(version)) {
+            throw new IllegalArgumentException("Unsupported BSP version " + version);
+        }
+
+        if (brushes < 0 || faces < -1 || displacements < 0 || entities < 0 || props < 0) {
+            throw new IllegalArgumentException("Negative element count");
+        }
+
+        var bspFile = new BspFile();
+        bspFile.create(version, ByteOrder.LITTLE_ENDIAN);
+        bspFile.setRevision(1);
+
+        new Builder(bspFile).build();
+
+        return bspFile;
+    }
+
+    /**
+     * @return the version of the static prop game lump for the BSP version
+     */
+    private int getStaticPropVersion() {
+        return switch (version) {
+            case 19 -> 5;
+            case 21 -> 9;
+            case 25 -> 13;
+            default -> 10;
+        };
+    }
+
+    private static int sideIndex(int axis, int sign) {
+        return axis * 2 + (sign > 0 ? 0 : 1);
+    }
+
+    private static int[] sideCorners(int axis, int sign) {
+        // same vertex order as WindingFactory.fromPlane, so the face
+        // windings have the orientation of the brush side windings
+        int up = axis == 2 ? 0 : 2;
+        int right = 3 - axis - up;
+        boolean flip = axis == 0 ? sign < 0 : sign > 0;
+
+        int[] corners = new int[4];
+        for (int i = 0; i < 4; i++) {
+            int c = sign > 0 ? 1 << axis : 0;
+            if ((i == 1 || i == 2) != flip) {
+                c |= 1 << right;
+            }
+            if (i < 2) {
+                c |= 1 << up;
+            }
+            corners[i] = c;
+        }
+
+        return corners;
+    }
+
+    private static int cubeEdge(int c1, int c2) {
+        for (int i = 0; i < CUBE_EDGES.length; i++) {
+            if (CUBE_EDGES[i][0] == c1 && CUBE_EDGES[i][1] == c2) {
+                return i + 1;
+            } else if (CUBE_EDGES[i][0] == c2 && CUBE_EDGES[i][1] == c1) {
+                return -(i + 1);
+            }
+        }
+
+        throw new IllegalArgumentException("Corners " + c1 + " and " + c2 + " aren't connected");
+    }
+
+    private class Builder {
+
+        private final BspFile bspFile;
+        private final boolean strata;
+
+        private final int sideFaces;
+        private final int faceBrushes;
+        private final int leafCount;
+
+        private final int gridSize;
+        private final float worldMin;
+        private final float worldMax;
+
+        private final List<DPlane> planes = new ArrayList<>();
+        private final Map<Long, Integer> planeIndex = new HashMap<>();
+
+        private final StructLump faceLump;
+        private final StructLump origFaceLump;
+        private final StructLump vertLump;
+        private final StructLump edgeLump;
+        private final StructLump surfEdgeLump;
+
+        private int numFaces;
+        private int numVerts;
+        private int numEdges;
+        private int numSurfEdges;
+
+        Builder(BspFile bspFile) {
+            this.bspFile = bspFile;
+
+            strata = version == 25;
+
+            // faces need eight vertices per brush that are still addressable
+            int maxVerts = strata ? Integer.MAX_VALUE : MAX_USHORT_INDEX;
+            long dispVerts = 4L * displacements;
+
+            if (faces == -1) {
+                long maxFaceBrushes = Math.max(0, (maxVerts - dispVerts) / 8);
+                sideFaces = (int) Math.min(6L * brushes, maxFaceBrushes * 6);
+            } else {
+                sideFaces = (int) Math.min(6L * brushes, faces);
+            }
+
+            faceBrushes = (sideFaces + 5) / 6;
+            leafCount = Math.max(1, brushes);
+
+            if (!strata) {
+                checkLimit("brushes", brushes, MAX_USHORT_INDEX);
+                checkLimit("vertices", 8L * faceBrushes + dispVerts, MAX_USHORT_INDEX);
+                checkLimit("displacements", displacements, MAX_SHORT_INDEX);
+            }
+
+            checkLimit("brush sides", 6L * brushes, Integer.MAX_VALUE);
+            checkLimit("faces", (long) sideFaces + displacements, Integer.MAX_VALUE);
+
+            gridSize = Math.max(1, (int) Math.ceil(Math.cbrt(brushes)));
+            worldMin = -gridSize * CELL_SIZE / 2f;
+            worldMax = worldMin + gridSize * CELL_SIZE;
+
+            int totalFaces = sideFaces + displacements;
+            int totalVerts = 8 * faceBrushes + 4 * displacements;
+
+            // edge 0 can't be referenced by surfedges, since its sign is the
+            // edge direction
+            int totalEdges = 1 + 12 * faceBrushes + 4 * displacements;
+
+            faceLump = new StructLump(LumpType.LUMP_FACES, totalFaces, newFace().getSize());
+            origFaceLump = new StructLump(LumpType.LUMP_ORIGINALFACES, totalFaces, newFace().getSize());
+            vertLump = new StructLump(LumpType.LUMP_VERTEXES, totalVerts, new DVertex().getSize());
+            edgeLump = new StructLump(LumpType.LUMP_EDGES, totalEdges, newEdge().getSize());
+            surfEdgeLump = new StructLump(LumpType.LUMP_SURFEDGES, 4L * totalFaces, 4);
+        }
+
+        private void checkLimit(String name, long count, long limit) {
+            if (count > limit) {
+                throw new IllegalArgumentException(String.format(
+                        "%d %s exceed the limit of %d for BSP version %d", count, name, limit, version));
+            }
+        }
+
+        void build() throws IOException {
+            edgeLump.write(newEdge());
+            numEdges++;
+
+            // displacement faces come first, so their face index also fits
+            // into the unsigned short of DDispInfo.mapFace
+            writeDisplacements();
+            writeBrushes();
+            writeTree();
+
+            faceLump.finish(strata ? 2 : 0);
+            origFaceLump.finish(strata ? 2 : 0);
+            vertLump.finish(0);
+            edgeLump.finish(0);
+            surfEdgeLump.finish(0);
+
+            var planeLump = new StructLump(LumpType.LUMP_PLANES, planes.size(), new DPlane().getSize());
+            for (DPlane plane : planes) {
+                planeLump.write(plane);
+            }
+            planeLump.finish(0);
+
+            var modelLump = new StructLump(LumpType.LUMP_MODELS, 1, new DModel().getSize());
+            modelLump.write(createWorldModel());
+            modelLump.finish(0);
+
+            writeTextures();
+            writeEntities();
+            writeStaticProps();
+        }
+
+        private void writeBrushes() throws IOException {
+            var brushLump = new StructLump(LumpType.LUMP_BRUSHES, brushes, new DBrush().getSize());
+            var sideLump = new StructLump(LumpType.LUMP_BRUSHSIDES, 6L * brushes, newBrushSide().getSize());
+            var leafLump = new StructLump(LumpType.LUMP_LEAFS, leafCount, newLeaf().getSize());
+            var leafBrushLump = new StructLump(LumpType.LUMP_LEAFBRUSHES, brushes, strata ? 4 : 2);
+
+            var brush = new DBrush();
+            brush.numside = 6;
+
+            var side = newBrushSide();
+            // unlike faces, brush sides use 0 for no displacement
+            side.dispinfo = 0;
+
+            var leaf = newLeaf();
+            leaf.contents = EnumConverter.toInteger(EnumSet.of(BrushFlag.CONTENTS_SOLID));
+            leaf.cluster = -1;
+            leaf.numleafbrush = 1;
+            leaf.leafWaterDataID = -1;
+
+            var face = newFace();
+            var vert = new DVertex();
+            var edge = newEdge();
+
+            float[] mins = new float[3];
+            float[] maxs = new float[3];
+
+            for (int ibrush = 0; ibrush < brushes; ibrush++) {
+                mins[0] = worldMin + ibrush % gridSize * CELL_SIZE;
+                mins[1] = worldMin + ibrush / gridSize % gridSize * CELL_SIZE;
+                mins[2] = worldMin + ibrush / (gridSize * gridSize) * CELL_SIZE;
+
+                for (int i = 0; i < 3; i++) {
+                    maxs[i] = mins[i] + CUBE_SIZE;
+                }
+
+                brush.fstside = 6 * ibrush;
+                brush.contents = EnumSet.of(BrushFlag.CONTENTS_SOLID);
+
+                // every fourth brush is a func_detail
+                if (ibrush % 4 == 3) {
+                    brush.contents.add(BrushFlag.CONTENTS_DETAIL);
+                }
+
+                brushLump.write(brush);
+
+                // all eight corners and twelve edges of the cube are shared
+                // by its faces
+                int fstvert = numVerts;
+                int fstedge = numEdges;
+
+                if (ibrush < faceBrushes) {
+                    for (int c = 0; c < 8; c++) {
+                        vert.point = corner(mins, maxs, c);
+                        vertLump.write(vert);
+                    }
+                    numVerts += 8;
+
+                    for (int[] cubeEdge : CUBE_EDGES) {
+                        edge.v[0] = fstvert + cubeEdge[0];
+                        edge.v[1] = fstvert + cubeEdge[1];
+                        edgeLump.write(edge);
+                    }
+                    numEdges += 12;
+                }
+
+                int texture = ibrush % TEXTURES.length;
+
+                for (int axis = 0; axis < 3; axis++) {
+                    for (int sign = 1; sign >= -1; sign -= 2) {
+                        float dist = sign > 0 ? maxs[axis] : -mins[axis];
+                        int iplane = addPlane(axis, sign, dist);
+                        int itexinfo = texture * 3 + axis;
+
+                        side.pnum = iplane;
+                        side.texinfo = itexinfo;
+                        sideLump.write(side);
+
+                        if (6 * ibrush + sideIndex(axis, sign) < sideFaces) {
+                            initFace(face, iplane, itexinfo, -1);
+
+                            for (int iedge : SIDE_EDGES[sideIndex(axis, sign)]) {
+                                int edgeIndex = fstedge + Math.abs(iedge) - 1;
+                                surfEdgeLump.writeInt(iedge < 0 ? -edgeIndex : edgeIndex);
+                            }
+                            numSurfEdges += 4;
+
+                            writeFace(face);
+                        }
+                    }
+                }
+
+                // one leaf per brush
+                leaf.mins = new Vector3f(mins[0], mins[1], mins[2]);
+                leaf.maxs = new Vector3f(maxs[0], maxs[1], maxs[2]);
+                leaf.fstleafbrush = ibrush;
+                leafLump.write(leaf);
+
+                if (strata) {
+                    leafBrushLump.writeInt(ibrush);
+                } else {
+                    leafBrushLump.writeShort(ibrush);
+                }
+            }
+
+            if (brushes == 0) {
+                // keep a valid tree with a single empty leaf
+                leaf.contents = 0;
+                leaf.mins = new Vector3f(0, 0, 0);
+                leaf.maxs = new Vector3f(0, 0, 0);
+                leaf.fstleafbrush = 0;
+                leaf.numleafbrush = 0;
+                leafLump.write(leaf);
+            }
+
+            brushLump.finish(0);
+            sideLump.finish(0);
+            // the BSP v19 leaf struct is only used with lump version 0
+            leafLump.finish(strata ? 2 : 1);
+            leafBrushLump.finish(0);
+        }
+
+        private void writeDisplacements() throws IOException {
+            var dispInfoLump = new StructLump(LumpType.LUMP_DISPINFO, displacements, newDispInfo().getSize());
+            var dispVertLump = new StructLump(LumpType.LUMP_DISP_VERTS, (long) DISP_VERTS * displacements, new DDispVert().getSize());
+            var dispTriLump = new StructLump(LumpType.LUMP_DISP_TRIS, (long) DISP_TRIS * displacements, new DDispTri().getSize());
+
+            var dispInfo = newDispInfo();
+            dispInfo.power = DISP_POWER;
+            dispInfo.contents = EnumConverter.toInteger(EnumSet.of(BrushFlag.CONTENTS_SOLID));
+            Arrays.fill(dispInfo.allowedVerts, -1);
+
+            var dispVert = new DDispVert();
+            dispVert.vector = new Vector3f(0, 0, 1);
+
+            var dispTri = new DDispTri();
+
+            var face = newFace();
+            var vert = new DVertex();
+            var edge = newEdge();
+
+            // flat patches on a square grid above the brushes
+            int dispGridSize = Math.max(1, (int) Math.ceil(Math.sqrt(displacements)));
+            float dispMin = -dispGridSize * CELL_SIZE / 2f;
+            float[] mins = new float[3];
+            float[] maxs = new float[3];
+            int[] corners = SIDE_CORNERS[sideIndex(2, 1)];
+
+            for (int idisp = 0; idisp < displacements; idisp++) {
+                mins[0] = dispMin + idisp % dispGridSize * CELL_SIZE;
+                mins[1] = dispMin + idisp / dispGridSize * CELL_SIZE;
+                mins[2] = worldMax;
+                maxs[0] = mins[0] + CELL_SIZE;
+                maxs[1] = mins[1] + CELL_SIZE;
+                maxs[2] = worldMax + CELL_SIZE;
+
+                int iplane = addPlane(2, 1, maxs[2]);
+                int fstvert = numVerts;
+
+                initFace(face, iplane, idisp % TEXTURES.length * 3 + 2, idisp);
+
+                for (int i = 0; i < 4; i++) {
+                    vert.point = corner(mins, maxs, corners[i]);
+                    vertLump.write(vert);
+
+                    edge.v[0] = fstvert + i;
+                    edge.v[1] = fstvert + (i + 1) % 4;
+                    edgeLump.write(edge);
+
+                    surfEdgeLump.writeInt(numEdges + i);
+                }
+                numVerts += 4;
+                numEdges += 4;
+                numSurfEdges += 4;
+
+                dispInfo.startPos = corner(mins, maxs, corners[0]);
+                dispInfo.dispVertStart = DISP_VERTS * idisp;
+                dispInfo.dispTriStart = DISP_TRIS * idisp;
+                dispInfo.mapFace = numFaces;
+                dispInfoLump.write(dispInfo);
+
+                writeFace(face);
+
+                // gentle waves along both axes
+                for (int i = 0; i < DISP_VERTS; i++) {
+                    int x = i % ((1 << DISP_POWER) + 1);
+                    int y = i / ((1 << DISP_POWER) + 1);
+                    dispVert.dist = 8 + 4 * (x % 2) + 4 * (y % 2);
+                    dispVert.alpha = 255f * x / (1 << DISP_POWER);
+                    dispVertLump.write(dispVert);
+                }
+
+                for (int i = 0; i < DISP_TRIS; i++) {
+                    dispTriLump.write(dispTri);
+                }
+            }
+
+            dispInfoLump.finish(0);
+            dispVertLump.finish(0);
+            dispTriLump.finish(0);
+        }
+
+        private Vector3f corner(float[] mins, float[] maxs, int c) {
+            return new Vector3f(
+                    (c & 1) != 0 ? maxs[0] : mins[0],
+                    (c & 2) != 0 ? maxs[1] : mins[1],
+                    (c & 4) != 0 ? maxs[2] : mins[2]
+            );
+        }
+
+        private void initFace(DFace face, int iplane, int itexinfo, int idispinfo) {
+            face.pnum = iplane;
+            face.side = 0;
+            face.onnode = 0;
+            face.fstedge = numSurfEdges;
+            face.numedge = 4;
+            face.texinfo = itexinfo;
+            face.dispInfo = idispinfo;
+            face.surfaceFogVolumeID = -1;
+            Arrays.fill(face.styles, (byte) -1);
+            face.lightofs = -1;
+            face.area = idispinfo == -1 ? CUBE_SIZE * CUBE_SIZE : CELL_SIZE * CELL_SIZE;
+        }
+
+        private void writeFace(DFace face) throws IOException {
+            face.origFace = numFaces;
+            faceLump.write(face);
+
+            face.origFace = -1;
+            origFaceLump.write(face);
+
+            numFaces++;
+        }
+
+        private int addPlane(int axis, int sign, float dist) {
+            long key = ((long) Float.floatToIntBits(dist) << 8) | (axis << 1) | (sign > 0 ? 0 : 1);
+
+            return planeIndex.computeIfAbsent(key, k -> {
+                float[] normal = new float[3];
+                normal[axis] = sign;
+
+                var plane = new DPlane();
+                plane.normal = new Vector3f(normal[0], normal[1], normal[2]);
+                plane.dist = dist;
+                plane.type = axis;
+                planes.add(plane);
+
+                return planes.size() - 1;
+            });
+        }
+
+        /**
+         * Builds a balanced tree over the brush leaves. Node children use
+         * {@code -1 - leaf} to reference leaves.
+         */
+        private void writeTree() throws IOException {
+            var nodeLump = new StructLump(LumpType.LUMP_NODES, leafCount - 1, newNode().getSize());
+
+            var node = newNode();
+            node.planenum = 0;
+            node.mins = new Vector3f(worldMin, worldMin, worldMin);
+            node.maxs = new Vector3f(worldMax, worldMax, worldMax);
+
+            if (leafCount > 1) {
+                writeNode(nodeLump, node, 0, 0, leafCount);
+            }
+
+            nodeLump.finish(0);
+        }
+
+        /**
+         * Writes the nodes of a subtree in pre-order. A subtree with n leaves
+         * has n - 1 nodes, so the child node indices are known in advance.
+         */
+        private void writeNode(StructLump nodeLump, DNode node, int inode, int fstleaf, int numleaf) throws IOException {
+            int half = numleaf / 2;
+            int left = inode + 1;
+            int right = left + half - 1;
+
+            node.children[0] = half == 1 ? -1 - fstleaf : left;
+            node.children[1] = numleaf - half == 1 ? -1 - (fstleaf + half) : right;
+            nodeLump.write(node);
+
+            if (half > 1) {
+                writeNode(nodeLump, node, left, fstleaf, half);
+            }
+            if (numleaf - half > 1) {
+                writeNode(nodeLump, node, right, fstleaf + half, numleaf - half);
+            }
+        }
+
+        private DModel createWorldModel() {
+            var model = new DModel();
+            model.mins = new Vector3f(worldMin, worldMin, worldMin);
+            model.maxs = new Vector3f(worldMax, worldMax, worldMax);
+            model.origin = new Vector3f(0, 0, 0);
+            model.headnode = 0;
+            model.fstface = 0;
+            model.numface = numFaces;
+            return model;
+        }
+
+        private void writeTextures() throws IOException {
+            var texinfoLump = new StructLump(LumpType.LUMP_TEXINFO, TEXTURES.length * 3, new DTexInfo().getSize());
+            var texdataLump = new StructLump(LumpType.LUMP_TEXDATA, TEXTURES.length, new DTexData().getSize());
+            var stringTableLump = new StructLump(LumpType.LUMP_TEXDATA_STRING_TABLE, TEXTURES.length, 4);
+            var stringData = new ByteArrayOutputStream();
+
+            for (int i = 0; i < TEXTURES.length; i++) {
+                stringTableLump.writeInt(stringData.size());
+                stringData.writeBytes(TEXTURES[i].getBytes(StandardCharsets.US_ASCII));
+                stringData.write(0);
+
+                var texdata = new DTexData();
+                texdata.reflectivity = new Vector3f(0.5f, 0.5f, 0.5f);
+                texdata.texname = i;
+                texdata.width = texdata.viewWidth = 512;
+                texdata.height = texdata.viewHeight = 512;
+                texdataLump.write(texdata);
+
+                // one texinfo for each axis at default scale 0.25
+                for (int axis = 0; axis < 3; axis++) {
+                    var texinfo = new DTexInfo();
+                    int s = axis == 0 ? 1 : 0;
+                    int t = axis == 2 ? 1 : 2;
+                    texinfo.textureVecsTexels[0][s] = 4;
+                    texinfo.textureVecsTexels[1][t] = -4;
+                    texinfo.lightmapVecsLuxels[0][s] = 1 / 16f;
+                    texinfo.lightmapVecsLuxels[1][t] = -1 / 16f;
+                    texinfo.flags = EnumSet.noneOf(SurfaceFlag.class);
+                    texinfo.texdata = i;
+                    texinfoLump.write(texinfo);
+                }
+            }
+
+            texinfoLump.finish(0);
+            texdataLump.finish(0);
+            stringTableLump.finish(0);
+            setLumpData(LumpType.LUMP_TEXDATA_STRING_DATA, ByteBuffer.wrap(stringData.toByteArray()));
+        }
+
+        private void writeEntities() throws IOException {
+            var data = new ByteArrayOutputStream();
+
+            try (var out = new EntityOutputStream(data)) {
+                var world = new Entity("worldspawn");
+                world.setValue("mapversion", 1);
+                world.setValue("skyname", "sky_day01_01");
+                out.writeEntity(world);
+
+                for (int i = 0; i < entities; i++) {
+                    out.writeEntity(createEntity(i));
+                }
+            }
+
+            // null-terminated
+            data.write(0);
+
+            setLumpData(LumpType.LUMP_ENTITIES, ByteBuffer.wrap(data.toByteArray()));
+        }
+
+        private Entity createEntity(int i) {
+            float x = worldMin + (i % gridSize) * CELL_SIZE + CELL_SIZE * 0.75f;
+            float y = worldMin + (i / gridSize % gridSize) * CELL_SIZE + CELL_SIZE * 0.75f;
+            String origin = x + " " + y + " 0";
+
+            return switch (i % 4) {
+                case 0 -> new Entity(List.of(
+                        new KeyValue("classname", "light"),
+                        new KeyValue("origin", origin),
+                        new KeyValue("targetname", "light_" + i),
+                        new KeyValue("_light", "255 255 255 200"),
+                        new KeyValue("style", "0")
+                ));
+                case 1 -> new Entity(List.of(
+                        new KeyValue("classname", "logic_relay"),
+                        new KeyValue("origin", origin),
+                        new KeyValue("targetname", "relay_" + i),
+                        new KeyValue("OnTrigger", "light_" + (i - 1) + ",TurnOff,,0,-1"),
+                        new KeyValue("OnTrigger", "light_" + (i - 1) + ",TurnOn,,1,-1")
+                ));
+                case 2 -> new Entity(List.of(
+                        new KeyValue("classname", "info_target"),
+                        new KeyValue("origin", origin),
+                        new KeyValue("angles", "0 " + (i % 360) + " 0"),
+                        new KeyValue("targetname", "target_" + i)
+                ));
+                default -> new Entity(List.of(
+                        new KeyValue("classname", "info_player_start"),
+                        new KeyValue("origin", origin),
+                        new KeyValue("angles", "0 90 0")
+                ));
+            };
+        }
+
+        private void writeStaticProps() throws IOException {
+            if (props == 0) {
+                return;
+            }
+
+            int sprpVersion = getStaticPropVersion();
+            var prop = newStaticProp(sprpVersion);
+
+            // DStaticPropV4.firstLeaf is an unsigned short in all versions
+            int propLeafs = Math.min(leafCount, MAX_USHORT_INDEX);
+            int leafSize = sprpVersion >= 12 ? 4 : 2;
+
+            long size = 4L + (long) PROP_MODELS.length * 128
+                    + 4L + (long) propLeafs * leafSize
+                    + 4L + (long) props * prop.getSize();
+            checkLimit("static prop bytes", size, Integer.MAX_VALUE);
+
+            ByteBuffer bb = allocate((int) size);
+            DataWriter out = DataWriters.forByteBuffer(bb);
+
+            out.writeInt(PROP_MODELS.length);
+            for (String model : PROP_MODELS) {
+                out.writeStringFixed(model, 128);
+            }
+
+            out.writeInt(propLeafs);
+            for (int i = 0; i < propLeafs; i++) {
+                if (leafSize == 4) {
+                    out.writeInt(i);
+                } else {
+                    out.writeUnsignedShort(i);
+                }
+            }
+
+            out.writeInt(props);
+            for (int i = 0; i < props; i++) {
+                // next to the cube in the grid cell
+                float x = worldMin + i % gridSize * CELL_SIZE + CELL_SIZE * 0.75f;
+                float y = worldMin + i / gridSize % gridSize * CELL_SIZE + CELL_SIZE * 0.25f;
+                float z = worldMin + i / (gridSize * gridSize) % gridSize * CELL_SIZE;
+
+                prop.origin = new Vector3f(x, y, z);
+                prop.angles = new Vector3f(0, i % 360, 0);
+                prop.lightingOrigin = prop.origin;
+                prop.propType = i % PROP_MODELS.length;
+                prop.firstLeaf = i % propLeafs;
+                prop.skin = i % 2;
+                prop.write(out);
+            }
+
+            var gameLump = new GameLump();
+            gameLump.setFourCC(STATIC_PROP_ID);
+            gameLump.setVersion(sprpVersion);
+            gameLump.setBuffer(bb.rewind());
+            bspFile.addGameLump(gameLump);
+        }
+
+        private DStaticPropV4 newStaticProp(int sprpVersion) {
+            DStaticPropV4 prop = switch (sprpVersion) {
+                case 5 -> new DStaticPropV5();
+                case 9 -> new DStaticPropV9();
+                case 10 -> new DStaticPropV10();
+                case 13 -> new DStaticPropV13();
+                default -> throw new IllegalArgumentException("Unsupported static prop version " + sprpVersion);
+            };
+
+            prop.leafCount = 1;
+            prop.solid = SOLID_VPHYSICS;
+            prop.flags = EnumSet.noneOf(StaticPropFlag.class);
+            prop.fademin = -1;
+            prop.fademax = 0;
+
+            if (prop instanceof DStaticPropV5 v5) {
+                v5.forcedFadeScale = 1;
+            }
+            if (prop instanceof DStaticPropV8 v8) {
+                v8.diffuseModulation = new Color32(255, 255, 255, 255);
+            }
+            if (prop instanceof DStaticPropV10CSGO v10) {
+                v10.flagsEx = EnumSet.noneOf(StaticPropFlagEx.class);
+            }
+            if (prop instanceof DStaticPropV13 v13) {
+                v13.scale = new Vector3f(1, 1, 1);
+            }
+
+            return prop;
+        }
+
+        private DBrushSide newBrushSide() {
+            return switch (version) {
+                case 25 -> new DBrushSideStrataV1();
+                case 21 -> new DBrushSideV0New();
+                default -> new DBrushSide();
+            };
+        }
+
+        private DFace newFace() {
+            return strata ? new DFaceStrataV2() : new DFace();
+        }
+
+        private DEdge newEdge() {
+            return strata ? new DEdgeStrataV1() : new DEdge();
+        }
+
+        private DLeaf newLeaf() {
+            return strata ? new DLeafStrataV2() : new DLeafV1();
+        }
+
+        private DNode newNode() {
+            return strata ? new DNodeStrataV1() : new DNode();
+        }
+
+        private DDispInfo newDispInfo() {
+            return strata ? new DDispInfoStrataV1() : new DDispInfo();
+        }
+
+        private ByteBuffer allocate(int size) {
+            return ByteBuffer.allocate(size).order(bspFile.getByteOrder());
+        }
+
+        private void setLumpData(LumpType type, ByteBuffer bb) {
+            bspFile.getLump(type).setBuffer(bb.rewind().order(bspFile.getByteOrder()));
+        }
+
+        /**
+         * Lump buffer of a known size that is filled sequentially.
+         */
+        private class StructLump {
+
+            private final LumpType type;
+            private final ByteBuffer bb;
+            private final DataWriter out;
+
+            StructLump(LumpType type, long count, int structSize) {
+                checkLimit(type.name() + " bytes", count * structSize, Integer.MAX_VALUE);
+
+                this.type = type;
+                bb = allocate((int) (count * structSize));
+                out = DataWriters.forByteBuffer(bb);
+            }
+
+            void write(DStruct struct) throws IOException {
+                struct.write(out);
+            }
+
+            void writeInt(int value) {
+                bb.putInt(value);
+            }
+
+            void writeShort(int value) {
+                bb.putShort((short) value);
+            }
+
+            void finish(int version) {
+                if (bb.hasRemaining()) {
+                    throw new IllegalStateException(bb.remaining() + " bytes left in " + type);
+                }
+
+                setLumpData(type, bb);
+                bspFile.getLump(type).setVersion(version);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.decompiler.BspFileEntry;
+import info.ata4.bspsrc.decompiler.BspSource;
+import info.ata4.bspsrc.decompiler.BspSourceConfig;
+import info.ata4.bspsrc.decompiler.BspSourceException;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete decompilation from loading the map to writing the VMF,
+ * without the cost of the output file itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecompileBenchmark {
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private BspSourceConfig config;
+    private BspFileEntry entry;
+
+    @Setup(Level.Trial)
+    public void setup(GeneratedMap map) {
+        config = new BspSourceConfig();
+        config.nullOutput = true;
+        config.loadLumpFiles = false;
+        config.decompileThreads = threads;
+
+        entry = new BspFileEntry(map.getFile(), map.getDir().resolve("bench.vmf"));
+    }
+
+    @Benchmark
+    public void decompile() throws BspSourceException, BspException {
+        BspSource.decompile(entry, config);
+    }
+}
@@ -0,0 +1,61 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.io.EntityBufferReader;
+import info.ata4.bspsrc.lib.io.EntityInputStream;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing an entity lump with the stream and the buffer reader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityInputStreamBenchmark {
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var bspFile = new BspGenerator()
+                .brushes(0)
+                .entities(entities)
+                .generate();
+
+        var bb = bspFile.getLump(LumpType.LUMP_ENTITIES).getBuffer();
+        data = new byte[bb.remaining()];
+        bb.get(data);
+    }
+
+    @Benchmark
+    public void readEntity(Blackhole bh) throws IOException {
+        try (var in = new EntityInputStream(new ByteArrayInputStream(data))) {
+            Entity ent;
+            while ((ent = in.readEntity()) != null) {
+                bh.consume(ent);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readEntityBuffer(Blackhole bh) {
+        var reader = new EntityBufferReader(ByteBuffer.wrap(data));
+        Entity ent;
+        while ((ent = reader.readEntity()) != null) {
+            bh.consume(ent);
+        }
+    }
+}
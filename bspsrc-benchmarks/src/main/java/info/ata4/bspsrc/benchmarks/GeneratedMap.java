@@ -0,0 +1,81 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark state with a generated map file in a temporary directory.
+ * <p>
+ * Maps with more than 65536 brushes need the 32-bit structs of version 25,
+ * for example {@code -p version=25 -p brushes=1000000}.
+ */
+@State(Scope.Benchmark)
+public class GeneratedMap {
+
+    @Param({"20"})
+    public int version;
+
+    @Param({"1000", "10000"})
+    public int brushes;
+
+    @Param({"0"})
+    public int displacements;
+
+    @Param({"1000"})
+    public int entities;
+
+    @Param({"0"})
+    public int props;
+
+    private Path dir;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        dir = Files.createTempDirectory("bspsrc-bench");
+        file = new BspGenerator()
+                .version(version)
+                .brushes(brushes)
+                .displacements(displacements)
+                .entities(entities)
+                .props(props)
+                .save(dir.resolve("bench.bsp"));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public BspFile load(boolean memMapping) throws IOException, BspException {
+        var bspFile = new BspFile();
+        bspFile.load(file, memMapping);
+        return bspFile;
+    }
+
+    public BspFileReader loadAll() throws IOException, BspException {
+        var reader = new BspFileReader(load(true));
+        reader.loadAll();
+        return reader;
+    }
+}
@@ -0,0 +1,71 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.decompiler.util.Winding;
+import info.ata4.bspsrc.decompiler.util.WindingBuffer;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures clipping a base winding for a plane against a set of planes, which
+ * is how brush side windings are built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WindingBenchmark {
+
+    @Param({"6", "32"})
+    public int planes;
+
+    private Winding base;
+    private Vector3d[] normals;
+    private double[] dists;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var plane = new DPlane();
+        plane.normal = new Vector3f(0, 0, 1);
+        plane.dist = 0;
+
+        base = new WindingFactory(32768).fromPlane(plane);
+
+        // planes tangent to a sphere around the origin, so the clipped
+        // winding never becomes empty
+        var rnd = new Random(planes);
+        normals = new Vector3d[planes];
+        dists = new double[planes];
+
+        for (int i = 0; i < planes; i++) {
+            normals[i] = new Vector3d(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()).normalize();
+            dists[i] = 256 + rnd.nextInt(256);
+        }
+    }
+
+    @Benchmark
+    public Winding clipEpsilon() {
+        Winding w = base;
+        for (int i = 0; i < normals.length; i++) {
+            w = w.clipEpsilon(normals[i], dists[i], Winding.EPS_SPLIT, true);
+        }
+        return w;
+    }
+
+    @Benchmark
+    public int clipEpsilonBuffer() {
+        var buffer = WindingBuffer.forCurrentThread().set(base);
+        for (int i = 0; i < normals.length; i++) {
+            var n = normals[i];
+            buffer.clipEpsilon(n.x(), n.y(), n.z(), dists[i], Winding.EPS_SPLIT, true);
+        }
+        return buffer.size();
+    }
+}
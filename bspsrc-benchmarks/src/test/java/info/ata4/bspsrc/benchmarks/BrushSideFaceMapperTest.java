@@ -0,0 +1,72 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.decompiler.modules.geom.BrushSideFaceMapper;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BrushSideFaceMapper Test")
+class BrushSideFaceMapperTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest(name = "BSP version {0}, {1} faces")
+    @CsvSource({"20, -1", "20, 1500", "25, -1"})
+    @DisplayName("Parallel mapping matches the sequential mapping")
+    void parallelMatchesSequential(int version, int faces) throws Exception {
+        Path file = new BspGenerator()
+                .version(version)
+                .brushes(2000)
+                .faces(faces)
+                .displacements(10)
+                .save(dir.resolve("gen.bsp"));
+
+        var sequential = load(file, null);
+
+        BrushSideFaceMapper parallel;
+        var pool = new ForkJoinPool(4);
+        try {
+            parallel = load(file, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        int numSides = 6 * 2000;
+        int mapped = 0;
+        for (int i = 0; i < numSides; i++) {
+            int origFace = sequential.getOrigFace(i);
+            assertEquals(origFace, parallel.getOrigFace(i), "brush side " + i);
+            if (origFace != -1) {
+                mapped++;
+                assertEquals(sequential.getBrushSideIndices(origFace), parallel.getBrushSideIndices(origFace),
+                        "original face " + origFace);
+            }
+        }
+
+        // make sure the comparison isn't trivial
+        assertTrue(mapped > 0);
+        assertEquals(sequential.origFaceToBrushSide, parallel.origFaceToBrushSide);
+    }
+
+    private static BrushSideFaceMapper load(Path file, ForkJoinPool pool) throws Exception {
+        var bspFile = new BspFile();
+        bspFile.load(file);
+        var reader = new BspFileReader(bspFile);
+        // version 25 maps are only detected as Strata Source with their entities
+        reader.loadAll();
+
+        var mapper = new BrushSideFaceMapper(reader, new WindingFactory(32768));
+        mapper.load(pool);
+        return mapper;
+    }
+}
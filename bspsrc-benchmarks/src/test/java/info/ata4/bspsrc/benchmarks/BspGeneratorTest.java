@@ -0,0 +1,99 @@
+package info.ata4.bspsrc.benchmarks;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.app.SourceAppId;
+import info.ata4.bspsrc.lib.struct.DFace;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BspGenerator Test")
+class BspGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest(name = "BSP version {0}")
+    @ValueSource(ints = {19, 20, 21, 25})
+    @DisplayName("Generated maps can be read back")
+    void roundTrip(int version) throws Exception {
+        Path file = new BspGenerator()
+                .version(version)
+                .brushes(500)
+                .displacements(10)
+                .entities(50)
+                .props(20)
+                .save(dir.resolve("gen.bsp"));
+
+        var bspFile = new BspFile();
+        bspFile.load(file);
+        var reader = new BspFileReader(bspFile);
+        reader.loadAll();
+        var bsp = reader.getData();
+
+        assertEquals(version, bspFile.getVersion());
+        assertEquals(version == 25, bspFile.getAppId() == SourceAppId.STRATA_SOURCE);
+
+        assertEquals(500, bsp.brushes.size());
+        assertEquals(3000, bsp.brushSides.size());
+        assertEquals(500, bsp.leaves.size());
+        assertEquals(499, bsp.nodes.size());
+        assertEquals(500, bsp.leafBrushes.size());
+        assertEquals(3010, bsp.faces.size());
+        assertEquals(3010, bsp.origFaces.size());
+        assertEquals(3010, bsp.models.get(0).numface);
+        assertEquals(10, bsp.dispinfos.size());
+        assertEquals(10 * bsp.dispinfos.get(0).getVertexCount(), bsp.dispverts.size());
+        assertEquals(10 * bsp.dispinfos.get(0).getTriangleTagCount(), bsp.disptris.size());
+        assertEquals(51, bsp.entities.size());
+        assertEquals(20, bsp.staticProps.size());
+
+        for (int i = 0; i < bsp.dispinfos.size(); i++) {
+            assertEquals(i, bsp.faces.get(bsp.dispinfos.get(i).mapFace).dispInfo);
+        }
+
+        // every face edge must end where the next one starts
+        for (DFace face : bsp.faces) {
+            int prev = -1;
+            for (int i = 0; i <= face.numedge; i++) {
+                int sedge = bsp.surfEdges.get(face.fstedge + i % face.numedge);
+                var edge = bsp.edges.get(Math.abs(sedge));
+                int start = sedge < 0 ? edge.v[1] : edge.v[0];
+                if (prev != -1) {
+                    assertEquals(prev, start);
+                }
+                prev = sedge < 0 ? edge.v[0] : edge.v[1];
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Face count can be limited")
+    void faceCount() throws Exception {
+        Path file = new BspGenerator().brushes(100).faces(250).save(dir.resolve("gen.bsp"));
+
+        var bspFile = new BspFile();
+        bspFile.load(file);
+        var reader = new BspFileReader(bspFile);
+        reader.loadFaces();
+        reader.loadBrushSides();
+
+        assertEquals(250, reader.getData().faces.size());
+        assertEquals(600, reader.getData().brushSides.size());
+    }
+
+    @Test
+    @DisplayName("Rejects maps over the limits of the version")
+    void limits() {
+        assertThrows(IllegalArgumentException.class, () -> new BspGenerator().version(20).brushes(70000).generate());
+        assertThrows(IllegalArgumentException.class, () -> new BspGenerator().version(20).brushes(10000).faces(60000).generate());
+        assertThrows(IllegalArgumentException.class, () -> new BspGenerator().version(18).generate());
+    }
+}
@@ -27,20 +27,23 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+import static java.nio.file.StandardOpenOption.*;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -89,12 +92,23 @@ public class BspSource {
 
         L.info("Starting...");
 
+        int threads = config.batchThreads > 0
+                ? config.batchThreads
+                : Runtime.getRuntime().availableProcessors();
+        long budget = config.batchMemoryBudget > 0
+                ? config.batchMemoryBudget
+                : Runtime.getRuntime().maxMemory() / 4 * 3;
+
+        long[] estimates = entries.stream()
+                .mapToLong(entry -> DecompileScheduler.estimateMemory(entry.getBspFile()))
+                .toArray();
+        var scheduler = new DecompileScheduler(estimates, threads, budget);
+
+        L.debug("Decompiling with {} thread(s) and a budget of {} MiB", threads, budget >> 20);
+
         var outputQueue = new LinkedBlockingQueue<Signal>();
-        try (var executorService = Executors.newWorkStealingPool()) {
-            for (int i = 0; i < entries.size(); i++) {
-                int finalI = i; // java....
-                executorService.submit(() -> decompile(finalI, outputQueue));
-            }
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            submitAdmitted(scheduler, executorService, outputQueue);
 
             try {
                 int remainingTasks = entries.size();
@@ -102,8 +116,11 @@ public class BspSource {
                     var signal = outputQueue.take();
                     signalConsumer.accept(signal);
 
-                    if (signal instanceof Signal.TaskFinished || signal instanceof Signal.TaskFailed)
+                    if (signal instanceof Signal.TaskFinished || signal instanceof Signal.TaskFailed) {
                         remainingTasks--;
+                        scheduler.release(signal.index());
+                        submitAdmitted(scheduler, executorService, outputQueue);
+                    }
                 }
             } catch (InterruptedException e) {
                 L.info("Stopping because of interrupt");
@@ -120,6 +137,15 @@ public class BspSource {
         L.info("Processed %d file(s) in %.4f seconds".formatted(entries.size(), duration));
     }
 
+    private void submitAdmitted(DecompileScheduler scheduler, ExecutorService executorService,
+            BlockingQueue<Signal> outputQueue) {
+        OptionalInt next;
+        while ((next = scheduler.poll()).isPresent()) {
+            int index = next.getAsInt();
+            executorService.submit(() -> decompile(index, outputQueue));
+        }
+    }
+
     private void decompile(int index, BlockingQueue<Signal> outputQueue) {
         var entry = entries.get(index);
         var uuid = entryUuids.get(index);
@@ -228,9 +254,9 @@ public class BspSource {
     private static VmfWriter getVmfWriter(File vmfFile, BspSourceConfig config) throws IOException {
         // write to file or omit output?
         return new VmfWriter(
-                config.nullOutput 
-                        ? new PrintWriter(OutputStream.nullOutputStream()) 
-                        : new PrintWriter(vmfFile, StandardCharsets.US_ASCII),
+                config.nullOutput
+                        ? Channels.newChannel(OutputStream.nullOutputStream())
+                        : FileChannel.open(vmfFile.toPath(), CREATE, TRUNCATE_EXISTING, WRITE),
                 config.vmfDoubleScale,
                 config.vmfDoubleScaleTextureAxes,
                 config.vmfDoubleScaleTextureScale
@@ -242,6 +268,8 @@ public class BspSource {
     }
 
     public sealed interface Signal {
+        int index();
+
         record TaskStarted(int index) implements Signal {}
         record TaskFinished(int index) implements Signal {}
         record TaskFailed(int index, Throwable exception) implements Signal {}
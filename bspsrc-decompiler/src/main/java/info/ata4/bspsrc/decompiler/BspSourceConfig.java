@@ -18,6 +18,11 @@ import org.apache.logging.log4j.Logger;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
 
 /**
  * Configuration class for BSPSource and its modules.
@@ -28,6 +33,10 @@ public final class BspSourceConfig {
 
     private static final Logger L = LogManager.getLogger();
 
+    // options that don't change the written files
+    private static final Set<String> SCHEDULING_FIELDS = Set.of(
+            "decompileThreads", "batchThreads", "batchMemoryBudget");
+
     public int defaultAppId = SourceAppId.UNKNOWN;
     public BrushMode brushMode = BrushMode.BRUSHPLANES;
     public SourceFormat sourceFormat = SourceFormat.AUTO;
@@ -71,6 +80,11 @@ public final class BspSourceConfig {
     public boolean writeCameras = true;
     public boolean unpackEmbedded = false;
     public boolean smartUnpack = true;
+    public int decompileThreads = 1;
+
+    // batch options, 0 uses all processors and 3/4 of the maximum heap
+    public int batchThreads = 0;
+    public long batchMemoryBudget = 0;
 
     public int vmfDoubleScale = 8;
     public int vmfDoubleScaleTextureAxes = 4;
@@ -121,6 +135,10 @@ public final class BspSourceConfig {
         this.writeCameras = config.writeCameras;
         this.unpackEmbedded = config.unpackEmbedded;
         this.smartUnpack = config.smartUnpack;
+        this.decompileThreads = config.decompileThreads;
+
+        this.batchThreads = config.batchThreads;
+        this.batchMemoryBudget = config.batchMemoryBudget;
 
         this.vmfDoubleScale = config.vmfDoubleScale;
         this.vmfDoubleScaleTextureAxes = config.vmfDoubleScaleTextureAxes;
@@ -148,6 +166,37 @@ public final class BspSourceConfig {
         }
     }
 
+    /**
+     * Returns a fingerprint of all options that affect the decompiled files.
+     * Options that only change how the work is scheduled are left out, so
+     * outputs can be reused across runs with different thread counts.
+     *
+     * @return hex string that is equal for configs with the same output
+     */
+    public String getOutputFingerprint() {
+        var sb = new StringBuilder();
+
+        for (Field field : getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || SCHEDULING_FIELDS.contains(field.getName())) {
+                continue;
+            }
+
+            try {
+                sb.append(field.getName()).append('=').append(field.get(this)).append('\n');
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public boolean isWriteEntities() {
         return writeBrushEntities || writePointEntities;
     }
@@ -0,0 +1,288 @@
+package info.ata4.bspsrc.decompiler;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.io.LzmaUtil;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.util.StringMacroUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static info.ata4.bspsrc.lib.lump.LumpType.*;
+
+/**
+ * Admission control for batch decompiling.
+ * <p>
+ * Every task has an estimated peak memory usage. Tasks are admitted largest
+ * first, as long as the number of running tasks stays below the concurrency
+ * limit and their estimates fit into the memory budget. If the largest
+ * pending task doesn't fit, smaller ones may fill up the remaining budget. A
+ * task that exceeds the whole budget is only admitted when nothing else is
+ * running, so it isn't blocked forever.
+ * <p>
+ * Instances are not thread-safe, {@link BspSource} drives them from the
+ * thread that collects the task signals.
+ */
+class DecompileScheduler {
+
+    private static final Logger L = LogManager.getLogger();
+
+    // memory that is used for every map regardless of its size
+    static final long BASE_MEMORY = 16L << 20;
+
+    // heap bytes per lump byte for lumps that are decoded into objects,
+    // includes the geometry and garbage created while decompiling
+    static final int DECODED_LUMP_FACTOR = 16;
+
+    // lumps that are only kept as bytes, if at all
+    static final Set<LumpType> RAW_LUMPS = EnumSet.of(
+            LUMP_GAME_LUMP,
+            LUMP_PAKFILE,
+            LUMP_LIGHTING,
+            LUMP_LIGHTING_HDR,
+            LUMP_VISIBILITY,
+            LUMP_PHYSCOLLIDE,
+            LUMP_PHYSCOLLIDESURFACE,
+            LUMP_PHYSDISP,
+            LUMP_PHYSLEVEL,
+            LUMP_DISP_LIGHTMAP_ALPHAS,
+            LUMP_DISP_LIGHTMAP_SAMPLE_POSITIONS,
+            LUMP_LEAF_AMBIENT_INDEX,
+            LUMP_LEAF_AMBIENT_INDEX_HDR,
+            LUMP_LEAF_AMBIENT_LIGHTING,
+            LUMP_LEAF_AMBIENT_LIGHTING_HDR
+    );
+
+    private static final String STATIC_PROP_GAME_LUMP = "sprp";
+
+    // version of Dark Messiah maps, see BspFile.load
+    private static final int VERSION_DARK_MESSIAH = 0x40014;
+    private static final int VERSION_CONTAGION = 27;
+
+    private final long[] estimates;
+    private final int maxTasks;
+    private final long budget;
+
+    // pending task indices by estimate, largest estimate first
+    private final NavigableMap<Long, Deque<Integer>> pending = new TreeMap<>(Comparator.reverseOrder());
+    private int running;
+    private long used;
+
+    /**
+     * @param estimates estimated peak memory per task in bytes
+     * @param maxTasks maximum number of concurrent tasks
+     * @param budget memory budget for all running tasks in bytes
+     */
+    DecompileScheduler(long[] estimates, int maxTasks, long budget) {
+        if (maxTasks < 1) {
+            throw new IllegalArgumentException("Invalid number of tasks: " + maxTasks);
+        }
+
+        this.estimates = estimates.clone();
+        this.maxTasks = maxTasks;
+        this.budget = budget;
+
+        // stable order for equal estimates, so small batches keep their order
+        for (int i = 0; i < estimates.length; i++) {
+            pending.computeIfAbsent(estimates[i], estimate -> new ArrayDeque<>()).add(i);
+        }
+    }
+
+    /**
+     * Returns the next task that may be started and marks it as running.
+     *
+     * @return task index or empty if no pending task can be admitted now
+     */
+    OptionalInt poll() {
+        if (running >= maxTasks) {
+            return OptionalInt.empty();
+        }
+
+        // largest estimate that still fits into the budget
+        var entry = running == 0 ? pending.firstEntry() : pending.ceilingEntry(budget - used);
+        if (entry == null) {
+            return OptionalInt.empty();
+        }
+
+        var indices = entry.getValue();
+        int index = indices.remove();
+        if (indices.isEmpty()) {
+            pending.remove(entry.getKey());
+        }
+
+        running++;
+        used += estimates[index];
+        return OptionalInt.of(index);
+    }
+
+    /**
+     * Marks a task that was returned by {@link #poll()} as finished.
+     *
+     * @param index task index
+     */
+    void release(int index) {
+        running--;
+        used -= estimates[index];
+    }
+
+    /**
+     * Estimates the peak memory usage for decompiling a BSP file. Only the
+     * lump directory in the header and the game lump directory are read, the
+     * map isn't loaded.
+     *
+     * @param bspFile BSP file
+     * @return estimated memory in bytes or {@link #BASE_MEMORY} if the file
+     *         can't be read
+     */
+    static long estimateMemory(Path bspFile) {
+        try (var channel = FileChannel.open(bspFile, StandardOpenOption.READ)) {
+            return estimateMemory(channel);
+        } catch (Exception ex) {
+            // decompiling will fail and report it properly
+            L.debug("Can't estimate memory for {}", bspFile, ex);
+            return BASE_MEMORY;
+        }
+    }
+
+    private static long estimateMemory(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer bb = read(channel, 0, BspFile.HEADER_SIZE);
+
+        if (bb.limit() < BspFile.HEADER_SIZE) {
+            return BASE_MEMORY;
+        }
+
+        int ident = bb.getInt(0);
+        if (ident == BspFile.BSP_ID) {
+            bb.order(ByteOrder.BIG_ENDIAN);
+        } else if (Integer.reverseBytes(ident) == BspFile.BSP_ID) {
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            // Titanfall and encrypted maps, assume everything is decoded
+            return BASE_MEMORY + DECODED_LUMP_FACTOR * fileSize;
+        }
+
+        int version = bb.getInt(4);
+        boolean darkMessiah = version == VERSION_DARK_MESSIAH;
+        if (darkMessiah) {
+            version &= 0xff;
+        }
+
+        // lump order and header size, same as in BspFile.load
+        boolean l4d2 = version == 21 && bb.getInt(8) == 0;
+        int pos = version == VERSION_CONTAGION ? 12 : 8;
+        long memory = BASE_MEMORY;
+
+        for (int i = 0; i < BspFile.HEADER_LUMPS && pos + 16 <= bb.limit(); i++, pos += 16) {
+            int ofs = bb.getInt(l4d2 ? pos + 4 : pos);
+            int len = bb.getInt(l4d2 ? pos + 8 : pos + 4);
+
+            if (ofs < 0 || len <= 0 || ofs > fileSize) {
+                continue;
+            }
+            len = (int) Math.min(len, fileSize - ofs);
+
+            LumpType type = LumpType.get(i, version);
+            if (type == LUMP_GAME_LUMP) {
+                memory += gameLumpMemory(channel, ofs, len, bb.order(), version, darkMessiah);
+            } else {
+                int uncompressedLen = uncompressedLength(channel, ofs, len);
+                memory += lumpMemory(uncompressedLen != -1 ? uncompressedLen : len, uncompressedLen != -1,
+                        !RAW_LUMPS.contains(type));
+            }
+        }
+
+        return memory;
+    }
+
+    private static long gameLumpMemory(FileChannel channel, int ofs, int len, ByteOrder order,
+            int version, boolean darkMessiah) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer bb = read(channel, ofs, Math.min(len, 4 + 20 * 1024)).order(order);
+        int count = bb.limit() >= 4 ? bb.getInt(0) : -1;
+
+        // Vindictus uses ints for flags and version, see BspFile.loadGameLumps
+        boolean vindictus = version == 20 && !darkMessiah && order == ByteOrder.LITTLE_ENDIAN
+                && !hasValidNames(bb, count, 16) && hasValidNames(bb, count, 20);
+        int entrySize = vindictus || darkMessiah ? 20 : 16;
+        int idOfs = darkMessiah ? 4 : 0;
+        int lenOfs = idOfs + (vindictus ? 16 : 12);
+
+        if (count < 0 || 4 + (long) count * entrySize > bb.limit()) {
+            // unknown directory, assume everything is decoded
+            return lumpMemory(len, false, true);
+        }
+
+        long memory = 0;
+        for (int i = 0, pos = 4; i < count; i++, pos += entrySize) {
+            // same as GameLump.getName
+            String name = StringMacroUtils.unmakeID(Integer.reverseBytes(bb.getInt(pos + idOfs)));
+            int glOfs = bb.getInt(pos + lenOfs - 4);
+            int glLen = bb.getInt(pos + lenOfs);
+
+            // offsets are usually relative to the file, see BspFile.loadGameLumps
+            long absOfs = glOfs > ofs ? glOfs : (long) ofs + glOfs;
+            if (glOfs < 0 || glLen <= 0 || absOfs >= fileSize) {
+                continue;
+            }
+
+            int uncompressedLen = uncompressedLength(channel, absOfs, glLen);
+            memory += lumpMemory(uncompressedLen != -1 ? uncompressedLen : glLen, uncompressedLen != -1,
+                    name.equals(STATIC_PROP_GAME_LUMP));
+        }
+
+        return memory;
+    }
+
+    // same check as BspFile.checkInvalidHeaders
+    private static boolean hasValidNames(ByteBuffer bb, int count, int entrySize) {
+        if (count < 0 || 4 + (long) count * entrySize > bb.limit()) {
+            return false;
+        }
+
+        for (int i = 0, pos = 4; i < count; i++, pos += entrySize) {
+            if (!StringMacroUtils.unmakeID(bb.getInt(pos)).matches("^[a-zA-Z0-9]{4}$")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long lumpMemory(long uncompressedLength, boolean compressed, boolean decoded) {
+        if (decoded) {
+            return DECODED_LUMP_FACTOR * uncompressedLength;
+        }
+
+        // raw lumps stay in the mapped file unless they need to be uncompressed
+        return compressed ? uncompressedLength : 0;
+    }
+
+    /**
+     * Reads the uncompressed length from the LZMA header of a lump, like
+     * {@link info.ata4.bspsrc.lib.lump.AbstractLump#getUncompressedLength()}.
+     *
+     * @return uncompressed length or -1 if the lump isn't compressed
+     */
+    private static int uncompressedLength(FileChannel channel, long ofs, int len) throws IOException {
+        ByteBuffer header = read(channel, ofs, Math.min(len, LzmaUtil.HEADER_SIZE));
+        return LzmaUtil.isCompressed(header) ? LzmaUtil.getUncompressedSize(header) : -1;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - position)));
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, position + bb.position()) < 0) {
+                break;
+            }
+        }
+        return bb.flip();
+    }
+}
@@ -12,6 +12,7 @@ package info.ata4.bspsrc.decompiler;
 
 import info.ata4.bspsrc.decompiler.modules.texture.Texture;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureAxis;
+import info.ata4.bspsrc.decompiler.util.FixedDecimalFormat;
 import info.ata4.bspsrc.lib.entity.Entity;
 import info.ata4.bspsrc.lib.entity.KeyValue;
 import info.ata4.bspsrc.lib.vector.Vector3d;
@@ -20,14 +21,21 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Closeable;
-import java.io.PrintWriter;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * Class to write formatted VMF files.
+ * <p>
+ * Output is encoded to US-ASCII straight into a reusable byte buffer, which
+ * is flushed to the channel whenever it runs full. Characters that can't be
+ * encoded are replaced with '?', like the US-ASCII charset encoder does.
  *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
@@ -35,37 +43,51 @@ public class VmfWriter implements Closeable {
 
     private static final Logger L = LogManager.getLogger();
 
-    private final PrintWriter pw;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] TABS = "\t".repeat(64).getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+
     private final Deque<String> section = new ArrayDeque<>();
 
-    private final int doubleScale;
-    private final int doubleScaleTextureAxes;
-    private final int doubleScaleTextureScale;
+    // scratch space for float values, reused so no strings are created
+    private final StringBuilder floatBuf = new StringBuilder(32);
+    private boolean rowEmpty;
+
+    private final FixedDecimalFormat doubleFormat;
+    private final FixedDecimalFormat textureAxesFormat;
+    private final FixedDecimalFormat textureScaleFormat;
 
     public VmfWriter(
-            PrintWriter pw,
+            WritableByteChannel out,
             int doubleScale,
             int doubleScaleTextureAxes,
             int doubleScaleTextureScale
     ) {
-        this.pw = pw;
-        this.doubleScale = doubleScale;
-        this.doubleScaleTextureAxes = doubleScaleTextureAxes;
-        this.doubleScaleTextureScale = doubleScaleTextureScale;
+        this.out = requireNonNull(out);
+        this.doubleFormat = new FixedDecimalFormat(doubleScale);
+        this.textureAxesFormat = new FixedDecimalFormat(doubleScaleTextureAxes);
+        this.textureScaleFormat = new FixedDecimalFormat(doubleScaleTextureScale);
     }
 
     private void indent() {
-        for (int i = 0; i < section.size(); i++) {
-            pw.print("\t");
+        int depth = section.size();
+        while (depth > 0) {
+            int n = Math.min(depth, TABS.length);
+            write(TABS, n);
+            depth -= n;
         }
     }
 
     public void start(String name) {
         indent();
-        pw.print(name);
-        pw.print("\r\n");
+        write(name);
+        newLine();
         indent();
-        pw.print("{\r\n");
+        write('{');
+        newLine();
 
         section.addFirst(name);
     }
@@ -80,36 +102,53 @@ public class VmfWriter implements Closeable {
         section.removeFirst();
 
         indent();
-        pw.print("}\r\n");
+        write('}');
+        newLine();
     }
 
     public void put(String key, String value) {
-        indent();
-        pw.printf("\"%s\" \"%s\"\r\n", key, value);
+        startValue(key);
+        write(value);
+        endValue();
     }
 
     public void put(String key, int value) {
-        put(key, String.valueOf(value));
+        startValue(key);
+        write(value);
+        endValue();
     }
 
     public void put(String key, int... values) {
-        put(key, Arrays.stream(values).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+        startValue(key);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                write(' ');
+            }
+            write(values[i]);
+        }
+        endValue();
     }
 
     public void put(String key, long value) {
-        put(key, String.valueOf(value));
+        startValue(key);
+        write(value);
+        endValue();
     }
 
     public void put(String key, float value) {
-        put(key, formatFloat(value, doubleScale));
+        put(key, (double) value);
     }
 
     public void put(String key, double value) {
-        put(key, formatFloat(value, doubleScale));
+        startValue(key);
+        write(value, doubleFormat);
+        endValue();
     }
 
     public void put(String key, boolean value) {
-        put(key, value ? "1" : "0");
+        startValue(key);
+        write(value ? '1' : '0');
+        endValue();
     }
 
     public void put(String key, char value) {
@@ -117,11 +156,13 @@ public class VmfWriter implements Closeable {
     }
 
     public void put(String key, Vector3f v, int p) {
-        put(key, formatVector3d(v.toDouble(), p));
+        put(key, v.toDouble(), p);
     }
 
     public void put(String key, Vector3d v, int p) {
-        put(key, formatVector3d(v, p));
+        startValue(key);
+        write(v, p);
+        endValue();
     }
 
     public void put(String key, Vector3f v) {
@@ -133,13 +174,19 @@ public class VmfWriter implements Closeable {
     }
 
     public void put(String key, Vector3d v1, Vector3d v2, Vector3d v3) {
-        put(key, formatVector3d(v1, 1) + " "
-                + formatVector3d(v2, 1) + " "
-                + formatVector3d(v3, 1));
+        startValue(key);
+        write(v1, 1);
+        write(' ');
+        write(v2, 1);
+        write(' ');
+        write(v3, 1);
+        endValue();
     }
 
     public void put(String key, TextureAxis axis) {
-        put(key, formatTextureAxis(axis));
+        startValue(key);
+        write(axis);
+        endValue();
     }
 
     public void put(Map<String, String> stringMap) {
@@ -165,70 +212,231 @@ public class VmfWriter implements Closeable {
         put(keyValue.getKey(), keyValue.getValue());
     }
 
-    private String formatVector3d(Vector3d v, int p) {
-        StringBuilder sb = new StringBuilder();
+    /**
+     * Starts a row value like {@code "row0"} that is written value by value
+     * with the {@code putRowValue} methods, so rows of displacements don't
+     * need to be built as strings first. Values are separated by spaces,
+     * the row must be finished with {@link #endRow()}.
+     *
+     * @param row row index
+     */
+    public void startRow(int row) {
+        indent();
+        write('"');
+        write("row");
+        write(row);
+        write('"');
+        write(' ');
+        write('"');
+        rowEmpty = true;
+    }
+
+    /**
+     * Writes a float value of a row in the same format as
+     * {@link Float#toString(float)}.
+     */
+    public void putRowValue(float value) {
+        startRowValue();
+        write(value);
+    }
+
+    public void putRowValue(int value) {
+        startRowValue();
+        write(value);
+    }
 
+    public void endRow() {
+        endValue();
+    }
+
+    private void startRowValue() {
+        if (!rowEmpty) {
+            write(' ');
+        }
+        rowEmpty = false;
+    }
+
+    private void startValue(String key) {
+        indent();
+        write('"');
+        write(key);
+        write('"');
+        write(' ');
+        write('"');
+    }
+
+    private void endValue() {
+        write('"');
+        newLine();
+    }
+
+    private void write(Vector3d v, int p) {
         if (p == 1) {
-            sb.append('(');
+            write('(');
         } else if (p == 2) {
-            sb.append('[');
+            write('[');
         }
 
         if (!v.isValid()) {
             L.warn("Invalid vector: {}", v);
-            sb.append("0 0 0");
+            write("0 0 0");
         } else {
-            sb.append(formatFloat(v.x(), doubleScale)).append(' ');
-            sb.append(formatFloat(v.y(), doubleScale)).append(' ');
-            sb.append(formatFloat(v.z(), doubleScale));
+            write(v.x(), doubleFormat);
+            write(' ');
+            write(v.y(), doubleFormat);
+            write(' ');
+            write(v.z(), doubleFormat);
         }
 
         if (p == 1) {
-            sb.append(')');
+            write(')');
         } else if (p == 2) {
-            sb.append(']');
+            write(']');
         }
-
-        return sb.toString();
     }
 
-    private String formatTextureAxis(TextureAxis tx) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
+    private void write(TextureAxis tx) {
+        write('[');
 
         if (!tx.axis.isValid()) {
             L.warn("Invalid vector: {}", tx.axis);
-            sb.append("0 0 0 ");
+            write("0 0 0 ");
         } else {
-            sb.append(formatFloat(tx.axis.x(), doubleScaleTextureAxes)).append(' ');
-            sb.append(formatFloat(tx.axis.y(), doubleScaleTextureAxes)).append(' ');
-            sb.append(formatFloat(tx.axis.z(), doubleScaleTextureAxes)).append(' ');
+            write(tx.axis.x(), textureAxesFormat);
+            write(' ');
+            write(tx.axis.y(), textureAxesFormat);
+            write(' ');
+            write(tx.axis.z(), textureAxesFormat);
+            write(' ');
         }
 
-        sb.append(tx.shift);
-        sb.append("] ");
-        sb.append(formatFloat(tx.tw, doubleScaleTextureScale));
+        write(tx.shift);
+        write(']');
+        write(' ');
+        write(tx.tw, textureScaleFormat);
+    }
 
-        return sb.toString();
+    private void write(double f, FixedDecimalFormat format) {
+        ensure(format.maxLength());
+        pos = format.format(f, buf, pos);
     }
 
-    private static final ThreadLocal<Map<Integer, DecimalFormat>> FORMATTERS = ThreadLocal.withInitial(HashMap::new);
-    private static DecimalFormat createFormatter(int decimalPlaces) {
-        return new DecimalFormat("0." + "#".repeat(decimalPlaces), new DecimalFormatSymbols(Locale.ENGLISH));
+    private void write(float f) {
+        // whole numbers are by far the most common values, -0.0 and values
+        // from 10^7 use a different format and take the slow path
+        int i = (int) f;
+        if (i == f && i > -10_000_000 && i < 10_000_000 && (i != 0 || Float.floatToRawIntBits(f) == 0)) {
+            write(i);
+            ensure(2);
+            buf[pos++] = '.';
+            buf[pos++] = '0';
+            return;
+        }
+
+        floatBuf.setLength(0);
+        floatBuf.append(f);
+
+        int len = floatBuf.length();
+        ensure(len);
+        for (int j = 0; j < len; j++) {
+            buf[pos++] = (byte) floatBuf.charAt(j);
+        }
+    }
+
+    private void write(long v) {
+        ensure(20);
+
+        // work with negative numbers so Long.MIN_VALUE needs no special case
+        if (v < 0) {
+            buf[pos++] = '-';
+        } else {
+            v = -v;
+        }
+
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' - (v % 10));
+            v /= 10;
+        } while (v != 0);
+
+        // digits were written in reverse
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    private void write(String str) {
+        if (str == null) {
+            str = "null";
+        }
+
+        for (int i = 0, n = str.length(); i < n; i++) {
+            char c = str.charAt(i);
+
+            if (c >= 0x80) {
+                // surrogate pairs are replaced as a whole
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    i++;
+                }
+                c = '?';
+            }
+
+            if (pos == buf.length) {
+                flush();
+            }
+            buf[pos++] = (byte) c;
+        }
     }
 
-    private String formatFloat(double f, int decimalPlaces) {
-        if (decimalPlaces == 0)
-            return Double.toString(f);
+    private void write(char c) {
+        if (pos == buf.length) {
+            flush();
+        }
+        buf[pos++] = (byte) (c < 0x80 ? c : '?');
+    }
 
-        return FORMATTERS.get()
-                .computeIfAbsent(decimalPlaces, VmfWriter::createFormatter)
-                .format(f);
+    private void write(byte[] b, int len) {
+        ensure(len);
+        System.arraycopy(b, 0, buf, pos, len);
+        pos += len;
+    }
+
+    private void newLine() {
+        ensure(2);
+        buf[pos++] = '\r';
+        buf[pos++] = '\n';
+    }
+
+    private void ensure(int len) {
+        if (buf.length - pos < len) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all buffered output to the channel.
+     */
+    public void flush() {
+        try {
+            var bb = ByteBuffer.wrap(buf, 0, pos);
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+            pos = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
-    public void close() {
-        pw.close();
+    public void close() throws IOException {
+        try (out) {
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
         // stack should be empty, otherwise someone forgot to call end() at least once
         if (!section.isEmpty()) {
@@ -10,12 +10,13 @@
 package info.ata4.bspsrc.decompiler.modules;
 
 import info.ata4.bspsrc.lib.BspFileReader;
-import info.ata4.bspsrc.lib.lump.Lump;
-import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.lump.LumpDigests;
+import info.ata4.bspsrc.lib.util.ChecksumType;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.zip.CRC32;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * BSP checksum calculator based on Source's server map CRC check.
@@ -28,26 +29,32 @@ public class BspChecksum extends ModuleRead {
         super(reader);
     }
 
+    /**
+     * Returns the CRC across all lumps except for the entities, as checked
+     * by Source servers.
+     */
     public long getMapCRC() {
-        CRC32 crc = new CRC32();
-
-        // CRC across all lumps except for the Entities lump
-        for (Lump lump : bspFile.getLumps()) {
-            if (lump.getType() == LumpType.LUMP_ENTITIES) {
-                continue;
-            }
-
-            crc.update(lump.getBuffer());
-        }
-
-        return crc.getValue();
+        return getLumpDigests(ChecksumType.CRC32).getMapChecksum();
     }
 
+    /**
+     * Returns the CRC of the whole file. The file is mapped and hashed in
+     * parallel chunks instead of reading it into the heap.
+     */
     public long getFileCRC() throws IOException {
-        var bytes = Files.readAllBytes(bspFile.getFile());
+        try (var channel = FileChannel.open(bspFile.getFile(), StandardOpenOption.READ)) {
+            var bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return ChecksumType.CRC32.computeAsync(bb, ForkJoinPool.commonPool()).join();
+        }
+    }
 
-        var crc = new CRC32();
-        crc.update(bytes);
-        return crc.getValue();
+    /**
+     * Computes the checksums of all lumps in parallel.
+     *
+     * @param type checksum type
+     * @return digest table
+     */
+    public LumpDigests getLumpDigests(ChecksumType type) {
+        return LumpDigests.compute(bspFile, type);
     }
 }
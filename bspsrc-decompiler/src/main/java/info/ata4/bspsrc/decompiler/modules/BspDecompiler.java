@@ -26,6 +26,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main decompiling module.
@@ -46,13 +47,14 @@ public class BspDecompiler extends ModuleDecompile {
     private final EntitySource entsrc;
     private final BspProtection bspprot;
     private final VmfMeta vmfmeta;
+    private final WindingFactory windingFactory;
 
     public BspDecompiler(BspFileReader reader, VmfWriter writer, BspSourceConfig config) {
         super(reader, writer);
 
         this.config = config;
 
-        var windingFactory = WindingFactory.forAppId(bspFile.getAppId());
+        windingFactory = WindingFactory.forAppId(bspFile.getAppId());
         var brushBounds = new BrushBounds(windingFactory);
 
         var apReallocationData = AreaportalMapper.createReallocationData(reader.getData(), config, windingFactory);
@@ -73,6 +75,12 @@ public class BspDecompiler extends ModuleDecompile {
      * Starts the decompiling process
      */
     public void start() {
+        // build the geometry up front, the VMF itself is still written
+        // sequentially so the output doesn't depend on the thread count
+        if (config.decompileThreads > 1) {
+            prepareGeometry();
+        }
+
         // check for protection and warn if the map has been protected
         if (!config.skipProt) {
             checkProtection();
@@ -80,7 +88,13 @@ public class BspDecompiler extends ModuleDecompile {
 
         // we only need these for brushplanes mode
         if (config.brushMode == BrushMode.BRUSHPLANES) {
-            brushSideFaceMapper.load();
+            if (config.decompileThreads > 1) {
+                try (var pool = new ForkJoinPool(config.decompileThreads)) {
+                    brushSideFaceMapper.load(pool);
+                }
+            } else {
+                brushSideFaceMapper.load();
+            }
         }
 
         // set comment
@@ -111,6 +125,23 @@ public class BspDecompiler extends ModuleDecompile {
         if (config.writeCameras) {
             vmfmeta.writeCameras();
         }
+
+        if (L.isDebugEnabled()) {
+            windingFactory.getCacheStats().forEach((name, stats) -> L.debug("Winding cache {}: {}", name, stats));
+        }
+    }
+
+    private void prepareGeometry() {
+        L.debug("Preparing geometry using {} threads", config.decompileThreads);
+
+        try (var pool = new ForkJoinPool(config.decompileThreads)) {
+            if (config.brushMode == BrushMode.BRUSHPLANES) {
+                windingFactory.loadBrushSides(bsp, pool);
+            }
+
+            // used by the brush side mapper and all face modes
+            windingFactory.loadFaces(bsp, pool);
+        }
     }
 
     private void checkProtection() {
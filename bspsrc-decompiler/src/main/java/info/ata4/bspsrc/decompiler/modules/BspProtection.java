@@ -15,8 +15,8 @@ import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.entity.Entity;
 import info.ata4.bspsrc.lib.struct.DBrush;
-import info.ata4.bspsrc.lib.struct.DBrushSide;
-import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.struct.view.BrushSideView;
+import info.ata4.bspsrc.lib.struct.view.PlaneView;
 import info.ata4.bspsrc.lib.vector.Vector3d;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.logging.log4j.LogManager;
@@ -24,7 +24,10 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
 
@@ -65,6 +68,10 @@ public class BspProtection extends ModuleRead {
 
     private final boolean isFixTextureNames;
 
+    // brush sides and planes are only scanned, read them from the lumps
+    private final BrushSideView brushSides;
+    private final PlaneView planes;
+
     // flags
     private boolean flaggedEnt;
     private boolean flaggedTex;
@@ -74,7 +81,9 @@ public class BspProtection extends ModuleRead {
     private boolean modifedTexinfo;
 
     // lists of protecting elements
-    private List<DBrush> protBrushes = new ArrayList<>();
+    private List<Integer> protBrushIndices = new ArrayList<>();
+    private BitSet protBrushIndexSet = new BitSet();
+    private Set<DBrush> protBrushes = new HashSet<>();
     private List<Entity> protEntities = new ArrayList<>();
 
     public BspProtection(
@@ -93,6 +102,9 @@ public class BspProtection extends ModuleRead {
         reader.loadPlanes();
         reader.loadBrushes();
         reader.loadBrushSides();
+
+        brushSides = reader.viewBrushSides();
+        planes = reader.viewPlanes();
     }
 
     public boolean check() {
@@ -188,10 +200,21 @@ public class BspProtection extends ModuleRead {
      */
     public List<DBrush> getProtectedBrushes() {
         List<DBrush> list = new ArrayList<>();
-        list.addAll(protBrushes);
+        for (int ibrush : protBrushIndices) {
+            list.add(bsp.brushes.get(ibrush));
+        }
         return list;
     }
 
+    /**
+     * Returns the brush indices of all found protector brushes.
+     *
+     * @return list of protector brush indices
+     */
+    public List<Integer> getProtectedBrushIndices() {
+        return new ArrayList<>(protBrushIndices);
+    }
+
     /**
      * Checks if the given brush is a protector brush.
      * 
@@ -202,6 +225,16 @@ public class BspProtection extends ModuleRead {
         return protBrushes.contains(brush);
     }
 
+    /**
+     * Checks if the brush with the given index is a protector brush.
+     *
+     * @param ibrush brush index
+     * @return true if the brush is part of the protection prefab.
+     */
+    public boolean isProtectedBrush(int ibrush) {
+        return protBrushIndexSet.get(ibrush);
+    }
+
     /**
      * Returns all found protector entities.
      * 
@@ -226,12 +259,14 @@ public class BspProtection extends ModuleRead {
     private void checkBrushes() {
         L.debug("Checking for protector prefab");
 
-        DBrush b1 = null;
-        DBrush b2 = null;
-        DBrush b3 = null;
+        int b1 = -1;
+        int b2 = -1;
+        int b3 = -1;
 
         // check every brush
-        for (DBrush b : bsp.brushes) {
+        for (int i = 0; i < bsp.brushes.size(); i++) {
+            DBrush b = bsp.brushes.get(i);
+
             // ignore brushes that don't fit
             if (!isAlignedBrush(b) || !isSameTexBrush(b)) {
                 continue;
@@ -242,43 +277,49 @@ public class BspProtection extends ModuleRead {
 
             // check brush dimensions with prefab constants
             if (PB1.sub(bsize).length() < EPS_SIZE) {
-                b1 = b;
+                b1 = i;
             }
             if (PB2.sub(bsize).length() < EPS_SIZE) {
-                b2 = b;
+                b2 = i;
             }
             if (PB3.sub(bsize).length() < EPS_SIZE) {
-                b3 = b;
+                b3 = i;
             }
 
             // check if all three brushes exists
-            if (b1 != null && b2 != null && b3 != null) {
+            if (b1 != -1 && b2 != -1 && b3 != -1) {
                 L.debug("Found protector prefab!");
                 flaggedBrush = true;
 
-                protBrushes.add(b1);
-                protBrushes.add(b2);
-                protBrushes.add(b3);
+                addProtectedBrush(b1);
+                addProtectedBrush(b2);
+                addProtectedBrush(b3);
 
-                b1 = null;
-                b2 = null;
-                b3 = null;
+                b1 = -1;
+                b2 = -1;
+                b3 = -1;
             }
         }
     }
 
+    private void addProtectedBrush(int ibrush) {
+        protBrushIndices.add(ibrush);
+        protBrushIndexSet.set(ibrush);
+        protBrushes.add(bsp.brushes.get(ibrush));
+    }
+
     private void checkBrushSides() {
         L.debug("Checking for nodraw brush sides (ratio limit: {})", NODRAW_RATIO_LIMIT);
 
         double nodrawSides = 0;
 
-        for (DBrushSide bs : bsp.brushSides) {
-            if (bs.texinfo == 0) {
+        for (int i = 0; i < brushSides.size(); i++) {
+            if (brushSides.moveTo(i).getTexinfo() == 0) {
                 nodrawSides++;
             }
         }
 
-        double nodrawRatio = nodrawSides / bsp.brushSides.size();
+        double nodrawRatio = nodrawSides / brushSides.size();
 
         // check if there're too many nodraw brush sides
         modifedTexinfo = nodrawRatio > NODRAW_RATIO_LIMIT;
@@ -378,13 +419,12 @@ public class BspProtection extends ModuleRead {
         }
 
         for (int i = 0; i < 6; i++) {
-            DBrushSide bs = bsp.brushSides.get(brush.fstside + i);
-            DPlane bpl = bsp.planes.get(bs.pnum);
+            planes.moveTo(brushSides.moveTo(brush.fstside + i).getPlaneIndex());
 
-            for (float value : bpl.normal) {
-                if (Math.abs(value) > ALIGNED_ALPHA) {
-                    return true;
-                }
+            if (Math.abs(planes.getNormalX()) > ALIGNED_ALPHA
+                    || Math.abs(planes.getNormalY()) > ALIGNED_ALPHA
+                    || Math.abs(planes.getNormalZ()) > ALIGNED_ALPHA) {
+                return true;
             }
         }
 
@@ -400,8 +440,8 @@ public class BspProtection extends ModuleRead {
     private boolean isSameTexBrush(DBrush brush) {
         var texnames = isFixTextureNames ? texsrc.getFixedTextureNames() : bsp.texnames;
         
-        DBrushSide bs = bsp.brushSides.get(brush.fstside);
-        String texname = TextureSource.getTextureName(bs.texinfo, bsp.texinfos, bsp.texdatas, texnames);
+        int texinfo = brushSides.moveTo(brush.fstside).getTexinfo();
+        String texname = TextureSource.getTextureName(texinfo, bsp.texinfos, bsp.texdatas, texnames);
 
         if (texname == null) {
             // this side has no valid texture
@@ -409,8 +449,8 @@ public class BspProtection extends ModuleRead {
         }
 
         for (int i = 1; i < brush.numside; i++) {
-            bs = bsp.brushSides.get(brush.fstside + i);
-            String nexttexname = TextureSource.getTextureName(bs.texinfo, bsp.texinfos, bsp.texdatas, texnames);
+            texinfo = brushSides.moveTo(brush.fstside + i).getTexinfo();
+            String nexttexname = TextureSource.getTextureName(texinfo, bsp.texinfos, bsp.texdatas, texnames);
 
             if (!texname.equalsIgnoreCase(nexttexname)) {
                 return false;
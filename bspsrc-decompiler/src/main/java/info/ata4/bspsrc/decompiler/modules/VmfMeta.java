@@ -12,6 +12,7 @@ package info.ata4.bspsrc.decompiler.modules;
 import info.ata4.bspsrc.common.util.AlphanumComparator;
 import info.ata4.bspsrc.decompiler.VmfWriter;
 import info.ata4.bspsrc.decompiler.modules.entity.Camera;
+import info.ata4.bspsrc.decompiler.util.IntIndexTable;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.entity.Entity;
 import org.apache.logging.log4j.LogManager;
@@ -36,9 +37,9 @@ public class VmfMeta extends ModuleDecompile {
     private final Random random = new Random();
 
     // UID mappings
-    private Map<Integer, Integer> faceUIDs = new HashMap<>();
-    private Map<Integer, Integer> origFaceUIDs = new HashMap<>();
-    private Map<Integer, Integer> dispinfoUIDs = new HashMap<>();
+    private final IntIndexTable faceUIDs;
+    private final IntIndexTable origFaceUIDs;
+    private final IntIndexTable dispinfoUIDs;
 
     // UID blacklist
     private Set<Integer> uidbl = new HashSet<>();
@@ -61,6 +62,10 @@ public class VmfMeta extends ModuleDecompile {
     public VmfMeta(BspFileReader reader, VmfWriter writer) {
         super(reader, writer);
 
+        faceUIDs = IntIndexTable.forLump(bsp.faces);
+        origFaceUIDs = IntIndexTable.forLump(bsp.origFaces);
+        dispinfoUIDs = IntIndexTable.forLump(bsp.dispinfos);
+
         worldspawn = bsp.entities.stream()
                 .filter(entity -> entity.getClassName().equalsIgnoreCase("worldspawn"))
                 .findAny()
@@ -108,18 +113,13 @@ public class VmfMeta extends ModuleDecompile {
      * @return brush side ID or -1 if the index isn't mapped yet
      */
     public int getFaceUID(int iface) {
-        if (faceUIDs.containsKey(iface)) {
-            return faceUIDs.get(iface);
-        } else {
-            // try origface
-            int ioface = bsp.faces.get(iface).origFace;
-            if (origFaceUIDs.containsKey(ioface)) {
-                return origFaceUIDs.get(ioface);
-            }
+        int uid = faceUIDs.get(iface);
+        if (uid != IntIndexTable.NONE) {
+            return uid;
         }
 
-        // not found
-        return -1;
+        // try origface, not found if it isn't mapped either
+        return origFaceUIDs.get(bsp.faces.get(iface).origFace);
     }
 
     /**
@@ -130,7 +130,7 @@ public class VmfMeta extends ModuleDecompile {
      * @return previously mapped UID or <tt>null</tt> if there was no mapping
      */
     public Integer setFaceUID(int iface, int id) {
-        return faceUIDs.put(iface, id);
+        return previousUID(faceUIDs.put(iface, id));
     }
 
     /**
@@ -141,7 +141,7 @@ public class VmfMeta extends ModuleDecompile {
      * @return previously mapped UID or <tt>null</tt> if there was no mapping
      */
     public Integer setOrigFaceUID(int iface, int id) {
-        return origFaceUIDs.put(iface, id);
+        return previousUID(origFaceUIDs.put(iface, id));
     }
 
     /**
@@ -151,12 +151,7 @@ public class VmfMeta extends ModuleDecompile {
      * @return brush side ID or -1 if the index isn't mapped yet
      */
     public int getDispInfoUID(int idispinfo) {
-        if (dispinfoUIDs.containsKey(idispinfo)) {
-            return dispinfoUIDs.get(idispinfo);
-        }
-
-        // not found
-        return -1;
+        return dispinfoUIDs.get(idispinfo);
     }
 
     /**
@@ -167,7 +162,11 @@ public class VmfMeta extends ModuleDecompile {
      * @return previously mapped UID or <tt>null</tt> if there was no mapping
      */
     public Integer setDispInfoUID(int idispinfo, int id) {
-        return dispinfoUIDs.put(idispinfo, id);
+        return previousUID(dispinfoUIDs.put(idispinfo, id));
+    }
+
+    private static Integer previousUID(int uid) {
+        return uid != IntIndexTable.NONE ? uid : null;
     }
 
     public void appendComment(String comment) {
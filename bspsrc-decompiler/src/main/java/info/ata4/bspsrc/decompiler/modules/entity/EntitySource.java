@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
@@ -480,57 +481,56 @@ public class EntitySource extends ModuleDecompile {
     public void writeDetails() {
         L.info("Writing func_details");
 
-        Set<DBrush> funcDetailBrushes = bsp.brushes.stream()
-                .filter(brushsrc::isFuncDetail)
-                .filter(dBrush -> !bspprot.isProtectedBrush(dBrush))
-                .collect(Collectors.toSet());
+        // work on brush indices so the brushes can be written without
+        // searching for them in the brush list again
+        List<Integer> funcDetailBrushes = IntStream.range(0, bsp.brushes.size())
+                .filter(ibrush -> brushsrc.isFuncDetail(bsp.brushes.get(ibrush)))
+                .filter(ibrush -> !bspprot.isProtectedBrush(ibrush))
+                .boxed()
+                .toList();
 
-        Set<Set<DBrush>> funcDetailBrushGroups;
+        Collection<List<Integer>> funcDetailBrushGroups;
 
         if (config.detailMerge) {
-            int newGroupId = 0;
-            Map<DBrush, Integer> brushGroups = new HashMap<>();
-            for (DBrush funcDetailBrush : funcDetailBrushes) {
-                AABB bounds = brushBounds.getBounds(bsp, funcDetailBrush);
-                AABB extendedBounds = bounds.expand(config.detailMergeThresh);
-
-                // get all ids of groups that touch this brush
-                Set<Integer> intersectingGroupIds = new HashSet<>();
-                brushGroups.forEach((dBrush, groupId) -> {
-                    if (!intersectingGroupIds.contains(groupId)) {
-                        AABB otherBrushBounds = brushBounds.getBounds(bsp, dBrush);
-                        if (extendedBounds.intersectsWith(otherBrushBounds)) {
-                            intersectingGroupIds.add(groupId);
-                        }
+            List<AABB> bounds = funcDetailBrushes.stream()
+                    .map(ibrush -> brushBounds.getBounds(bsp, bsp.brushes.get(ibrush)))
+                    .toList();
+
+            // two brushes belong to the same group if their bounds are closer
+            // than the threshold, so only neighbours in the grid need to be tested
+            AABBGrid grid = new AABBGrid(bounds);
+            DisjointSet brushGroups = new DisjointSet(funcDetailBrushes.size());
+            for (int i = 0; i < funcDetailBrushes.size(); i++) {
+                int brushI = i;
+                AABB extendedBounds = bounds.get(i).expand(config.detailMergeThresh);
+
+                grid.query(extendedBounds, otherBrushI -> {
+                    if (otherBrushI != brushI && extendedBounds.intersectsWith(bounds.get(otherBrushI))) {
+                        brushGroups.union(brushI, otherBrushI);
                     }
                 });
-
-                if (!intersectingGroupIds.isEmpty()) {
-                    int finalNewGroupId = newGroupId;
-                    brushGroups.replaceAll((dBrush, groupId) -> {
-                        return intersectingGroupIds.contains(groupId) ? finalNewGroupId : groupId;
-                    });
-                }
-                brushGroups.put(funcDetailBrush, newGroupId++);
             }
 
-            Map<Integer, Set<DBrush>> inverseBrushGroups = new HashMap<>();
-            brushGroups.forEach((dBrush, groupId) -> inverseBrushGroups.computeIfAbsent(groupId, HashSet::new).add(dBrush));
-            funcDetailBrushGroups = new HashSet<>(inverseBrushGroups.values());
+            Map<Integer, List<Integer>> inverseBrushGroups = new LinkedHashMap<>();
+            for (int i = 0; i < funcDetailBrushes.size(); i++) {
+                inverseBrushGroups.computeIfAbsent(brushGroups.find(i), key -> new ArrayList<>())
+                        .add(funcDetailBrushes.get(i));
+            }
+            funcDetailBrushGroups = inverseBrushGroups.values();
         } else {
             funcDetailBrushGroups = funcDetailBrushes.stream()
-                    .map(Collections::singleton)
-                    .collect(Collectors.toSet());
+                    .map(List::of)
+                    .toList();
         }
 
-        for (Set<DBrush> funcDetailBrushGroup : funcDetailBrushGroups) {
+        for (List<Integer> funcDetailBrushGroup : funcDetailBrushGroups) {
             writer.start("entity");
             writer.put("id", vmfmeta.getUID());
             writer.put("classname", "func_detail");
 
-            funcDetailBrushGroup.stream()
-                    .map(bsp.brushes::indexOf)
-                    .forEach(brushsrc::writeBrush);
+            for (int ibrush : funcDetailBrushGroup) {
+                brushsrc.writeBrush(ibrush);
+            }
 
             writer.end("entity");
         }
@@ -538,15 +538,15 @@ public class EntitySource extends ModuleDecompile {
         // TODO: doesn't this cause all protected brushes to be written as func_detail
         //  (and therefore also causing some brushes to be written twice)?
         // write protector brushes separately
-        List<DBrush> protBrushes = bspprot.getProtectedBrushes();
+        List<Integer> protBrushes = bspprot.getProtectedBrushIndices();
         if (!protBrushes.isEmpty()) {
             writer.start("entity");
             writer.put("id", vmfmeta.getUID());
             writer.put("classname", "func_detail");
             vmfmeta.writeMetaVisgroup("VMEX protector brushes");
 
-            for (DBrush protBrush : protBrushes) {
-                brushsrc.writeBrush(bsp.brushes.indexOf(protBrush));
+            for (int ibrush : protBrushes) {
+                brushsrc.writeBrush(ibrush);
             }
 
             writer.end("entity");
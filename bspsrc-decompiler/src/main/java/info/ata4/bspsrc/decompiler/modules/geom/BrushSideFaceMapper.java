@@ -1,16 +1,22 @@
 package info.ata4.bspsrc.decompiler.modules.geom;
 
 import info.ata4.bspsrc.decompiler.modules.ModuleRead;
+import info.ata4.bspsrc.decompiler.util.IntIndexTable;
 import info.ata4.bspsrc.decompiler.util.Winding;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.struct.DBrush;
 import info.ata4.bspsrc.lib.struct.DBrushSide;
 import info.ata4.bspsrc.lib.struct.DFace;
+import info.ata4.bspsrc.lib.vector.Vector3d;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -24,11 +30,14 @@ public class BrushSideFaceMapper extends ModuleRead {
 	// epsilon for area comparison slop, in mu^2
 	private static final float AREA_EPS = 1.0f;
 
+	private static final int[] EMPTY = new int[0];
+
 	private final WindingFactory windingFactory;
 
 	// This is modelled with the assumption that the relation between brushsides and original faces is always N to 1
 	// So in other words any particular brushside can only ever have 0 or 1 original face
-	public final Map<Integer, Integer> brushSideToOrigFace = new HashMap<>();
+	// sized from the brush side lump in load()
+	public IntIndexTable brushSideToOrigFace = new IntIndexTable(0);
 	public final Map<Integer, HashSet<Integer>> origFaceToBrushSide = new HashMap<>();
 
 	public BrushSideFaceMapper(BspFileReader reader, WindingFactory windingFactory) {
@@ -38,6 +47,19 @@ public class BrushSideFaceMapper extends ModuleRead {
 	}
 
 	public void load() {
+		load(null);
+	}
+
+	/**
+	 * Maps the brush sides to their original faces. The candidates of every
+	 * brush side are searched in parallel if a pool is given, the mapping is
+	 * then applied in brush order, so the result doesn't depend on the
+	 * number of threads.
+	 *
+	 * @param pool pool for the candidate search or {@code null} to search on
+	 *             the calling thread
+	 */
+	public void load(ForkJoinPool pool) {
 		reader.loadOriginalFaces();
 		reader.loadFaces();
 		reader.loadBrushSides();
@@ -45,8 +67,17 @@ public class BrushSideFaceMapper extends ModuleRead {
 		reader.loadEdges();
 		reader.loadVertices();
 
-		identifyExactMatches();
-		identifyMergedMatches();
+		if (brushSideToOrigFace.size() == 0) {
+			brushSideToOrigFace = IntIndexTable.forLump(bsp.brushSides);
+		}
+
+		// only faces that share their key with a brush side can ever be candidates
+		Set<FaceIndexKey> sideKeys = bsp.brushSides.stream()
+				.map(FaceIndexKey::fromBrushSide)
+				.collect(Collectors.toSet());
+
+		identifyExactMatches(pool, sideKeys);
+		identifyMergedMatches(pool, sideKeys);
 	}
 
 	/**
@@ -55,66 +86,80 @@ public class BrushSideFaceMapper extends ModuleRead {
 	 * <p>
 	 * Currently, this also checks for dispInfo, even though in practice brushsides always seem
 	 * to have dispInfo of 0
+	 * <p>
+	 * If more than one original face matches a brushside, the one with the lowest index that
+	 * isn't already mapped to a previous brushside is used.
 	 */
-	private void identifyExactMatches() {
+	private void identifyExactMatches(ForkJoinPool pool, Set<FaceIndexKey> sideKeys) {
 
 		// setup index for fast searching
-		Map<FaceIndexKey, Set<Integer>> origFaceIndex = IntStream.range(0, bsp.origFaces.size())
-				.boxed()
-				.collect(Collectors.groupingBy(
-						origFaceI -> FaceIndexKey.fromFace(bsp.origFaces.get(origFaceI)),
-						Collectors.toCollection(HashSet::new)
-				));
+		Map<FaceIndexKey, FaceBucket> origFaceIndex = buildIndex(pool, sideKeys, bsp.origFaces,
+				origFaceI -> true, origFaceI -> windingFactory.fromOrigFace(bsp, origFaceI));
+
+		// find all matching original faces of every brushside
+		int[][][] matches = new int[bsp.brushes.size()][][];
+		forEachBrush(pool, brushI -> {
+			DBrush brush = bsp.brushes.get(brushI);
+			int[][] brushMatches = new int[brush.numside][];
 
-		// for every brushside find a matching original face
-		for (DBrush brush : bsp.brushes) {
 			for (int i = 0; i < brush.numside; i++) {
-				int brushSideIndex = brush.fstside + i;
-				DBrushSide brushSide = bsp.brushSides.get(brushSideIndex);
-				Winding brushSideWinding = windingFactory.fromSide(bsp, brush, brushSide);
-
-				Set<Integer> potentialFaces = origFaceIndex.getOrDefault(
-						FaceIndexKey.fromBrushSide(brushSide),
-						Collections.emptySet()
-				);
-				potentialFaces.stream()
-						.filter(origFaceI -> windingFactory.fromFace(bsp, bsp.origFaces.get(origFaceI))
+				DBrushSide brushSide = bsp.brushSides.get(brush.fstside + i);
+				Winding brushSideWinding = windingFactory.fromSide(bsp, brush, i);
+				FaceBucket bucket = origFaceIndex.get(FaceIndexKey.fromBrushSide(brushSide));
+				if (bucket == null) {
+					brushMatches[i] = EMPTY;
+					continue;
+				}
+
+				brushMatches[i] = Arrays.stream(bucket.query(brushSideWinding))
+						.filter(origFaceI -> windingFactory.fromOrigFace(bsp, origFaceI)
 								.matches(brushSideWinding))
-						.findAny()
-						.ifPresent(origFaceI -> {
-							potentialFaces.remove(origFaceI); // remove it so it's not considered twice
-							brushSideToOrigFace.put(brushSideIndex, origFaceI);
-							origFaceToBrushSide.computeIfAbsent(origFaceI, key -> new HashSet<>())
-									.add(brushSideIndex);
-						});
+						.sorted()
+						.toArray();
+			}
+
+			matches[brushI] = brushMatches;
+		});
+
+		// assign the first original face that wasn't used yet
+		boolean[] used = new boolean[bsp.origFaces.size()];
+		for (int brushI = 0; brushI < bsp.brushes.size(); brushI++) {
+			DBrush brush = bsp.brushes.get(brushI);
+			for (int i = 0; i < brush.numside; i++) {
+				for (int origFaceI : matches[brushI][i]) {
+					if (!used[origFaceI]) {
+						used[origFaceI] = true; // so it's not considered twice
+						putMapping(brush.fstside + i, origFaceI);
+						break;
+					}
+				}
 			}
 		}
 
-		Set<? extends DFace> remainingOrigFaces = origFaceIndex.values().stream()
-				.flatMap(Collection::stream)
-				.map(bsp.origFaces::get)
-				.collect(Collectors.toSet());
+		long origFacesNonDispRemaining = 0, origFacesNonDispTotal = 0;
+		long origFacesDispRemaining = 0, origFacesDispTotal = 0;
+		for (int origFaceI = 0; origFaceI < bsp.origFaces.size(); origFaceI++) {
+			if (bsp.origFaces.get(origFaceI).dispInfo >= 0) {
+				origFacesDispTotal++;
+				if (!used[origFaceI]) origFacesDispRemaining++;
+			} else {
+				origFacesNonDispTotal++;
+				if (!used[origFaceI]) origFacesNonDispRemaining++;
+			}
+		}
 
 		int extractMatchesFound = brushSideToOrigFace.size();
 		int extactMatchesPossible = bsp.brushSides.size();
 		L.info(String.format("%d (%.1f%%) exact brushside->origface matches",
 				extractMatchesFound, 100.0 * extractMatchesFound / extactMatchesPossible));
 
-		Map<Boolean, Long> partitionedRemainingOrigFacesCount = remainingOrigFaces.stream()
-				.collect(Collectors.partitioningBy(dFace -> dFace.dispInfo >= 0, Collectors.counting()));
-		Map<Boolean, Long> partitionedOrigFacesCount = bsp.origFaces.stream()
-				.collect(Collectors.partitioningBy(dFace -> dFace.dispInfo >= 0, Collectors.counting()));
-		var origFacesNonDispRemaining = partitionedRemainingOrigFacesCount.get(false);
-		var origFacesNonDispTotal = partitionedOrigFacesCount.get(false);
-		var origFacesDispRemaining = partitionedRemainingOrigFacesCount.get(true);
-		var origFacesDispTotal = partitionedOrigFacesCount.get(true);
 		L.info(String.format("%d (%.1f%%) nondisp and %d (%.1f%%) disp original faces left after exact brushside->origface matching",
 				origFacesNonDispRemaining, 100.0 * origFacesNonDispRemaining / origFacesNonDispTotal,
 				origFacesDispRemaining, 100.0 * origFacesDispRemaining / origFacesDispTotal));
 	}
 
 	/**
-	 * For some reason the matching process in {@link #identifyExactMatches()} doesn't identify
+	 * For some reason the matching process in {@link #identifyExactMatches} doesn't identify
 	 * all matches. Some brushsides are still left, even though visually they seem to belong to some
 	 * original face.
 	 * <p>
@@ -128,52 +173,44 @@ public class BrushSideFaceMapper extends ModuleRead {
 	 * @see <a href="https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/mp/src/utils/vbsp/faces.cpp#L1086">
 	 *     https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/mp/src/utils/vbsp/faces.cpp#L1086</a>
 	 */
-	private void identifyMergedMatches() {
+	private void identifyMergedMatches(ForkJoinPool pool, Set<FaceIndexKey> sideKeys) {
 
-		// setup index for fast searching
-		Map<FaceIndexKey, Set<Integer>> faceIndex = IntStream.range(0, bsp.faces.size())
-				.boxed()
-				.collect(Collectors.groupingBy(
-						faceI -> FaceIndexKey.fromFace(bsp.faces.get(faceI)),
-						Collectors.toCollection(HashSet::new)
-				));
+		// setup index for fast searching, only use faces that have an original face
+		Map<FaceIndexKey, FaceBucket> faceIndex = buildIndex(pool, sideKeys, bsp.faces,
+				faceI -> bsp.faces.get(faceI).origFace >= 0, faceI -> windingFactory.fromFace(bsp, faceI));
 
-		int oldMappingCount = brushSideToOrigFace.size();
+		// the brushsides are independent of each other here, only the ones
+		// without an exact match are searched
+		int[][] matches = new int[bsp.brushes.size()][];
+		forEachBrush(pool, brushI -> {
+			DBrush brush = bsp.brushes.get(brushI);
+			int[] brushMatches = new int[brush.numside];
 
-		for (DBrush brush : bsp.brushes) {
 			for (int i = 0; i < brush.numside; i++) {
 				int brushSideIndex = brush.fstside + i;
+				DBrushSide brushSide = bsp.brushSides.get(brushSideIndex);
+				FaceBucket bucket = faceIndex.get(FaceIndexKey.fromBrushSide(brushSide));
 
-				if (brushSideToOrigFace.containsKey(brushSideIndex))
-					continue;
+				brushMatches[i] = bucket == null || brushSideToOrigFace.containsKey(brushSideIndex)
+						? -1
+						: findMergedMatch(brush, i, bucket);
+			}
 
-				DBrushSide brushSide = bsp.brushSides.get(brushSideIndex);
-				Winding brushSideWinding = windingFactory.fromSide(bsp, brush, brushSide);
-				var normal = bsp.planes.get(brushSide.pnum).normal.toDouble();
-
-				Set<Integer> potentialFaces = faceIndex.getOrDefault(
-						FaceIndexKey.fromBrushSide(brushSide),
-						Collections.emptySet()
-				);
-				potentialFaces.stream()
-						.map(bsp.faces::get)
-						.filter(dFace -> dFace.origFace >= 0) // only use faces that have an original face
-						.collect(Collectors.groupingBy(
-								dFace -> dFace.origFace,
-								Collectors.summingDouble(dFace ->  windingFactory.fromFace(bsp, dFace)
-										.clipWinding(brushSideWinding, normal)
-										.getArea())
-						))
-						.entrySet()
-						.stream()
-						.filter(entry -> entry.getValue() > AREA_EPS)
-						.max(Map.Entry.comparingByKey())
-						.map(Map.Entry::getKey)
-						.ifPresent(origFaceI -> {
-							brushSideToOrigFace.put(brushSideIndex, origFaceI);
-							origFaceToBrushSide.computeIfAbsent(origFaceI, key -> new HashSet<>())
-									.add(brushSideIndex);
-						});
+			matches[brushI] = brushMatches;
+		});
+
+		int oldMappingCount = brushSideToOrigFace.size();
+
+		for (int brushI = 0; brushI < bsp.brushes.size(); brushI++) {
+			DBrush brush = bsp.brushes.get(brushI);
+			for (int i = 0; i < brush.numside; i++) {
+				int brushSideIndex = brush.fstside + i;
+				int origFaceI = matches[brushI][i];
+
+				// brushes may share sides, the first one wins
+				if (origFaceI >= 0 && !brushSideToOrigFace.containsKey(brushSideIndex)) {
+					putMapping(brushSideIndex, origFaceI);
+				}
 			}
 		}
 
@@ -183,8 +220,106 @@ public class BrushSideFaceMapper extends ModuleRead {
 		));
 	}
 
+	/**
+	 * Sums the area of all faces that overlap with a brushside by their original face.
+	 *
+	 * @return the highest original face index with an area above {@link #AREA_EPS} or -1
+	 */
+	private int findMergedMatch(DBrush brush, int side, FaceBucket bucket) {
+		DBrushSide brushSide = bsp.brushSides.get(brush.fstside + side);
+		Winding brushSideWinding = windingFactory.fromSide(bsp, brush, side);
+		var normal = bsp.planes.getNormal(brushSide.pnum).toDouble();
+
+		// sorted by original face, then by face
+		long[] candidates = Arrays.stream(bucket.query(brushSideWinding))
+				.mapToLong(faceI -> (long) bsp.faces.get(faceI).origFace << 32 | faceI)
+				.sorted()
+				.toArray();
+
+		// test the highest original faces first, so the remaining ones can be skipped
+		int end = candidates.length;
+		while (end > 0) {
+			int origFaceI = (int) (candidates[end - 1] >>> 32);
+			int start = end - 1;
+			while (start > 0 && (int) (candidates[start - 1] >>> 32) == origFaceI) {
+				start--;
+			}
+
+			double area = 0;
+			for (int j = start; j < end; j++) {
+				area += windingFactory.fromFace(bsp, (int) candidates[j])
+						.getClippedArea(brushSideWinding, normal);
+			}
+
+			if (area > AREA_EPS) {
+				return origFaceI;
+			}
+
+			end = start;
+		}
+
+		return -1;
+	}
+
+	private void putMapping(int brushSideIndex, int origFaceI) {
+		brushSideToOrigFace.put(brushSideIndex, origFaceI);
+		origFaceToBrushSide.computeIfAbsent(origFaceI, key -> new HashSet<>())
+				.add(brushSideIndex);
+	}
+
+	private void forEachBrush(ForkJoinPool pool, IntConsumer action) {
+		IntStream brushes = IntStream.range(0, bsp.brushes.size());
+		if (pool == null) {
+			brushes.forEach(action);
+		} else {
+			pool.submit(() -> brushes.parallel().forEach(action)).join();
+		}
+	}
+
+	private Map<FaceIndexKey, FaceBucket> buildIndex(ForkJoinPool pool, Set<FaceIndexKey> sideKeys,
+			List<? extends DFace> faces, IntPredicate filter, IntFunction<Winding> windings) {
+		List<Map.Entry<FaceIndexKey, List<Integer>>> groups = IntStream.range(0, faces.size())
+				.filter(filter)
+				.boxed()
+				.collect(Collectors.groupingBy(faceI -> FaceIndexKey.fromFace(faces.get(faceI))))
+				.entrySet()
+				.stream()
+				.filter(entry -> sideKeys.contains(entry.getKey()))
+				.toList();
+
+		FaceBucket[] buckets = new FaceBucket[groups.size()];
+		IntConsumer build = groupI -> {
+			var group = groups.get(groupI);
+			buckets[groupI] = new FaceBucket(bsp.planes.getNormal(group.getKey().pnum()).toDouble(),
+					group.getValue(), windings);
+		};
+
+		IntStream range = IntStream.range(0, groups.size());
+		if (pool == null) {
+			range.forEach(build);
+		} else {
+			pool.submit(() -> range.parallel().forEach(build)).join();
+		}
+
+		Map<FaceIndexKey, FaceBucket> index = new HashMap<>();
+		for (int groupI = 0; groupI < buckets.length; groupI++) {
+			index.put(groups.get(groupI).getKey(), buckets[groupI]);
+		}
+		return index;
+	}
+
 	public Optional<Integer> getOrigFaceIndex(int brushSideI) {
-		return Optional.ofNullable(brushSideToOrigFace.get(brushSideI));
+		int origFaceI = brushSideToOrigFace.get(brushSideI);
+		return origFaceI != IntIndexTable.NONE ? Optional.of(origFaceI) : Optional.empty();
+	}
+
+	/**
+	 * Same as {@link #getOrigFaceIndex(int)} without the optional.
+	 *
+	 * @return original face index or -1 if the brush side has no face
+	 */
+	public int getOrigFace(int brushSideI) {
+		return brushSideToOrigFace.get(brushSideI);
 	}
 
 	public Set<Integer> getBrushSideIndices(int origFaceI) {
@@ -204,4 +339,147 @@ public class BrushSideFaceMapper extends ModuleRead {
 				return new FaceIndexKey(side.pnum, side.texinfo, (short) (side.dispinfo - 1)); // -1 ?
 		}
 	}
+
+	/**
+	 * Faces of one {@link FaceIndexKey}, so all of them lie on the same plane.
+	 * Their bounds are projected to 2D by dropping the major axis of the plane
+	 * normal and sorted by the lower u bound, which allows to skip all faces
+	 * that can't overlap with a brushside.
+	 */
+	private static class FaceBucket {
+
+		// larger than any bounds difference of matching or overlapping windings
+		private static final double EPS = Winding.EPS_COMP;
+
+		private final int uAxis;
+		private final int vAxis;
+
+		// sorted by minU, empty windings last
+		private final int[] faces;
+		private final double[] minU;
+		private final double[] maxU;
+		private final double[] minV;
+		private final double[] maxV;
+		private final double maxWidth;
+
+		// faces without a valid winding, these are always candidates
+		private final int[] invalid;
+
+		FaceBucket(Vector3d normal, List<Integer> faceIndices, IntFunction<Winding> windings) {
+			double ax = Math.abs(normal.x());
+			double ay = Math.abs(normal.y());
+			double az = Math.abs(normal.z());
+			if (ax >= ay && ax >= az) {
+				uAxis = 1;
+				vAxis = 2;
+			} else if (ay >= az) {
+				uAxis = 0;
+				vAxis = 2;
+			} else {
+				uAxis = 0;
+				vAxis = 1;
+			}
+
+			int size = faceIndices.size();
+			double[][] bounds = new double[size][];
+			int numInvalid = 0;
+			for (int i = 0; i < size; i++) {
+				try {
+					bounds[i] = bounds(windings.apply(faceIndices.get(i)));
+				} catch (RuntimeException ex) {
+					// fails again when the face is tested
+					numInvalid++;
+				}
+			}
+
+			Integer[] order = IntStream.range(0, size)
+					.filter(i -> bounds[i] != null)
+					.boxed()
+					.sorted(Comparator.comparingDouble(i -> bounds[i][0]))
+					.toArray(Integer[]::new);
+
+			faces = new int[order.length];
+			minU = new double[order.length];
+			maxU = new double[order.length];
+			minV = new double[order.length];
+			maxV = new double[order.length];
+
+			double width = 0;
+			for (int i = 0; i < order.length; i++) {
+				double[] b = bounds[order[i]];
+				faces[i] = faceIndices.get(order[i]);
+				minU[i] = b[0];
+				maxU[i] = b[1];
+				minV[i] = b[2];
+				maxV[i] = b[3];
+				width = Math.max(width, b[1] - b[0]);
+			}
+			maxWidth = width;
+
+			invalid = new int[numInvalid];
+			for (int i = 0, j = 0; i < size; i++) {
+				if (bounds[i] == null) {
+					invalid[j++] = faceIndices.get(i);
+				}
+			}
+		}
+
+		private double[] bounds(Winding winding) {
+			double[] b = {
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+			};
+
+			for (Vector3d vert : winding) {
+				double u = vert.get(uAxis);
+				double v = vert.get(vAxis);
+				b[0] = Math.min(b[0], u);
+				b[1] = Math.max(b[1], u);
+				b[2] = Math.min(b[2], v);
+				b[3] = Math.max(b[3], v);
+			}
+
+			return b;
+		}
+
+		/**
+		 * Returns all faces whose bounds overlap with a brushside winding.
+		 * Windings with less than 3 vertices can't be clipped against, so
+		 * all faces are returned for them.
+		 */
+		int[] query(Winding winding) {
+			if (winding.size() < 3) {
+				int[] all = Arrays.copyOf(faces, faces.length + invalid.length);
+				System.arraycopy(invalid, 0, all, faces.length, invalid.length);
+				return all;
+			}
+
+			double[] q = bounds(winding);
+
+			// first face whose minU can be within reach
+			double from = q[0] - maxWidth - EPS;
+			int lo = 0, hi = faces.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (minU[mid] < from) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+
+			int[] result = invalid.length > 0 ? Arrays.copyOf(invalid, invalid.length + 4) : new int[4];
+			int count = invalid.length;
+			for (int i = lo; i < faces.length && minU[i] <= q[1] + EPS; i++) {
+				if (maxU[i] >= q[0] - EPS && minV[i] <= q[3] + EPS && maxV[i] >= q[2] - EPS) {
+					if (count == result.length) {
+						result = Arrays.copyOf(result, count * 2);
+					}
+					result[count++] = faces[i];
+				}
+			}
+
+			return Arrays.copyOf(result, count);
+		}
+	}
 }
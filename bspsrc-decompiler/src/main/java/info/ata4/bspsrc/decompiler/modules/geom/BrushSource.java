@@ -16,11 +16,13 @@ import info.ata4.bspsrc.decompiler.modules.BspDecompiler;
 import info.ata4.bspsrc.decompiler.modules.BspProtection;
 import info.ata4.bspsrc.decompiler.modules.ModuleDecompile;
 import info.ata4.bspsrc.decompiler.modules.VmfMeta;
+import info.ata4.bspsrc.decompiler.modules.texture.TexinfoTable;
 import info.ata4.bspsrc.decompiler.modules.texture.Texture;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureBuilder;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
 import info.ata4.bspsrc.decompiler.modules.texture.ToolTexture;
 import info.ata4.bspsrc.decompiler.util.BspTreeStats;
+import info.ata4.bspsrc.decompiler.util.IntIndexTable;
 import info.ata4.bspsrc.decompiler.util.OccluderMapper;
 import info.ata4.bspsrc.decompiler.util.Winding;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
@@ -57,6 +59,7 @@ public class BrushSource extends ModuleDecompile {
     private final BspProtection bspprot;
     private final VmfMeta vmfmeta;
     private final BrushSideFaceMapper brushSideFaceMapper;
+    private final TexinfoTable texinfoTable;
 
     // additional model data
     private List<DBrushModel> models = new ArrayList<>();
@@ -65,8 +68,8 @@ public class BrushSource extends ModuleDecompile {
     private int worldbrushes = 0;
 
     // brush side ID mappings
-    private Map<Integer, Integer> brushSideToID = new HashMap<>();
-    private Map<Integer, Integer> brushIndexToID = new HashMap<>();
+    private final IntIndexTable brushSideToID;
+    private final IntIndexTable brushIndexToID;
 
     public BrushSource(
             BspFileReader reader, VmfWriter writer,
@@ -87,6 +90,12 @@ public class BrushSource extends ModuleDecompile {
         this.brushSideFaceMapper = requireNonNull(brushSideFaceMapper);
         this.windingFactory = requireNonNull(windingFactory);
         this.occReallocationData = requireNonNull(occReallocationData);
+        this.brushSideToID = IntIndexTable.forLump(bsp.brushSides);
+        this.brushIndexToID = IntIndexTable.forLump(bsp.brushes);
+        this.texinfoTable = new TexinfoTable(
+                bsp,
+                config.fixCubemapTextures ? texsrc.getFixedTextureNames() : bsp.texnames
+        );
 
         assignBrushes();
     }
@@ -108,12 +117,7 @@ public class BrushSource extends ModuleDecompile {
      * @return brush side ID or -1 if the index isn't mapped yet
      */
     public int getBrushSideIDForIndex(int ibrushside) {
-        if (brushSideToID.containsKey(ibrushside)) {
-            return brushSideToID.get(ibrushside);
-        }
-
-        // not found
-        return -1;
+        return brushSideToID.get(ibrushside);
     }
 
     /**
@@ -125,12 +129,7 @@ public class BrushSource extends ModuleDecompile {
      * @return brush ID or -1 if the index isn't mapped yet
      */
     public int getBrushIDForIndex(int ibrush) {
-        if (brushIndexToID.containsKey(ibrush)) {
-            return brushIndexToID.get(ibrush);
-        }
-
-        // not found
-        return -1;
+        return brushIndexToID.get(ibrush);
     }
 
     /**
@@ -221,7 +220,7 @@ public class BrushSource extends ModuleDecompile {
             }
 
             try {
-                Winding wind = windingFactory.fromSide(bsp, brush, brushSide).removeDegenerated();
+                Winding wind = windingFactory.fromSide(bsp, brush, i).removeDegenerated();
 
                 // skip sides with no vertices
                 if (wind.isEmpty()) {
@@ -349,22 +348,22 @@ public class BrushSource extends ModuleDecompile {
         var ev13 = e3.sub(e1);
         var normal = ev12.cross(ev13).normalize();
         
-        var texinfo = TextureBuilder.lookupTexinfo(brushSide.texinfo, bsp.texinfos);
-        var texdata = texinfo == null ? null : TextureBuilder.lookupTexdata(texinfo.texdata, bsp.texdatas);
-        var texname = texdata == null ? null : TextureBuilder.lookupTexname(texdata.texname, bsp.texnames);
+        // texinfo, texdata and material are resolved once per texinfo
+        var resolved = texinfoTable.get(brushSide.texinfo);
+        var texinfo = resolved == null ? null : resolved.texinfo();
+        var texdata = resolved == null ? null : resolved.texdata();
+        var texname = resolved == null ? null : resolved.texname();
         
         // build texture
         Texture texture = null;
         if (texname != null) {
-            var usedTexname = config.fixCubemapTextures
-                    ? texsrc.getFixedTextureNames().get(texdata.texname)
-                    : texname;
-            texture = TextureBuilder.buildFromTexinfo(texinfo, texdata, usedTexname, origin, angles, normal);
+            texture = resolved.buildTexture(origin, angles, normal);
         }
         if (texture == null)
             texture = TextureBuilder.buildFromNormal(normal, ToolTexture.SKIP);
         
-        boolean noFaceForSide = brushSideFaceMapper.getOrigFaceIndex(ibrushside).isEmpty();
+        int origFace = brushSideFaceMapper.getOrigFace(ibrushside);
+        boolean noFaceForSide = origFace < 0;
         String fixedToolTexture = null;
         if (config.fixToolTextures && noFaceForSide) {
             boolean isOccluderBrush = occReallocationData.isOccluderBrush(ibrush);
@@ -400,10 +399,7 @@ public class BrushSource extends ModuleDecompile {
         // map brush side index to brush side ID
         brushSideToID.put(ibrushside, sideID);
 
-        int smoothingGroups = brushSideFaceMapper.getOrigFaceIndex(ibrushside)
-                .map(bsp.origFaces::get)
-                .map(dFace -> dFace.smoothingGroups)
-                .orElse(0);
+        int smoothingGroups = origFace >= 0 ? bsp.origFaces.get(origFace).smoothingGroups : 0;
 
         writer.start("side");
         writer.put("id", sideID);
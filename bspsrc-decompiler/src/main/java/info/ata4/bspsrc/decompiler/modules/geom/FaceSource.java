@@ -21,6 +21,8 @@ import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.struct.*;
 import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import info.ata4.bspsrc.lib.vector.Vector4f;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -54,11 +56,14 @@ public class FaceSource extends ModuleDecompile {
     private final TextureSource texsrc;
     private final VmfMeta vmfmeta;
 
-    // mapped original faces
-    public Map<Integer, Set<Integer>> origFaceToSplitFace = new HashMap<>();
+    // split faces of the original faces, the split faces of original face i
+    // are stored from splitFaceOffsets[i] to splitFaceOffsets[i + 1] in the
+    // order of the face lump
+    private int[] splitFaceOffsets = new int[1];
+    private int[] splitFaces = new int[0];
 
-    // set of face indices that are undersized
-    private Set<Integer> undersizedFaces = new HashSet<>();
+    // set of original face indices that are undersized
+    private final BitSet undersizedFaces = new BitSet();
 
     // current offset in multiblend lump
     private int multiblendOffset;
@@ -117,7 +122,7 @@ public class FaceSource extends ModuleDecompile {
         L.info("Writing original faces");
 
         // set of face indices that are already written
-        Set<Integer> writtenFaces = new HashSet<>();
+        BitSet writtenFaces = new BitSet();
 
         DModel model = bsp.models.get(0); // Model 0 = world brushes
 
@@ -135,12 +140,12 @@ public class FaceSource extends ModuleDecompile {
             int iorigface = face.origFace;
 
             // don't write a face more than once
-            if (writtenFaces.contains(iorigface)) {
+            if (writtenFaces.get(iorigface)) {
                 continue;
             }
 
             writeFace(iorigface, true);
-            writtenFaces.add(iorigface);
+            writtenFaces.set(iorigface);
         }
     }
 
@@ -152,7 +157,7 @@ public class FaceSource extends ModuleDecompile {
         createFaceMapping();
 
         // set of face indices that are already written
-        Set<Integer> writtenFaces = new HashSet<>();
+        BitSet writtenFaces = new BitSet();
 
         L.info("Writing original faces where possible");
 
@@ -167,27 +172,28 @@ public class FaceSource extends ModuleDecompile {
                 int iorigface = face.origFace;
 
                 // don't write a face more than once
-                if (writtenFaces.contains(iorigface)) {
+                if (writtenFaces.get(iorigface)) {
                     continue;
                 }
 
-                if (undersizedFaces.contains(iorigface)) {
+                if (undersizedFaces.get(iorigface)) {
                     // oface is undersized! write it as split faces
                     sfaces++;
 
-                    Set<Integer> faces = origFaceToSplitFace.get(face.origFace);
+                    int start = splitFaceOffsets[iorigface];
+                    int end = splitFaceOffsets[iorigface + 1];
 
                     // iterate through the corresponding faces
-                    for (Integer iface2 : faces) {
-                        writeFace(iface2, false);
+                    for (int j = start; j < end; j++) {
+                        writeFace(splitFaces[j], false);
                     }
 
                     if (L.isTraceEnabled()) {
                         StringBuilder sb = new StringBuilder();
                         sb.append("OF ").append(face.origFace).append(": ");
 
-                        for (Integer findex : faces) {
-                            sb.append(findex).append(' ');
+                        for (int j = start; j < end; j++) {
+                            sb.append(splitFaces[j]).append(' ');
                         }
 
                         L.trace(sb.toString());
@@ -197,7 +203,7 @@ public class FaceSource extends ModuleDecompile {
                     writeFace(face.origFace, true);
                 }
 
-                writtenFaces.add(iorigface);
+                writtenFaces.set(iorigface);
             } else {
                 // write the face directly
                 writeFace(iface, false);
@@ -255,7 +261,7 @@ public class FaceSource extends ModuleDecompile {
             return;
         }
 
-        Winding wind = windingFactory.fromFace(bsp, face);
+        Winding wind = orig ? windingFactory.fromOrigFace(bsp, iface) : windingFactory.fromFace(bsp, iface);
 
         // translate to origin
         if (origin != null) {
@@ -471,9 +477,9 @@ public class FaceSource extends ModuleDecompile {
     }
 
     public void writeAreaportal(int portalKey) {
-        for (DAreaportal ap : bsp.areaportals) {
-            if (ap.portalKey == portalKey) {
-                writeAreaportal(ap);
+        for (int i = 0; i < bsp.areaportals.size(); i++) {
+            if (bsp.areaportals.get(i).portalKey == portalKey) {
+                writeAreaportalPolygon(i);
                 // write only once, even though there are two DAreaportal's with
                 // that key, their geometries are identical
                 return;
@@ -482,8 +488,8 @@ public class FaceSource extends ModuleDecompile {
         L.warn("Tried to write non existing areaportal with portalkey " + portalKey);
     }
 
-    public void writeAreaportal(DAreaportal ap) {
-        Winding wind = windingFactory.fromAreaportal(bsp, ap);
+    private void writeAreaportalPolygon(int iareaportal) {
+        Winding wind = windingFactory.fromAreaportal(bsp, iareaportal);
         // TODO: extrude polygon in the correct direction, currently it seems to be random?
         writePolygon(wind, ToolTexture.AREAPORTAL, true);
     }
@@ -498,8 +504,7 @@ public class FaceSource extends ModuleDecompile {
 
     public void writeOccluder(DOccluderData od) {
         for (int i = 0; i < od.polycount; i++) {
-            DOccluderPolyData opd = bsp.occluderPolyDatas.get(od.firstpoly + i);
-            Winding wind = windingFactory.fromOccluder(bsp, opd);
+            Winding wind = windingFactory.fromOccluder(bsp, od.firstpoly + i);
             // extrude by 8 units instead of one, the skip sides are ignored anyway | Seems to be no longer the case as creating occluders in csgo doesn't even work with skip anymore - changed back to nodraw and 1 unit extrude
             writePolygon(wind, ToolTexture.OCCLUDER, ToolTexture.NODRAW, true, 1);
         }
@@ -590,174 +595,30 @@ public class FaceSource extends ModuleDecompile {
     }
 
     /**
-     * Writes dispinfo data for a brush side
+     * Writes dispinfo data for a brush side. The rows are written directly
+     * from the displacement lumps without building strings first.
      *
      * @param idispinfo dispinfo index
      */
     public void writeDisplacement(int idispinfo) {
         DDispInfo di = bsp.dispinfos.get(idispinfo);
 
-        Map<String, String> normalMap = new LinkedHashMap<>();
-        Map<String, String> distanceMap = new LinkedHashMap<>();
-        Map<String, String> alphaMap = new LinkedHashMap<>();
-        Map<String, String> triangleTagMap = new LinkedHashMap<>();
-
-        Map<String, String> multiBlendMap = new LinkedHashMap<>();
-        Map<String, String> alphaBlendMap = new LinkedHashMap<>();
-
-        List<Map<String, String>> multiBlendColorMaps = new ArrayList<>(DDispMultiBlend.MAX_MULTIBLEND_CHANNELS);
-        for (int i = 0; i < DDispMultiBlend.MAX_MULTIBLEND_CHANNELS; i++) {
-            multiBlendColorMaps.add(new LinkedHashMap<String, String>());
-        }
-
-        StringBuilder normalSb = new StringBuilder();
-        StringBuilder distanceSb = new StringBuilder();
-        StringBuilder alphaSb = new StringBuilder();
-        StringBuilder multiblendSb = new StringBuilder();
-        StringBuilder alphablendSb = new StringBuilder();
-        List<StringBuilder> multiblendColorSbs = new ArrayList<>(DDispMultiBlend.MAX_MULTIBLEND_CHANNELS);
-        for (int i = 0; i < DDispMultiBlend.MAX_MULTIBLEND_CHANNELS; i++) {
-            multiblendColorSbs.add(new StringBuilder());
-        }
-        StringBuilder triangleTagSb = new StringBuilder();
-        StringBuilder allowedVertSb = new StringBuilder();
-
         final int vertcount = di.getVertexCount();
-        final int psize = di.getPowerSize();
+        final int rowsize = di.getPowerSize() + 1;
+        final int vertstart = di.dispVertStart;
 
         final boolean hasMultiBlend = !bsp.dispmultiblend.isEmpty() && di.hasMultiBlend();
-
-        // build vertex related strings
-        for (int i = 0; i < vertcount; i++) {
-            DDispVert dv = bsp.dispverts.get(di.dispVertStart + i);
-            DDispMultiBlend dmb = null;
-            if (hasMultiBlend) {
-                dmb = bsp.dispmultiblend.get(multiblendOffset + i);
-            }
-
-            // normals
-            normalSb.append(dv.vector.x());
-            normalSb.append(" ");
-            normalSb.append(dv.vector.y());
-            normalSb.append(" ");
-            normalSb.append(dv.vector.z());
-
-            // distance
-            distanceSb.append(dv.dist);
-
-            // alpha
-            alphaSb.append(dv.alpha);
-
-            if (hasMultiBlend) {
-                // multiblend
-                multiblendSb.append(dmb.multiblend.x());
-                multiblendSb.append(" ");
-                multiblendSb.append(dmb.multiblend.y());
-                multiblendSb.append(" ");
-                multiblendSb.append(dmb.multiblend.z());
-                multiblendSb.append(" ");
-                multiblendSb.append(dmb.multiblend.w());
-
-                alphablendSb.append(dmb.alphablend.x());
-                alphablendSb.append(" ");
-                alphablendSb.append(dmb.alphablend.y());
-                alphablendSb.append(" ");
-                alphablendSb.append(dmb.alphablend.z());
-                alphablendSb.append(" ");
-                alphablendSb.append(dmb.alphablend.w());
-
-                for (int j = 0; j < dmb.multiblendcolors.length; j++) {
-                    StringBuilder mbcsb = multiblendColorSbs.get(j);
-                    mbcsb.append(dmb.multiblendcolors[j].x());
-                    mbcsb.append(" ");
-                    mbcsb.append(dmb.multiblendcolors[j].y());
-                    mbcsb.append(" ");
-                    mbcsb.append(dmb.multiblendcolors[j].z());
-                }
-            }
-
-            // check for new row
-            if (i % (psize + 1) == psize) {
-                normalMap.put("row" + normalMap.size(), normalSb.toString());
-                distanceMap.put("row" + distanceMap.size(), distanceSb.toString());
-                alphaMap.put("row" + alphaMap.size(), alphaSb.toString());
-
-                normalSb.setLength(0);
-                distanceSb.setLength(0);
-                alphaSb.setLength(0);
-
-                // multiblend
-                if (hasMultiBlend) {
-                    multiBlendMap.put("row" + multiBlendMap.size(), multiblendSb.toString());
-                    alphaBlendMap.put("row" + alphaBlendMap.size(), alphablendSb.toString());
-                    for (int j = 0; j < dmb.multiblendcolors.length; j++) {
-                        Map<String, String> multiBlendColorMap = multiBlendColorMaps.get(j);
-                        multiBlendColorMap.put("row" + multiBlendColorMap.size(),
-                                multiblendColorSbs.get(j).toString());
-                    }
-
-                    multiblendSb.setLength(0);
-                    alphablendSb.setLength(0);
-                    for (int j = 0; j < dmb.multiblendcolors.length; j++) {
-                        multiblendColorSbs.get(j).setLength(0);
-                    }
-                }
-            } else {
-                normalSb.append(" ");
-                distanceSb.append(" ");
-                alphaSb.append(" ");
-
-                if (hasMultiBlend) {
-                    multiblendSb.append(" ");
-                    alphablendSb.append(" ");
-
-                    for (int j = 0; j < dmb.multiblendcolors.length; j++) {
-                        multiblendColorSbs.get(j).append(" ");
-                    }
-                }
-            }
-        }
+        final int multiblendStart = multiblendOffset;
 
         // count up multiblend index
         if (hasMultiBlend) {
             multiblendOffset += vertcount;
         }
 
-        // build triangle tags
-        int tcount = di.getTriangleTagCount();
-
-        for (int i = 0; i < tcount; i++) {
-            int dt = bsp.disptris.get(di.dispTriStart + i).tags;
-
-            if (dt < 0 || dt > 6) {
-                dt = 0;
-            }
-
-            triangleTagSb.append(TRICONV[dt]);
-
-            // check for new row
-            if (i % 2 * psize == 2 * psize - 1) {
-                triangleTagMap.put("row" + triangleTagMap.size(), triangleTagSb.toString());
-                triangleTagSb.setLength(0);
-            } else {
-                triangleTagSb.append(" ");
-            }
-        }
-
-
-        // build allowed vertices
-        for (int i = 0; i < di.allowedVerts.length; i++) {
-            allowedVertSb.append(di.allowedVerts[i]);
-
-            if (i < di.allowedVerts.length - 1) {
-                allowedVertSb.append(" ");
-            }
-        }
-
         // write VMF data
         writer.start("dispinfo");
 
-	    if (config.debug) {
+        if (config.debug) {
             writer.put("bspsrc_dispinfo_index", idispinfo);
         }
 
@@ -768,38 +629,88 @@ public class FaceSource extends ModuleDecompile {
         writer.put("subdiv", 0);
 
         writer.start("normals");
-        writer.put(normalMap);
+        for (int row = 0; row < vertcount / rowsize; row++) {
+            writer.startRow(row);
+            for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                Vector3f normal = bsp.dispverts.get(vertstart + i).vector;
+                writer.putRowValue(normal.x());
+                writer.putRowValue(normal.y());
+                writer.putRowValue(normal.z());
+            }
+            writer.endRow();
+        }
         writer.end("normals");
 
         writer.start("distances");
-        writer.put(distanceMap);
+        for (int row = 0; row < vertcount / rowsize; row++) {
+            writer.startRow(row);
+            for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                writer.putRowValue(bsp.dispverts.get(vertstart + i).dist);
+            }
+            writer.endRow();
+        }
         writer.end("distances");
 
         writer.start("alphas");
-        writer.put(alphaMap);
+        for (int row = 0; row < vertcount / rowsize; row++) {
+            writer.startRow(row);
+            for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                writer.putRowValue(bsp.dispverts.get(vertstart + i).alpha);
+            }
+            writer.endRow();
+        }
         writer.end("alphas");
 
         writer.start("triangle_tags");
-        writer.put(triangleTagMap);
+        writeTriangleTags(di);
         writer.end("triangle_tags");
 
         writer.start("allowed_verts");
-        writer.put("10", allowedVertSb.toString());
+        writer.put("10", di.allowedVerts);
         writer.end("allowed_verts");
 
         // Multiblend
         if (hasMultiBlend) {
             writer.start("multiblend");
-            writer.put(multiBlendMap);
+            for (int row = 0; row < vertcount / rowsize; row++) {
+                writer.startRow(row);
+                for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                    Vector4f multiblend = bsp.dispmultiblend.get(multiblendStart + i).multiblend;
+                    writer.putRowValue(multiblend.x());
+                    writer.putRowValue(multiblend.y());
+                    writer.putRowValue(multiblend.z());
+                    writer.putRowValue(multiblend.w());
+                }
+                writer.endRow();
+            }
             writer.end("multiblend");
 
             writer.start("alphablend");
-            writer.put(alphaBlendMap);
+            for (int row = 0; row < vertcount / rowsize; row++) {
+                writer.startRow(row);
+                for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                    Vector4f alphablend = bsp.dispmultiblend.get(multiblendStart + i).alphablend;
+                    writer.putRowValue(alphablend.x());
+                    writer.putRowValue(alphablend.y());
+                    writer.putRowValue(alphablend.z());
+                    writer.putRowValue(alphablend.w());
+                }
+                writer.endRow();
+            }
             writer.end("alphablend");
 
             for (int j = 0; j < DDispMultiBlend.MAX_MULTIBLEND_CHANNELS; j++) {
                 writer.start("multiblend_color_" + j);
-                writer.put(multiBlendColorMaps.get(j));
+                for (int row = 0; row < vertcount / rowsize; row++) {
+                    writer.startRow(row);
+                    for (int i = row * rowsize; i < (row + 1) * rowsize; i++) {
+                        Vector3f color = bsp.dispmultiblend.get(multiblendStart + i).multiblendcolors[j];
+                        writer.putRowValue(color.x());
+                        writer.putRowValue(color.y());
+                        writer.putRowValue(color.z());
+                    }
+                    writer.endRow();
+                }
                 writer.end("multiblend_color_" + j);
             }
         }
@@ -807,33 +718,71 @@ public class FaceSource extends ModuleDecompile {
         writer.end("dispinfo");
     }
 
+    private void writeTriangleTags(DDispInfo di) {
+        int psize = di.getPowerSize();
+        int tcount = di.getTriangleTagCount();
+        int row = 0;
+        int rowStart = 0;
+
+        for (int i = 0; i < tcount; i++) {
+            // only complete rows are written
+            if (i % 2 * psize != 2 * psize - 1) {
+                continue;
+            }
+
+            writer.startRow(row++);
+            for (int j = rowStart; j <= i; j++) {
+                int dt = bsp.disptris.get(di.dispTriStart + j).tags;
+
+                if (dt < 0 || dt > 6) {
+                    dt = 0;
+                }
+
+                writer.putRowValue(TRICONV[dt]);
+            }
+            writer.endRow();
+
+            rowStart = i + 1;
+        }
+    }
+
     /**
-     * Builds a HashSet array of all faces corresponding to i'th orig face.
-     * Also calculates the area of ofaces.
+     * Builds a table of all faces corresponding to i'th orig face. The faces
+     * are kept in the order they are found in the face lump, so split faces
+     * are written in ascending index order. Older versions wrote them in the
+     * iteration order of a hash set instead. Also calculates the area of
+     * ofaces.
      */
     private void createFaceMapping() {        
         L.info("Building split face to original face maps");
 
-        // look at every face
+        int numOrigFaces = bsp.origFaces.size();
+        splitFaceOffsets = new int[numOrigFaces + 1];
+
+        // count the split faces of every original face
         for (int i = 0; i < bsp.faces.size(); i++) {
             int o = bsp.faces.get(i).origFace;
 
             // must check for no face correspondence
-            if (o == -1) {
+            if (o < 0 || o >= numOrigFaces) {
                 continue;
             }
 
-            Set<Integer> faceSet;
+            splitFaceOffsets[o + 1]++;
+        }
 
-            if (origFaceToSplitFace.containsKey(o)) {
-                faceSet = origFaceToSplitFace.get(o);
-            } else {
-                faceSet = new HashSet<>();
-                origFaceToSplitFace.put(o, faceSet);
+        Arrays.parallelPrefix(splitFaceOffsets, Integer::sum);
+
+        // add the faces to the ranges of their original faces
+        splitFaces = new int[splitFaceOffsets[numOrigFaces]];
+        int[] next = Arrays.copyOf(splitFaceOffsets, numOrigFaces);
+        for (int i = 0; i < bsp.faces.size(); i++) {
+            int o = bsp.faces.get(i).origFace;
+            if (o < 0 || o >= numOrigFaces) {
+                continue;
             }
 
-            //  add this face to the set
-            faceSet.add(i);
+            splitFaces[next[o]++] = i;
         }
 
         L.info("Building original face areas");
@@ -845,7 +794,7 @@ public class FaceSource extends ModuleDecompile {
             // recalculate face area when required
             // TODO: Don't change original DFace data...
             if (origFace.area == 0) {
-                Winding wind = windingFactory.fromFace(bsp, origFace);
+                Winding wind = windingFactory.fromOrigFace(bsp, i);
                 origFace.area = (float) wind.getArea();
             }
 
@@ -856,17 +805,15 @@ public class FaceSource extends ModuleDecompile {
             // area of face components
             float carea = 0;
 
-            Set<Integer> faceSet = origFaceToSplitFace.get(i);
-
             // iterate through the corresponding split faces
-            for (Integer face : faceSet) {
+            for (int j = splitFaceOffsets[i]; j < splitFaceOffsets[i + 1]; j++) {
                 // add up the areas of all split faces
-                carea += bsp.faces.get(face).area;
+                carea += bsp.faces.get(splitFaces[j]).area;
             }
 
             // components are bigger, within slop
             if (carea > origFace.area + AREA_EPS) {
-                undersizedFaces.add(i); // mark the oface
+                undersizedFaces.set(i); // mark the oface
 
                 if (L.isTraceEnabled()) {
                     L.trace("OF {} is undersized: {}>{}", i, carea, origFace.area);
@@ -0,0 +1,127 @@
+package info.ata4.bspsrc.decompiler.modules.texture;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DTexData;
+import info.ata4.bspsrc.lib.struct.DTexInfo;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Table of resolved textures for the texinfos of a map.
+ * <p>
+ * Looking up the texdata and material name, the lightmap scale and the
+ * normalized texture axes only depends on the texinfo, so this is done once
+ * per texinfo instead of once for every brush side that uses it. Only the
+ * origin and angles of brush entities and the check against the side normal
+ * are left for {@link Entry#buildTexture}.
+ * <p>
+ * Entries are resolved on first use. This class is not thread-safe.
+ */
+public class TexinfoTable {
+
+    private final BspData bsp;
+    private final List<String> materials;
+    private final Entry[] entries;
+    private final boolean[] resolved;
+
+    /**
+     * @param bsp BSP data
+     * @param materials material names by texname index, like
+     *                  {@link TextureSource#getFixedTextureNames()}
+     */
+    public TexinfoTable(BspData bsp, List<String> materials) {
+        this.bsp = requireNonNull(bsp);
+        this.materials = requireNonNull(materials);
+        this.entries = new Entry[bsp.texinfos.size()];
+        this.resolved = new boolean[entries.length];
+    }
+
+    /**
+     * @param itexinfo texinfo index
+     * @return resolved entry or {@code null} if the texinfo index is invalid
+     */
+    public Entry get(int itexinfo) {
+        if (itexinfo < 0 || itexinfo >= entries.length) {
+            // logs invalid indices
+            TextureBuilder.lookupTexinfo(itexinfo, bsp.texinfos);
+            return null;
+        }
+
+        if (!resolved[itexinfo]) {
+            entries[itexinfo] = resolve(bsp.texinfos.get(itexinfo));
+            resolved[itexinfo] = true;
+        }
+
+        return entries[itexinfo];
+    }
+
+    private Entry resolve(DTexInfo texinfo) {
+        var texdata = TextureBuilder.lookupTexdata(texinfo.texdata, bsp.texdatas);
+        var texname = texdata == null ? null : TextureBuilder.lookupTexname(texdata.texname, bsp.texnames);
+
+        if (texname == null) {
+            return new Entry(texinfo, texdata, null, null, 0, null, null);
+        }
+
+        var basis = TextureBuilder.buildUVBasis(texinfo);
+        return new Entry(
+                texinfo,
+                texdata,
+                texname,
+                materials.get(texdata.texname),
+                TextureBuilder.buildLightmapScale(texinfo),
+                basis,
+                TextureBuilder.buildUV(basis, texdata, null, null)
+        );
+    }
+
+    /**
+     * Resolved texture of a texinfo.
+     *
+     * @param texinfo texinfo
+     * @param texdata texdata or {@code null} if the index is invalid
+     * @param texname original texture name or {@code null} if unknown
+     * @param material material name for the VMF or {@code null} if unknown
+     * @param lightmapScale lightmap scale
+     * @param basis texture axes without origin and angles
+     * @param axes final texture axes for brushes without origin and angles
+     */
+    public record Entry(
+            DTexInfo texinfo,
+            DTexData texdata,
+            String texname,
+            String material,
+            int lightmapScale,
+            TextureBuilder.UVBasis basis,
+            TextureBuilder.Axes axes
+    ) {
+
+        /**
+         * Same as {@link TextureBuilder#buildFromTexinfo}, but reuses the
+         * resolved data.
+         *
+         * @return new texture or {@code null} if the texture name is unknown
+         */
+        public Texture buildTexture(Vector3d origin, Vector3d angles, Vector3d normal) {
+            if (texname == null) {
+                return null;
+            }
+
+            var uv = origin == null && angles == null
+                    ? axes
+                    : TextureBuilder.buildUV(basis, texdata, origin, angles);
+            if (TextureBuilder.isPerpendicular(uv.u().axis, uv.v().axis, normal))
+                uv = TextureBuilder.defaultUV(normal);
+
+            var texture = new Texture();
+            texture.texture = material;
+            texture.u = uv.u();
+            texture.v = uv.v();
+            texture.lmscale = lightmapScale;
+            return texture;
+        }
+    }
+}
@@ -141,12 +141,20 @@ public class TextureBuilder {
         );
     }
     
-    public static Axes buildUV(
-            DTexInfo texinfo,
-            DTexData texdata,
-            Vector3d origin,
-            Vector3d angles
-    ) {
+    /**
+     * Normalized texture vectors of a texinfo, before any origin or angles
+     * are applied.
+     */
+    public record UVBasis(
+            Vector3d uaxis,
+            Vector3d vaxis,
+            double utw,
+            double vtw,
+            double ushift,
+            double vshift
+    ) {}
+
+    public static UVBasis buildUVBasis(DTexInfo texinfo) {
         var tvec = texinfo.textureVecsTexels;
         var uaxis = new Vector3d(tvec[0][0], tvec[0][1], tvec[0][2]);
         var vaxis = new Vector3d(tvec[1][0], tvec[1][1], tvec[1][2]);
@@ -157,8 +165,30 @@ public class TextureBuilder {
         uaxis = uaxis.scalar(utw);
         vaxis = vaxis.scalar(vtw);
 
-        var ushift = (double) tvec[0][3];
-        var vshift = (double) tvec[1][3];
+        return new UVBasis(uaxis, vaxis, utw, vtw, tvec[0][3], tvec[1][3]);
+    }
+
+    public static Axes buildUV(
+            DTexInfo texinfo,
+            DTexData texdata,
+            Vector3d origin,
+            Vector3d angles
+    ) {
+        return buildUV(buildUVBasis(texinfo), texdata, origin, angles);
+    }
+
+    public static Axes buildUV(
+            UVBasis basis,
+            DTexData texdata,
+            Vector3d origin,
+            Vector3d angles
+    ) {
+        var uaxis = basis.uaxis();
+        var vaxis = basis.vaxis();
+        var utw = basis.utw();
+        var vtw = basis.vtw();
+        var ushift = basis.ushift();
+        var vshift = basis.vshift();
 
         // translate to origin
         if (origin != null) {
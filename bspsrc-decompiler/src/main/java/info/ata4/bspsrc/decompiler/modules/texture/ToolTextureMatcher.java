@@ -6,11 +6,15 @@ import info.ata4.bspsrc.lib.app.SourceAppId;
 import info.ata4.bspsrc.lib.struct.BrushFlag;
 import info.ata4.bspsrc.lib.struct.SurfaceFlag;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static info.ata4.bspsrc.common.util.EnumConverter.toInteger;
 import static info.ata4.bspsrc.common.util.StringUtil.equalsIgnoreCase;
 import static java.util.Objects.requireNonNull;
 
@@ -37,9 +41,30 @@ import static java.util.Objects.requireNonNull;
 ///     https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/sp/src/utils/vbsp/writebsp.cpp#L768</a>
 /// @see <a href="https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/sp/src/utils/vbsp/writebsp.cpp#L676">
 ///     https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/sp/src/utils/vbsp/writebsp.cpp#L676</a>
+///
+/// The definitions are compiled into bit masks of the flag ordinals once, so matching a definition only takes a few
+/// integer operations. Results are cached per combination of surface property and flags, since maps usually only
+/// have a handful of distinct combinations.
 public class ToolTextureMatcher {
 
+    private static final int CLIP_FLAGS = toInteger(Set.of(BrushFlag.CONTENTS_PLAYERCLIP, BrushFlag.CONTENTS_MONSTERCLIP));
+
     private final Map<String, ToolTextureDefinition> toolTextureDefinitions;
+
+    // compiled definitions in iteration order of toolTextureDefinitions
+    private final String[] names;
+    private final int[] surfaceProperties;
+    private final int[] brushFlagsMasks;
+    private final int[] brushFlagsValues;
+    private final int[] surfaceFlagsMasks;
+    private final int[] surfaceFlagsValues;
+    private final int[] brushFlagsScores;
+    private final int[] surfaceFlagsScores;
+
+    // surface property id for every texture name with a definition
+    private final Map<String, Integer> textureSurfaceProperties = new HashMap<>();
+
+    private final Map<MatchKey, Optional<String>> matchCache = new ConcurrentHashMap<>();
     
     /// Most games special case sides with [BrushFlag#CONTENTS_MONSTERCLIP] or [BrushFlag#CONTENTS_PLAYERCLIP] to all
     /// share the same texinfo, disregarding if they actually share surface flags or surface property. In games like
@@ -56,6 +81,46 @@ public class ToolTextureMatcher {
     ) {
         this.toolTextureDefinitions = Map.copyOf(toolTextureDefinitions);
         this.clipOptimization = clipOptimization;
+
+        int size = this.toolTextureDefinitions.size();
+        names = new String[size];
+        surfaceProperties = new int[size];
+        brushFlagsMasks = new int[size];
+        brushFlagsValues = new int[size];
+        surfaceFlagsMasks = new int[size];
+        surfaceFlagsValues = new int[size];
+        brushFlagsScores = new int[size];
+        surfaceFlagsScores = new int[size];
+
+        // surface properties that are equal ignoring case share the same id
+        List<String> distinctSurfaceProperties = new ArrayList<>();
+
+        int i = 0;
+        for (var ttEntry : this.toolTextureDefinitions.entrySet()) {
+            var definition = ttEntry.getValue();
+            var surfaceProperty = definition.getSurfaceProperty().orElse(null);
+
+            int surfacePropertyId = 0;
+            while (surfacePropertyId < distinctSurfaceProperties.size()
+                    && !equalsIgnoreCase(distinctSurfaceProperties.get(surfacePropertyId), surfaceProperty)) {
+                surfacePropertyId++;
+            }
+            if (surfacePropertyId == distinctSurfaceProperties.size()) {
+                distinctSurfaceProperties.add(surfaceProperty);
+            }
+
+            names[i] = ttEntry.getKey();
+            surfaceProperties[i] = surfacePropertyId;
+            brushFlagsMasks[i] = toInteger(definition.getBrushFlagsRequirements().keySet());
+            brushFlagsValues[i] = requiredBits(definition.getBrushFlagsRequirements());
+            surfaceFlagsMasks[i] = toInteger(definition.getSurfaceFlagsRequirements().keySet());
+            surfaceFlagsValues[i] = requiredBits(definition.getSurfaceFlagsRequirements());
+            brushFlagsScores[i] = definition.getBrushFlagsRequirements().size();
+            surfaceFlagsScores[i] = definition.getSurfaceFlagsRequirements().size();
+
+            textureSurfaceProperties.put(names[i], surfacePropertyId);
+            i++;
+        }
     }
 
     public static ToolTextureMatcher forAppId(int appId) {
@@ -81,61 +146,70 @@ public class ToolTextureMatcher {
             Set<SurfaceFlag> surfFlags
     ) {
         requireNonNull(brushFlags);
-        
-        var isClip = brushFlags.contains(BrushFlag.CONTENTS_PLAYERCLIP) || brushFlags.contains(BrushFlag.CONTENTS_MONSTERCLIP);
-
-        return toolTextureDefinitions.entrySet().stream()
-                .filter(ttEntry -> (isClip && clipOptimization) || matchesSurfaceProperty(ttEntry.getValue(), originalTextureName))
-                .filter(ttEntry -> matchesRequirements(ttEntry.getValue().getBrushFlagsRequirements(), brushFlags))
-                .filter(ttEntry -> (isClip && clipOptimization) || matchesRequirements(ttEntry.getValue().getSurfaceFlagsRequirements(), surfFlags))
-                // we should probably check if there are multiple definitions with the same max -> ambiguous...
-                .max(Comparator.comparingInt(ttEntry -> ttDefinitionScore(ttEntry, surfFlags == null)))
-                // accepting scores of 0 makes no sense, because nothing was matched
-                .filter(ttEntry -> ttDefinitionScore(ttEntry, surfFlags == null) > 0)
-                .map(Map.Entry::getKey);
+
+        var key = new MatchKey(
+                originalTextureName == null ? -1 : textureSurfaceProperties.getOrDefault(originalTextureName, -1),
+                toInteger(brushFlags),
+                surfFlags == null ? -1 : toInteger(surfFlags)
+        );
+
+        return matchCache.computeIfAbsent(key, this::match);
+    }
+
+    /// Finds the definition with the highest score that matches the key. On equal scores, the first one in iteration
+    /// order wins.
+    private Optional<String> match(MatchKey key) {
+        var isClip = (key.brushFlags() & CLIP_FLAGS) != 0;
+        var ignoreSurface = isClip && clipOptimization;
+        var ignoreSurfaceFlags = key.surfaceFlags() < 0;
+
+        int best = -1;
+        int bestScore = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (!ignoreSurface && !matchesSurfaceProperty(i, key.surfaceProperty()))
+                continue;
+            if ((key.brushFlags() & brushFlagsMasks[i]) != brushFlagsValues[i])
+                continue;
+            if (!ignoreSurface && !ignoreSurfaceFlags
+                    && (key.surfaceFlags() & surfaceFlagsMasks[i]) != surfaceFlagsValues[i])
+                continue;
+
+            // we should probably check if there are multiple definitions with the same max -> ambiguous...
+            int score = brushFlagsScores[i] + (ignoreSurfaceFlags ? 0 : surfaceFlagsScores[i]);
+            if (best < 0 || score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+
+        // accepting scores of 0 makes no sense, because nothing was matched
+        return best >= 0 && bestScore > 0 ? Optional.of(names[best]) : Optional.empty();
     }
 
     /// Because the optimization process in vbsp only reassigns texture with matching surface properties,
     /// we check if the original textures surface property (incase we know it), matches the proposed
     /// tooltexture definition.
     ///
-    /// @param definition the proposed [ToolTextureDefinition]
-    /// @param originalTextureName the original texture name or `null` if unknown
+    /// @param definition index of the proposed [ToolTextureDefinition]
+    /// @param originalSurfaceProperty surface property id of the original texture or `-1` if unknown
     /// @return `false`, if we know the surface properties don't match, otherwise `true`
-    private boolean matchesSurfaceProperty(ToolTextureDefinition definition, String originalTextureName) {
-        if (originalTextureName == null)
-            return true;
-
-        var originalSurfaceDefinition = toolTextureDefinitions.get(originalTextureName);
-        if (originalSurfaceDefinition == null)
-            return true;
-
-        return equalsIgnoreCase(
-                originalSurfaceDefinition.getSurfaceProperty().orElse(null),
-                definition.getSurfaceProperty().orElse(null)
-        );
+    private boolean matchesSurfaceProperty(int definition, int originalSurfaceProperty) {
+        return originalSurfaceProperty < 0 || surfaceProperties[definition] == originalSurfaceProperty;
     }
 
-    /// Helper method to check if brush/surface-flag requirements match given one.
-    private <T> boolean matchesRequirements(Map<T, Boolean> requirements, Set<T> set) {
-        if (set == null)
-            return true;
-
-        return requirements
-                .entrySet()
-                .stream()
-                .allMatch(entry -> set.contains(entry.getKey()) == entry.getValue());
+    /// Helper method to compile the flags that are required to be set into a bit mask.
+    private static <T extends Enum<T>> int requiredBits(Map<T, Boolean> requirements) {
+        int bits = 0;
+        for (var entry : requirements.entrySet()) {
+            if (entry.getValue()) {
+                bits |= 1 << entry.getKey().ordinal();
+            }
+        }
+        return bits;
     }
 
-    /// In case we have multiple proposed tooltexture definitions, which match our requirements,
-    /// we score them to select the 'best' one. We consider the tooltexture with the most requirements
-    /// to be the best fit.
-    /// 
-    /// @return score, where bigger is a better fit
-    private static int ttDefinitionScore(Map.Entry<String, ToolTextureDefinition> ttEntry, boolean ignoreSurfaceFlags) {
-        ToolTextureDefinition definition = ttEntry.getValue();
-        int brushFlagRequirements = definition.getBrushFlagsRequirements().size();
-        int surfaceFlagRequirements = definition.getSurfaceFlagsRequirements().size();
-        return brushFlagRequirements + (ignoreSurfaceFlags ? 0 : surfaceFlagRequirements);
-    }
+    /// @param surfaceProperty surface property id of the original texture or `-1` if unknown
+    /// @param brushFlags brush flag bits
+    /// @param surfaceFlags surface flag bits or `-1` if unknown
+    private record MatchKey(int surfaceProperty, int brushFlags, int surfaceFlags) {}
 }
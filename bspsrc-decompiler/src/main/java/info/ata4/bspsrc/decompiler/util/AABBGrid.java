@@ -0,0 +1,205 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid spatial index over a fixed list of bounding boxes.
+ * <p>
+ * Each box is registered in every grid cell it touches, so a query only has to
+ * look at the boxes sharing a cell with the query box instead of the whole
+ * list. Boxes that would span too many cells are kept in a separate list and
+ * are reported for every query.
+ * <p>
+ * Queries only return candidates, callers still have to do the exact
+ * intersection test. This class is not thread-safe.
+ */
+public class AABBGrid {
+
+    // boxes touching more cells than this aren't stored in the grid
+    private static final int MAX_CELLS_PER_BOX = 64;
+
+    // 21 bits per axis in the packed cell key
+    private static final long CELL_MASK = (1L << 21) - 1;
+    private static final long CELL_LIMIT = (1L << 20) - 1;
+
+    private final List<AABB> boxes;
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final int[] oversized;
+    private final int[] visited;
+    private int stamp;
+
+    public AABBGrid(List<AABB> boxes) {
+        this(boxes, suggestCellSize(boxes));
+    }
+
+    public AABBGrid(List<AABB> boxes, double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Invalid cell size " + cellSize);
+        }
+
+        this.boxes = List.copyOf(boxes);
+        this.cellSize = cellSize;
+        this.visited = new int[this.boxes.size()];
+
+        var oversizedList = new Cell();
+        for (int i = 0; i < this.boxes.size(); i++) {
+            var box = this.boxes.get(i);
+            if (isEmpty(box)) {
+                continue;
+            }
+
+            long[] range = cellRange(box);
+            if (cellCount(range) > MAX_CELLS_PER_BOX) {
+                oversizedList.add(i);
+                continue;
+            }
+
+            for (long x = range[0]; x <= range[3]; x++) {
+                for (long y = range[1]; y <= range[4]; y++) {
+                    for (long z = range[2]; z <= range[5]; z++) {
+                        cells.computeIfAbsent(cellKey(x, y, z), k -> new Cell()).add(i);
+                    }
+                }
+            }
+        }
+        this.oversized = Arrays.copyOf(oversizedList.items, oversizedList.size);
+    }
+
+    /**
+     * Returns a cell size so that a typical box touches only a few cells, which
+     * is the median of the largest box extents.
+     *
+     * @param boxes list of boxes
+     * @return suggested cell size, at least 1
+     */
+    public static double suggestCellSize(List<AABB> boxes) {
+        double[] extents = boxes.stream()
+                .filter(box -> !isEmpty(box))
+                .mapToDouble(box -> {
+                    var size = box.getSize();
+                    return Math.max(size.x(), Math.max(size.y(), size.z()));
+                })
+                .filter(Double::isFinite)
+                .sorted()
+                .toArray();
+
+        if (extents.length == 0) {
+            return 1;
+        }
+
+        return Math.max(extents[extents.length / 2], 1);
+    }
+
+    /**
+     * Calls the consumer with the index of every box that may intersect the
+     * given bounds. Each index is reported at most once per query.
+     *
+     * @param bounds query bounds
+     * @param consumer consumer for the candidate box indices
+     */
+    public void query(AABB bounds, IntConsumer consumer) {
+        if (isEmpty(bounds)) {
+            return;
+        }
+
+        long[] range = cellRange(bounds);
+
+        // cheaper to check everything than to walk a huge amount of cells
+        if (cellCount(range) > boxes.size()) {
+            for (int i = 0; i < boxes.size(); i++) {
+                if (!isEmpty(boxes.get(i))) {
+                    consumer.accept(i);
+                }
+            }
+            return;
+        }
+
+        // new stamp for this query, reset on overflow
+        if (++stamp == 0) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+
+        for (int i : oversized) {
+            visit(i, consumer);
+        }
+
+        for (long x = range[0]; x <= range[3]; x++) {
+            for (long y = range[1]; y <= range[4]; y++) {
+                for (long z = range[2]; z <= range[5]; z++) {
+                    var cell = cells.get(cellKey(x, y, z));
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    for (int j = 0; j < cell.size; j++) {
+                        visit(cell.items[j], consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    public List<AABB> getBoxes() {
+        return boxes;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private void visit(int i, IntConsumer consumer) {
+        if (visited[i] != stamp) {
+            visited[i] = stamp;
+            consumer.accept(i);
+        }
+    }
+
+    private long[] cellRange(AABB box) {
+        var min = box.getMin();
+        var max = box.getMax();
+        return new long[] {
+                cellCoord(min.x()), cellCoord(min.y()), cellCoord(min.z()),
+                cellCoord(max.x()), cellCoord(max.y()), cellCoord(max.z())
+        };
+    }
+
+    private long cellCoord(double v) {
+        double c = Math.floor(v / cellSize);
+        return (long) Math.max(-CELL_LIMIT, Math.min(CELL_LIMIT, c));
+    }
+
+    private static double cellCount(long[] range) {
+        // as double, the product may not fit into a long
+        return (double) (range[3] - range[0] + 1) * (range[4] - range[1] + 1) * (range[5] - range[2] + 1);
+    }
+
+    private static long cellKey(long x, long y, long z) {
+        return ((x & CELL_MASK) << 42) | ((y & CELL_MASK) << 21) | (z & CELL_MASK);
+    }
+
+    private static boolean isEmpty(AABB box) {
+        var min = box.getMin();
+        var max = box.getMax();
+
+        // also catches NaN values
+        return !(min.x() <= max.x() && min.y() <= max.y() && min.z() <= max.z());
+    }
+
+    private static class Cell {
+        private int[] items = new int[4];
+        private int size;
+
+        private void add(int i) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = i;
+        }
+    }
+}
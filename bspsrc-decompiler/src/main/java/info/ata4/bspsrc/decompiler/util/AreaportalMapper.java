@@ -14,7 +14,6 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static info.ata4.bspsrc.common.util.JavaUtil.zip;
-import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
 
 /**
  * Class for mapping areaportal entities to their original brushes
@@ -109,6 +108,8 @@ public class AreaportalMapper {
      *
      * <p>This is done by calculating the amount of overlap between each areaportal with each brush.
      * A mapping is then created by applying the Hungarian method to assign each areaportal to a brush.
+     * Only brushes with a side on the plane of an areaportal can overlap it, so the scores are sparse and
+     * the Hungarian method runs separately on each group of portals and brushes that share scores.
      */
     private static ReallocationData manualMapping(
             BspData bsp,
@@ -125,14 +126,13 @@ public class AreaportalMapper {
                 .toList();
 
         var scores = createScores(bsp, areaportalIBrushes, areaportalsByPortalKey, windingFactory);
-        var mappingResult = hungarian((j, w) -> scores[j][w], scores.length, scores[0].length);
-        var assignments = processMappingResult(mappingResult, scores, areaportalIBrushes, areaportalsByPortalKey);
+        var assignments = processMappingResult(scores.solve(), scores, areaportalIBrushes, areaportalsByPortalKey);
 
         var mapping = new HashMap<Integer, Integer>();
         for (int portal = 0; portal < assignments.length; portal++) {
             var portalKey = areaportalsByPortalKey.get(portal).getKey();
             var apBrush = assignments[portal];
-            if (apBrush < 0 || scores[portal][apBrush] == 0) {
+            if (apBrush < 0 || scores.get(portal, apBrush) == 0) {
                 L.warn("Could not reallocate brush for portalKey {}.", portalKey);
                 continue;
             }
@@ -146,40 +146,48 @@ public class AreaportalMapper {
     /**
      * Create the score matrix for the hungarian method. The score for a portal/brush combination is defined as 
      * the amount of overlap between a portal surface and one of the brushes sides. They can be retrieved using 
-     * scores[portal][brush].
+     * scores.get(portal, brush). Scores are only computed for brush sides that are found by a
+     * {@link BrushSideIndex}, all others are zero.
      */
-    private static double[][] createScores(
+    private static SparseAssignment createScores(
             BspData bsp,
             List<Integer> areaportalIBrushes,
             List<Map.Entry<Integer, List<Integer>>> areaportalsByPortalKey,
             WindingFactory windingFactory
     ) {
-        var scores = new double[areaportalsByPortalKey.size()][areaportalIBrushes.size()];
+        var sideIndex = new BrushSideIndex(
+                bsp,
+                windingFactory,
+                areaportalIBrushes.stream().mapToInt(Integer::intValue).toArray()
+        );
+
+        var scores = new SparseAssignment(areaportalsByPortalKey.size(), areaportalIBrushes.size());
         for (int portal = 0; portal < areaportalsByPortalKey.size(); portal++) {
-            for (int apBrush = 0; apBrush < areaportalIBrushes.size(); apBrush++) {
-                var areaportalIBrush = areaportalIBrushes.get(apBrush);
-                var brush = bsp.brushes.get(areaportalIBrush);
-
-                var bestScore = 0.0;
-                for (var iAreaportal : areaportalsByPortalKey.get(portal).getValue()) {
-                    var areaportal = bsp.areaportals.get(iAreaportal);
-                    
-                    for (var brushSide : bsp.brushSides.subList(brush.fstside, brush.fstside + brush.numside)) {
-                        double newScore = VectorUtil.matchingAreaPercentage(
-                                areaportal,
-                                brush,
-                                brushSide,
-                                bsp,
-                                windingFactory
-                        );
-                        bestScore = Math.max(bestScore, newScore);
-                    }
-                }
+            var bestScores = new HashMap<Integer, Double>();
+            for (var iAreaportal : areaportalsByPortalKey.get(portal).getValue()) {
+                sideIndex.query(
+                        bsp.areaportals.get(iAreaportal).planenum,
+                        windingFactory.fromAreaportal(bsp, iAreaportal),
+                        (apBrush, side) -> {
+                            double newScore = VectorUtil.matchingAreaportalAreaPercentage(
+                                    iAreaportal,
+                                    bsp.brushes.get(areaportalIBrushes.get(apBrush)),
+                                    side,
+                                    bsp,
+                                    windingFactory
+                            );
+                            bestScores.merge(apBrush, newScore, Math::max);
+                        }
+                );
+            }
+
+            for (var entry : bestScores.entrySet()) {
+                double bestScore = entry.getValue();
                 if (!Double.isFinite(bestScore)) {
-                    assert false: "VectorUtil.matchingAreaPercentage returned NaN";
+                    assert false: "VectorUtil.matchingAreaportalAreaPercentage returned NaN";
                     bestScore = 0;
                 }
-                scores[portal][apBrush] = bestScore;
+                scores.set(portal, entry.getKey(), bestScore);
             }
         }
         
@@ -196,24 +204,24 @@ public class AreaportalMapper {
      * process them in that order, it makes for a good heuristic for which areaportal belong to which brush.
      */
     private static int[] processMappingResult(
-            HungarianAlgorithm.Result mappingResult,
-            double[][] scores,
+            int[] mappingResult,
+            SparseAssignment scores,
             List<Integer> areaportalIBrushes,
             List<Map.Entry<Integer, List<Integer>>> areaportalsByPortalKey
     ) {
-        var assignments = mappingResult.jobToWorker().clone();
+        var assignments = mappingResult.clone();
         var groups = new HashSet<Set<Integer>>();
         
         outer:
         for (int job = 0; job < assignments.length; job++) {
             var portal = job; // because java sucks
-            if (assignments[portal] <= 0 || scores[portal][assignments[portal]] == 0)
+            if (assignments[portal] <= 0 || scores.get(portal, assignments[portal]) == 0)
                 continue;
             
             for (var group : groups) {
                 var canAddToGroup = group.stream()
-                        .allMatch(p -> scores[p][assignments[p]] == scores[portal][assignments[p]] 
-                                && scores[p][assignments[portal]] == scores[portal][assignments[portal]]);
+                        .allMatch(p -> scores.get(p, assignments[p]) == scores.get(portal, assignments[p])
+                                && scores.get(p, assignments[portal]) == scores.get(portal, assignments[portal]));
                 
                 if (canAddToGroup) {
                     group.add(portal);
@@ -299,7 +307,7 @@ public class AreaportalMapper {
             writer.put("portalKey", areaportal.portalKey);
             writer.put("otherPortal", areaportal.otherportal);
 
-            faceSource.writePolygon(windingFactory.fromAreaportal(bsp, areaportal), ToolTexture.SKIP, false);
+            faceSource.writePolygon(windingFactory.fromAreaportal(bsp, iAreaportal), ToolTexture.SKIP, false);
             vmfMeta.writeMetaVisgroups(
                     List.of(vmfMeta.visgroups()
                             .getVisgroup("debug")
@@ -0,0 +1,63 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.DBrush;
+
+/**
+ * Windings of all sides of a brush together with the bounds of the brush.
+ * <p>
+ * All sides are built at once by {@link WindingFactory#fromBrush}, so
+ * everything that needs the geometry of a brush shares one build. Every side
+ * winding is clipped from the base winding of its plane against the planes of
+ * all other non-bevel sides in side order. Rounding, start vertex and
+ * orientation of the vertices depend on that order, so the windings are
+ * exactly the same as the ones written before.
+ */
+public class BrushPolyhedron {
+
+    private final int fstside;
+    private final int numside;
+    private final Winding[] sides;
+    private final AABB bounds;
+
+    BrushPolyhedron(DBrush brush, Winding[] sides) {
+        this.fstside = brush.fstside;
+        this.numside = brush.numside;
+        this.sides = sides;
+
+        // same as combining the bounds of all sides one by one
+        AABB aabb = AABB.ZERO;
+        for (Winding side : sides) {
+            if (side != null) {
+                aabb = aabb.include(side.getBounds());
+            }
+        }
+        this.bounds = aabb;
+    }
+
+    /**
+     * @param brush brush to check
+     * @return {@code true}, if this polyhedron was built from the same sides
+     */
+    public boolean isBrush(DBrush brush) {
+        return brush.fstside == fstside && brush.numside == numside;
+    }
+
+    /**
+     * Returns the winding of a brush side.
+     *
+     * @param side brush side index relative to the first side of the brush
+     * @return winding, which is empty if the side doesn't touch the brush, or
+     *         {@code null} if the side couldn't be built
+     */
+    public Winding getSide(int side) {
+        return sides[side];
+    }
+
+    /**
+     * @return bounds of all side windings or {@link AABB#ZERO} if there are
+     *         none
+     */
+    public AABB getBounds() {
+        return bounds;
+    }
+}
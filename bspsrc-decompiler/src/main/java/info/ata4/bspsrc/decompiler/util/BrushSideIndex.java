@@ -0,0 +1,91 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DBrush;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of brush sides by plane and bounds.
+ * <p>
+ * Used to find the brush sides that may overlap a polygon, like an occluder
+ * or areaportal, without comparing the polygon against every side. Two
+ * polygons can only overlap if they lie on the same plane and their bounds
+ * touch. Sides without a valid winding are reported for every query on their
+ * plane, because {@link Winding#getClippedArea} doesn't clip against them.
+ */
+public class BrushSideIndex {
+
+    // margin for the bounds, which are flat along axial planes
+    private static final float MARGIN = (float) Winding.EPS_COMP;
+
+    private final Map<Integer, Bucket> planes = new HashMap<>();
+
+    /**
+     * @param bsp BSP data
+     * @param windingFactory winding factory for the brush sides
+     * @param iBrushes indices of the brushes to index
+     */
+    public BrushSideIndex(BspData bsp, WindingFactory windingFactory, int[] iBrushes) {
+        for (int brush = 0; brush < iBrushes.length; brush++) {
+            DBrush dBrush = bsp.brushes.get(iBrushes[brush]);
+            for (int side = 0; side < dBrush.numside; side++) {
+                int iplane = bsp.brushSides.getPlaneIndex(dBrush.fstside + side);
+                var winding = windingFactory.fromSide(bsp, dBrush, side);
+                var bounds = winding.size() < 3 ? null : winding.getBounds().expand(MARGIN);
+
+                planes.computeIfAbsent(iplane, k -> new Bucket()).add(brush, side, bounds);
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer for every indexed brush side on the given plane
+     * whose bounds touch the winding.
+     *
+     * @param iplane plane index of the winding
+     * @param winding winding to find overlapping sides for
+     * @param consumer consumer for the index into the brush array passed to
+     *                 the constructor and the side of that brush
+     */
+    public void query(int iplane, Winding winding, SideConsumer consumer) {
+        var bucket = planes.get(iplane);
+        if (bucket == null) {
+            return;
+        }
+
+        var bounds = winding.getBounds().expand(MARGIN);
+        for (int i = 0; i < bucket.size; i++) {
+            var sideBounds = bucket.bounds[i];
+            if (sideBounds == null || sideBounds.intersectsWith(bounds)) {
+                consumer.accept(bucket.brushes[i], bucket.sides[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface SideConsumer {
+        void accept(int brush, int side);
+    }
+
+    private static class Bucket {
+        private int[] brushes = new int[4];
+        private int[] sides = new int[4];
+        private AABB[] bounds = new AABB[4];
+        private int size;
+
+        private void add(int brush, int side, AABB aabb) {
+            if (size == brushes.length) {
+                brushes = Arrays.copyOf(brushes, size * 2);
+                sides = Arrays.copyOf(sides, size * 2);
+                bounds = Arrays.copyOf(bounds, size * 2);
+            }
+            brushes[size] = brush;
+            sides[size] = side;
+            bounds[size] = aabb;
+            size++;
+        }
+    }
+}
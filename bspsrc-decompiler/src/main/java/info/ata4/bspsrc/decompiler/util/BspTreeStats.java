@@ -51,14 +51,14 @@ public class BspTreeStats {
 
             // scan leaf faces
             for (int i = 0; i < l.numleafface; i++) {
-                int iface = bsp.leafFaces.get(l.fstleafface + i);
+                int iface = bsp.leafFaces.getInt(l.fstleafface + i);
                 fmax = Math.max(fmax, iface);
                 fmin = Math.min(fmin, iface);
             }
 
             // scan leaf brushes
             for (int i = 0; i < l.numleafbrush; i++) {
-                int ibrush = bsp.leafBrushes.get(l.fstleafbrush + i);
+                int ibrush = bsp.leafBrushes.getInt(l.fstleafbrush + i);
                 bmax = Math.max(bmax, ibrush);
                 bmin = Math.min(bmin, ibrush);
             }
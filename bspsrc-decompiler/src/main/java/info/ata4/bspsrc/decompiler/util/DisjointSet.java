@@ -0,0 +1,84 @@
+package info.ata4.bspsrc.decompiler.util;
+
+/**
+ * Union-find structure over the integers {@code [0, size)}.
+ * <p>
+ * Uses union by size and path halving, so any sequence of operations runs in
+ * practically linear time.
+ */
+public class DisjointSet {
+
+    private final int[] parent;
+    private final int[] size;
+
+    public DisjointSet(int size) {
+        this.parent = new int[size];
+        this.size = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+            this.size[i] = 1;
+        }
+    }
+
+    /**
+     * Returns the representative element of the set containing {@code i}.
+     *
+     * @param i element
+     * @return representative of the set of {@code i}
+     */
+    public int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merges the sets containing {@code a} and {@code b}.
+     *
+     * @param a first element
+     * @param b second element
+     * @return {@code true}, if the two elements were in different sets before
+     */
+    public boolean union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+
+        if (ra == rb) {
+            return false;
+        }
+
+        if (size[ra] < size[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        return true;
+    }
+
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    /**
+     * @return number of elements in this structure
+     */
+    public int size() {
+        return parent.length;
+    }
+
+    // number of links from an element to its representative, for tests
+    int depth(int i) {
+        int depth = 0;
+        while (parent[i] != i) {
+            i = parent[i];
+            depth++;
+        }
+        return depth;
+    }
+}
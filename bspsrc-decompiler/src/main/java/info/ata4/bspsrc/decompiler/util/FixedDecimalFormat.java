@@ -0,0 +1,159 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Fast formatter for doubles with a fixed maximum number of decimal places.
+ * <p>
+ * Produces exactly the same text as a {@link DecimalFormat} with the pattern
+ * {@code 0.###...} in {@link Locale#ENGLISH}, which is what VMF files have
+ * always been written with. Zero decimal places selects the shortest
+ * round-trip representation of {@link Double#toString(double)} instead.
+ * <p>
+ * Most coordinates are formatted with plain integer arithmetic. Values that
+ * are too large, not finite or too close to a rounding tie to decide safely
+ * are handed to the {@link DecimalFormat}. Instances are not thread-safe.
+ */
+public class FixedDecimalFormat {
+
+    // maximum scaled magnitude for the fast path, leaves enough bits of the
+    // double mantissa to tell a rounding tie from its neighbors
+    private static final double FAST_LIMIT = 0x1p40;
+
+    // minimum distance of the scaled fraction to a tie for the fast path
+    private static final double TIE_MARGIN = 0x1p-10;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L, 10000000000L, 100000000000L,
+            1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L,
+            1000000000000000000L
+    };
+
+    // sign, 309 integer digits, decimal point and fraction
+    private static final int MAX_DIGITS = 1 + 309 + 1;
+
+    private final int decimalPlaces;
+    private DecimalFormat fallback;
+
+    public FixedDecimalFormat(int decimalPlaces) {
+        if (decimalPlaces < 0) {
+            throw new IllegalArgumentException("Invalid number of decimal places " + decimalPlaces);
+        }
+
+        this.decimalPlaces = decimalPlaces;
+    }
+
+    public int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    /**
+     * @return maximum number of bytes written by {@link #format(double, byte[], int)}
+     */
+    public int maxLength() {
+        // Double.toString output is at most 24 characters long
+        return Math.max(MAX_DIGITS + decimalPlaces, 24);
+    }
+
+    public String format(double value) {
+        byte[] buf = new byte[maxLength()];
+        int len = format(value, buf, 0);
+        return new String(buf, 0, len, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the formatted value as US-ASCII into a byte array. Characters that
+     * can't be encoded, like the infinity sign, are replaced with '?'.
+     *
+     * @param value value to format
+     * @param dst destination array, with at least {@link #maxLength()} bytes
+     *            available from {@code off}
+     * @param off offset to start writing at
+     * @return offset after the last written byte
+     */
+    public int format(double value, byte[] dst, int off) {
+        if (decimalPlaces == 0) {
+            return writeString(Double.toString(value), dst, off);
+        }
+
+        if (decimalPlaces < POW10.length) {
+            double scaled = Math.abs(value) * POW10[decimalPlaces];
+
+            if (scaled < FAST_LIMIT) {
+                double rounded = Math.rint(scaled);
+                if (Math.abs(Math.abs(scaled - rounded) - 0.5) > TIE_MARGIN) {
+                    return formatFast(value, (long) rounded, dst, off);
+                }
+            }
+        }
+
+        return writeString(getFallback().format(value), dst, off);
+    }
+
+    private int formatFast(double value, long rounded, byte[] dst, int off) {
+        // DecimalFormat keeps the sign of negative values that round to zero
+        if (Double.doubleToRawLongBits(value) < 0) {
+            dst[off++] = '-';
+        }
+
+        long scale = POW10[decimalPlaces];
+        long intPart = rounded / scale;
+        long fracPart = rounded % scale;
+
+        off = writeDigits(intPart, dst, off);
+
+        if (fracPart != 0) {
+            dst[off++] = '.';
+
+            // strip trailing zeros
+            int places = decimalPlaces;
+            while (fracPart % 10 == 0) {
+                fracPart /= 10;
+                places--;
+            }
+
+            // write with leading zeros
+            for (int i = off + places - 1; i >= off; i--) {
+                dst[i] = (byte) ('0' + fracPart % 10);
+                fracPart /= 10;
+            }
+            off += places;
+        }
+
+        return off;
+    }
+
+    private static int writeDigits(long v, byte[] dst, int off) {
+        int len = 1;
+        while (len < POW10.length && v >= POW10[len]) {
+            len++;
+        }
+
+        for (int i = off + len - 1; i >= off; i--) {
+            dst[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+
+        return off + len;
+    }
+
+    private static int writeString(String str, byte[] dst, int off) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            dst[off++] = (byte) (c < 0x80 ? c : '?');
+        }
+        return off;
+    }
+
+    private DecimalFormat getFallback() {
+        if (fallback == null) {
+            fallback = new DecimalFormat("0." + "#".repeat(decimalPlaces), new DecimalFormatSymbols(Locale.ENGLISH));
+        }
+        return fallback;
+    }
+}
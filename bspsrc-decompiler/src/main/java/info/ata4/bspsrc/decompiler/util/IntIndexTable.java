@@ -0,0 +1,99 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Map from dense indices, like the element indices of a lump, to
+ * non-negative int values.
+ * <p>
+ * Values are stored in a plain array indexed by key, so lookups don't box and
+ * don't allocate. Missing entries are {@link #NONE}. The table should be sized
+ * from the lump count. Indices beyond that, like broken references in a
+ * map, are kept in a small hash map instead of growing the array to the
+ * largest index.
+ */
+public class IntIndexTable {
+
+    public static final int NONE = -1;
+
+    private final int[] values;
+    private Map<Integer, Integer> outliers;
+    private int size;
+
+    /**
+     * @param capacity number of indices stored in the array, usually the
+     *                 number of elements in the lump of the keys
+     */
+    public IntIndexTable(int capacity) {
+        values = new int[Math.max(capacity, 0)];
+        Arrays.fill(values, NONE);
+    }
+
+    /**
+     * Creates a table for the element indices of a lump.
+     *
+     * @param lump lump list or {@code null} if it isn't loaded yet
+     * @return new table
+     */
+    public static IntIndexTable forLump(List<?> lump) {
+        return new IntIndexTable(lump == null ? 0 : lump.size());
+    }
+
+    /**
+     * @param index key
+     * @return value or {@link #NONE} if the index isn't mapped
+     */
+    public int get(int index) {
+        if (index >= 0 && index < values.length) {
+            return values[index];
+        }
+        return outliers != null ? outliers.getOrDefault(index, NONE) : NONE;
+    }
+
+    public boolean containsKey(int index) {
+        return get(index) != NONE;
+    }
+
+    /**
+     * Maps an index to a value.
+     *
+     * @param index key, must not be negative
+     * @param value value, must not be negative
+     * @return previous value or {@link #NONE} if there was no mapping
+     */
+    public int put(int index, int value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+
+        int previous;
+        if (index < values.length) {
+            previous = values[index];
+            values[index] = value;
+        } else {
+            if (outliers == null) {
+                outliers = new HashMap<>();
+            }
+            Integer old = outliers.put(index, value);
+            previous = old != null ? old : NONE;
+        }
+
+        if (previous == NONE) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * @return number of mapped indices
+     */
+    public int size() {
+        return size;
+    }
+}
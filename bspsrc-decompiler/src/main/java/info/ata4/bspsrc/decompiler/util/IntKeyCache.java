@@ -0,0 +1,132 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, thread-safe cache with int keys.
+ * <p>
+ * The cache is direct-mapped: every key has exactly one slot, which is the key
+ * masked to the table size. Dense indices below the capacity therefore never
+ * evict each other, larger keys replace whatever entry occupies their slot.
+ * Lookups don't allocate and don't lock.
+ * <p>
+ * Values must be a pure function of their key, unless they are looked up with
+ * a check that rejects values computed for other inputs. Concurrent misses for
+ * the same key may compute the value more than once, in which case the last
+ * one stored wins.
+ *
+ * @param <V> value type
+ */
+public class IntKeyCache<V> {
+
+    private final AtomicReferenceArray<Entry<V>> table;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of entries, rounded up to the next power
+     *                 of two
+     */
+    public IntKeyCache(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        table = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the cached value for a key, computing and storing it if absent.
+     *
+     * @param key key
+     * @param mappingFunction function computing the value on a miss
+     * @return cached or computed value
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        return computeIfAbsent(key, v -> true, mappingFunction);
+    }
+
+    /**
+     * Returns the cached value for a key, computing and storing it if absent
+     * or if the cached value doesn't pass the check. This is meant for values
+     * that depend on more than the key, like the windings of brushes that
+     * share their sides.
+     *
+     * @param key key
+     * @param check returns {@code true} if a cached value can be used
+     * @param mappingFunction function computing the value on a miss
+     * @return cached or computed value
+     */
+    public V computeIfAbsent(int key, Predicate<? super V> check, IntFunction<? extends V> mappingFunction) {
+        int slot = key & mask;
+
+        Entry<V> entry = table.get(slot);
+        if (entry != null && entry.key == key && check.test(entry.value)) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+
+        V value = mappingFunction.apply(key);
+        Entry<V> old = table.getAndSet(slot, new Entry<>(key, value));
+        if (old != null && old.key != key) {
+            evictions.increment();
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the cached value for a key without counting a hit or miss.
+     *
+     * @param key key
+     * @return cached value or {@code null}
+     */
+    public V getIfPresent(int key) {
+        Entry<V> entry = table.get(key & mask);
+        return entry != null && entry.key == key ? entry.value : null;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+    }
+
+    public int capacity() {
+        return table.length();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public record Stats(long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "%d hits, %d misses, %d evictions (%.1f%% hit rate)"
+                    .formatted(hits, misses, evictions, hitRate() * 100);
+        }
+    }
+
+    private record Entry<V>(int key, V value) {}
+}
@@ -12,9 +12,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static info.ata4.bspsrc.common.util.Collectors.mode;
-import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
 
 /**
  * Class for mapping occluder entities to their original brushes
@@ -52,6 +52,8 @@ public class OccluderMapper {
      * 
      * <p>This is done by calculating the amount of overlap between each occluder face with each brush side.
      * A mapping is then created by applying the Hungarian method to assign each occluder to a brush.
+     * Only brush sides on the same plane as an occluder face can overlap it, so the scores are sparse and
+     * the Hungarian method runs separately on each group of occluder faces and brush sides that share scores.
      */
     private static ReallocationData manualMapping(
             BspData bsp,
@@ -73,12 +75,8 @@ public class OccluderMapper {
         Arrays.parallelPrefix(brushSideIndices, Integer::sum);
 
         var scores = createScores(bsp, windingFactory, occluderPolyIndices, brushSideIndices, firstNonWorldIBrush);
-        var mappingResult = hungarian(
-                (j, w) -> scores[j][w],
-                occluderPolyIndices.length > 0 ? occluderPolyIndices[occluderPolyIndices.length - 1] : 0,
-                brushSideIndices.length > 0 ? brushSideIndices[brushSideIndices.length - 1] : 0
-        );
-        var collectBrushes = collectBrushes(bsp, mappingResult, scores, occluderPolyIndices, brushSideIndices,
+        var assignments = scores.solve();
+        var collectBrushes = collectBrushes(bsp, assignments, scores, occluderPolyIndices, brushSideIndices,
                 firstNonWorldIBrush);
         
         var occluderToBrushes = new HashMap<Integer, Set<Integer>>();
@@ -129,8 +127,8 @@ public class OccluderMapper {
      */
     private static HashMap<Integer, Map<Integer, OccluderPoly>> collectBrushes(
             BspData bsp,
-            HungarianAlgorithm.Result mappingResult,
-            double[][] scores,
+            int[] assignments,
+            SparseAssignment scores,
             int[] occluderPolyIndices,
             int[] brushSideIndices,
             int firstNonWorldIBrush
@@ -142,8 +140,8 @@ public class OccluderMapper {
                 var offset = iOccluder > 0 ? occluderPolyIndices[iOccluder - 1] : 0;
                 var index = offset + sideOfOccluder;
                 
-                var flattenedBrushSide = mappingResult.jobToWorker()[index];
-                if (flattenedBrushSide < 0 || scores[index][flattenedBrushSide] == 0) {
+                var flattenedBrushSide = assignments[index];
+                if (flattenedBrushSide < 0 || scores.get(index, flattenedBrushSide) == 0) {
                     L.warn("Couldn't reallocate side {} of occluder {}.", sideOfOccluder, iOccluder);
                     continue;
                 }
@@ -162,9 +160,10 @@ public class OccluderMapper {
 
     /**
      * Create the score matrix for the hungarian method. The score for a occluderface/brushside combination is defined as 
-     * the amount of overlap between their surfaces. They can be retrieved using scores[occluderface][brushside].
+     * the amount of overlap between their surfaces. They can be retrieved using scores.get(occluderface, brushside).
+     * Scores are only computed for brush sides that are found by a {@link BrushSideIndex}, all others are zero.
      */
-    private static double[][] createScores(
+    private static SparseAssignment createScores(
             BspData bsp,
             WindingFactory windingFactory,
             int[] occluderPolyIndices,
@@ -174,34 +173,38 @@ public class OccluderMapper {
         int occluderSidesCount = occluderPolyIndices.length > 0 ? occluderPolyIndices[occluderPolyIndices.length - 1] : 0;
         int brushSideCount = brushSideIndices.length > 0 ? brushSideIndices[brushSideIndices.length - 1] : 0;
 
-        var scores = new double[occluderSidesCount][brushSideCount];
+        var sideIndex = new BrushSideIndex(
+                bsp,
+                windingFactory,
+                IntStream.range(firstNonWorldIBrush, bsp.brushes.size()).toArray()
+        );
+
+        var scores = new SparseAssignment(occluderSidesCount, brushSideCount);
         for (int iOccluder = 0; iOccluder < bsp.occluderDatas.size(); iOccluder++) {
             var occluder = bsp.occluderDatas.get(iOccluder);
             for (int sideOfOccluder = 0; sideOfOccluder < occluder.polycount; sideOfOccluder++) {
-                var occluderPolyData = bsp.occluderPolyDatas.get(occluder.firstpoly + sideOfOccluder);
-                
-                for (int iBrush = firstNonWorldIBrush; iBrush < bsp.brushes.size(); iBrush++) {
-                    var brush = bsp.brushes.get(iBrush);
-                    for (int sideOfBrush = 0; sideOfBrush < brush.numside; sideOfBrush++) {
-                        var brushSide = bsp.brushSides.get(brush.fstside + sideOfBrush);
+                int iOccluderPoly = occluder.firstpoly + sideOfOccluder;
+                int flattenedOccluderPoly = (iOccluder > 0 ? occluderPolyIndices[iOccluder - 1] : 0) + sideOfOccluder;
 
-                        int brushIndex = iBrush - firstNonWorldIBrush;
-                        int flattenedOccluderPoly = (iOccluder > 0 ? occluderPolyIndices[iOccluder - 1] : 0) + sideOfOccluder;
-                        int flattenedBrushSide = (brushIndex > 0 ? brushSideIndices[brushIndex - 1] : 0) + sideOfBrush;
-                        double score = VectorUtil.matchingAreaPercentage(
-                                occluderPolyData,
-                                brush,
-                                brushSide,
-                                bsp,
-                                windingFactory
-                        );
-                        if (!Double.isFinite(score)) {
-                            assert false: "VectorUtil.matchingAreaPercentage returned NaN";
-                            score = 0;
+                sideIndex.query(
+                        bsp.occluderPolyDatas.get(iOccluderPoly).planenum,
+                        windingFactory.fromOccluder(bsp, iOccluderPoly),
+                        (brushIndex, sideOfBrush) -> {
+                            int flattenedBrushSide = (brushIndex > 0 ? brushSideIndices[brushIndex - 1] : 0) + sideOfBrush;
+                            double score = VectorUtil.matchingOccluderAreaPercentage(
+                                    iOccluderPoly,
+                                    bsp.brushes.get(firstNonWorldIBrush + brushIndex),
+                                    sideOfBrush,
+                                    bsp,
+                                    windingFactory
+                            );
+                            if (!Double.isFinite(score)) {
+                                assert false: "VectorUtil.matchingOccluderAreaPercentage returned NaN";
+                                score = 0;
+                            }
+                            scores.set(flattenedOccluderPoly, flattenedBrushSide, score);
                         }
-                        scores[flattenedOccluderPoly][flattenedBrushSide] = score;
-                    }
-                }
+                );
             }
         }
         return scores;
@@ -268,7 +271,7 @@ public class OccluderMapper {
                 writer.put("iOccluderPoly", occluder.firstpoly + sideOfOccluder);
                 writer.put("planenum", occluderPoly.planenum);
 
-                faceSource.writePolygon(windingFactory.fromOccluder(bsp, occluderPoly), ToolTexture.SKIP, false);
+                faceSource.writePolygon(windingFactory.fromOccluder(bsp, occluder.firstpoly + sideOfOccluder), ToolTexture.SKIP, false);
                 vmfMeta.writeMetaVisgroups(
                         List.of(vmfMeta.visgroups()
                                 .getVisgroup("debug")
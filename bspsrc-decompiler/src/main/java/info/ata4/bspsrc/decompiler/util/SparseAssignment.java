@@ -0,0 +1,254 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+
+import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
+
+/**
+ * Maximum weight assignment of jobs to workers with a sparse weight matrix.
+ * <p>
+ * Only positive weights are stored, all other pairs have a weight of zero.
+ * Jobs and workers that are linked by positive weights form connected
+ * components, which are solved independently with the
+ * {@link HungarianAlgorithm} on a dense matrix of just that component. This
+ * gives the same total weight as solving the whole matrix, but the cost
+ * depends on the size of the components instead of the number of all jobs
+ * and workers.
+ * <p>
+ * If a component has more than one optimal assignment, a tiny bias on the
+ * weights prefers lower job and worker indices. The bias of a whole
+ * assignment stays below {@link #TIE_EPS}, so only totals closer than that
+ * count as tied. Ties the bias can't separate are resolved by the scan order
+ * of the Hungarian algorithm. Either way the result only depends on the
+ * component itself and not on the other jobs and workers.
+ */
+public class SparseAssignment {
+
+    // upper bound of the tie-breaking bias of a whole assignment
+    private static final double TIE_EPS = 1e-9;
+
+    private final int jobs;
+    private final int workers;
+
+    // positive weights per job, in insertion order
+    private final int[][] rowWorkers;
+    private final double[][] rowWeights;
+    private final int[] rowSizes;
+
+    public SparseAssignment(int jobs, int workers) {
+        this.jobs = jobs;
+        this.workers = workers;
+        this.rowWorkers = new int[jobs][];
+        this.rowWeights = new double[jobs][];
+        this.rowSizes = new int[jobs];
+    }
+
+    /**
+     * Sets the weight of a job/worker pair. Weights that aren't positive
+     * remove the pair.
+     *
+     * @param job job index
+     * @param worker worker index
+     * @param weight weight of the pair
+     */
+    public void set(int job, int worker, double weight) {
+        if (worker < 0 || worker >= workers) {
+            throw new IndexOutOfBoundsException(worker);
+        }
+
+        int i = indexOf(job, worker);
+        if (i >= 0) {
+            if (weight > 0) {
+                rowWeights[job][i] = weight;
+            } else {
+                remove(job, i);
+            }
+            return;
+        }
+
+        if (!(weight > 0)) {
+            return;
+        }
+
+        int size = rowSizes[job];
+        if (rowWorkers[job] == null) {
+            rowWorkers[job] = new int[4];
+            rowWeights[job] = new double[4];
+        } else if (size == rowWorkers[job].length) {
+            rowWorkers[job] = Arrays.copyOf(rowWorkers[job], size * 2);
+            rowWeights[job] = Arrays.copyOf(rowWeights[job], size * 2);
+        }
+
+        rowWorkers[job][size] = worker;
+        rowWeights[job][size] = weight;
+        rowSizes[job]++;
+    }
+
+    /**
+     * @param job job index
+     * @param worker worker index
+     * @return weight of the pair or zero if it wasn't set
+     */
+    public double get(int job, int worker) {
+        int i = indexOf(job, worker);
+        return i >= 0 ? rowWeights[job][i] : 0;
+    }
+
+    public int getJobs() {
+        return jobs;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Computes a maximum weight assignment.
+     *
+     * @return the assigned worker of each job or -1 if a job has no worker
+     *         with a positive weight
+     */
+    public int[] solve() {
+        var components = new DisjointSet(jobs + workers);
+        boolean[] linked = new boolean[jobs + workers];
+        for (int job = 0; job < jobs; job++) {
+            for (int i = 0; i < rowSizes[job]; i++) {
+                int node = jobs + rowWorkers[job][i];
+                components.union(job, node);
+                linked[job] = true;
+                linked[node] = true;
+            }
+        }
+
+        // number the components and count their jobs and workers
+        int[] componentIds = new int[jobs + workers];
+        Arrays.fill(componentIds, -1);
+        int numComponents = 0;
+        for (int node = 0; node < jobs + workers; node++) {
+            if (linked[node] && componentIds[components.find(node)] < 0) {
+                componentIds[components.find(node)] = numComponents++;
+            }
+        }
+
+        int[] jobOffsets = new int[numComponents + 1];
+        int[] workerOffsets = new int[numComponents + 1];
+        for (int node = 0; node < jobs + workers; node++) {
+            if (linked[node]) {
+                int c = componentIds[components.find(node)];
+                if (node < jobs) {
+                    jobOffsets[c + 1]++;
+                } else {
+                    workerOffsets[c + 1]++;
+                }
+            }
+        }
+        Arrays.parallelPrefix(jobOffsets, Integer::sum);
+        Arrays.parallelPrefix(workerOffsets, Integer::sum);
+
+        // group the jobs and workers by component in ascending order and
+        // remember their index within the component
+        int[] groupedJobs = new int[jobOffsets[numComponents]];
+        int[] groupedWorkers = new int[workerOffsets[numComponents]];
+        int[] localIndex = new int[jobs + workers];
+        int[] jobCounts = new int[numComponents];
+        int[] workerCounts = new int[numComponents];
+        for (int node = 0; node < jobs + workers; node++) {
+            if (!linked[node]) {
+                continue;
+            }
+
+            int c = componentIds[components.find(node)];
+            if (node < jobs) {
+                localIndex[node] = jobCounts[c]++;
+                groupedJobs[jobOffsets[c] + localIndex[node]] = node;
+            } else {
+                localIndex[node] = workerCounts[c]++;
+                groupedWorkers[workerOffsets[c] + localIndex[node]] = node - jobs;
+            }
+        }
+
+        int[] jobToWorker = new int[jobs];
+        Arrays.fill(jobToWorker, -1);
+
+        for (int c = 0; c < numComponents; c++) {
+            solveComponent(
+                    Arrays.copyOfRange(groupedJobs, jobOffsets[c], jobOffsets[c + 1]),
+                    Arrays.copyOfRange(groupedWorkers, workerOffsets[c], workerOffsets[c + 1]),
+                    localIndex,
+                    jobToWorker
+            );
+        }
+
+        return jobToWorker;
+    }
+
+    private void solveComponent(int[] compJobs, int[] compWorkers, int[] localIndex, int[] jobToWorker) {
+        int numJobs = compJobs.length;
+        int numWorkers = compWorkers.length;
+
+        // trivial case, no need for the full algorithm
+        if (numJobs == 1) {
+            int job = compJobs[0];
+            int best = -1;
+            double bestWeight = 0;
+            for (int w = 0; w < numWorkers; w++) {
+                double weight = get(job, compWorkers[w]);
+                if (weight > 0) {
+                    weight += bias(0, w, numJobs, numWorkers);
+                    if (weight > bestWeight) {
+                        bestWeight = weight;
+                        best = compWorkers[w];
+                    }
+                }
+            }
+
+            jobToWorker[job] = best;
+            return;
+        }
+
+        var weights = new double[numJobs][numWorkers];
+        for (int j = 0; j < numJobs; j++) {
+            int job = compJobs[j];
+            for (int i = 0; i < rowSizes[job]; i++) {
+                int w = localIndex[jobs + rowWorkers[job][i]];
+                weights[j][w] = rowWeights[job][i] + bias(j, w, numJobs, numWorkers);
+            }
+        }
+
+        // zero weight pairs aren't biased, so they're still left out here
+        int[] assignment = hungarian((j, w) -> weights[j][w], numJobs, numWorkers).jobToWorker();
+        for (int j = 0; j < numJobs; j++) {
+            int w = assignment[j];
+            if (w >= 0 && weights[j][w] > 0) {
+                jobToWorker[compJobs[j]] = compWorkers[w];
+            }
+        }
+    }
+
+    /**
+     * Returns the tie-breaking bias of a pair within a component. It is
+     * larger for lower job and worker indices. Since it grows with the product
+     * of both, pairing the same jobs and workers in ascending order has the
+     * largest sum. The sum over all jobs of an assignment is at most
+     * {@link #TIE_EPS}.
+     */
+    private static double bias(int job, int worker, int numJobs, int numWorkers) {
+        return TIE_EPS * (numJobs - job) * (numWorkers - worker) / ((double) numJobs * numJobs * numWorkers);
+    }
+
+    private int indexOf(int job, int worker) {
+        int[] row = rowWorkers[job];
+        for (int i = 0; i < rowSizes[job]; i++) {
+            if (row[i] == worker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void remove(int job, int i) {
+        int last = --rowSizes[job];
+        rowWorkers[job][i] = rowWorkers[job][last];
+        rowWeights[job][i] = rowWeights[job][last];
+    }
+}
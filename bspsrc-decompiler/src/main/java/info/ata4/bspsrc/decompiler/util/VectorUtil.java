@@ -4,35 +4,39 @@ import info.ata4.bspsrc.lib.struct.*;
 
 public class VectorUtil {
 
-    public static double matchingAreaPercentage(
-            DOccluderPolyData occluderPolyData,
+    public static double matchingOccluderAreaPercentage(
+            int iOccluderPoly,
             DBrush brush,
-            DBrushSide brushSide,
+            int side,
             BspData bsp,
             WindingFactory windingFactory
     ) {
-        if (occluderPolyData.planenum != brushSide.pnum)
+        var occluderPolyData = bsp.occluderPolyDatas.get(iOccluderPoly);
+        int iplane = bsp.brushSides.getPlaneIndex(brush.fstside + side);
+        if (occluderPolyData.planenum != iplane)
             return 0;
 
-        var w1 = windingFactory.fromOccluder(bsp, occluderPolyData);
-        var w2 = windingFactory.fromSide(bsp, brush, brushSide);
-        var clippedWinding = w1.clipWinding(w2, bsp.planes.get(brushSide.pnum).normal.toDouble());
-        return clippedWinding.getArea() / w1.getArea();
+        var w1 = windingFactory.fromOccluder(bsp, iOccluderPoly);
+        var w2 = windingFactory.fromSide(bsp, brush, side);
+        var clippedArea = w1.getClippedArea(w2, bsp.planes.getNormal(iplane).toDouble());
+        return clippedArea / w1.getArea();
     }
 
-    public static double matchingAreaPercentage(
-            DAreaportal areaportal,
+    public static double matchingAreaportalAreaPercentage(
+            int iAreaportal,
             DBrush brush,
-            DBrushSide brushSide,
+            int side,
             BspData bsp,
             WindingFactory windingFactory
     ) {
-        if (areaportal.planenum != brushSide.pnum)
+        var areaportal = bsp.areaportals.get(iAreaportal);
+        int iplane = bsp.brushSides.getPlaneIndex(brush.fstside + side);
+        if (areaportal.planenum != iplane)
             return 0;
 
-        var w1 = windingFactory.fromAreaportal(bsp, areaportal);
-        var w2 = windingFactory.fromSide(bsp, brush, brushSide);
-        var clippedWinding = w1.clipWinding(w2, bsp.planes.get(brushSide.pnum).normal.toDouble());
-        return clippedWinding.getArea() / w1.getArea();
+        var w1 = windingFactory.fromAreaportal(bsp, iAreaportal);
+        var w2 = windingFactory.fromSide(bsp, brush, side);
+        var clippedArea = w1.getClippedArea(w2, bsp.planes.getNormal(iplane).toDouble());
+        return clippedArea / w1.getArea();
     }
 }
@@ -65,131 +65,14 @@ public class Winding implements List<Vector3d> {
      * @param eps clipping epsilon
      * @param back keep vertices behind the plane?
      */
-    public Winding clipEpsilon(Vector3d normal, double dist, double eps, boolean back) {        
-        // counts number of front, back and on vertices
-        int[] counts = new int[] {0, 0, 0};
-        final int size = verts.size();
-        double[] dists = new double[size + 1];
-        int[] sides = new int[size + 1];
-
-        // determine sides for each point
-        for (int i = 0; i < size; i++) {
-            // distance along norm-dirn from origin to vertex
-            double dot = verts.get(i).dot(normal);
-
-            // distance along norm-dirn from clip plane to vertex
-            dot -= dist;
-
-            // store it
-            dists[i] = dot;
-
-            if (dot > eps) {
-                // vertex in front of plane
-                sides[i] = SIDE_FRONT;
-            } else if (dot < -eps) {
-                // vertex behind plane
-                sides[i] = SIDE_BACK;
-            } else {
-                // vertex on plane (within epsilon)
-                sides[i] = SIDE_ON;
-            }
-
-            // count relative vertex positions
-            counts[sides[i]]++;
-        }
-
-        sides[size] = sides[0]; // loop around to 0'th
-        dists[size] = dists[0];
-
-        if (counts[SIDE_FRONT] == 0) {
-            // no vertices in front - all behind clip plane
-            if (!back) {
-                if (counts[SIDE_ON] == 0)
-                    return EMPTY;
-            } else {
-                return this;
-            }
-        }
-        if (counts[SIDE_BACK] == 0) {
-            // no vertices in back - all in front of clip plane
-            if (back) {
-                if (counts[SIDE_ON] == 0)
-                    return EMPTY;
-            } else {
-                return this;
-            }
-        }
-
-        var vertsNew = new ArrayList<Vector3d>();
-
-        for (int i = 0; i < size; i++) {
-            // get i'th vertex
-            Vector3d p1 = verts.get(i);
-
-            if (sides[i] == SIDE_ON) {
-                vertsNew.add(p1);
-                continue;
-            }
-
-            if (sides[i] == SIDE_FRONT && !back) {
-                // add copy the current vertex
-                vertsNew.add(p1);
-            }
-
-            if (sides[i] == SIDE_BACK && back) {
-                // add copy the current vertex
-                vertsNew.add(p1);
-            }
-
-            if (sides[i + 1] == SIDE_ON) {
-                // next vertex is on the plane, so go to next vertex stat
-                continue;
-            }
+    public Winding clipEpsilon(Vector3d normal, double dist, double eps, boolean back) {
+        var buffer = WindingBuffer.forCurrentThread().set(verts);
 
-            if (sides[i + 1] == sides[i]) {
-                // next vertex does not change side, so go to next vertex stat
-                continue;
-            }
-
-            // otherwise, we are crossing the clip plane between this vertex and the next
-            // so generate a split point
-
-            // will contain the next vertex position
-            Vector3d p2;
-
-            if (i == size - 1) {
-                // we're the last vertex in the winding
-                // next vertex is the 0'th one
-                p2 = verts.get(0);
-            } else {
-                // else get the next vertex
-                p2 = verts.get(i + 1);
-            }
-
-            // dot is fractional position of clip plane between
-            // this vertex and the next
-            double dot = dists[i] / (dists[i] - dists[i + 1]);
-
-            // vector of the split vertex
-            Vector3d mv = Vector3d.NULL;
-
-            for (int j = 0; j < normal.size(); j++) {
-                // avoid round off error when possible
-                if (normal.get(j) == 1) {
-                    mv = mv.with(j, dist);
-                } else if (normal.get(j) == -1) {
-                    mv = mv.with(j, -dist);
-                } else {
-                    // check it! MSH
-                    mv = mv.with(j, p1.get(j) + dot * (p2.get(j) - p1.get(j)));
-                }
-            }
-
-            // write the output vertex
-            vertsNew.add(mv);
+        if (!buffer.clipEpsilon(normal.x(), normal.y(), normal.z(), dist, eps, back)) {
+            return this;
         }
 
-        return new Winding(vertsNew);
+        return buffer.isEmpty() ? EMPTY : buffer.toWinding();
     }
 
     /**
@@ -219,15 +102,28 @@ public class Winding implements List<Vector3d> {
         if (other.size() < 3)
             return this;
 
-        Winding result = this;
-        for (int i = 0; i < other.size(); i++) {
-            Vector3d edge = other.get((i + 1) % other.size()).sub(other.get(i));
-            Vector3d normal = edge.cross(projNormal).normalize();
-            double dist = normal.dot(other.get(i));
+        var buffer = WindingBuffer.forCurrentThread().set(verts);
+        buffer.clipWinding(other, projNormal);
+        return buffer.toWinding();
+    }
 
-            result = result.clipEpsilon(normal, dist, EPS_SPLIT, false);
-        }
-        return result;
+    /**
+     * Returns the area of this winding after clipping it against another winding.
+     * Same as {@code clipWinding(other, projNormal).getArea()}, but without
+     * creating the clipped winding.
+     *
+     * @param other winding to clip to
+     * @param projNormal a normalized vector specifying the projection direction
+     * @return area of the clipped winding
+     * @see #clipWinding(Winding, Vector3d)
+     */
+    public double getClippedArea(Winding other, Vector3d projNormal) {
+        if (other.size() < 3)
+            return getArea();
+
+        var buffer = WindingBuffer.forCurrentThread().set(verts);
+        buffer.clipWinding(other, projNormal);
+        return buffer.getArea();
     }
 
     /**
@@ -512,10 +408,29 @@ public class Winding implements List<Vector3d> {
         double total = 0;
         final int size = verts.size();
 
+        if (size < 3) {
+            return 0;
+        }
+
+        Vector3d v0 = verts.get(0);
+
+        // same as summing up (v[i - 1] - v[0]) x (v[i] - v[0]), but without
+        // creating temporary vectors
         for (int i = 2; i < size; i++) {
-            Vector3d v1 = verts.get(i - 1).sub(verts.get(0));
-            Vector3d v2 = verts.get(i).sub(verts.get(0));
-            total += v1.cross(v2).length();
+            Vector3d va = verts.get(i - 1);
+            Vector3d vb = verts.get(i);
+
+            double ax = va.x() - v0.x();
+            double ay = va.y() - v0.y();
+            double az = va.z() - v0.z();
+            double bx = vb.x() - v0.x();
+            double by = vb.y() - v0.y();
+            double bz = vb.z() - v0.z();
+
+            double cx = ay * bz - az * by;
+            double cy = az * bx - ax * bz;
+            double cz = ax * by - ay * bx;
+            total += Math.sqrt(cx * cx + cy * cy + cz * cz);
         }
 
         return total * 0.5f;
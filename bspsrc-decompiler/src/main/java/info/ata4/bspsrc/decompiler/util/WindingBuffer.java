@@ -0,0 +1,323 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.struct.PlaneColumns;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static info.ata4.bspsrc.decompiler.util.Winding.*;
+
+/**
+ * Mutable winding backed by a packed {@code double[]} of xyz coordinates.
+ * <p>
+ * Clipping works in place on reusable arrays, so a sequence of clips doesn't
+ * allocate any vectors or lists. The results are numerically identical to the
+ * corresponding {@link Winding} operations. Convert back with
+ * {@link #toWinding()} once the final shape is known.
+ * <p>
+ * Instances are not thread-safe. Use {@link #forCurrentThread()} for a scratch
+ * buffer, but don't hold on to it across calls into other code that may use it
+ * as well.
+ */
+public class WindingBuffer {
+
+    private static final ThreadLocal<WindingBuffer> LOCAL = ThreadLocal.withInitial(WindingBuffer::new);
+
+    private double[] coords = new double[3 * 16];
+    private double[] scratch = new double[3 * 16];
+    private double[] dists = new double[16 + 1];
+    private int[] sides = new int[16 + 1];
+    private int size;
+
+    /**
+     * Returns the scratch buffer of the current thread.
+     *
+     * @return thread-local winding buffer
+     */
+    public static WindingBuffer forCurrentThread() {
+        return LOCAL.get();
+    }
+
+    public WindingBuffer set(List<Vector3d> verts) {
+        size = verts.size();
+        ensureCapacity(size);
+
+        for (int i = 0; i < size; i++) {
+            var v = verts.get(i);
+            coords[i * 3] = v.x();
+            coords[i * 3 + 1] = v.y();
+            coords[i * 3 + 2] = v.z();
+        }
+
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double x(int i) {
+        return coords[i * 3];
+    }
+
+    public double y(int i) {
+        return coords[i * 3 + 1];
+    }
+
+    public double z(int i) {
+        return coords[i * 3 + 2];
+    }
+
+    /**
+     * In-place version of {@link Winding#clipEpsilon}.
+     *
+     * @param nx plane normal x
+     * @param ny plane normal y
+     * @param nz plane normal z
+     * @param dist plane distance to origin
+     * @param eps clipping epsilon
+     * @param back keep vertices behind the plane?
+     * @return {@code true}, if the winding was modified
+     */
+    public boolean clipEpsilon(double nx, double ny, double nz, double dist, double eps, boolean back) {
+        // counts number of front, back and on vertices
+        int countFront = 0;
+        int countBack = 0;
+        int countOn = 0;
+
+        // determine sides for each point
+        for (int i = 0; i < size; i++) {
+            // distance along norm-dirn from clip plane to vertex
+            double dot = coords[i * 3] * nx + coords[i * 3 + 1] * ny + coords[i * 3 + 2] * nz;
+            dot -= dist;
+
+            dists[i] = dot;
+
+            if (dot > eps) {
+                sides[i] = SIDE_FRONT;
+                countFront++;
+            } else if (dot < -eps) {
+                sides[i] = SIDE_BACK;
+                countBack++;
+            } else {
+                sides[i] = SIDE_ON;
+                countOn++;
+            }
+        }
+
+        sides[size] = sides[0]; // loop around to 0'th
+        dists[size] = dists[0];
+
+        if (countFront == 0) {
+            // no vertices in front - all behind clip plane
+            if (!back) {
+                if (countOn == 0) {
+                    size = 0;
+                    return true;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (countBack == 0) {
+            // no vertices in back - all in front of clip plane
+            if (back) {
+                if (countOn == 0) {
+                    size = 0;
+                    return true;
+                }
+            } else {
+                return false;
+            }
+        }
+
+        // every vertex can add at most one split vertex
+        if (scratch.length < size * 2 * 3) {
+            scratch = new double[size * 2 * 3];
+        }
+
+        int sizeNew = 0;
+
+        for (int i = 0; i < size; i++) {
+            int p1 = i * 3;
+
+            if (sides[i] == SIDE_ON) {
+                sizeNew = copyVertex(p1, sizeNew);
+                continue;
+            }
+
+            if (sides[i] == SIDE_FRONT && !back) {
+                sizeNew = copyVertex(p1, sizeNew);
+            }
+
+            if (sides[i] == SIDE_BACK && back) {
+                sizeNew = copyVertex(p1, sizeNew);
+            }
+
+            if (sides[i + 1] == SIDE_ON || sides[i + 1] == sides[i]) {
+                continue;
+            }
+
+            // crossing the clip plane between this vertex and the next,
+            // so generate a split point
+            int p2 = i == size - 1 ? 0 : (i + 1) * 3;
+            double dot = dists[i] / (dists[i] - dists[i + 1]);
+
+            int o = sizeNew * 3;
+            scratch[o] = splitComponent(nx, dist, coords[p1], coords[p2], dot);
+            scratch[o + 1] = splitComponent(ny, dist, coords[p1 + 1], coords[p2 + 1], dot);
+            scratch[o + 2] = splitComponent(nz, dist, coords[p1 + 2], coords[p2 + 2], dot);
+            sizeNew++;
+        }
+
+        // swap buffers
+        double[] tmp = coords;
+        coords = scratch;
+        scratch = tmp;
+        size = sizeNew;
+        ensureCapacity(size);
+
+        return true;
+    }
+
+    /**
+     * In-place version of {@link Winding#clipPlane}.
+     *
+     * @param pl plane to clip to
+     * @param back keep vertices behind the plane?
+     * @return {@code true}, if the winding was modified
+     */
+    public boolean clipPlane(DPlane pl, boolean back) {
+        return clipEpsilon(pl.normal.x(), pl.normal.y(), pl.normal.z(), pl.dist, EPS_SPLIT, back);
+    }
+
+    /**
+     * Version of {@link #clipPlane(DPlane, boolean)} that reads the plane
+     * directly from the plane columns.
+     *
+     * @param planes plane columns
+     * @param iplane index of the plane to clip to
+     * @param back keep vertices behind the plane?
+     * @return {@code true}, if the winding was modified
+     */
+    public boolean clipPlane(PlaneColumns planes, int iplane, boolean back) {
+        return clipEpsilon(planes.getNormalX(iplane), planes.getNormalY(iplane), planes.getNormalZ(iplane),
+                planes.getDist(iplane), EPS_SPLIT, back);
+    }
+
+    /**
+     * In-place version of {@link Winding#clipWinding}.
+     *
+     * @param other winding to clip to
+     * @param projNormal a normalized vector specifying the projection direction
+     */
+    public void clipWinding(List<Vector3d> other, Vector3d projNormal) {
+        final int otherSize = other.size();
+        if (otherSize < 3) {
+            return;
+        }
+
+        double px = projNormal.x();
+        double py = projNormal.y();
+        double pz = projNormal.z();
+
+        for (int i = 0; i < otherSize; i++) {
+            var v1 = other.get(i);
+            var v2 = other.get((i + 1) % otherSize);
+
+            double ex = v2.x() - v1.x();
+            double ey = v2.y() - v1.y();
+            double ez = v2.z() - v1.z();
+
+            // edge x projNormal, normalized
+            double nx = ey * pz - ez * py;
+            double ny = ez * px - ex * pz;
+            double nz = ex * py - ey * px;
+            double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            nx /= len;
+            ny /= len;
+            nz /= len;
+
+            double dist = nx * v1.x() + ny * v1.y() + nz * v1.z();
+
+            clipEpsilon(nx, ny, nz, dist, EPS_SPLIT, false);
+        }
+    }
+
+    /**
+     * @return total area of the winding
+     * @see Winding#getArea()
+     */
+    public double getArea() {
+        return getArea(coords, size);
+    }
+
+    /**
+     * @return new immutable winding with the current vertices
+     */
+    public Winding toWinding() {
+        var verts = new ArrayList<Vector3d>(size);
+        for (int i = 0; i < size; i++) {
+            verts.add(new Vector3d(coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]));
+        }
+        return new Winding(verts);
+    }
+
+    @Override
+    public String toString() {
+        return toWinding().toString();
+    }
+
+    static double getArea(double[] coords, int size) {
+        double total = 0;
+
+        for (int i = 2; i < size; i++) {
+            double ax = coords[(i - 1) * 3] - coords[0];
+            double ay = coords[(i - 1) * 3 + 1] - coords[1];
+            double az = coords[(i - 1) * 3 + 2] - coords[2];
+            double bx = coords[i * 3] - coords[0];
+            double by = coords[i * 3 + 1] - coords[1];
+            double bz = coords[i * 3 + 2] - coords[2];
+
+            double cx = ay * bz - az * by;
+            double cy = az * bx - ax * bz;
+            double cz = ax * by - ay * bx;
+            total += Math.sqrt(cx * cx + cy * cy + cz * cz);
+        }
+
+        return total * 0.5f;
+    }
+
+    private int copyVertex(int from, int sizeNew) {
+        System.arraycopy(coords, from, scratch, sizeNew * 3, 3);
+        return sizeNew + 1;
+    }
+
+    private static double splitComponent(double n, double dist, double v1, double v2, double dot) {
+        // avoid round off error when possible
+        if (n == 1) {
+            return dist;
+        } else if (n == -1) {
+            return -dist;
+        } else {
+            return v1 + dot * (v2 - v1);
+        }
+    }
+
+    private void ensureCapacity(int verts) {
+        if (coords.length < verts * 3) {
+            coords = Arrays.copyOf(coords, verts * 3);
+        }
+        if (dists.length < verts + 1) {
+            dists = new double[verts + 1];
+            sides = new int[verts + 1];
+        }
+    }
+}
@@ -15,9 +15,11 @@ import info.ata4.bspsrc.lib.vector.Vector3d;
 import info.ata4.bspsrc.lib.vector.VectorXf;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Factory methods for winding objects.
@@ -26,171 +28,274 @@ import java.util.stream.Collectors;
  */
 public class WindingFactory {
 
-    private final Map<DFace, Winding> faceCache = new HashMap<>();
-    private final Map<Map.Entry<DBrush, DBrushSide>, Winding> brushSideCache = new HashMap<>();
-    private final Map<DAreaportal, Winding> areaportalCache = new HashMap<>();
-    private final Map<DOccluderPolyData, Winding> occluderCache = new HashMap<>();
-    private final Map<DPlane, Winding> planeCache = new HashMap<>();
+    // enough for the brush side, face and plane limits of most Source games
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private final IntKeyCache<Winding> faceCache;
+    private final IntKeyCache<Winding> origFaceCache;
+    private final IntKeyCache<BrushPolyhedron> brushCache;
+    private final IntKeyCache<Winding> areaportalCache;
+    private final IntKeyCache<Winding> occluderCache;
+    private final IntKeyCache<Winding> planeCache;
 
     public final int maxLen;
     public final int maxCoord;
 
     public WindingFactory(int coordSize) {
+        this(coordSize, DEFAULT_CACHE_SIZE);
+    }
+
+    public WindingFactory(int coordSize, int cacheSize) {
         maxCoord = coordSize;
         maxLen = (int)Math.ceil(Math.sqrt(3) * coordSize);
+
+        faceCache = new IntKeyCache<>(cacheSize);
+        origFaceCache = new IntKeyCache<>(cacheSize);
+        brushCache = new IntKeyCache<>(cacheSize);
+        areaportalCache = new IntKeyCache<>(cacheSize);
+        occluderCache = new IntKeyCache<>(cacheSize);
+        planeCache = new IntKeyCache<>(cacheSize);
     }
 
     public static WindingFactory forAppId(int appId) {
-        var coordSize = switch (appId) {
-            case SourceAppId.STRATA_SOURCE -> 131072;
-            default -> 32768;
+        return switch (appId) {
+            case SourceAppId.STRATA_SOURCE -> new WindingFactory(131072, DEFAULT_CACHE_SIZE << 2);
+            default -> new WindingFactory(32768);
         };
-        return new WindingFactory(coordSize);
     }
 
     /**
      * Constructs a winding from face vertices
      *
      * @param bsp BSP data
-     * @param face Face
+     * @param iface Face index
      * @return Winding for the face
      */
-    public Winding fromFace(BspData bsp, DFace face) {
-        if (faceCache.containsKey(face)) {
-            return faceCache.get(face);
-        }
+    public Winding fromFace(BspData bsp, int iface) {
+        return faceCache.computeIfAbsent(iface, i -> createFaceWinding(bsp, bsp.faces.get(i)));
+    }
 
+    /**
+     * Constructs a winding from original face vertices
+     *
+     * @param bsp BSP data
+     * @param iorigface Original face index
+     * @return Winding for the original face
+     */
+    public Winding fromOrigFace(BspData bsp, int iorigface) {
+        return origFaceCache.computeIfAbsent(iorigface, i -> createFaceWinding(bsp, bsp.origFaces.get(i)));
+    }
+
+    private Winding createFaceWinding(BspData bsp, DFace face) {
         var verts = new ArrayList<Vector3d>();
 
         for (int i = 0; i < face.numedge; i++) {
-            int v;
-            int sedge = bsp.surfEdges.get(face.fstedge + i);
-
-            if (sedge < 0) {
-                // backwards wound edge
-                v = bsp.edges.get(-sedge).v[1];
-            } else {
-                // forwards wound edge
-                v = bsp.edges.get(sedge).v[0];
-            }
+            int sedge = bsp.surfEdges.getInt(face.fstedge + i);
 
-            verts.add(bsp.verts.get(v).point.toDouble());
-        }
+            // use the end vertex for backwards wound edges
+            int v = sedge < 0
+                    ? bsp.edges.getVertex(-sedge, 1)
+                    : bsp.edges.getVertex(sedge, 0);
 
-        Winding w = new Winding(verts);
-
-        faceCache.put(face, w);
+            verts.add(new Vector3d(bsp.verts.getX(v), bsp.verts.getY(v), bsp.verts.getZ(v)));
+        }
 
-        return w;
+        return new Winding(verts);
     }
 
     /**
      * Constructs a winding from a brush, for a brush side
      * 
      * Equals the brush side part of CreateBrushWindings() in brushbsp.cpp
+     * <p>
+     * The windings of all sides of the brush are built together, see
+     * {@link #fromBrush}.
      *
      * @param bsp BSP data
      * @param brush Brush
-     * @param bside Brush side
+     * @param side Brush side ID
      * @return Winding for the brush side
      */
-    public Winding fromSide(BspData bsp, DBrush brush, DBrushSide bside) {
-        var key = Map.entry(brush, bside);
-        if (brushSideCache.containsKey(key)) {
-            return brushSideCache.get(key);
+    public Winding fromSide(BspData bsp, DBrush brush, int side) {
+        if (side < 0 || side >= brush.numside) {
+            throw new IllegalArgumentException("Brush side is not part of brush!");
+        }
+
+        Winding winding = fromBrush(bsp, brush).getSide(side);
+        if (winding == null) {
+            // throws the error again
+            winding = createSideWinding(bsp, brush, brush.fstside + side);
+        }
+        return winding;
+    }
+
+    /**
+     * Builds the windings of all sides of a brush and the bounds of the brush.
+     *
+     * @param bsp BSP data
+     * @param brush Brush
+     * @return Polyhedron of the brush
+     */
+    public BrushPolyhedron fromBrush(BspData bsp, DBrush brush) {
+        // brushes of protected maps may start at the same side
+        return brushCache.computeIfAbsent(brush.fstside, p -> p.isBrush(brush),
+                i -> createBrushPolyhedron(bsp, brush));
+    }
+
+    private BrushPolyhedron createBrushPolyhedron(BspData bsp, DBrush brush) {
+        var sides = new Winding[brush.numside];
+
+        for (int i = 0; i < brush.numside; i++) {
+            try {
+                sides[i] = createSideWinding(bsp, brush, brush.fstside + i);
+            } catch (RuntimeException ex) {
+                // sides with broken planes are left out, fromSide throws for them
+            }
         }
 
-        int iplane = bside.pnum;
-        boolean hasSide = false;
+        return new BrushPolyhedron(brush, sides);
+    }
+
+    private Winding createSideWinding(BspData bsp, DBrush brush, int ibside) {
+        var brushSides = bsp.brushSides;
 
-        Winding w = fromPlane(bsp.planes.get(iplane));
+        // clip in place instead of creating a new winding for every plane
+        var buffer = WindingBuffer.forCurrentThread().set(fromPlane(bsp, brushSides.getPlaneIndex(ibside)));
 
         // clip to all other planes
         for (int i = 0; i < brush.numside; i++) {
             int ibside2 = brush.fstside + i;
-            DBrushSide bside2 = bsp.brushSides.get(ibside2);
 
             // don't clip plane to itself
-            if (bside2 == bside) {
-                hasSide = true;
+            if (ibside2 == ibside) {
                 continue;
             }
 
             // don't clip to bevel planes
-            if (bside2.bevel) {
+            if (brushSides.isBevel(ibside2)) {
                 continue;
             }
 
             // remove everything behind the plane
-            int iplane2 = bside2.pnum;
-            var plane = bsp.planes.get(iplane2);
-            w = w.clipPlane(plane, true);
+            buffer.clipPlane(bsp.planes, brushSides.getPlaneIndex(ibside2), true);
         }
 
-        if (!hasSide) {
-            throw new IllegalArgumentException("Brush side is not part of brush!");
-        }
-
-        brushSideCache.put(key, w);
-
-        // return the clipped winding
-        return w;
+        return buffer.toWinding();
     }
 
     /**
-     * Constructs a winding from a brush, for a brush side
-     * 
-     * Equals the brush side part of CreateBrushWindings() in brushbsp.cpp
+     * Builds the windings of all brush sides in parallel, so later calls to
+     * {@link #fromSide} are simple cache lookups.
+     * <p>
+     * Sides that fail to build are skipped here, they will throw again once
+     * they are requested through {@link #fromSide}.
      *
      * @param bsp BSP data
-     * @param brush Brush
-     * @param side Brush side ID
-     * @return Winding for the brush side
+     * @param pool pool to run the winding generation in
      */
-    public Winding fromSide(BspData bsp, DBrush brush, int side) {
-        int ibside = brush.fstside + side;
-        DBrushSide bside = bsp.brushSides.get(ibside);
-        return fromSide(bsp, brush, bside);
+    public void loadBrushSides(BspData bsp, ForkJoinPool pool) {
+        pool.submit(() -> IntStream.range(0, bsp.brushes.size()).parallel().forEach(ibrush -> {
+            DBrush brush = bsp.brushes.get(ibrush);
+            for (int i = 0; i < brush.numside; i++) {
+                try {
+                    fromSide(bsp, brush, i);
+                } catch (RuntimeException ex) {
+                    // ignore, see above
+                }
+            }
+        })).join();
     }
 
-    public Winding fromAreaportal(BspData bsp, DAreaportal ap) {
-        if (areaportalCache.containsKey(ap)) {
-            return areaportalCache.get(ap);
-        }
-
-        Winding w = bsp.clipPortalVerts.subList(ap.firstClipPortalVert, ap.firstClipPortalVert + ap.clipPortalVerts).stream()
-                .map(dVertex -> dVertex.point.toDouble())
-                .collect(Collectors.collectingAndThen(Collectors.toList(), Winding::new));
-
-        areaportalCache.put(ap, w);
+    /**
+     * Builds the windings of all faces and original faces in parallel, so
+     * later calls to {@link #fromFace} and {@link #fromOrigFace} are simple
+     * cache lookups.
+     *
+     * @param bsp BSP data
+     * @param pool pool to run the winding generation in
+     */
+    public void loadFaces(BspData bsp, ForkJoinPool pool) {
+        pool.submit(() -> {
+            IntStream.range(0, bsp.faces.size()).parallel().forEach(iface -> {
+                try {
+                    fromFace(bsp, iface);
+                } catch (RuntimeException ex) {
+                    // skip invalid faces, they will fail again in fromFace
+                }
+            });
+            IntStream.range(0, bsp.origFaces.size()).parallel().forEach(iorigface -> {
+                try {
+                    fromOrigFace(bsp, iorigface);
+                } catch (RuntimeException ex) {
+                    // skip invalid faces, they will fail again in fromOrigFace
+                }
+            });
+        }).join();
+    }
 
-        return w;
+    /**
+     * Constructs a winding from areaportal clip vertices
+     *
+     * @param bsp BSP data
+     * @param iareaportal Areaportal index
+     * @return Winding for the areaportal
+     */
+    public Winding fromAreaportal(BspData bsp, int iareaportal) {
+        return areaportalCache.computeIfAbsent(iareaportal, i -> {
+            DAreaportal ap = bsp.areaportals.get(i);
+            var clipPortalVerts = bsp.clipPortalVerts;
+            return IntStream.range(ap.firstClipPortalVert, ap.firstClipPortalVert + ap.clipPortalVerts)
+                    .mapToObj(v -> new Vector3d(clipPortalVerts.getX(v), clipPortalVerts.getY(v), clipPortalVerts.getZ(v)))
+                    .collect(Collectors.collectingAndThen(Collectors.toList(), Winding::new));
+        });
     }
 
     /**
      * Constructs a winding from occluder vertices
      *
      * @param bsp BSP data
-     * @param opd Occluder polygon data
+     * @param ioccluderpoly Occluder polygon data index
      * @return Winding for the occluder
      */
-    public Winding fromOccluder(BspData bsp, DOccluderPolyData opd) {
-        if (occluderCache.containsKey(opd)) {
-            return occluderCache.get(opd);
-        }
-
-        var verts = new ArrayList<Vector3d>();
-
-        for (int k = 0; k < opd.vertexcount; k++) {
-            int pvi = bsp.occluderVerts.get(opd.firstvertexindex + k);
-            verts.add(bsp.verts.get(pvi).point.toDouble());
-        }
+    public Winding fromOccluder(BspData bsp, int ioccluderpoly) {
+        return occluderCache.computeIfAbsent(ioccluderpoly, i -> {
+            DOccluderPolyData opd = bsp.occluderPolyDatas.get(i);
+            var verts = new ArrayList<Vector3d>();
+
+            for (int k = 0; k < opd.vertexcount; k++) {
+                int pvi = bsp.occluderVerts.get(opd.firstvertexindex + k);
+                verts.add(new Vector3d(bsp.verts.getX(pvi), bsp.verts.getY(pvi), bsp.verts.getZ(pvi)));
+            }
 
-        Winding w = new Winding(verts);
+            return new Winding(verts);
+        });
+    }
 
-        occluderCache.put(opd, w);
+    /**
+     * Cached version of {@link #fromPlane(DPlane)}.
+     *
+     * @param bsp BSP data
+     * @param iplane plane index
+     * @return Winding for the plane
+     */
+    public Winding fromPlane(BspData bsp, int iplane) {
+        return planeCache.computeIfAbsent(iplane, i -> fromPlane(bsp.planes.get(i)));
+    }
 
-        return w;
+    /**
+     * Returns the usage statistics of all winding caches.
+     *
+     * @return map of cache names to statistics
+     */
+    public Map<String, IntKeyCache.Stats> getCacheStats() {
+        var stats = new LinkedHashMap<String, IntKeyCache.Stats>();
+        stats.put("face", faceCache.getStats());
+        stats.put("origface", origFaceCache.getStats());
+        stats.put("brush", brushCache.getStats());
+        stats.put("areaportal", areaportalCache.getStats());
+        stats.put("occluder", occluderCache.getStats());
+        stats.put("plane", planeCache.getStats());
+        return stats;
     }
 
     /**
@@ -201,10 +306,6 @@ public class WindingFactory {
      * @param pl plane
      */
     public Winding fromPlane(DPlane pl) {
-        if (planeCache.containsKey(pl)) {
-            return planeCache.get(pl);
-        }
-        
         var plNormal = pl.normal.toDouble();
 
         // find the dominant axis of plane normal
@@ -265,11 +366,7 @@ public class WindingFactory {
         verts.add(org.add(vrt).sub(vup)); // right down
         verts.add(org.sub(vrt).sub(vup)); // left down
 
-        Winding w = new Winding(verts);
-
-        planeCache.put(pl, w);
-
-        return w;
+        return new Winding(verts);
     }
 
     /**
@@ -0,0 +1,140 @@
+package info.ata4.bspsrc.decompiler;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.lump.AbstractLump;
+import info.ata4.bspsrc.lib.lump.GameLump;
+import info.ata4.bspsrc.lib.lump.Lump;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DecompileScheduler Test")
+class DecompileSchedulerTest {
+
+    @Test
+    @DisplayName("Largest tasks are admitted first")
+    void largestFirst() {
+        var scheduler = new DecompileScheduler(new long[] {10, 30, 20, 30}, 4, 1000);
+
+        assertEquals(OptionalInt.of(1), scheduler.poll());
+        assertEquals(OptionalInt.of(3), scheduler.poll());
+        assertEquals(OptionalInt.of(2), scheduler.poll());
+        assertEquals(OptionalInt.of(0), scheduler.poll());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+    }
+
+    @Test
+    @DisplayName("Running tasks stay within the budget")
+    void budget() {
+        var scheduler = new DecompileScheduler(new long[] {60, 50, 30, 10}, 4, 100);
+
+        // 60 + 30 + 10, 50 doesn't fit
+        assertEquals(OptionalInt.of(0), scheduler.poll());
+        assertEquals(OptionalInt.of(2), scheduler.poll());
+        assertEquals(OptionalInt.of(3), scheduler.poll());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+
+        scheduler.release(2);
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+
+        scheduler.release(0);
+        assertEquals(OptionalInt.of(1), scheduler.poll());
+    }
+
+    @Test
+    @DisplayName("Tasks above the budget run alone")
+    void oversized() {
+        var scheduler = new DecompileScheduler(new long[] {10, 500}, 4, 100);
+
+        assertEquals(OptionalInt.of(1), scheduler.poll());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+
+        scheduler.release(1);
+        assertEquals(OptionalInt.of(0), scheduler.poll());
+    }
+
+    @Test
+    @DisplayName("Concurrency is limited")
+    void maxTasks() {
+        var scheduler = new DecompileScheduler(new long[] {1, 1, 1}, 2, 1000);
+
+        assertTrue(scheduler.poll().isPresent());
+        assertTrue(scheduler.poll().isPresent());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+
+        scheduler.release(0);
+        assertEquals(OptionalInt.of(2), scheduler.poll());
+    }
+
+    @Test
+    @DisplayName("Smaller tasks fill up the remaining budget")
+    void fillBudget() {
+        var scheduler = new DecompileScheduler(new long[] {70, 40, 30, 30, 20}, 5, 100);
+
+        assertEquals(OptionalInt.of(0), scheduler.poll());
+        assertEquals(OptionalInt.of(2), scheduler.poll());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+
+        scheduler.release(0);
+        assertEquals(OptionalInt.of(1), scheduler.poll());
+        assertEquals(OptionalInt.of(3), scheduler.poll());
+        assertEquals(OptionalInt.empty(), scheduler.poll());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"csgo_tooltextures.bsp", "gmod_tooltextures.bsp", "l4d2_tooltextures.bsp"})
+    @DisplayName("Estimates from the lump directories match the loaded lumps")
+    void estimate(String name, @TempDir Path dir) throws Exception {
+        Path file = resource(name);
+        assertEquals(loadedEstimate(file), DecompileScheduler.estimateMemory(file));
+
+        // compressed lumps and game lumps are estimated with their uncompressed size
+        var bspFile = new BspFile();
+        bspFile.load(file, false);
+        bspFile.compress(Runnable::run);
+        Path compressed = dir.resolve(name);
+        bspFile.save(compressed);
+
+        assertEquals(loadedEstimate(compressed), DecompileScheduler.estimateMemory(compressed));
+    }
+
+    @Test
+    @DisplayName("Unreadable files get the base estimate")
+    void missingFile() {
+        assertEquals(DecompileScheduler.BASE_MEMORY,
+                DecompileScheduler.estimateMemory(Path.of("does_not_exist.bsp")));
+    }
+
+    private static long loadedEstimate(Path file) throws Exception {
+        var bspFile = new BspFile();
+        bspFile.load(file);
+
+        long memory = DecompileScheduler.BASE_MEMORY;
+        for (Lump lump : bspFile.getLumps()) {
+            memory += lumpMemory(lump, !DecompileScheduler.RAW_LUMPS.contains(lump.getType()));
+        }
+        for (GameLump gameLump : bspFile.getGameLumps()) {
+            memory += lumpMemory(gameLump, gameLump.getName().equals("sprp"));
+        }
+        return memory;
+    }
+
+    private static long lumpMemory(AbstractLump lump, boolean decoded) {
+        if (decoded) {
+            return (long) DecompileScheduler.DECODED_LUMP_FACTOR * lump.getUncompressedLength();
+        }
+        return lump.isCompressed() ? lump.getUncompressedLength() : 0;
+    }
+
+    private static Path resource(String name) throws URISyntaxException {
+        return Path.of(DecompileSchedulerTest.class.getResource("modules/texture/" + name).toURI());
+    }
+}
@@ -0,0 +1,182 @@
+package info.ata4.bspsrc.decompiler;
+
+import info.ata4.bspsrc.decompiler.modules.texture.TextureAxis;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Reference for the VMF formatting of {@link VmfWriter}, the formatting code
+ * of the VmfWriter that wrote through a {@link PrintWriter} with
+ * {@link DecimalFormat}.
+ */
+class PrintWriterVmfWriter implements VmfWriterTest.VmfOutput {
+
+    private final PrintWriter pw;
+    private final Deque<String> section = new ArrayDeque<>();
+
+    private final int doubleScale;
+    private final int doubleScaleTextureAxes;
+    private final int doubleScaleTextureScale;
+
+    PrintWriterVmfWriter(PrintWriter pw, int doubleScale, int doubleScaleTextureAxes, int doubleScaleTextureScale) {
+        this.pw = pw;
+        this.doubleScale = doubleScale;
+        this.doubleScaleTextureAxes = doubleScaleTextureAxes;
+        this.doubleScaleTextureScale = doubleScaleTextureScale;
+    }
+
+    private void indent() {
+        for (int i = 0; i < section.size(); i++) {
+            pw.print("\t");
+        }
+    }
+
+    @Override
+    public void start(String name) {
+        indent();
+        pw.print(name);
+        pw.print("\r\n");
+        indent();
+        pw.print("{\r\n");
+
+        section.addFirst(name);
+    }
+
+    @Override
+    public void end(String name) {
+        section.removeFirst();
+
+        indent();
+        pw.print("}\r\n");
+    }
+
+    @Override
+    public void put(String key, String value) {
+        indent();
+        pw.printf("\"%s\" \"%s\"\r\n", key, value);
+    }
+
+    @Override
+    public void put(String key, int value) {
+        put(key, String.valueOf(value));
+    }
+
+    @Override
+    public void put(String key, int... values) {
+        put(key, Arrays.stream(values).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+    }
+
+    @Override
+    public void put(String key, long value) {
+        put(key, String.valueOf(value));
+    }
+
+    @Override
+    public void put(String key, float value) {
+        put(key, formatFloat(value, doubleScale));
+    }
+
+    @Override
+    public void put(String key, double value) {
+        put(key, formatFloat(value, doubleScale));
+    }
+
+    @Override
+    public void put(String key, boolean value) {
+        put(key, value ? "1" : "0");
+    }
+
+    @Override
+    public void put(String key, char value) {
+        put(key, String.valueOf(value));
+    }
+
+    @Override
+    public void put(String key, Vector3f v, int p) {
+        put(key, formatVector3d(v.toDouble(), p));
+    }
+
+    @Override
+    public void put(String key, Vector3d v, int p) {
+        put(key, formatVector3d(v, p));
+    }
+
+    @Override
+    public void put(String key, Vector3d v1, Vector3d v2, Vector3d v3) {
+        put(key, formatVector3d(v1, 1) + " "
+                + formatVector3d(v2, 1) + " "
+                + formatVector3d(v3, 1));
+    }
+
+    @Override
+    public void put(String key, TextureAxis axis) {
+        put(key, formatTextureAxis(axis));
+    }
+
+    @Override
+    public void close() {
+        pw.close();
+    }
+
+    private String formatVector3d(Vector3d v, int p) {
+        StringBuilder sb = new StringBuilder();
+
+        if (p == 1) {
+            sb.append('(');
+        } else if (p == 2) {
+            sb.append('[');
+        }
+
+        if (!v.isValid()) {
+            sb.append("0 0 0");
+        } else {
+            sb.append(formatFloat(v.x(), doubleScale)).append(' ');
+            sb.append(formatFloat(v.y(), doubleScale)).append(' ');
+            sb.append(formatFloat(v.z(), doubleScale));
+        }
+
+        if (p == 1) {
+            sb.append(')');
+        } else if (p == 2) {
+            sb.append(']');
+        }
+
+        return sb.toString();
+    }
+
+    private String formatTextureAxis(TextureAxis tx) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+
+        if (!tx.axis.isValid()) {
+            sb.append("0 0 0 ");
+        } else {
+            sb.append(formatFloat(tx.axis.x(), doubleScaleTextureAxes)).append(' ');
+            sb.append(formatFloat(tx.axis.y(), doubleScaleTextureAxes)).append(' ');
+            sb.append(formatFloat(tx.axis.z(), doubleScaleTextureAxes)).append(' ');
+        }
+
+        sb.append(tx.shift);
+        sb.append("] ");
+        sb.append(formatFloat(tx.tw, doubleScaleTextureScale));
+
+        return sb.toString();
+    }
+
+    private static String formatFloat(double f, int decimalPlaces) {
+        if (decimalPlaces == 0)
+            return Double.toString(f);
+
+        return new DecimalFormat("0." + "#".repeat(decimalPlaces), new DecimalFormatSymbols(Locale.ENGLISH))
+                .format(f);
+    }
+}
@@ -0,0 +1,220 @@
+package info.ata4.bspsrc.decompiler;
+
+import info.ata4.bspsrc.decompiler.modules.texture.TextureAxis;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VmfWriter Test")
+class VmfWriterTest {
+
+    private static final float[] SPECIAL_VALUES = {
+            0.0f, -0.0f, 1.0f, -1.0f, 0.5f, 255.0f, -4096.0f, 1e-3f, 9.999e-4f,
+            9_999_999.0f, -9_999_999.0f, 1e7f, -1e7f, 1.0000001e7f, 2.1474836e9f,
+            Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE, -Float.MAX_VALUE,
+            Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY
+    };
+
+    @Test
+    @DisplayName("Row values match Float.toString")
+    void rowValues() throws IOException {
+        var rnd = new Random(0);
+        float[] values = new float[SPECIAL_VALUES.length + 10000];
+        System.arraycopy(SPECIAL_VALUES, 0, values, 0, SPECIAL_VALUES.length);
+        for (int i = SPECIAL_VALUES.length; i < values.length; i++) {
+            values[i] = switch (i % 3) {
+                case 0 -> Float.intBitsToFloat(rnd.nextInt());
+                case 1 -> rnd.nextInt(20000) - 10000;
+                default -> rnd.nextFloat() * 1024 - 512;
+            };
+        }
+
+        var expected = new StringJoiner(" ", "\"row0\" \"", "\"\r\n");
+        for (float value : values) {
+            expected.add(Float.toString(value));
+        }
+
+        assertEquals(expected.toString(), write(writer -> {
+            writer.startRow(0);
+            for (float value : values) {
+                writer.putRowValue(value);
+            }
+            writer.endRow();
+        }));
+    }
+
+    @Test
+    @DisplayName("Rows mix floats and ints")
+    void mixedRow() throws IOException {
+        assertEquals("\"row12\" \"1.5 -3 0.0\"\r\n", write(writer -> {
+            writer.startRow(12);
+            writer.putRowValue(1.5f);
+            writer.putRowValue(-3);
+            writer.putRowValue(0.0f);
+            writer.endRow();
+        }));
+    }
+
+    @ParameterizedTest(name = "scales {0} {1} {2}")
+    @CsvSource({"6, 6, 4", "3, 8, 1", "0, 0, 0"})
+    @DisplayName("Output matches the PrintWriter formatting")
+    void matchesPrintWriter(int doubleScale, int doubleScaleTextureAxes, int doubleScaleTextureScale) throws IOException {
+        var expected = new ByteArrayOutputStream();
+        var actual = new ByteArrayOutputStream();
+
+        try (VmfOutput printWriter = new PrintWriterVmfWriter(
+                new PrintWriter(new OutputStreamWriter(expected, StandardCharsets.US_ASCII)),
+                doubleScale, doubleScaleTextureAxes, doubleScaleTextureScale);
+             VmfOutput vmfWriter = adapt(new VmfWriter(Channels.newChannel(actual),
+                     doubleScale, doubleScaleTextureAxes, doubleScaleTextureScale))) {
+            writeRandom(printWriter, new Random(doubleScale));
+            writeRandom(vmfWriter, new Random(doubleScale));
+        }
+
+        assertEquals(expected.toString(StandardCharsets.ISO_8859_1), actual.toString(StandardCharsets.ISO_8859_1));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    private static final String[] STRINGS = {
+            "", "classname", "worldspawn", "light_environment", "tools/toolsnodraw",
+            "caf\u00e9", "\u00ff\u0080\u007f", "\u6c34\u9762", "smile \ud83d\ude00 end",
+            "lone \ud83d surrogate", "trail \ude00", "\ud83d\ud83d\ude00", "tab\there",
+            "percent %s %n %%", "quote \" inside", "back\\slash"
+    };
+
+    private static void writeRandom(VmfOutput out, Random rnd) {
+        Deque<String> sections = new ArrayDeque<>();
+
+        for (int i = 0; i < 20000; i++) {
+            String key = STRINGS[rnd.nextInt(STRINGS.length)];
+
+            switch (rnd.nextInt(16)) {
+                case 0 -> {
+                    if (sections.size() < 70) {
+                        String name = key.isEmpty() ? "solid" : key;
+                        out.start(name);
+                        sections.push(name);
+                    }
+                }
+                case 1 -> {
+                    if (!sections.isEmpty()) {
+                        out.end(sections.pop());
+                    }
+                }
+                case 2 -> out.put(key, STRINGS[rnd.nextInt(STRINGS.length)]);
+                case 3 -> out.put(key, randomInt(rnd));
+                case 4 -> out.put(key, new int[rnd.nextInt(5)]);
+                case 5 -> out.put(key, randomInt(rnd), randomInt(rnd), randomInt(rnd));
+                case 6 -> out.put(key, rnd.nextBoolean() ? rnd.nextLong() : randomInt(rnd));
+                case 7 -> out.put(key, randomFloat(rnd));
+                case 8 -> out.put(key, randomDouble(rnd));
+                case 9 -> out.put(key, rnd.nextBoolean());
+                case 10 -> out.put(key, (char) rnd.nextInt(0x10000));
+                case 11 -> out.put(key, new Vector3f(randomFloat(rnd), randomFloat(rnd), randomFloat(rnd)), rnd.nextInt(3));
+                case 12 -> out.put(key, randomVector(rnd), rnd.nextInt(3));
+                case 13 -> out.put(key, randomVector(rnd), randomVector(rnd), randomVector(rnd));
+                default -> out.put(key, new TextureAxis(randomVector(rnd), randomInt(rnd), randomDouble(rnd)));
+            }
+        }
+
+        while (!sections.isEmpty()) {
+            out.end(sections.pop());
+        }
+    }
+
+    private static int randomInt(Random rnd) {
+        return switch (rnd.nextInt(4)) {
+            case 0 -> rnd.nextInt();
+            case 1 -> rnd.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            default -> rnd.nextInt(2048) - 1024;
+        };
+    }
+
+    private static float randomFloat(Random rnd) {
+        return switch (rnd.nextInt(5)) {
+            case 0 -> SPECIAL_VALUES[rnd.nextInt(SPECIAL_VALUES.length)];
+            case 1 -> Float.intBitsToFloat(rnd.nextInt());
+            case 2 -> rnd.nextInt(20000) - 10000;
+            default -> rnd.nextFloat() * 1024 - 512;
+        };
+    }
+
+    private static double randomDouble(Random rnd) {
+        return switch (rnd.nextInt(6)) {
+            case 0 -> SPECIAL_VALUES[rnd.nextInt(SPECIAL_VALUES.length)];
+            case 1 -> Double.longBitsToDouble(rnd.nextLong());
+            case 2 -> randomFloat(rnd);
+            case 3 -> rnd.nextInt(2000001) / 1000.0 - 1000;
+            default -> rnd.nextDouble() * 2 - 1;
+        };
+    }
+
+    private static Vector3d randomVector(Random rnd) {
+        return new Vector3d(randomDouble(rnd), randomDouble(rnd), randomDouble(rnd));
+    }
+
+    private static String write(WriterAction action) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var writer = new VmfWriter(Channels.newChannel(out), 6, 6, 4)) {
+            action.accept(writer);
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private interface WriterAction {
+        void accept(VmfWriter writer);
+    }
+
+    /**
+     * The put methods shared by {@link VmfWriter} and {@link PrintWriterVmfWriter}.
+     */
+    interface VmfOutput extends AutoCloseable {
+        void start(String name);
+        void end(String name);
+        void put(String key, String value);
+        void put(String key, int value);
+        void put(String key, int... values);
+        void put(String key, long value);
+        void put(String key, float value);
+        void put(String key, double value);
+        void put(String key, boolean value);
+        void put(String key, char value);
+        void put(String key, Vector3f v, int p);
+        void put(String key, Vector3d v, int p);
+        void put(String key, Vector3d v1, Vector3d v2, Vector3d v3);
+        void put(String key, TextureAxis axis);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static VmfOutput adapt(VmfWriter writer) {
+        return (VmfOutput) Proxy.newProxyInstance(VmfOutput.class.getClassLoader(), new Class<?>[]{VmfOutput.class},
+                (proxy, method, args) -> {
+                    try {
+                        return VmfWriter.class.getMethod(method.getName(), method.getParameterTypes())
+                                .invoke(writer, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,78 @@
+package info.ata4.bspsrc.decompiler.modules.texture;
+
+import info.ata4.bspsrc.decompiler.modules.texture.tooltextures.ToolTextureDefinition;
+import info.ata4.bspsrc.lib.struct.BrushFlag;
+import info.ata4.bspsrc.lib.struct.SurfaceFlag;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static info.ata4.bspsrc.common.util.StringUtil.equalsIgnoreCase;
+import static java.util.Objects.requireNonNull;
+
+/// Reference for the matching of [ToolTextureMatcher], the stream based matching that tested the requirement maps of
+/// every definition on each call.
+class StreamToolTextureMatcher {
+
+    private final Map<String, ToolTextureDefinition> toolTextureDefinitions;
+    private final boolean clipOptimization;
+
+    StreamToolTextureMatcher(
+            Map<String, ToolTextureDefinition> toolTextureDefinitions,
+            boolean clipOptimization
+    ) {
+        this.toolTextureDefinitions = Map.copyOf(toolTextureDefinitions);
+        this.clipOptimization = clipOptimization;
+    }
+
+    Optional<String> fixToolTexture(
+            String originalTextureName,
+            Set<BrushFlag> brushFlags,
+            Set<SurfaceFlag> surfFlags
+    ) {
+        requireNonNull(brushFlags);
+
+        var isClip = brushFlags.contains(BrushFlag.CONTENTS_PLAYERCLIP) || brushFlags.contains(BrushFlag.CONTENTS_MONSTERCLIP);
+
+        return toolTextureDefinitions.entrySet().stream()
+                .filter(ttEntry -> (isClip && clipOptimization) || matchesSurfaceProperty(ttEntry.getValue(), originalTextureName))
+                .filter(ttEntry -> matchesRequirements(ttEntry.getValue().getBrushFlagsRequirements(), brushFlags))
+                .filter(ttEntry -> (isClip && clipOptimization) || matchesRequirements(ttEntry.getValue().getSurfaceFlagsRequirements(), surfFlags))
+                .max(Comparator.comparingInt(ttEntry -> ttDefinitionScore(ttEntry, surfFlags == null)))
+                .filter(ttEntry -> ttDefinitionScore(ttEntry, surfFlags == null) > 0)
+                .map(Map.Entry::getKey);
+    }
+
+    private boolean matchesSurfaceProperty(ToolTextureDefinition definition, String originalTextureName) {
+        if (originalTextureName == null)
+            return true;
+
+        var originalSurfaceDefinition = toolTextureDefinitions.get(originalTextureName);
+        if (originalSurfaceDefinition == null)
+            return true;
+
+        return equalsIgnoreCase(
+                originalSurfaceDefinition.getSurfaceProperty().orElse(null),
+                definition.getSurfaceProperty().orElse(null)
+        );
+    }
+
+    private <T> boolean matchesRequirements(Map<T, Boolean> requirements, Set<T> set) {
+        if (set == null)
+            return true;
+
+        return requirements
+                .entrySet()
+                .stream()
+                .allMatch(entry -> set.contains(entry.getKey()) == entry.getValue());
+    }
+
+    private static int ttDefinitionScore(Map.Entry<String, ToolTextureDefinition> ttEntry, boolean ignoreSurfaceFlags) {
+        ToolTextureDefinition definition = ttEntry.getValue();
+        int brushFlagRequirements = definition.getBrushFlagsRequirements().size();
+        int surfaceFlagRequirements = definition.getSurfaceFlagsRequirements().size();
+        return brushFlagRequirements + (ignoreSurfaceFlags ? 0 : surfaceFlagRequirements);
+    }
+}
@@ -0,0 +1,165 @@
+package info.ata4.bspsrc.decompiler.modules.texture;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DTexData;
+import info.ata4.bspsrc.lib.struct.DTexInfo;
+import info.ata4.bspsrc.lib.struct.SurfaceFlag;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TexinfoTable Test")
+class TexinfoTableTest {
+
+    private static final Vector3d[] NORMALS = {
+            Vector3d.BASE_VECTOR_X, Vector3d.BASE_VECTOR_Y, Vector3d.BASE_VECTOR_Z,
+            new Vector3d(1, 1, 0).normalize(), new Vector3d(-0.3, 0.2, 0.9).normalize()
+    };
+
+    @Test
+    @DisplayName("Entries match the per texinfo lookup")
+    void matchesLookup() {
+        var rnd = new Random(0);
+        var bsp = randomBsp(rnd);
+        var materials = bsp.texnames.stream()
+                .map(texname -> texname.toUpperCase(Locale.ROOT))
+                .toList();
+        var table = new TexinfoTable(bsp, materials);
+
+        for (int round = 0; round < 2; round++) {
+            for (int itexinfo = -2; itexinfo < bsp.texinfos.size() + 2; itexinfo++) {
+                var entry = table.get(itexinfo);
+
+                var texinfo = TextureBuilder.lookupTexinfo(itexinfo, bsp.texinfos);
+                if (texinfo == null) {
+                    assertNull(entry, "texinfo " + itexinfo);
+                    continue;
+                }
+
+                var texdata = TextureBuilder.lookupTexdata(texinfo.texdata, bsp.texdatas);
+                var texname = texdata == null ? null : TextureBuilder.lookupTexname(texdata.texname, bsp.texnames);
+
+                assertNotNull(entry, "texinfo " + itexinfo);
+                assertSame(texinfo, entry.texinfo());
+                assertSame(texdata, entry.texdata());
+                assertEquals(texname, entry.texname());
+
+                for (int i = 0; i < 20; i++) {
+                    var origin = rnd.nextBoolean() ? null : randomVector(rnd, 1024);
+                    var angles = rnd.nextBoolean() ? null : randomVector(rnd, 360);
+                    var normal = NORMALS[rnd.nextInt(NORMALS.length)];
+
+                    var texture = entry.buildTexture(origin, angles, normal);
+                    if (texname == null) {
+                        assertNull(texture);
+                        continue;
+                    }
+
+                    var expected = TextureBuilder.buildFromTexinfo(texinfo, texdata,
+                            materials.get(texdata.texname), origin, angles, normal);
+                    assertSameTexture(expected, texture, "texinfo " + itexinfo);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Texinfos are resolved once and share their texdata")
+    void sharedEntries() {
+        var bsp = randomBsp(new Random(1));
+        var table = new TexinfoTable(bsp, bsp.texnames);
+
+        for (int itexinfo = 0; itexinfo < bsp.texinfos.size(); itexinfo++) {
+            var entry = table.get(itexinfo);
+            assertSame(entry, table.get(itexinfo));
+
+            if (entry.texname() == null) {
+                continue;
+            }
+
+            // every texinfo with the same texdata resolves to the same material
+            for (int other = 0; other < itexinfo; other++) {
+                var otherEntry = table.get(other);
+                if (otherEntry.texdata() == entry.texdata()) {
+                    assertSame(entry.material(), otherEntry.material());
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds texinfos where some share their texdata and some point to invalid
+     * texdata or texname indices.
+     */
+    private static BspData randomBsp(Random rnd) {
+        var bsp = new BspData();
+
+        bsp.texnames = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            bsp.texnames.add("tools/texture" + i);
+        }
+
+        List<DTexData> texdatas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            var texdata = new DTexData();
+            texdata.reflectivity = new Vector3f(0, 0, 0);
+            texdata.texname = rnd.nextInt(bsp.texnames.size() + 2);
+            texdata.width = 64 << rnd.nextInt(4);
+            texdata.height = 64 << rnd.nextInt(4);
+            texdatas.add(texdata);
+        }
+        bsp.texdatas = texdatas;
+
+        List<DTexInfo> texinfos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            var texinfo = new DTexInfo();
+            for (int j = 0; j < 2; j++) {
+                for (int k = 0; k < 4; k++) {
+                    texinfo.textureVecsTexels[j][k] = k == 3 ? rnd.nextInt(512) - 256 : (float) rnd.nextGaussian();
+                    texinfo.lightmapVecsLuxels[j][k] = k == 3 ? 0 : (float) rnd.nextGaussian() / 16;
+                }
+            }
+            // degenerate texture vectors
+            if (i % 10 == 0) {
+                texinfo.textureVecsTexels[1] = texinfo.textureVecsTexels[0].clone();
+            }
+            texinfo.flags = EnumSet.noneOf(SurfaceFlag.class);
+            texinfo.texdata = rnd.nextInt(texdatas.size() + 2);
+            texinfos.add(texinfo);
+        }
+        bsp.texinfos = texinfos;
+
+        return bsp;
+    }
+
+    private static Vector3d randomVector(Random rnd, double scale) {
+        return new Vector3d(
+                (rnd.nextDouble() * 2 - 1) * scale,
+                (rnd.nextDouble() * 2 - 1) * scale,
+                (rnd.nextDouble() * 2 - 1) * scale
+        );
+    }
+
+    private static void assertSameTexture(Texture expected, Texture actual, String message) {
+        assertNotNull(actual, message);
+        assertEquals(expected.texture, actual.texture, message);
+        assertEquals(expected.lmscale, actual.lmscale, message);
+        assertSameAxis(expected.u, actual.u, message);
+        assertSameAxis(expected.v, actual.v, message);
+    }
+
+    private static void assertSameAxis(TextureAxis expected, TextureAxis actual, String message) {
+        assertEquals(expected.axis, actual.axis, message);
+        assertEquals(expected.shift, actual.shift, message);
+        assertEquals(expected.tw, actual.tw, message);
+    }
+}
@@ -13,7 +13,7 @@ import info.ata4.bspsrc.lib.struct.SurfaceFlag;
 import info.ata4.bspsrc.lib.vector.Vector3d;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +22,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static java.nio.file.StandardOpenOption.*;
+
 public class ToolTextureMatcherTestHelper {
     public static void main(String[] args) throws IOException, InterruptedException {
         var dir = Path.of("bspsrc-decompiler\\src\\test\\resources\\info\\ata4\\bspsrc\\decompiler\\modules\\texture");
@@ -213,7 +215,7 @@ public class ToolTextureMatcherTestHelper {
         );
 
         var uid = new AtomicInteger();
-        try (var writer = new VmfWriter(new PrintWriter(vmfFile.toFile()), 8, 4, 4))
+        try (var writer = new VmfWriter(FileChannel.open(vmfFile, CREATE, TRUNCATE_EXISTING, WRITE), 8, 4, 4))
         {
             writer.start("world");
             writer.put("id", uid.getAndIncrement());
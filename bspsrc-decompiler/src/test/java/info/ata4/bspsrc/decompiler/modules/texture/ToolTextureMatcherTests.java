@@ -1,11 +1,14 @@
 package info.ata4.bspsrc.decompiler.modules.texture;
 
 import info.ata4.bspsrc.decompiler.modules.geom.BrushSideFaceMapper;
+import info.ata4.bspsrc.decompiler.modules.texture.tooltextures.ToolTextureSet;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFile;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.struct.BrushFlag;
 import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.SurfaceFlag;
 import info.ata4.bspsrc.lib.vector.Vector3d;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +16,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DynamicNode;
 import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -20,13 +25,19 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static info.ata4.bspsrc.decompiler.modules.texture.ToolTextureMatcherTestHelper.centerForPosition;
 import static info.ata4.bspsrc.decompiler.modules.texture.ToolTextureMatcherTestHelper.queryCube;
+import static info.ata4.bspsrc.common.util.EnumConverter.fromInteger;
+import static info.ata4.bspsrc.common.util.EnumConverter.toInteger;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.junit.jupiter.api.DynamicContainer.dynamicContainer;
@@ -88,6 +99,94 @@ public class ToolTextureMatcherTests {
                 });
     }
     
+    @DisplayName("Test flag masks against the stream based matcher")
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(ToolTextureSet.class)
+    void testMasks(ToolTextureSet toolTextureSet) {
+        var definitions = toolTextureSet.toolTextureDefinitions;
+
+        for (boolean clipOptimization : new boolean[] {false, true}) {
+            var matcher = new ToolTextureMatcher(definitions, clipOptimization);
+            var reference = new StreamToolTextureMatcher(definitions, clipOptimization);
+
+            // the flags of every definition, with and without one flag more or less
+            for (var ttEntry : definitions.entrySet()) {
+                var brushFlags = requiredFlags(BrushFlag.class, ttEntry.getValue().getBrushFlagsRequirements());
+                var surfFlags = requiredFlags(SurfaceFlag.class, ttEntry.getValue().getSurfaceFlagsRequirements());
+
+                for (var brushFlagsVariant : variants(BrushFlag.class, brushFlags)) {
+                    for (var surfFlagsVariant : variants(SurfaceFlag.class, surfFlags)) {
+                        for (var originalTextureName : Arrays.asList(null, ttEntry.getKey(), "dev/dev_measuregeneric01b")) {
+                            assertSameMatch(matcher, reference, originalTextureName, brushFlagsVariant, surfFlagsVariant);
+                            assertSameMatch(matcher, reference, originalTextureName, brushFlagsVariant, null);
+                        }
+                    }
+                }
+
+                // the surface property of every other definition
+                for (var originalTextureName : definitions.keySet()) {
+                    assertSameMatch(matcher, reference, originalTextureName, brushFlags, surfFlags);
+                }
+            }
+
+            // random combinations of the flags used by the definitions
+            int brushFlagsUsed = 0;
+            int surfFlagsUsed = 0;
+            for (var definition : definitions.values()) {
+                brushFlagsUsed |= toInteger(definition.getBrushFlagsRequirements().keySet());
+                surfFlagsUsed |= toInteger(definition.getSurfaceFlagsRequirements().keySet());
+            }
+
+            var names = List.copyOf(definitions.keySet());
+            var rnd = new Random(toolTextureSet.ordinal());
+            for (int i = 0; i < 5000; i++) {
+                var originalTextureName = rnd.nextInt(4) == 0 ? null : names.get(rnd.nextInt(names.size()));
+                var brushFlags = fromInteger(BrushFlag.class, rnd.nextInt() & brushFlagsUsed);
+                var surfFlags = rnd.nextInt(4) == 0 ? null : fromInteger(SurfaceFlag.class, rnd.nextInt() & surfFlagsUsed);
+                assertSameMatch(matcher, reference, originalTextureName, brushFlags, surfFlags);
+            }
+        }
+    }
+
+    private static void assertSameMatch(
+            ToolTextureMatcher matcher,
+            StreamToolTextureMatcher reference,
+            String originalTextureName,
+            Set<BrushFlag> brushFlags,
+            Set<SurfaceFlag> surfFlags
+    ) {
+        assertEquals(
+                reference.fixToolTexture(originalTextureName, brushFlags, surfFlags),
+                matcher.fixToolTexture(originalTextureName, brushFlags, surfFlags),
+                () -> "texture: %s, brush flags: %s, surface flags: %s".formatted(originalTextureName, brushFlags, surfFlags)
+        );
+    }
+
+    private static <E extends Enum<E>> Set<E> requiredFlags(Class<E> elementType, Map<E, Boolean> requirements) {
+        var flags = EnumSet.noneOf(elementType);
+        requirements.forEach((flag, required) -> {
+            if (required) {
+                flags.add(flag);
+            }
+        });
+        return flags;
+    }
+
+    /// @return the flags, the flags with each other flag added and the flags with each flag removed
+    private static <E extends Enum<E>> List<Set<E>> variants(Class<E> elementType, Set<E> flags) {
+        var variants = new ArrayList<Set<E>>();
+        variants.add(flags);
+        for (E flag : elementType.getEnumConstants()) {
+            var variant = EnumSet.noneOf(elementType);
+            variant.addAll(flags);
+            if (!variant.remove(flag)) {
+                variant.add(flag);
+            }
+            variants.add(variant);
+        }
+        return variants;
+    }
+
     private BspFile loadBspFromResource(String resource) throws IOException, BspException {
         var bspFile = tempDir.resolve(resource);
         try (var is = ToolTextureMatcherTests.class.getResourceAsStream(resource)) {
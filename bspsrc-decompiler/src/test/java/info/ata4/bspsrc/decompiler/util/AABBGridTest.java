@@ -0,0 +1,133 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AABBGrid Test")
+class AABBGridTest {
+
+    @Test
+    @DisplayName("Boxes touching at a cell boundary are candidates")
+    void touchingBoundary() {
+        var grid = new AABBGrid(withFiller(
+                box(0, 0, 0, 10, 10, 10),
+                box(10, 0, 0, 20, 10, 10),
+                box(-10, -10, -10, 0, 0, 0),
+                box(30, 30, 30, 40, 40, 40)
+        ), 10);
+
+        assertEquals(Set.of(0, 1, 2), query(grid, box(0, 0, 0, 10, 10, 10)));
+        assertEquals(Set.of(0, 1), query(grid, box(10, 5, 5, 10, 5, 5)));
+        assertEquals(Set.of(0, 2), query(grid, box(-1, -1, -1, 0, 0, 0)));
+        assertEquals(Set.of(3), query(grid, box(40, 40, 40, 45, 45, 45)));
+    }
+
+    @Test
+    @DisplayName("Boxes spanning cells are reported once")
+    void spanningCells() {
+        var grid = new AABBGrid(List.of(
+                box(-25, -25, -25, 25, 25, 25),
+                box(5, 5, 5, 6, 6, 6)
+        ), 10);
+
+        var found = new ArrayList<Integer>();
+        grid.query(box(-30, -30, -30, 30, 30, 30), found::add);
+        found.sort(null);
+        assertEquals(List.of(0, 1), found);
+
+        // same result for the next query, with a new stamp
+        found.clear();
+        grid.query(box(-30, -30, -30, 30, 30, 30), found::add);
+        found.sort(null);
+        assertEquals(List.of(0, 1), found);
+    }
+
+    @Test
+    @DisplayName("Oversized boxes are always candidates, empty boxes never")
+    void oversizedAndEmpty() {
+        var grid = new AABBGrid(withFiller(
+                box(-1000, -1000, -1000, 1000, 1000, 1000),
+                AABB.ZERO,
+                box(0, 0, 0, 1, 1, 1),
+                box(0, 0, 0, Double.NaN, 1, 1)
+        ), 1);
+
+        assertEquals(Set.of(0), query(grid, box(500, 500, 500, 501, 501, 501)));
+        assertEquals(Set.of(0, 2), query(grid, box(0, 0, 0, 1, 1, 1)));
+        assertEquals(Set.of(), query(grid, AABB.ZERO));
+
+        // queries over more cells than boxes check all boxes
+        var all = query(grid, box(-500, -500, -500, 500, 500, 500));
+        assertTrue(all.containsAll(Set.of(0, 2)));
+        assertFalse(all.contains(1));
+        assertFalse(all.contains(3));
+    }
+
+    @Test
+    @DisplayName("Candidates include every touching box")
+    void random() {
+        var rnd = new Random(0);
+        var boxes = new ArrayList<AABB>();
+        for (int i = 0; i < 500; i++) {
+            boxes.add(randomBox(rnd));
+        }
+
+        var grid = new AABBGrid(boxes);
+        for (int q = 0; q < 500; q++) {
+            var bounds = randomBox(rnd);
+
+            var found = new ArrayList<Integer>();
+            grid.query(bounds, found::add);
+            assertEquals(found.size(), new HashSet<>(found).size(), "duplicate candidates");
+
+            for (int i = 0; i < boxes.size(); i++) {
+                if (touches(boxes.get(i), bounds)) {
+                    assertTrue(found.contains(i), "missing box " + i + " for query " + q);
+                }
+            }
+        }
+    }
+
+    // small boxes far away, so queries aren't larger than the number of boxes
+    private static List<AABB> withFiller(AABB... boxes) {
+        var list = new ArrayList<>(List.of(boxes));
+        for (int i = 0; i < 100; i++) {
+            list.add(box(5000 + i * 10, 5000, 5000, 5000 + i * 10 + 0.5, 5000.5, 5000.5));
+        }
+        return list;
+    }
+
+    private static Set<Integer> query(AABBGrid grid, AABB bounds) {
+        var found = new HashSet<Integer>();
+        grid.query(bounds, found::add);
+        return found;
+    }
+
+    private static AABB randomBox(Random rnd) {
+        // snap to a coarse grid so touching boxes are common
+        double x = rnd.nextInt(64) * 16 - 512;
+        double y = rnd.nextInt(64) * 16 - 512;
+        double z = rnd.nextInt(64) * 16 - 512;
+        double size = rnd.nextInt(20) == 0 ? 512 : (rnd.nextInt(8) + 1) * 16;
+        return box(x, y, z, x + size, y + rnd.nextInt(4) * 16, z + size);
+    }
+
+    private static boolean touches(AABB a, AABB b) {
+        return a.getMin().x() <= b.getMax().x() && b.getMin().x() <= a.getMax().x()
+                && a.getMin().y() <= b.getMax().y() && b.getMin().y() <= a.getMax().y()
+                && a.getMin().z() <= b.getMax().z() && b.getMin().z() <= a.getMax().z();
+    }
+
+    private static AABB box(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return new AABB(new Vector3d(x1, y1, z1), new Vector3d(x2, y2, z2));
+    }
+}
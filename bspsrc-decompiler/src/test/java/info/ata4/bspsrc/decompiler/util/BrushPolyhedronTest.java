@@ -0,0 +1,185 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static info.ata4.bspsrc.decompiler.util.BrushTestHelper.assertSameWinding;
+import static info.ata4.bspsrc.decompiler.util.BrushTestHelper.clipSide;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BrushPolyhedron Test")
+class BrushPolyhedronTest {
+
+    private final WindingFactory factory = new WindingFactory(32768);
+
+    @Test
+    @DisplayName("Box")
+    void box() {
+        var map = new BrushTestHelper();
+        var brush = map.brush(map.box(-16, 48), 6);
+        var bsp = map.build();
+
+        var polyhedron = assertSameSides(bsp, brush);
+        for (int side = 0; side < 6; side++) {
+            assertEquals(4, polyhedron.getSide(side).size());
+        }
+
+        var bounds = polyhedron.getBounds();
+        assertEquals(-16, bounds.getMin().x());
+        assertEquals(48, bounds.getMax().z());
+    }
+
+    @Test
+    @DisplayName("Slanted sides")
+    void slanted() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(0, 64);
+        map.side(1, 0, 1, 64 / Math.sqrt(2));
+        map.side(-1, 2, 0.5, 10);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+
+        // vertices on axis-aligned planes are snapped to the plane
+        for (var vert : polyhedron.getSide(0)) {
+            assertEquals(64, vert.x());
+        }
+        for (var vert : polyhedron.getSide(3)) {
+            assertEquals(0, vert.y());
+        }
+    }
+
+    @Test
+    @DisplayName("Coplanar and duplicate planes")
+    void duplicatePlanes() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        var bsp0 = map.build();
+        // the same plane index and a second plane with the same values
+        map.side(bsp0.brushSides.getPlaneIndex(fstside), false);
+        map.side(1, 0, 0, 32);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        assertSameSides(map.build(), brush);
+    }
+
+    @Test
+    @DisplayName("Coplanar planes facing the other way")
+    void oppositePlanes() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        map.side(-1, 0, 0, -32);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+        assertEquals(4, polyhedron.getSide(0).size());
+        assertEquals(4, polyhedron.getSide(6).size());
+    }
+
+    @Test
+    @DisplayName("Zero-thickness brush")
+    void zeroThickness() {
+        var map = new BrushTestHelper();
+        int fstside = map.side(1, 0, 0, 8);
+        map.side(-1, 0, 0, -8);
+        map.side(0, 1, 0, 32);
+        map.side(0, -1, 0, 32);
+        map.side(0, 0, 1, 32);
+        map.side(0, 0, -1, 32);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+        assertEquals(4, polyhedron.getSide(0).size());
+        assertEquals(4, polyhedron.getSide(1).size());
+
+        var bounds = polyhedron.getBounds();
+        assertEquals(8, bounds.getMin().x());
+        assertEquals(8, bounds.getMax().x());
+    }
+
+    @Test
+    @DisplayName("Sides that don't touch the brush")
+    void outsideSide() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        map.side(1, 0, 0, 100);
+        map.side(1, 1, 1, 200);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+        assertTrue(polyhedron.getSide(6).isEmpty());
+        assertTrue(polyhedron.getSide(7).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Bevel sides don't clip the brush")
+    void bevelSides() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        // edge bevel through the corner edge, and one that would cut the box
+        map.side(map.plane(1, 1, 0, 64 / Math.sqrt(2)), true);
+        map.side(map.plane(1, 1, 1, 0), true);
+        var brush = map.brush(fstside, map.numSides() - fstside);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+        assertEquals(4, polyhedron.getSide(0).size());
+        assertEquals(32, polyhedron.getBounds().getMax().x());
+    }
+
+    @Test
+    @DisplayName("Open brushes reach the base winding")
+    void openBrush() {
+        var map = new BrushTestHelper();
+        var brush = map.brush(map.box(-32, 32), 5);
+
+        var polyhedron = assertSameSides(map.build(), brush);
+        assertTrue(factory.isHuge(polyhedron.getSide(0)));
+    }
+
+    @Test
+    @DisplayName("Random convex brushes")
+    void randomBrushes() {
+        var random = new Random(42);
+        var map = new BrushTestHelper();
+
+        for (int i = 0; i < 200; i++) {
+            int fstside = map.box(-64 - random.nextInt(64), 64 + random.nextInt(64));
+            int numcuts = random.nextInt(30);
+            for (int j = 0; j < numcuts; j++) {
+                double nx = random.nextGaussian();
+                double ny = random.nextGaussian();
+                double nz = random.nextGaussian();
+                int iplane = map.plane(nx, ny, nz, 40 + random.nextInt(80));
+                map.side(iplane, random.nextInt(8) == 0);
+            }
+            map.brush(fstside, map.numSides() - fstside);
+        }
+
+        var bsp = map.build();
+        for (var brush : bsp.brushes) {
+            assertSameSides(bsp, brush);
+        }
+    }
+
+    private BrushPolyhedron assertSameSides(BspData bsp, DBrush brush) {
+        var polyhedron = factory.fromBrush(bsp, brush);
+        assertTrue(polyhedron.isBrush(brush));
+
+        var bounds = AABB.ZERO;
+        for (int side = 0; side < brush.numside; side++) {
+            var expected = clipSide(factory, bsp, brush, side);
+            assertSameWinding(expected, polyhedron.getSide(side), "side " + side);
+            assertSame(polyhedron.getSide(side), factory.fromSide(bsp, brush, side));
+            bounds = bounds.include(expected.getBounds());
+        }
+
+        assertEquals(bounds.getMin(), polyhedron.getBounds().getMin());
+        assertEquals(bounds.getMax(), polyhedron.getBounds().getMax());
+
+        return polyhedron;
+    }
+}
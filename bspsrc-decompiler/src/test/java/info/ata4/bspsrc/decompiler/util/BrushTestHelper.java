@@ -0,0 +1,122 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BrushSideColumns;
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import info.ata4.bspsrc.lib.struct.DBrushSide;
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.struct.PlaneColumns;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Builds the plane, brush side and brush lumps of small test maps.
+ */
+class BrushTestHelper {
+
+    private final List<DPlane> planes = new ArrayList<>();
+    private final List<DBrushSide> sides = new ArrayList<>();
+    private final List<DBrush> brushes = new ArrayList<>();
+
+    int plane(double nx, double ny, double nz, double dist) {
+        var n = new Vector3d(nx, ny, nz).normalize();
+
+        var plane = new DPlane();
+        plane.normal = new Vector3f((float) n.x(), (float) n.y(), (float) n.z());
+        plane.dist = (float) dist;
+        planes.add(plane);
+        return planes.size() - 1;
+    }
+
+    int side(int iplane, boolean bevel) {
+        var side = new DBrushSide();
+        side.pnum = iplane;
+        side.bevel = bevel;
+        sides.add(side);
+        return sides.size() - 1;
+    }
+
+    int side(double nx, double ny, double nz, double dist) {
+        return side(plane(nx, ny, nz, dist), false);
+    }
+
+    /**
+     * Adds the six sides of an axis-aligned box.
+     *
+     * @return index of the first side
+     */
+    int box(double min, double max) {
+        int fstside = sides.size();
+        side(1, 0, 0, max);
+        side(-1, 0, 0, -min);
+        side(0, 1, 0, max);
+        side(0, -1, 0, -min);
+        side(0, 0, 1, max);
+        side(0, 0, -1, -min);
+        return fstside;
+    }
+
+    int numSides() {
+        return sides.size();
+    }
+
+    DBrush brush(int fstside, int numside) {
+        var brush = new DBrush();
+        brush.fstside = fstside;
+        brush.numside = numside;
+        brushes.add(brush);
+        return brush;
+    }
+
+    BspData build() {
+        var bsp = new BspData();
+
+        bsp.planes = new PlaneColumns(DPlane::new, planes.size());
+        for (int i = 0; i < planes.size(); i++) {
+            bsp.planes.store(i, planes.get(i));
+        }
+
+        bsp.brushSides = new BrushSideColumns(DBrushSide::new, sides.size());
+        for (int i = 0; i < sides.size(); i++) {
+            bsp.brushSides.store(i, sides.get(i));
+        }
+
+        bsp.brushes = List.copyOf(brushes);
+        return bsp;
+    }
+
+    /**
+     * Clips the base winding of a side against all other non-bevel sides of
+     * the brush with immutable windings, like the windings were built before
+     * {@link BrushPolyhedron}.
+     */
+    static Winding clipSide(WindingFactory factory, BspData bsp, DBrush brush, int side) {
+        int ibside = brush.fstside + side;
+        var winding = factory.fromPlane(bsp.planes.get(bsp.brushSides.getPlaneIndex(ibside)));
+
+        for (int i = 0; i < brush.numside; i++) {
+            int ibside2 = brush.fstside + i;
+            if (ibside2 == ibside || bsp.brushSides.isBevel(ibside2)) {
+                continue;
+            }
+
+            winding = winding.clipPlane(bsp.planes.get(bsp.brushSides.getPlaneIndex(ibside2)), true);
+        }
+
+        return winding;
+    }
+
+    /**
+     * Asserts that a side winding has exactly the vertices of
+     * {@link #clipSide}, starting at the same vertex and in the same order.
+     */
+    static void assertSameWinding(Winding expected, Winding actual, String message) {
+        assertNotNull(actual, message);
+        assertEquals(expected, actual, message);
+    }
+}
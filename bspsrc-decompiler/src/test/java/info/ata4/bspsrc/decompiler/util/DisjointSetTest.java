@@ -0,0 +1,89 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DisjointSet Test")
+class DisjointSetTest {
+
+    @Test
+    @DisplayName("Union merges sets once")
+    void union() {
+        var set = new DisjointSet(5);
+        assertEquals(5, set.size());
+
+        assertTrue(set.union(0, 1));
+        assertTrue(set.union(3, 4));
+        assertFalse(set.union(1, 0));
+        assertTrue(set.union(1, 4));
+        assertFalse(set.union(0, 3));
+
+        assertTrue(set.connected(0, 4));
+        assertFalse(set.connected(2, 0));
+        assertEquals(set.find(0), set.find(3));
+        assertEquals(2, set.find(2));
+    }
+
+    @Test
+    @DisplayName("Find shortens paths")
+    void pathCompression() {
+        // pairwise unions build a tree of depth log2(n) despite union by size
+        int n = 1 << 10;
+        var set = new DisjointSet(n);
+        for (int step = 1; step < n; step <<= 1) {
+            for (int i = 0; i < n; i += step << 1) {
+                set.union(i, i + step);
+            }
+        }
+
+        int deepest = 0;
+        for (int i = 0; i < n; i++) {
+            if (set.depth(i) > set.depth(deepest)) {
+                deepest = i;
+            }
+        }
+
+        int depth = set.depth(deepest);
+        assertEquals(10, depth);
+
+        int root = set.find(deepest);
+        assertEquals(depth / 2, set.depth(deepest));
+        assertEquals(root, set.find(deepest));
+        assertEquals(0, set.depth(root));
+    }
+
+    @Test
+    @DisplayName("Same sets as a naive labeling")
+    void random() {
+        var rnd = new Random(0);
+        int n = 200;
+        var set = new DisjointSet(n);
+        int[] labels = new int[n];
+        for (int i = 0; i < n; i++) {
+            labels[i] = i;
+        }
+
+        for (int k = 0; k < 150; k++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            assertEquals(labels[a] != labels[b], set.union(a, b));
+
+            int from = labels[b];
+            for (int i = 0; i < n; i++) {
+                if (labels[i] == from) {
+                    labels[i] = labels[a];
+                }
+            }
+        }
+
+        for (int a = 0; a < n; a++) {
+            for (int b = 0; b < n; b++) {
+                assertEquals(labels[a] == labels[b], set.connected(a, b));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FixedDecimalFormat Test")
+class FixedDecimalFormatTest {
+
+    private static final double[] SPECIAL_VALUES = {
+            0.0, -0.0, 1.0, -1.0, 0.5, -0.5, 0.125, 0.0625, 1.005, 2.675,
+            1e-9, -1e-9, 5e-9, -5e-9, 0.00000000499999, 0.999999999, 1e15, 1e20,
+            123456789.123456789, 4096.00000000005,
+            Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL,
+            Double.MAX_VALUE, -Double.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @ParameterizedTest(name = "{0} decimal places")
+    @ValueSource(ints = {1, 2, 3, 4, 6, 8, 12, 17, 20})
+    @DisplayName("Matches DecimalFormat for special values")
+    void specialValues(int decimalPlaces) {
+        var format = new FixedDecimalFormat(decimalPlaces);
+        var expected = decimalFormat(decimalPlaces);
+
+        for (double value : SPECIAL_VALUES) {
+            assertFormat(expected, format, value);
+        }
+    }
+
+    @ParameterizedTest(name = "{0} decimal places")
+    @ValueSource(ints = {1, 2, 3, 4, 6, 8, 12})
+    @DisplayName("Matches DecimalFormat for random values")
+    void randomValues(int decimalPlaces) {
+        var format = new FixedDecimalFormat(decimalPlaces);
+        var expected = decimalFormat(decimalPlaces);
+        var rnd = new Random(decimalPlaces);
+        double tieStep = Math.pow(10, -decimalPlaces);
+
+        DoubleSupplier[] generators = {
+                // arbitrary bit patterns
+                () -> Double.longBitsToDouble(rnd.nextLong()),
+                // typical map coordinates
+                () -> (rnd.nextDouble() - 0.5) * 65536,
+                // grid aligned coordinates with small errors
+                () -> (rnd.nextInt(65537) - 32768) / 16.0 + (rnd.nextInt(3) - 1) * Math.ulp(4096.0),
+                // values from floats, like lump data
+                () -> (float) ((rnd.nextDouble() - 0.5) * 65536),
+                // short decimals
+                () -> (rnd.nextInt(2000001) - 1000000) / Math.pow(10, rnd.nextInt(12)),
+                // texture axes and scales
+                () -> rnd.nextGaussian() * Math.pow(10, -rnd.nextInt(10)),
+                // values close to rounding ties
+                () -> (rnd.nextInt(2000001) - 1000000) * tieStep + tieStep / 2,
+        };
+
+        for (int i = 0; i < 200_000; i++) {
+            assertFormat(expected, format, generators[i % generators.length].getAsDouble());
+        }
+    }
+
+    @Test
+    @DisplayName("Zero decimal places uses Double.toString")
+    void zeroDecimalPlaces() {
+        var format = new FixedDecimalFormat(0);
+
+        for (double value : SPECIAL_VALUES) {
+            assertEquals(Double.toString(value), format.format(value));
+        }
+    }
+
+    @Test
+    @DisplayName("Writes at offset into byte arrays")
+    void byteArray() {
+        var format = new FixedDecimalFormat(8);
+        byte[] buf = new byte[4 + format.maxLength()];
+
+        int end = format.format(-12.5, buf, 4);
+
+        assertEquals("-12.5", new String(buf, 4, end - 4, StandardCharsets.US_ASCII));
+        assertEquals(0, buf[3]);
+    }
+
+    @Test
+    @DisplayName("Rejects negative decimal places")
+    void negativeDecimalPlaces() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedDecimalFormat(-1));
+    }
+
+    private static DecimalFormat decimalFormat(int decimalPlaces) {
+        return new DecimalFormat("0." + "#".repeat(decimalPlaces), new DecimalFormatSymbols(Locale.ENGLISH));
+    }
+
+    private static void assertFormat(DecimalFormat expected, FixedDecimalFormat format, double value) {
+        // the formatter writes US-ASCII, so the infinity sign can't be encoded
+        String expectedStr = expected.format(value).replace('\u221E', '?');
+        assertEquals(expectedStr, format.format(value), () -> "Formatting " + value);
+    }
+}
@@ -0,0 +1,61 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IntIndexTable Test")
+class IntIndexTableTest {
+
+    @Test
+    @DisplayName("Missing and out of range indices are NONE")
+    void missing() {
+        var table = new IntIndexTable(4);
+        table.put(2, 7);
+
+        assertEquals(7, table.get(2));
+        assertEquals(IntIndexTable.NONE, table.get(0));
+        assertEquals(IntIndexTable.NONE, table.get(-1));
+        assertEquals(IntIndexTable.NONE, table.get(100));
+        assertTrue(table.containsKey(2));
+        assertFalse(table.containsKey(3));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    @DisplayName("Put returns the previous value and keeps indices beyond the lump")
+    void put() {
+        var table = IntIndexTable.forLump(List.of(1, 2, 3, 4));
+
+        assertEquals(IntIndexTable.NONE, table.put(1000, 0));
+        assertEquals(0, table.put(1000, 5));
+        assertEquals(IntIndexTable.NONE, table.put(3, 1));
+        assertEquals(5, table.get(1000));
+        assertEquals(IntIndexTable.NONE, table.get(999));
+        assertEquals(2, table.size());
+
+        assertEquals(1, table.put(3, 2));
+        assertEquals(2, table.get(3));
+        assertEquals(2, table.size());
+
+        assertEquals(IntIndexTable.NONE, table.put(Integer.MAX_VALUE, 9));
+        assertEquals(9, table.get(Integer.MAX_VALUE));
+        assertTrue(table.containsKey(Integer.MAX_VALUE));
+        assertEquals(3, table.size());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.put(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.put(0, -1));
+    }
+
+    @Test
+    @DisplayName("Tables for lumps start empty")
+    void forLump() {
+        var table = IntIndexTable.forLump(List.of(1, 2, 3));
+
+        assertEquals(0, table.size());
+        assertEquals(IntIndexTable.NONE, table.get(2));
+    }
+}
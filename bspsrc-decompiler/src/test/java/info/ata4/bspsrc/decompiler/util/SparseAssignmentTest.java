@@ -0,0 +1,242 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SparseAssignment Test")
+class SparseAssignmentTest {
+
+    @Test
+    @DisplayName("Same assignment as the dense Hungarian method")
+    void matchesDense() {
+        // distinct weights, so there's only one optimal assignment
+        assertMatchesDense(rnd -> rnd.nextDouble() + 1e-6);
+    }
+
+    @Test
+    @DisplayName("Same total weight as the dense Hungarian method with tied weights")
+    void matchesDenseTotalTied() {
+        var rnd = new Random(0);
+        for (int run = 0; run < 2000; run++) {
+            int jobs = rnd.nextInt(30) + 1;
+            int workers = rnd.nextInt(30) + 1;
+            double density = rnd.nextDouble() * 0.3;
+
+            // like area ratios, which are often exactly 1
+            double[][] weights = new double[jobs][workers];
+            var sparse = new SparseAssignment(jobs, workers);
+            for (int j = 0; j < jobs; j++) {
+                for (int w = 0; w < workers; w++) {
+                    if (rnd.nextDouble() < density) {
+                        weights[j][w] = rnd.nextBoolean() ? 0.5 : 1.0;
+                        sparse.set(j, w, weights[j][w]);
+                    }
+                }
+            }
+
+            int[] expected = hungarian((j, w) -> weights[j][w], jobs, workers).jobToWorker();
+            int[] actual = sparse.solve();
+
+            boolean[] used = new boolean[workers];
+            for (int j = 0; j < jobs; j++) {
+                if (actual[j] >= 0) {
+                    assertTrue(weights[j][actual[j]] > 0, "job " + j + " in run " + run);
+                    assertFalse(used[actual[j]], "worker " + actual[j] + " in run " + run);
+                    used[actual[j]] = true;
+                }
+            }
+            assertEquals(totalWeight(weights, expected), totalWeight(weights, actual), "run " + run);
+        }
+    }
+
+    @Test
+    @DisplayName("Ties are broken by a bias for lower jobs and workers")
+    void tieOrder() {
+        var rnd = new Random(0);
+        for (int run = 0; run < 500; run++) {
+            int jobs = rnd.nextInt(5) + 1;
+            int workers = rnd.nextInt(5) + 1;
+
+            // every pair is set, so it's a single component
+            double[][] weights = new double[jobs][workers];
+            var sparse = new SparseAssignment(jobs, workers);
+            for (int j = 0; j < jobs; j++) {
+                for (int w = 0; w < workers; w++) {
+                    weights[j][w] = rnd.nextBoolean() ? 0.5 : 1.0;
+                    sparse.set(j, w, weights[j][w]);
+                }
+            }
+
+            // the bias may be the same for different worker sets, so only
+            // compare the weight and the bias
+            int[] expected = bruteForce(weights, new int[jobs], new boolean[workers], 0, null);
+            int[] actual = sparse.solve();
+            assertEquals(totalWeight(weights, expected), totalWeight(weights, actual), "run " + run);
+            assertEquals(rank(expected, workers), rank(actual, workers), "run " + run);
+        }
+
+        var sparse = new SparseAssignment(2, 2);
+        sparse.set(0, 0, 1.0);
+        sparse.set(0, 1, 1.0);
+        sparse.set(1, 0, 1.0);
+        sparse.set(1, 1, 1.0);
+        assertArrayEquals(new int[] {0, 1}, sparse.solve());
+    }
+
+    @Test
+    @DisplayName("Tied components don't depend on other components")
+    void independentComponents() {
+        // the same tied component, alone and between other components
+        var alone = new SparseAssignment(3, 3);
+        var mixed = new SparseAssignment(6, 7);
+        for (int j = 0; j < 3; j++) {
+            for (int w = 0; w < 3; w++) {
+                alone.set(j, w, 1.0);
+                mixed.set(j * 2 + 1, w * 2 + 1, 1.0);
+            }
+        }
+        mixed.set(0, 0, 1.0);
+        mixed.set(0, 2, 1.0);
+        mixed.set(2, 0, 1.0);
+        mixed.set(4, 6, 0.5);
+
+        int[] expected = alone.solve();
+        int[] actual = mixed.solve();
+        for (int j = 0; j < 3; j++) {
+            assertEquals(expected[j] * 2 + 1, actual[j * 2 + 1]);
+        }
+    }
+
+    @Test
+    @DisplayName("Tied workers of a single job")
+    void singleJobTie() {
+        var sparse = new SparseAssignment(3, 4);
+        sparse.set(1, 3, 1.0);
+        sparse.set(1, 1, 1.0);
+
+        assertEquals(1, sparse.solve()[1]);
+    }
+
+    private static void assertMatchesDense(ToDoubleFunction<Random> weight) {
+        var rnd = new Random(0);
+        for (int run = 0; run < 2000; run++) {
+            int jobs = rnd.nextInt(30) + 1;
+            int workers = rnd.nextInt(30) + 1;
+            double density = rnd.nextDouble() * 0.3;
+
+            double[][] weights = new double[jobs][workers];
+            var sparse = new SparseAssignment(jobs, workers);
+            for (int j = 0; j < jobs; j++) {
+                for (int w = 0; w < workers; w++) {
+                    if (rnd.nextDouble() < density) {
+                        weights[j][w] = weight.applyAsDouble(rnd);
+                        sparse.set(j, w, weights[j][w]);
+                    }
+                }
+            }
+
+            int[] expected = hungarian((j, w) -> weights[j][w], jobs, workers).jobToWorker();
+            int[] actual = sparse.solve();
+
+            for (int j = 0; j < jobs; j++) {
+                // the dense method also assigns zero weight pairs
+                int w = expected[j];
+                if (w >= 0 && weights[j][w] == 0) {
+                    w = -1;
+                }
+                assertEquals(w, actual[j], "job " + j + " in run " + run);
+            }
+        }
+    }
+
+    private static double totalWeight(double[][] weights, int[] assignment) {
+        double total = 0;
+        for (int j = 0; j < assignment.length; j++) {
+            if (assignment[j] >= 0) {
+                total += weights[j][assignment[j]];
+            }
+        }
+        return total;
+    }
+
+    // best assignment by weight and then by the sum of (jobs - j) * (workers - w)
+    private static int[] bruteForce(double[][] weights, int[] current, boolean[] used, int job, int[] best) {
+        int workers = used.length;
+
+        if (job == current.length) {
+            if (best == null || compare(weights, current, best) > 0) {
+                return current.clone();
+            }
+            return best;
+        }
+
+        current[job] = -1;
+        best = bruteForce(weights, current, used, job + 1, best);
+
+        for (int w = 0; w < workers; w++) {
+            if (!used[w]) {
+                used[w] = true;
+                current[job] = w;
+                best = bruteForce(weights, current, used, job + 1, best);
+                used[w] = false;
+            }
+        }
+
+        return best;
+    }
+
+    private static int compare(double[][] weights, int[] a, int[] b) {
+        int cmp = Double.compare(totalWeight(weights, a), totalWeight(weights, b));
+        if (cmp != 0) {
+            return cmp;
+        }
+        return Long.compare(rank(a, weights[0].length), rank(b, weights[0].length));
+    }
+
+    private static long rank(int[] assignment, int workers) {
+        long rank = 0;
+        for (int j = 0; j < assignment.length; j++) {
+            if (assignment[j] >= 0) {
+                rank += (long) (assignment.length - j) * (workers - assignment[j]);
+            }
+        }
+        return rank;
+    }
+
+    @Test
+    @DisplayName("Weights can be replaced and removed")
+    void setWeights() {
+        var sparse = new SparseAssignment(2, 3);
+        sparse.set(0, 1, 0.5);
+        sparse.set(0, 2, 0.25);
+        sparse.set(0, 1, 0.75);
+        sparse.set(1, 2, 1);
+        sparse.set(1, 2, 0);
+        sparse.set(1, 0, Double.NaN);
+
+        assertEquals(0.75, sparse.get(0, 1));
+        assertEquals(0.25, sparse.get(0, 2));
+        assertEquals(0, sparse.get(1, 2));
+        assertEquals(0, sparse.get(1, 0));
+        assertArrayEquals(new int[] {1, -1}, sparse.solve());
+        assertThrows(IndexOutOfBoundsException.class, () -> sparse.set(0, 3, 1));
+    }
+
+    @Test
+    @DisplayName("Jobs compete within a component")
+    void component() {
+        var sparse = new SparseAssignment(3, 3);
+        sparse.set(0, 0, 1.0);
+        sparse.set(1, 0, 0.9);
+        sparse.set(1, 1, 0.1);
+        sparse.set(2, 2, 0.5);
+
+        assertArrayEquals(new int[] {0, 1, 2}, sparse.solve());
+    }
+}
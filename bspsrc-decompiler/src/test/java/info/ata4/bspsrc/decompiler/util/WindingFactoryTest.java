@@ -0,0 +1,67 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static info.ata4.bspsrc.decompiler.util.BrushTestHelper.assertSameWinding;
+import static info.ata4.bspsrc.decompiler.util.BrushTestHelper.clipSide;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WindingFactory Test")
+class WindingFactoryTest {
+
+    @Test
+    @DisplayName("Brushes that share their first side get their own side windings")
+    void sharedFirstSide() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        // same sides, but without the bottom, so the walls are open
+        var closed = map.brush(fstside, 6);
+        var open = map.brush(fstside, 5);
+        var bsp = map.build();
+        var factory = new WindingFactory(32768);
+
+        for (int round = 0; round < 2; round++) {
+            for (int side = 0; side < 5; side++) {
+                var closedSide = factory.fromSide(bsp, closed, side);
+                var openSide = factory.fromSide(bsp, open, side);
+
+                assertSameWinding(clipSide(factory, bsp, closed, side), closedSide, "closed side " + side);
+                assertSameWinding(clipSide(factory, bsp, open, side), openSide, "open side " + side);
+            }
+        }
+
+        assertFalse(factory.isHuge(factory.fromSide(bsp, closed, 0)));
+        assertTrue(factory.isHuge(factory.fromSide(bsp, open, 0)));
+        assertTrue(factory.fromBrush(bsp, open).isBrush(open));
+        assertTrue(factory.fromBrush(bsp, closed).isBrush(closed));
+    }
+
+    @Test
+    @DisplayName("Parallel loading keeps shared sides apart")
+    void sharedFirstSideParallel() {
+        var map = new BrushTestHelper();
+        int fstside = map.box(-32, 32);
+        for (int i = 0; i < 200; i++) {
+            map.brush(fstside, 5 + i % 2);
+        }
+        var bsp = map.build();
+        var factory = new WindingFactory(32768);
+
+        var pool = new ForkJoinPool(4);
+        try {
+            factory.loadBrushSides(bsp, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (var brush : bsp.brushes) {
+            for (int side = 0; side < brush.numside; side++) {
+                assertSameWinding(clipSide(factory, bsp, brush, side), factory.fromSide(bsp, brush, side),
+                        "brush with " + brush.numside + " sides, side " + side);
+            }
+        }
+    }
+}
@@ -33,10 +33,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import static info.ata4.bspsrc.lib.app.SourceAppId.*;
 import static info.ata4.io.Seekable.Origin.CURRENT;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Low-level BSP file class for header and lump access.
@@ -84,6 +89,32 @@ public class BspFile {
     public BspFile() {
     }
 
+    /**
+     * Initializes a new map without any lump data. All lumps of the lump table
+     * are created empty, so they can be filled with
+     * {@link AbstractLump#setBuffer} and written with {@link #save}.
+     *
+     * @param version BSP version
+     * @param bo byte order of the new map
+     */
+    public void create(int version, ByteOrder bo) {
+        this.version = version;
+        this.bo = bo;
+
+        file = null;
+        name = null;
+        mapRev = 0;
+
+        lumps.clear();
+        gameLumps.clear();
+
+        for (int i = 0; i < HEADER_LUMPS; i++) {
+            Lump l = new Lump(i, LumpType.get(i, version));
+            l.setBuffer(ByteBuffer.allocate(0).order(bo));
+            lumps.add(l);
+        }
+    }
+
     /**
      * Opens the BSP file and loads its headers and lumps.
      *
@@ -645,7 +676,8 @@ public class BspFile {
                 bb.reset();
             }
 
-            // update game lump buffer
+            // update game lump buffer, starting with the header again
+            bb.rewind();
             Lump gameLump = getLump(LumpType.LUMP_GAME_LUMP);
             gameLump.setBuffer(bb);
         } catch (IOException ex) {
@@ -746,6 +778,16 @@ public class BspFile {
         return Collections.unmodifiableList(gameLumps);
     }
 
+    /**
+     * Adds a game lump, which is written to the game lump directory on the
+     * next save.
+     *
+     * @param gameLump game lump with fourCC, version and data
+     */
+    public void addGameLump(GameLump gameLump) {
+        gameLumps.add(requireNonNull(gameLump));
+    }
+
     /**
      * Returns the game lump for the matching fourCC
      *
@@ -763,11 +805,27 @@ public class BspFile {
     }
 
     /**
-     * Compresses all lumps with exception for the pakfile lump.
+     * Compresses all lumps with exception for the pakfile lump, one at a time
+     * on the calling thread. Every LZMA encoder needs tens of MiB, so use
+     * {@link #compress(Executor)} with a bounded number of threads to
+     * compress in parallel.
      */
     public void compress() {
+        compress(Runnable::run);
+    }
+
+    /**
+     * Compresses all lumps with exception for the pakfile lump. Lumps are
+     * independent from each other, so they're compressed in parallel on the
+     * given executor.
+     *
+     * @param executor executor to run the compression tasks on
+     */
+    public void compress(Executor executor) {
         L.info("Compressing lumps");
 
+        List<AbstractLump> pending = new ArrayList<>();
+
         for (Lump l : lumps) {
             // don't compress the game lump here and skip the pakfile
             if (l.getType() == LumpType.LUMP_GAME_LUMP ||
@@ -781,8 +839,7 @@ public class BspFile {
             }
 
             if (!l.isCompressed()) {
-                L.debug("Compressing {}", l.getName());
-                l.compress();
+                pending.add(l);
             }
         }
 
@@ -793,29 +850,51 @@ public class BspFile {
             }
 
             if (!gl.isCompressed()) {
-                L.debug("Compressing {}", gl.getName());
-                gl.compress();
+                pending.add(gl);
             }
         }
 
+        runAll(pending, executor, l -> {
+            L.debug("Compressing {}", l.getName());
+            l.compress();
+        });
+
         // add dummy game lump
         gameLumps.add(new GameLump());
     }
 
     /**
-     * Uncompresses all compressed lumps.
+     * Uncompresses all compressed lumps, one at a time on the calling thread.
+     * Use {@link #uncompress(Executor)} to uncompress in parallel.
      */
     public void uncompress() {
+        uncompress(Runnable::run);
+    }
+
+    /**
+     * Uncompresses all compressed lumps in parallel on the given executor.
+     *
+     * @param executor executor to run the decompression tasks on
+     */
+    public void uncompress(Executor executor) {
         if (hasCompressedLumps())
             L.info("Uncompressing lumps");
 
-        for (Lump l : lumps) {
-            l.uncompress();
-        }
+        List<AbstractLump> pending = new ArrayList<>();
+        lumps.stream().filter(AbstractLump::isCompressed).forEach(pending::add);
+        gameLumps.stream().filter(AbstractLump::isCompressed).forEach(pending::add);
 
-        for (GameLump gl : gameLumps) {
-            gl.uncompress();
-        }
+        runAll(pending, executor, AbstractLump::uncompress);
+    }
+
+    private static void runAll(List<AbstractLump> lumps, Executor executor, Consumer<AbstractLump> task) {
+        // start with the largest lumps, they take the longest
+        CompletableFuture<?>[] futures = lumps.stream()
+                .sorted(Comparator.comparingInt(AbstractLump::getLength).reversed())
+                .map(l -> CompletableFuture.runAsync(() -> task.accept(l), executor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(futures).join();
     }
 
     /**
@@ -828,6 +907,19 @@ public class BspFile {
                 || gameLumps.stream().anyMatch(AbstractLump::isCompressed);
     }
 
+    /**
+     * Returns the total size of all lumps once uncompressed, without
+     * uncompressing them.
+     *
+     * @return uncompressed size of all lumps in bytes
+     */
+    public long getUncompressedSize() {
+        // game lumps are stored inside the game lump, which itself is never compressed
+        long size = lumps.stream().mapToLong(AbstractLump::getUncompressedLength).sum();
+        size += gameLumps.stream().mapToLong(gl -> gl.getUncompressedLength() - gl.getLength()).sum();
+        return size;
+    }
+
     /**
      * Returns the PakFile object for this BSP file to access the uncompressed
      * pakfile.
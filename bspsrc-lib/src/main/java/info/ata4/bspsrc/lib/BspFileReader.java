@@ -18,12 +18,15 @@ import info.ata4.bspsrc.lib.lump.GameLump;
 import info.ata4.bspsrc.lib.lump.Lump;
 import info.ata4.bspsrc.lib.lump.LumpType;
 import info.ata4.bspsrc.lib.struct.*;
+import info.ata4.bspsrc.lib.struct.view.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -49,9 +52,6 @@ public class BspFileReader {
 
         if (bspFile.getFile() == null)
             throw new IllegalArgumentException("BSP file is unloaded");
-
-        // uncompress all lumps first
-        bspFile.uncompress();
     }
 
     public BspFileReader(BspFile bspFile) {
@@ -100,7 +100,7 @@ public class BspFileReader {
             return;
         }
 
-        bspData.planes = readDStructChunksLump(LumpType.LUMP_PLANES, DPlane::new);
+        bspData.planes = readColumnsLump(LumpType.LUMP_PLANES, DPlane::new, PlaneColumns::new);
         L.debug(String.format("%d planes", bspData.planes.size()));
     }
 
@@ -118,22 +118,22 @@ public class BspFileReader {
             return;
         }
 
-        Supplier<? extends DBrushSide> dStructSupplier;
+        bspData.brushSides = readColumnsLump(LumpType.LUMP_BRUSHSIDES, brushSideDStructSupplier(), BrushSideColumns::new);
+        L.debug(String.format("%d brush sides", bspData.brushSides.size()));
+    }
 
+    private Supplier<? extends DBrushSide> brushSideDStructSupplier() {
         if (appId() == VINDICTUS) {
-            dStructSupplier = DBrushSideVin::new;
+            return DBrushSideVin::new;
         } else if (appId() == STRATA_SOURCE) {
-            dStructSupplier = DBrushSideStrataV1::new;
+            return DBrushSideStrataV1::new;
         } else if (bspFile.getVersion() >= 21 && appId() != LEFT_4_DEAD_2) {
             // newer BSP files have a slightly different struct that is still reported
             // as version 0
-	        dStructSupplier = DBrushSideV0New::new;
+            return DBrushSideV0New::new;
         } else {
-	        dStructSupplier = DBrushSide::new;
+            return DBrushSide::new;
         }
-
-        bspData.brushSides = readDStructChunksLump(LumpType.LUMP_BRUSHSIDES, dStructSupplier);
-        L.debug(String.format("%d brush sides", bspData.brushSides.size()));
     }
 
     public void loadVertices() {
@@ -141,7 +141,7 @@ public class BspFileReader {
             return;
         }
 
-        bspData.verts = readDStructChunksLump(LumpType.LUMP_VERTEXES, DVertex::new);
+        bspData.verts = readColumnsLump(LumpType.LUMP_VERTEXES, DVertex::new, VertexColumns::new);
         L.debug(String.format("%d vertices", bspData.verts.size()));
     }
 
@@ -150,7 +150,7 @@ public class BspFileReader {
             return;
         }
 
-        bspData.clipPortalVerts = readDStructChunksLump(LumpType.LUMP_CLIPPORTALVERTS, DVertex::new);
+        bspData.clipPortalVerts = readColumnsLump(LumpType.LUMP_CLIPPORTALVERTS, DVertex::new, VertexColumns::new);
         L.debug(String.format("%d areaportal vertices", bspData.clipPortalVerts.size()));
     }
 
@@ -159,18 +159,18 @@ public class BspFileReader {
             return;
         }
 
-        Supplier<? extends DEdge> struct;
+        bspData.edges = readColumnsLump(LumpType.LUMP_EDGES, edgeDStructSupplier(), EdgeColumns::new);
+        L.debug(String.format("%d edges", bspData.edges.size()));
+    }
 
-	    if (appId() == VINDICTUS) {
-		    struct = DEdgeVin::new;
+    private Supplier<? extends DEdge> edgeDStructSupplier() {
+        if (appId() == VINDICTUS) {
+            return DEdgeVin::new;
         } else if (appId() == STRATA_SOURCE) {
-		    struct = DEdgeStrataV1::new;
-	    } else {
-		    struct = DEdge::new;
-	    }
-
-        bspData.edges = readDStructChunksLump(LumpType.LUMP_EDGES, struct);
-        L.debug(String.format("%d edges", bspData.edges.size()));
+            return DEdgeStrataV1::new;
+        } else {
+            return DEdge::new;
+        }
     }
 
     private Supplier<? extends DFace> faceDStructSupplier(int lumpVersion) {
@@ -201,13 +201,15 @@ public class BspFileReader {
             return;
         }
 
+        bspData.faces = readDStructChunksLump(faceLumpType(), this::faceDStructSupplier);
+        L.debug(String.format("%d faces", bspData.faces.size()));
+    }
+
+    private LumpType faceLumpType() {
         // prioritize LUMP_FACES_HDR over LUMP_FACES
         boolean useHdrLump = bspFile.canReadLump(LumpType.LUMP_FACES_HDR)
                 && bspFile.getLump(LumpType.LUMP_FACES_HDR).getLength() != 0;
-        LumpType faceLumpType = useHdrLump ? LumpType.LUMP_FACES_HDR : LumpType.LUMP_FACES;
-
-        bspData.faces = readDStructChunksLump(faceLumpType, this::faceDStructSupplier);
-        L.debug(String.format("%d faces", bspData.faces.size()));
+        return useHdrLump ? LumpType.LUMP_FACES_HDR : LumpType.LUMP_FACES;
     }
 
     public void loadOriginalFaces() {
@@ -453,7 +455,7 @@ public class BspFileReader {
             return;
         }
 
-        LumpReader<List<Integer>> lumpReader;
+        LumpReader<IntColumn> lumpReader;
         if (appId() == VINDICTUS || appId() == STRATA_SOURCE) {
             lumpReader = new IntegerChunksLumpReader();
         } else {
@@ -469,7 +471,7 @@ public class BspFileReader {
             return;
         }
 
-        LumpReader<List<Integer>> lumpReader;
+        LumpReader<IntColumn> lumpReader;
         if (appId() == VINDICTUS || appId() == STRATA_SOURCE) {
             lumpReader = new IntegerChunksLumpReader();
         } else {
@@ -609,7 +611,7 @@ public class BspFileReader {
             return;
         }
 
-        LumpReader<List<Integer>> lumpReader;
+        LumpReader<IntColumn> lumpReader;
         if (appId() == STRATA_SOURCE) {
             lumpReader = new IntegerChunksLumpReader();
         } else {
@@ -625,7 +627,7 @@ public class BspFileReader {
             return;
         }
 
-        bspData.primVerts = readDStructChunksLump(LumpType.LUMP_PRIMVERTS, DVertex::new);
+        bspData.primVerts = readColumnsLump(LumpType.LUMP_PRIMVERTS, DVertex::new, VertexColumns::new);
         L.debug(String.format("%d primitives vertices", bspData.primVerts.size()));
     }
 
@@ -668,6 +670,26 @@ public class BspFileReader {
         );
     }
 
+    /**
+     * Reads the lump specified by {@code lumpType} with a {@link StructColumnsLumpReader}
+     * and returns the result.
+     *
+     * @param lumpType the type of lump to read
+     * @param dStructSupplier {@link DStruct} supplier for the struct layout of the lump
+     * @param columnsCreator creator function for empty {@link StructColumns} of a given size
+     * @param <T> the type of {@link DStruct}
+     * @param <C> the type of {@link StructColumns}
+     *
+     * @return the read {@link DStruct}s as columns
+     */
+    private <T extends DStruct, C extends StructColumns<? super T>> C readColumnsLump(
+            LumpType lumpType,
+            Supplier<T> dStructSupplier,
+            BiFunction<Supplier<T>, Integer, C> columnsCreator
+    ) {
+        return readLump(lumpType, new StructColumnsLumpReader<>(dStructSupplier, columnsCreator));
+    }
+
     /**
      * Reads the lump specified by {@code lumpType} with the {@link LumpReader} specified by {@code lumpReader}
      * and returns the result.
@@ -758,7 +780,8 @@ public class BspFileReader {
 
         T returnData;
         try {
-            returnData = lumpReader.read(lump.getBuffer());
+            // compressed lumps are uncompressed on demand
+            returnData = lumpReader.read(lump.getUncompressedBuffer());
         } catch (Exception e) {
             L.warn(String.format("An error occurred while trying to read lump %s", lump), e);
             returnData = lumpReader.defaultData();
@@ -768,6 +791,67 @@ public class BspFileReader {
         return returnData;
     }
 
+    /**
+     * Creates a flyweight view over the planes, which reads the fields
+     * directly from the lump buffer instead of loading them into {@link BspData}.
+     *
+     * @return plane view
+     */
+    public PlaneView viewPlanes() {
+        return new PlaneView(viewBuffer(bspFile.getLump(LumpType.LUMP_PLANES)));
+    }
+
+    /**
+     * @return vertex view
+     * @see #viewPlanes()
+     */
+    public VertexView viewVertices() {
+        return new VertexView(viewBuffer(bspFile.getLump(LumpType.LUMP_VERTEXES)));
+    }
+
+    /**
+     * @return edge view
+     * @see #viewPlanes()
+     */
+    public EdgeView viewEdges() {
+        return new EdgeView(viewBuffer(bspFile.getLump(LumpType.LUMP_EDGES)),
+                edgeDStructSupplier().get().getClass());
+    }
+
+    /**
+     * @return brush side view
+     * @see #viewPlanes()
+     */
+    public BrushSideView viewBrushSides() {
+        return new BrushSideView(viewBuffer(bspFile.getLump(LumpType.LUMP_BRUSHSIDES)),
+                brushSideDStructSupplier().get().getClass());
+    }
+
+    /**
+     * @return face view
+     * @see #viewPlanes()
+     */
+    public FaceView viewFaces() {
+        return viewFaces(bspFile.getLump(faceLumpType()));
+    }
+
+    /**
+     * @return original face view
+     * @see #viewPlanes()
+     */
+    public FaceView viewOriginalFaces() {
+        return viewFaces(bspFile.getLump(LumpType.LUMP_ORIGINALFACES));
+    }
+
+    private FaceView viewFaces(Lump lump) {
+        return new FaceView(viewBuffer(lump), faceDStructSupplier(lump.getVersion()).get().getClass());
+    }
+
+    private static ByteBuffer viewBuffer(Lump lump) {
+        // uncompressed lumps are viewed in place, without any copy
+        return lump.getUncompressedBuffer();
+    }
+
     public BspFile getBspFile() {
         return bspFile;
     }
@@ -11,8 +11,6 @@
 package info.ata4.bspsrc.lib.entity;
 
 import info.ata4.bspsrc.lib.vector.Vector3f;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.io.PrintStream;
 import java.util.*;
@@ -22,16 +20,21 @@ import java.util.Map.Entry;
  * Abstract entity representation that works roughly like in Hammer. Has two
  * KeyValue lists, one for normal, unique key-values and one for I/O that may
  * contain duplicates.
+ * <p>
+ * The key-values are kept in an {@link EntityStore}, entities that are read
+ * from a map share one store.
  *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class Entity {
 
-    private static final Logger L = LogManager.getLogger();
+    private final EntityStore store;
+    private final int index;
 
-    private Map<String, String> keyValue = new LinkedHashMap<>();
-    private List<KeyValue> keyValueIO = new ArrayList<>();
-    private String className;
+    Entity(EntityStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
 
     /**
      * Creates a new empty entity with the given class name.
@@ -39,15 +42,8 @@ public class Entity {
      * @param className entity class name, must not be null or empty
      */
     public Entity(String className) {
-        if (className == null) {
-            throw new NullPointerException();
-        }
-
-        if (className.length() == 0) {
-            throw new IllegalArgumentException("Empty class name");
-        }
-
-        this.className = className;
+        this.store = new EntityStore(1, 4);
+        this.index = store.create(className);
     }
 
     /**
@@ -56,60 +52,86 @@ public class Entity {
      * @param kvList raw key-value list
      */
     public Entity(List<KeyValue> kvList) {
-        for (KeyValue kv : kvList) {
-            String key = kv.getKey();
-            String value = kv.getValue();
-
-            // special KV, don't add it
-            if (key.equals("classname")) {
-                if (className == null) {
-                    className = value;
-                } else {
-                    L.warn("Found duplicate classname key, ignoring {}", kv);
-                }
-                continue;
-            }
-
-            if (EntityIO.isEntityIO(kv)) {
-                keyValueIO.add(kv);
-            } else {
-                keyValue.put(key, value);
-            }
-        }
-
-        // check and add missing class name
-        if (className == null || className.isEmpty()) {
-            L.warn("Missing or empty class name, using \"unknown_entity\"");
-            className = "unknown_entity";
-        }
+        this.store = new EntityStore(1, kvList.size());
+        this.index = store.create(kvList);
     }
 
     public List<KeyValue> getIO() {
-        return keyValueIO;
+        return store.getIO(index);
     }
 
     public Set<String> getKeys() {
-        return keyValue.keySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new KeyValueIterator<>() {
+                    @Override
+                    String get(int i) {
+                        return store.getKey(index, i);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String key && hasKey(key);
+            }
+
+            @Override
+            public int size() {
+                return store.length(index);
+            }
+        };
     }
 
     public Collection<String> getValues() {
-        return keyValue.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new KeyValueIterator<>() {
+                    @Override
+                    String get(int i) {
+                        return store.getValue(index, i);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return store.length(index);
+            }
+        };
     }
 
     public Set<Entry<String, String>> getEntrySet() {
-        return keyValue.entrySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new KeyValueIterator<>() {
+                    @Override
+                    Entry<String, String> get(int i) {
+                        return new EntryView(i);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return store.length(index);
+            }
+        };
     }
 
     public boolean hasKey(String key) {
-        return keyValue.containsKey(key);
+        return store.indexOf(index, key) >= 0;
     }
 
     public String getValue(String key) {
-        return keyValue.get(key);
+        return store.getValue(index, key);
     }
 
     public void setValue(String key, Object value) {
-        keyValue.put(key, String.valueOf(value));
+        store.setValue(index, key, String.valueOf(value));
     }
 
     public void setValue(KeyValue kv) {
@@ -117,20 +139,19 @@ public class Entity {
     }
 
     public void removeValue(String key) {
-        keyValue.remove(key);
+        store.removeValue(index, key);
     }
 
     public void clear() {
-        keyValue.clear();
-        keyValueIO.clear();
+        store.clear(index);
     }
 
     public String getClassName() {
-        return className;
+        return store.getClassName(index);
     }
 
     public void setClassName(String value) {
-        className = value;
+        store.setClassName(index, value);
     }
 
     public String getTargetName() {
@@ -238,15 +259,14 @@ public class Entity {
     public void dump(PrintStream ps) {
         ps.println(getClassName() + ":");
 
-        for (String key : keyValue.keySet()) {
-            String value = keyValue.get(key);
-            if (key.equals("classname")) {
+        for (Entry<String, String> kv : getEntrySet()) {
+            if (kv.getKey().equals("classname")) {
                 continue;
             }
-            ps.println("  " + key + " = " + value);
+            ps.println("  " + kv.getKey() + " = " + kv.getValue());
         }
 
-        for (KeyValue kv : keyValueIO) {
+        for (KeyValue kv : getIO()) {
             ps.println("  " + kv.getKey() + ": " + kv.getValue());
         }
 
@@ -264,4 +284,65 @@ public class Entity {
     public String toString() {
         return getClassName() + (getTargetName() == null ? "" : " (" + getTargetName() + ")");
     }
+
+    private abstract class KeyValueIterator<T> implements Iterator<T> {
+
+        private int next;
+
+        abstract T get(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < store.length(index);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(next++);
+        }
+    }
+
+    private class EntryView implements Entry<String, String> {
+
+        private final int i;
+
+        private EntryView(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey() {
+            return store.getKey(index, i);
+        }
+
+        @Override
+        public String getValue() {
+            return store.getValue(index, i);
+        }
+
+        @Override
+        public String setValue(String value) {
+            return store.setValue(index, i, value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Entry<?, ?> e
+                    && Objects.equals(getKey(), e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
 }
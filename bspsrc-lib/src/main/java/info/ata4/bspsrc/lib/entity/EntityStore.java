@@ -0,0 +1,381 @@
+package info.ata4.bspsrc.lib.entity;
+
+import info.ata4.bspsrc.lib.util.StringDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage for the key-values of many entities, usually all entities
+ * of one map.
+ * <p>
+ * Keys are stored as ids of a shared {@link StringDictionary} in one flat
+ * array, with the values in a parallel array. Each entity owns a range in
+ * these arrays that keeps the insertion order of its keys. The position of
+ * the most used keys is cached per entity, so looking them up doesn't need
+ * to scan the range. {@link Entity} instances are views on one entity of a
+ * store.
+ * <p>
+ * Ranges grow in place when they're at the end of the arrays and are moved
+ * to the end otherwise, which leaves a gap that isn't reused. Entities are
+ * rarely changed after loading, so this is cheaper than compacting.
+ * Instances are not thread-safe.
+ */
+public class EntityStore {
+
+    private static final Logger L = LogManager.getLogger();
+
+    private static final String CLASSNAME = "classname";
+
+    // keys with cached positions, their ids are the indices in this array
+    private static final String[] HOT_KEYS = {"origin", "angles", "targetname", "model"};
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    // per entity
+    private String[] classNames;
+    private int[] start;
+    private int[] length;
+    private int[] capacity;
+    private int[] hot;
+    private List<KeyValue>[] io;
+    private int count;
+
+    // per key-value
+    private int[] keys;
+    private String[] values;
+    private int top;
+
+    public EntityStore() {
+        this(16, 128);
+    }
+
+    /**
+     * @param entities expected number of entities
+     * @param keyValues expected total number of key-values
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public EntityStore(int entities, int keyValues) {
+        entities = Math.max(entities, 1);
+        keyValues = Math.max(keyValues, 1);
+
+        classNames = new String[entities];
+        start = new int[entities];
+        length = new int[entities];
+        capacity = new int[entities];
+        hot = new int[entities * HOT_KEYS.length];
+        io = new List[entities];
+
+        keys = new int[keyValues];
+        values = new String[keyValues];
+
+        for (String key : HOT_KEYS) {
+            dictionary.add(key);
+        }
+    }
+
+    /**
+     * Adds a new empty entity with the given class name.
+     *
+     * @param className entity class name, must not be null or empty
+     * @return view on the new entity
+     */
+    public Entity add(String className) {
+        return new Entity(this, create(className));
+    }
+
+    /**
+     * Adds a new entity from a list of raw key-values.
+     *
+     * @param kvList raw key-value list
+     * @return view on the new entity
+     */
+    public Entity add(List<KeyValue> kvList) {
+        return new Entity(this, create(kvList));
+    }
+
+    /**
+     * @return number of entities in this store
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the dictionary for the keys of this store. It may be used to
+     * intern other strings of the entities as well.
+     *
+     * @return key dictionary
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    int create(String className) {
+        if (className == null) {
+            throw new NullPointerException();
+        }
+
+        if (className.isEmpty()) {
+            throw new IllegalArgumentException("Empty class name");
+        }
+
+        int e = allocate(0);
+        classNames[e] = className;
+        return e;
+    }
+
+    int create(List<KeyValue> kvList) {
+        int e = allocate(kvList.size());
+        List<KeyValue> entityIO = null;
+
+        for (KeyValue kv : kvList) {
+            String key = kv.getKey();
+            String value = kv.getValue();
+
+            // special KV, don't add it
+            if (key.equals(CLASSNAME)) {
+                if (classNames[e] == null) {
+                    classNames[e] = value;
+                } else {
+                    L.warn("Found duplicate classname key, ignoring {}", kv);
+                }
+                continue;
+            }
+
+            if (EntityIO.isEntityIO(kv)) {
+                if (entityIO == null) {
+                    entityIO = new ArrayList<>();
+                }
+                entityIO.add(kv);
+            } else {
+                setValue(e, key, value);
+            }
+        }
+
+        io[e] = entityIO;
+
+        // check and add missing class name
+        if (classNames[e] == null || classNames[e].isEmpty()) {
+            L.warn("Missing or empty class name, using \"unknown_entity\"");
+            classNames[e] = "unknown_entity";
+        }
+
+        return e;
+    }
+
+    private int allocate(int keyValues) {
+        if (count == classNames.length) {
+            int n = count * 2;
+            classNames = Arrays.copyOf(classNames, n);
+            start = Arrays.copyOf(start, n);
+            length = Arrays.copyOf(length, n);
+            capacity = Arrays.copyOf(capacity, n);
+            hot = Arrays.copyOf(hot, n * HOT_KEYS.length);
+            io = Arrays.copyOf(io, n);
+        }
+
+        int e = count++;
+        start[e] = reserve(keyValues);
+        capacity[e] = keyValues;
+        Arrays.fill(hot, e * HOT_KEYS.length, (e + 1) * HOT_KEYS.length, -1);
+        return e;
+    }
+
+    private int reserve(int keyValues) {
+        int offset = top;
+        top += keyValues;
+
+        if (top > keys.length) {
+            int n = Math.max(keys.length * 2, top);
+            keys = Arrays.copyOf(keys, n);
+            values = Arrays.copyOf(values, n);
+        }
+
+        return offset;
+    }
+
+    String getClassName(int e) {
+        return classNames[e];
+    }
+
+    void setClassName(int e, String className) {
+        classNames[e] = className;
+    }
+
+    /**
+     * @return number of key-values of entity e
+     */
+    int length(int e) {
+        return length[e];
+    }
+
+    String getKey(int e, int i) {
+        return dictionary.get(keys[start[e] + i]);
+    }
+
+    String getValue(int e, int i) {
+        return values[start[e] + i];
+    }
+
+    String setValue(int e, int i, String value) {
+        int pos = start[e] + i;
+        String old = values[pos];
+        values[pos] = value;
+        return old;
+    }
+
+    /**
+     * @return position of the key in the range of entity e or -1
+     */
+    int indexOf(int e, String key) {
+        int id = dictionary.indexOf(key);
+        return id < 0 ? -1 : indexOf(e, id);
+    }
+
+    private int indexOf(int e, int id) {
+        if (id < HOT_KEYS.length) {
+            return hot[e * HOT_KEYS.length + id];
+        }
+
+        int offset = start[e];
+        int end = offset + length[e];
+        for (int pos = offset; pos < end; pos++) {
+            if (keys[pos] == id) {
+                return pos - offset;
+            }
+        }
+
+        return -1;
+    }
+
+    String getValue(int e, String key) {
+        int i = indexOf(e, key);
+        return i < 0 ? null : values[start[e] + i];
+    }
+
+    void setValue(int e, String key, String value) {
+        int id = dictionary.add(key);
+        int i = indexOf(e, id);
+        if (i >= 0) {
+            values[start[e] + i] = value;
+            return;
+        }
+
+        if (length[e] == capacity[e]) {
+            grow(e);
+        }
+
+        i = length[e]++;
+        keys[start[e] + i] = id;
+        values[start[e] + i] = value;
+
+        if (id < HOT_KEYS.length) {
+            hot[e * HOT_KEYS.length + id] = i;
+        }
+    }
+
+    private void grow(int e) {
+        int n = Math.max(capacity[e] * 2, 4);
+
+        if (start[e] + capacity[e] == top) {
+            // last range, extend in place
+            reserve(n - capacity[e]);
+        } else {
+            // move range to the end
+            int offset = reserve(n);
+            System.arraycopy(keys, start[e], keys, offset, length[e]);
+            System.arraycopy(values, start[e], values, offset, length[e]);
+            Arrays.fill(values, start[e], start[e] + length[e], null);
+            start[e] = offset;
+        }
+
+        capacity[e] = n;
+    }
+
+    void removeValue(int e, String key) {
+        int i = indexOf(e, key);
+        if (i < 0) {
+            return;
+        }
+
+        int pos = start[e] + i;
+        int end = start[e] + --length[e];
+        System.arraycopy(keys, pos + 1, keys, pos, end - pos);
+        System.arraycopy(values, pos + 1, values, pos, end - pos);
+        values[end] = null;
+
+        // update cached positions of the shifted keys
+        int h = e * HOT_KEYS.length;
+        for (int k = 0; k < HOT_KEYS.length; k++) {
+            if (hot[h + k] == i) {
+                hot[h + k] = -1;
+            } else if (hot[h + k] > i) {
+                hot[h + k]--;
+            }
+        }
+    }
+
+    List<KeyValue> getIO(int e) {
+        return io[e] != null ? io[e] : new LazyIO(e);
+    }
+
+    void clear(int e) {
+        Arrays.fill(values, start[e], start[e] + length[e], null);
+        Arrays.fill(hot, e * HOT_KEYS.length, (e + 1) * HOT_KEYS.length, -1);
+        length[e] = 0;
+        io[e] = null;
+    }
+
+    /**
+     * I/O list of an entity without I/O. It's empty until the first change,
+     * which creates the actual list of the entity.
+     */
+    private class LazyIO extends AbstractList<KeyValue> {
+
+        private final int e;
+
+        LazyIO(int e) {
+            this.e = e;
+        }
+
+        private List<KeyValue> list() {
+            if (io[e] == null) {
+                io[e] = new ArrayList<>();
+            }
+            return io[e];
+        }
+
+        @Override
+        public KeyValue get(int index) {
+            if (io[e] == null) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return io[e].get(index);
+        }
+
+        @Override
+        public int size() {
+            return io[e] == null ? 0 : io[e].size();
+        }
+
+        @Override
+        public KeyValue set(int index, KeyValue element) {
+            return list().set(index, element);
+        }
+
+        @Override
+        public void add(int index, KeyValue element) {
+            list().add(index, element);
+        }
+
+        @Override
+        public KeyValue remove(int index) {
+            return list().remove(index);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.entity.EntityStore;
+import info.ata4.bspsrc.lib.entity.KeyValue;
+import info.ata4.bspsrc.lib.util.StringDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Entity reader that scans the key-value text of an entity lump directly in
+ * its buffer.
+ * <p>
+ * Produces the same entities as {@link EntityInputStream}, including error
+ * recovery and the handling of escaped quotes, but jumps from delimiter to
+ * delimiter instead of copying single characters. The delimiters are searched
+ * in the backing array of the buffer, or in small chunks copied from direct
+ * and read-only buffers, so memory mapped lumps are never copied as a whole.
+ * Strings are decoded from
+ * the buffer in one piece and keys and class names are interned through the
+ * dictionary of the {@link EntityStore} that receives the entities.
+ */
+public class EntityBufferReader {
+
+    private static final Logger L = LogManager.getLogger();
+
+    private static final String CLASSNAME = "classname";
+    private static final int CHUNK_SIZE = 8192;
+
+    private final ByteBuffer bb;
+    // backing array of the buffer or chunk copied from it
+    private final byte[] data;
+    private final boolean chunked;
+    // offset from buffer to array indices
+    private int offset;
+    // range of buffer positions that are currently in the array
+    private int dataStart;
+    private int dataEnd;
+    private final int limit;
+    private final EntityStore store;
+    private final StringDictionary dictionary;
+    private int pos;
+    private boolean allowEsc = false;
+
+    public EntityBufferReader(ByteBuffer buffer) {
+        this(buffer, new EntityStore());
+    }
+
+    /**
+     * @param buffer buffer with the entity text between its position and limit
+     * @param store store for the entities, may be shared between readers on
+     *              the same thread
+     */
+    public EntityBufferReader(ByteBuffer buffer, EntityStore store) {
+        this(buffer, store, CHUNK_SIZE);
+    }
+
+    EntityBufferReader(ByteBuffer buffer, EntityStore store, int chunkSize) {
+        this.bb = requireNonNull(buffer);
+        this.store = requireNonNull(store);
+        this.dictionary = store.getDictionary();
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+
+        if (buffer.hasArray()) {
+            this.data = buffer.array();
+            this.chunked = false;
+            this.offset = buffer.arrayOffset();
+            this.dataStart = pos;
+            this.dataEnd = limit;
+        } else {
+            this.data = new byte[Math.min(chunkSize, limit - pos)];
+            this.chunked = true;
+        }
+    }
+
+    public Entity readEntity() {
+        boolean section = false;
+        boolean esc = false;
+
+        List<KeyValue> keyValues = new ArrayList<>();
+        String key = null;
+
+        try {
+            while ((pos = nextDelimiter(pos)) < limit) {
+                int b = data[offset + pos++];
+
+                switch (b) {
+                    case '"':
+                        if (!section) {
+                            throw new ParseException("String in unopened section");
+                        }
+
+                        // ignore '"' if the previous character was '\'
+                        if (esc) {
+                            esc = false;
+                            break;
+                        }
+
+                        // scan to the closing quote, everything in between
+                        // belongs to the string
+                        int start = pos;
+                        int end = -1;
+                        while ((pos = nextQuoteOrEscape(pos)) < limit) {
+                            int c = data[offset + pos++];
+                            if (c == '"') {
+                                if (!esc) {
+                                    end = pos - 1;
+                                    break;
+                                }
+                                esc = false;
+                            } else if (c == '\\' && allowEsc) {
+                                esc = true;
+                            }
+                        }
+
+                        // unterminated string at the end of the lump
+                        if (end == -1) {
+                            return null;
+                        }
+
+                        if (key == null) {
+                            key = dictionary.intern(bb, start, end - start);
+                        } else {
+                            String value = key.equals(CLASSNAME)
+                                    ? dictionary.intern(bb, start, end - start)
+                                    : StringDictionary.decode(bb, start, end - start);
+
+                            // ignore empty keys
+                            if (key.isEmpty()) {
+                                L.debug("Skipped value \"{}\" with empty key at {}", value, pos);
+                            } else {
+                                keyValues.add(new KeyValue(key, value));
+                            }
+
+                            key = null;
+                        }
+                        break;
+
+                    case '{':
+                        if (section) {
+                            throw new ParseException("Opened unclosed section");
+                        }
+
+                        section = true;
+                        break;
+
+                    case '}':
+                        if (!section) {
+                            throw new ParseException("Closed unopened section");
+                        }
+
+                        return store.add(keyValues);
+
+                    case '\\':
+                        if (allowEsc) {
+                            // ignore the next '"'
+                            esc = true;
+                        }
+                        break;
+                }
+            }
+        } catch (ParseException ex) {
+            L.warn(String.format("%s at %d", ex.message, pos));
+
+            // skip rest of this section by reading until EOF or '}'
+            pos = Math.min(nextClose(pos) + 1, limit);
+
+            // return what we've got so far
+            return store.add(keyValues);
+        }
+
+        return null;
+    }
+
+    // next byte that can change the state of readEntity
+    private int nextDelimiter(int from) {
+        int i = from;
+        while (i < limit) {
+            int end = load(i) + offset;
+            for (i += offset; i < end; i++) {
+                byte b = data[i];
+                if (b == '"' || b == '{' || b == '}' || b == '\\') {
+                    return i - offset;
+                }
+            }
+            i -= offset;
+        }
+        return limit;
+    }
+
+    // next byte that can end or escape inside a string
+    private int nextQuoteOrEscape(int from) {
+        int i = from;
+        while (i < limit) {
+            int end = load(i) + offset;
+            for (i += offset; i < end; i++) {
+                byte b = data[i];
+                if (b == '"' || b == '\\') {
+                    return i - offset;
+                }
+            }
+            i -= offset;
+        }
+        return limit;
+    }
+
+    private int nextClose(int from) {
+        int i = from;
+        while (i < limit) {
+            int end = load(i) + offset;
+            for (i += offset; i < end; i++) {
+                if (data[i] == '}') {
+                    return i - offset;
+                }
+            }
+            i -= offset;
+        }
+        return limit;
+    }
+
+    /**
+     * Makes sure that the byte at a buffer position is in the array and
+     * returns the end of the buffer range that is available in the array.
+     */
+    private int load(int pos) {
+        if (chunked && (pos < dataStart || pos >= dataEnd)) {
+            int length = Math.min(data.length, limit - pos);
+            bb.get(pos, data, 0, length);
+            offset = -pos;
+            dataStart = pos;
+            dataEnd = pos + length;
+        }
+        return dataEnd;
+    }
+
+    public boolean isAllowEscSeq() {
+        return allowEsc;
+    }
+
+    public void setAllowEscSeq(boolean allowEsc) {
+        this.allowEsc = allowEsc;
+    }
+
+    private static class ParseException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final String message;
+
+        public ParseException(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -11,6 +11,7 @@ package info.ata4.bspsrc.lib.io;
 
 import info.ata4.bspsrc.common.util.CountingInputStream;
 import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.entity.EntityStore;
 import info.ata4.bspsrc.lib.entity.KeyValue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,6 +33,7 @@ public class EntityInputStream implements AutoCloseable {
     private static final Logger L = LogManager.getLogger();
 
     private final CountingInputStream in;
+    private final EntityStore store = new EntityStore();
     private boolean allowEsc = false;
 
     public EntityInputStream(InputStream in) {
@@ -104,7 +106,7 @@ public class EntityInputStream implements AutoCloseable {
                         }
 
                         if (!string) {
-                            return new Entity(keyValues);
+                            return store.add(keyValues);
                         }
                         break;
 
@@ -128,7 +130,7 @@ public class EntityInputStream implements AutoCloseable {
             for (int b = 0; b != -1 && b != '}'; b = in.read());
 
             // return what we've got so far
-            return new Entity(keyValues);
+            return store.add(keyValues);
         }
 
         return null;
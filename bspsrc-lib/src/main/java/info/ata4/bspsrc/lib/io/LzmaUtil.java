@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * LZMA encoding and decoding helper class.
@@ -65,10 +66,32 @@ public class LzmaUtil {
             L.warn("Difference in LZMA data length: found {} bytes, expected {}", lzmaSizeBuf, lzmaSize);
         }
 
+        if (actualSize < 0) {
+            throw new IOException("Invalid uncompressed size " + actualSize);
+        }
+
+        // decode straight into a buffer of the final size
+        byte[] data = new byte[actualSize];
+        int dataSize;
+
         try (LZMAInputStream lzmaIn = new LZMAInputStream(new ByteBufferInputStream(bbc), actualSize, probByte, dictSize)) {
             lzmaIn.enableRelaxedEndCondition();
-            return ByteBuffer.wrap(lzmaIn.readAllBytes()).order(bo);
+            dataSize = lzmaIn.readNBytes(data, 0, actualSize);
+        }
+
+        return ByteBuffer.wrap(data, 0, dataSize).order(bo);
+    }
+
+    public static int getUncompressedSize(ByteBuffer buffer) throws IOException {
+        ByteBuffer bbc = buffer.duplicate();
+        bbc.order(ByteOrder.LITTLE_ENDIAN);
+        bbc.rewind();
+
+        if (bbc.remaining() < HEADER_SIZE || bbc.getInt() != LZMA_ID) {
+            throw new IOException("Buffer is not compressed");
         }
+
+        return bbc.getInt();
     }
 
     public static ByteBuffer compress(ByteBuffer buffer) throws IOException {
@@ -77,36 +100,36 @@ public class LzmaUtil {
         bbu.rewind();
 
         LZMA2Options options = new LZMA2Options();
-        byte[] lzma;
+        int size = bbu.limit();
         int props;
-        try (
-                InputStream bufferIn = new ByteBufferInputStream(bbu);
-                ByteArrayOutputStream arrayOut = new ByteArrayOutputStream();
-                LZMAOutputStream lzmaOut = new LZMAOutputStream(arrayOut, options, false)
-        ) {
-            bufferIn.transferTo(lzmaOut);
-            lzma = arrayOut.toByteArray();
+
+        // encode behind the space reserved for the header, so the header can
+        // be filled in afterwards without copying the data again
+        LzmaBufferOutputStream out = new LzmaBufferOutputStream(HEADER_SIZE + size / 2);
+
+        try (LZMAOutputStream lzmaOut = new LZMAOutputStream(out, options, false)) {
+            if (bbu.hasArray()) {
+                lzmaOut.write(bbu.array(), bbu.arrayOffset(), size);
+            } else {
+                try (InputStream bufferIn = new ByteBufferInputStream(bbu)) {
+                    bufferIn.transferTo(lzmaOut);
+                }
+            }
+            lzmaOut.finish();
             props = lzmaOut.getProps();
         }
 
-        int size = HEADER_SIZE + lzma.length;
-
-        ByteBuffer bbc = ByteBuffer.allocateDirect(size);
+        ByteBuffer bbc = out.toByteBuffer();
         bbc.order(ByteOrder.LITTLE_ENDIAN);
 
         // write header
-        bbc.putInt(LZMA_ID);
-        bbc.putInt(bbu.limit());
-        bbc.putInt(lzma.length);
-        bbc.put((byte) props);
-        bbc.putInt(options.getDictSize());
-
-        // write lzma data
-        bbc.put(lzma);
+        bbc.putInt(0, LZMA_ID);
+        bbc.putInt(4, size);
+        bbc.putInt(8, bbc.limit() - HEADER_SIZE);
+        bbc.put(12, (byte) props);
+        bbc.putInt(13, options.getDictSize());
 
-        // reset buffer
         bbc.order(bo);
-        bbc.rewind();
 
         return bbc;
     }
@@ -146,4 +169,21 @@ public class LzmaUtil {
 
         return new LZMAInputStream(rawInputStream, uncompressedSize, propByte, dictSize);
     }
+
+    /**
+     * Output stream that collects the compressed data behind the LZMA header
+     * and hands out its internal array, trimmed to the written size so the
+     * lump doesn't keep the unused capacity.
+     */
+    private static class LzmaBufferOutputStream extends ByteArrayOutputStream {
+
+        LzmaBufferOutputStream(int size) {
+            super(size);
+            count = HEADER_SIZE;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(count == buf.length ? buf : Arrays.copyOf(buf, count));
+        }
+    }
 }
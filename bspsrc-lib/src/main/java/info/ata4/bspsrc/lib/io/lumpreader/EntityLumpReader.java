@@ -1,12 +1,9 @@
 package info.ata4.bspsrc.lib.io.lumpreader;
 
 import info.ata4.bspsrc.lib.entity.Entity;
-import info.ata4.bspsrc.lib.io.EntityInputStream;
+import info.ata4.bspsrc.lib.io.EntityBufferReader;
 import info.ata4.bspsrc.lib.lump.LumpType;
-import info.ata4.io.buffer.ByteBufferInputStream;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,19 +21,17 @@ public class EntityLumpReader implements LumpReader<List<Entity>> {
 	}
 
 	@Override
-	public List<Entity> read(ByteBuffer buffer) throws IOException {
+	public List<Entity> read(ByteBuffer buffer) {
 		List<Entity> entities = new ArrayList<>();
 
-		try (InputStream in = new ByteBufferInputStream(buffer);
-		     EntityInputStream entReader = new EntityInputStream(in)) {
+		EntityBufferReader entReader = new EntityBufferReader(buffer);
 
-			// allow escaped quotes for VTBM
-			entReader.setAllowEscSeq(allowEscSeq);
+		// allow escaped quotes for VTBM
+		entReader.setAllowEscSeq(allowEscSeq);
 
-			Entity ent;
-			while ((ent = entReader.readEntity()) != null) {
-				entities.add(ent);
-			}
+		Entity ent;
+		while ((ent = entReader.readEntity()) != null) {
+			entities.add(ent);
 		}
 
 		return entities;
@@ -1,16 +1,31 @@
 package info.ata4.bspsrc.lib.io.lumpreader;
 
-import info.ata4.io.DataReader;
+import info.ata4.bspsrc.lib.struct.IntColumn;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 /**
  * Lump reader for lumps consisting of sequentially read integers
  */
-public class IntegerChunksLumpReader extends ChunksLumpReader<Integer> {
+public class IntegerChunksLumpReader implements LumpReader<IntColumn> {
 
 	@Override
-	protected Integer readChunk(DataReader reader) throws IOException {
-		return reader.readInt();
+	public IntColumn read(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() % Integer.BYTES != 0) {
+			throw new IOException("Lump size " + buffer.remaining() + " is not a multiple of 4");
+		}
+
+		IntBuffer ib = buffer.asIntBuffer();
+		int[] values = new int[ib.remaining()];
+		ib.get(values);
+
+		return new IntColumn(values);
+	}
+
+	@Override
+	public IntColumn defaultData() {
+		return new IntColumn(new int[0]);
 	}
 }
@@ -0,0 +1,70 @@
+package info.ata4.bspsrc.lib.io.lumpreader;
+
+import info.ata4.bspsrc.lib.io.DataReaderUtil;
+import info.ata4.bspsrc.lib.struct.DStruct;
+import info.ata4.bspsrc.lib.struct.StructColumns;
+import info.ata4.io.DataReader;
+import info.ata4.io.DataReaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lump reader for lumps consisting of {@link DStruct}s, which are stored in
+ * {@link StructColumns} instead of one object per struct.
+ * <p>
+ * The structs are still read with {@link DStruct#read}, so the layouts of all
+ * struct versions are supported, but a single struct instance is reused for
+ * the whole lump.
+ *
+ * @param <T> the {@link DStruct} type
+ * @param <C> the {@link StructColumns} type
+ */
+public class StructColumnsLumpReader<T extends DStruct, C extends StructColumns<? super T>> implements LumpReader<C> {
+
+	private final Supplier<T> dStructSupplier;
+	private final BiFunction<Supplier<T>, Integer, C> columnsCreator;
+
+	public StructColumnsLumpReader(
+			Supplier<T> dStructSupplier,
+			BiFunction<Supplier<T>, Integer, C> columnsCreator
+	) {
+		this.dStructSupplier = requireNonNull(dStructSupplier);
+		this.columnsCreator = requireNonNull(columnsCreator);
+	}
+
+	@Override
+	public C read(ByteBuffer buffer) throws IOException {
+		DataReader dataReader = DataReaders.forByteBuffer(buffer);
+
+		T struct = dStructSupplier.get();
+		long remaining = dataReader.remaining();
+
+		if (remaining % struct.getSize() != 0) {
+			throw new IOException(String.format(
+					"Lump size %d is not a multiple of the '%s' size %d",
+					remaining,
+					struct.getClass().getSimpleName(),
+					struct.getSize()
+			));
+		}
+
+		int count = (int) (remaining / struct.getSize());
+		C columns = columnsCreator.apply(dStructSupplier, count);
+
+		for (int i = 0; i < count; i++) {
+			columns.store(i, DataReaderUtil.readDStruct(dataReader, struct));
+		}
+
+		return columns;
+	}
+
+	@Override
+	public C defaultData() {
+		return columnsCreator.apply(dStructSupplier, 0);
+	}
+}
@@ -1,16 +1,33 @@
 package info.ata4.bspsrc.lib.io.lumpreader;
 
-import info.ata4.io.DataReader;
+import info.ata4.bspsrc.lib.struct.IntColumn;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
 
 /**
  * Lump reader for lumps consisting of sequentially read unsigned shorts
  */
-public class UShortChunksLumpReader extends ChunksLumpReader<Integer> {
+public class UShortChunksLumpReader implements LumpReader<IntColumn> {
 
 	@Override
-	protected Integer readChunk(DataReader reader) throws IOException {
-		return reader.readUnsignedShort();
+	public IntColumn read(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() % Short.BYTES != 0) {
+			throw new IOException("Lump size " + buffer.remaining() + " is not a multiple of 2");
+		}
+
+		ShortBuffer sb = buffer.asShortBuffer();
+		int[] values = new int[sb.remaining()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Short.toUnsignedInt(sb.get(i));
+		}
+
+		return new IntColumn(values);
+	}
+
+	@Override
+	public IntColumn defaultData() {
+		return new IntColumn(new int[0]);
 	}
 }
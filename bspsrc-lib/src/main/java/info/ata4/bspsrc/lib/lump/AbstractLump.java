@@ -31,6 +31,7 @@ public abstract class AbstractLump {
     private static final Logger L = LogManager.getLogger();
 
     private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private ByteBuffer uncompressedBuffer;
     private int offset;
     private int version = 0;
     private int fourCC = 0;
@@ -46,14 +47,35 @@ public abstract class AbstractLump {
 
     /**
      * Returns the number of bytes present in this lump. If the lump is
-     * compressed, the uncompressed size will be returned.
+     * compressed, the compressed size will be returned.
      * 
      * @return lump length
+     * @see #getUncompressedLength()
      */
     public int getLength() {
         return buffer.limit();
     }
 
+    /**
+     * Returns the number of bytes of this lump once uncompressed. For
+     * compressed lumps, the size is read from the LZMA header, so the lump
+     * isn't uncompressed by this method.
+     *
+     * @return uncompressed lump length
+     */
+    public int getUncompressedLength() {
+        if (!compressed) {
+            return getLength();
+        }
+
+        try {
+            return LzmaUtil.getUncompressedSize(buffer);
+        } catch (IOException ex) {
+            L.warn("Couldn't read uncompressed size of lump " + this, ex);
+            return getLength();
+        }
+    }
+
     /**
      * Returns a view of the buffer for this lump.
      * Changes to it are reflected in the lumps buffer.
@@ -64,12 +86,42 @@ public abstract class AbstractLump {
         return buffer.duplicate().order(buffer.order());
     }
 
+    /**
+     * Returns a view of the uncompressed buffer for this lump. Compressed
+     * lumps are uncompressed on the first call and the result is kept until
+     * the buffer is replaced, the lump itself stays compressed.
+     *
+     * @return uncompressed byte buffer of this lump
+     */
+    public ByteBuffer getUncompressedBuffer() {
+        if (!compressed) {
+            return getBuffer();
+        }
+
+        ByteBuffer bb = uncompressBuffer();
+        return bb.duplicate().order(bb.order());
+    }
+
+    private synchronized ByteBuffer uncompressBuffer() {
+        if (uncompressedBuffer == null) {
+            try {
+                uncompressedBuffer = LzmaUtil.uncompress(buffer);
+            } catch (IOException ex) {
+                L.error("Couldn't uncompress lump " + this, ex);
+                uncompressedBuffer = buffer;
+            }
+        }
+
+        return uncompressedBuffer;
+    }
+
     /**
      * Set data is the data between current position of this buffer and its limit
      * @param buf
      */
-    public void setBuffer(ByteBuffer buf) {
+    public synchronized void setBuffer(ByteBuffer buf) {
         buffer = buf.duplicate().order(buf.order());
+        uncompressedBuffer = null;
         setCompressed(LzmaUtil.isCompressed(buffer));
     }
 
@@ -101,7 +153,7 @@ public abstract class AbstractLump {
         return compressed;
     }
 
-    public void compress() {
+    public synchronized void compress() {
         if (compressed) {
             return;
         }
@@ -112,20 +164,17 @@ public abstract class AbstractLump {
             L.error("Couldn't compress lump " + this, ex);
         }
 
+        uncompressedBuffer = null;
         setCompressed(true);
     }
 
-    public void uncompress() {
+    public synchronized void uncompress() {
         if (!compressed) {
             return;
         }
 
-        try {
-            buffer = LzmaUtil.uncompress(buffer);
-        } catch (IOException ex) {
-            L.error("Couldn't uncompress lump " + this, ex);
-        }
-
+        buffer = uncompressBuffer();
+        uncompressedBuffer = null;
         setCompressed(false);
     }
 
@@ -0,0 +1,157 @@
+package info.ata4.bspsrc.lib.lump;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.util.ChecksumType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Table of checksums for every lump and game lump of a BSP file.
+ * <p>
+ * Checksums are computed over the uncompressed data, so they don't change
+ * when a map is compressed. Lumps are hashed in parallel and large lumps are
+ * split into chunks, the buffers are read directly without copying them
+ * first. Comparing the tables of two map revisions tells which lumps were
+ * changed.
+ */
+public class LumpDigests {
+
+    /**
+     * Checksum of a single lump.
+     *
+     * @param name lump name
+     * @param length uncompressed length
+     * @param checksum checksum of the uncompressed data
+     */
+    public record Digest(String name, int length, long checksum) {}
+
+    private final ChecksumType type;
+    private final List<Digest> lumps;
+    private final List<Digest> gameLumps;
+
+    private LumpDigests(ChecksumType type, List<Digest> lumps, List<Digest> gameLumps) {
+        this.type = type;
+        this.lumps = lumps;
+        this.gameLumps = gameLumps;
+    }
+
+    public static LumpDigests compute(BspFile bsp, ChecksumType type) {
+        return compute(bsp, type, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the checksums of all lumps of a BSP file.
+     *
+     * @param bsp BSP file
+     * @param type checksum type
+     * @param executor executor for the lumps and chunks
+     * @return digest table
+     */
+    public static LumpDigests compute(BspFile bsp, ChecksumType type, Executor executor) {
+        requireNonNull(type);
+
+        List<CompletableFuture<Digest>> lumps = bsp.getLumps().stream()
+                .map(l -> digest(l, type, executor))
+                .toList();
+        List<CompletableFuture<Digest>> gameLumps = bsp.getGameLumps().stream()
+                .map(l -> digest(l, type, executor))
+                .toList();
+
+        return new LumpDigests(type, join(lumps), join(gameLumps));
+    }
+
+    private static CompletableFuture<Digest> digest(AbstractLump lump, ChecksumType type, Executor executor) {
+        // uncompressing is part of the task, so compressed lumps run in parallel as well
+        return CompletableFuture.supplyAsync(lump::getUncompressedBuffer, executor)
+                .thenCompose(bb -> type.computeAsync(bb, executor)
+                        .thenApply(checksum -> new Digest(lump.getName(), bb.remaining(), checksum)));
+    }
+
+    private static List<Digest> join(List<CompletableFuture<Digest>> futures) {
+        List<Digest> digests = new ArrayList<>(futures.size());
+        for (var future : futures) {
+            digests.add(future.join());
+        }
+        return List.copyOf(digests);
+    }
+
+    public ChecksumType getType() {
+        return type;
+    }
+
+    /**
+     * @return digests of all lumps in header order
+     */
+    public List<Digest> getLumps() {
+        return lumps;
+    }
+
+    /**
+     * @return digests of all game lumps in directory order
+     */
+    public List<Digest> getGameLumps() {
+        return gameLumps;
+    }
+
+    public Digest getLump(LumpType lumpType) {
+        return lumps.get(lumpType.getIndex());
+    }
+
+    /**
+     * Returns the checksum of all lumps except the entities in header order.
+     * For {@link ChecksumType#CRC32} this is the same value as the map CRC
+     * that is checked by Source servers.
+     *
+     * @return map checksum
+     */
+    public long getMapChecksum() {
+        long checksum = 0;
+        for (int i = 0; i < lumps.size(); i++) {
+            if (i == LumpType.LUMP_ENTITIES.getIndex()) {
+                continue;
+            }
+
+            Digest digest = lumps.get(i);
+            checksum = type.combine(checksum, digest.checksum(), digest.length());
+        }
+        return checksum;
+    }
+
+    /**
+     * Returns the names of all lumps and game lumps whose content differs
+     * from another table. Lumps that only exist in one of the tables count
+     * as changed.
+     *
+     * @param other table of another file, like a different map revision
+     * @return names of changed lumps in header order, followed by game lumps
+     * @throws IllegalArgumentException if the tables use different checksums
+     */
+    public List<String> getChanged(LumpDigests other) {
+        if (other.type != type) {
+            throw new IllegalArgumentException("Can't compare " + type + " with " + other.type);
+        }
+
+        List<String> changed = new ArrayList<>();
+        addChanged(changed, lumps, other.lumps);
+        addChanged(changed, gameLumps, other.gameLumps);
+        return changed;
+    }
+
+    private static void addChanged(List<String> changed, List<Digest> a, List<Digest> b) {
+        for (int i = 0; i < Math.max(a.size(), b.size()); i++) {
+            Digest da = i < a.size() ? a.get(i) : null;
+            Digest db = i < b.size() ? b.get(i) : null;
+
+            if (!Objects.equals(da, db)) {
+                changed.add(da != null ? da.name() : db.name());
+            }
+        }
+    }
+}
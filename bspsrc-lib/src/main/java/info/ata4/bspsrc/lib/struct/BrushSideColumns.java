@@ -0,0 +1,73 @@
+package info.ata4.bspsrc.lib.struct;
+
+import java.util.function.Supplier;
+
+/**
+ * Columnar storage for {@link DBrushSide} structs and their subtypes.
+ */
+public class BrushSideColumns extends StructColumns<DBrushSide> {
+
+    private static final byte FLAG_BEVEL = 1;
+    private static final byte FLAG_THIN = 2;
+
+    private final int[] pnum;
+    private final int[] texinfo;
+    private final int[] dispinfo;
+    private final byte[] flags;
+
+    public BrushSideColumns(Supplier<? extends DBrushSide> structSupplier, int size) {
+        super(structSupplier, size);
+        pnum = new int[size];
+        texinfo = new int[size];
+        dispinfo = new int[size];
+        flags = new byte[size];
+    }
+
+    public int getPlaneIndex(int index) {
+        return pnum[index];
+    }
+
+    public int getTexinfo(int index) {
+        return texinfo[index];
+    }
+
+    public int getDispinfo(int index) {
+        return dispinfo[index];
+    }
+
+    public boolean isBevel(int index) {
+        return (flags[index] & FLAG_BEVEL) != 0;
+    }
+
+    public boolean isThin(int index) {
+        return (flags[index] & FLAG_THIN) != 0;
+    }
+
+    @Override
+    public void store(int index, DBrushSide side) {
+        pnum[index] = side.pnum;
+        texinfo[index] = side.texinfo;
+        dispinfo[index] = side.dispinfo;
+
+        byte f = 0;
+        if (side.bevel) {
+            f |= FLAG_BEVEL;
+        }
+        if (side instanceof DBrushSideV0New sideNew && sideNew.thin) {
+            f |= FLAG_THIN;
+        }
+        flags[index] = f;
+    }
+
+    @Override
+    protected void load(int index, DBrushSide side) {
+        side.pnum = pnum[index];
+        side.texinfo = texinfo[index];
+        side.dispinfo = dispinfo[index];
+        side.bevel = isBevel(index);
+
+        if (side instanceof DBrushSideV0New sideNew) {
+            sideNew.thin = isThin(index);
+        }
+    }
+}
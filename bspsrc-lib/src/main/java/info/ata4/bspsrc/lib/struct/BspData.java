@@ -23,19 +23,23 @@ import java.util.Set;
  * Yes, there are NO getters and setters and NO final fields!
  * Encapsulation just doesn't make much sense in this case...
  *
+ * The largest lumps are stored in {@link StructColumns} and {@link IntColumn}
+ * to save heap space. They still implement {@link List}, but their typed
+ * accessors should be preferred.
+ *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class BspData {
 
     public List<? extends DAreaportal> areaportals;
     public List<DBrush> brushes;
-    public List<? extends DBrushSide> brushSides;
+    public BrushSideColumns brushSides;
     public List<DCubemapSample> cubemaps;
     public List<? extends DDispInfo> dispinfos;
     public List<DDispTri> disptris;
     public List<DDispVert> dispverts;
     public List<? extends DDispMultiBlend> dispmultiblend;
-    public List<? extends DEdge> edges;
+    public EdgeColumns edges;
     public List<? extends DFace> faces;
     public List<? extends DFace> origFaces;
     public List<? extends DLeaf> leaves;
@@ -46,20 +50,20 @@ public class BspData {
     public List<? extends DOverlay> overlays;
     public List<DOverlayFade> overlayFades;
     public List<DOverlaySystemLevel> overlaySysLevels;
-    public List<DPlane> planes;
+    public PlaneColumns planes;
     public List<DPrimitive> prims;
-    public List<Integer> primIndices;
-    public List<DVertex> primVerts;
+    public IntColumn primIndices;
+    public VertexColumns primVerts;
     public List<? extends DStaticProp> staticProps;
     public List<DTexData> texdatas;
     public List<? extends DTexInfo> texinfos;
-    public List<DVertex> clipPortalVerts;
-    public List<DVertex> verts;
+    public VertexColumns clipPortalVerts;
+    public VertexColumns verts;
     public List<Entity> entities;
-    public List<Integer> leafBrushes;
-    public List<Integer> leafFaces;
+    public IntColumn leafBrushes;
+    public IntColumn leafFaces;
     public List<Integer> occluderVerts;
-    public List<? extends Integer> surfEdges;
+    public IntColumn surfEdges;
     public List<String> staticPropName;
     public List<Number> staticPropLeaf;
     public List<String> texnames;
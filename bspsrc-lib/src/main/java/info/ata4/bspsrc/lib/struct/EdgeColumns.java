@@ -0,0 +1,45 @@
+package info.ata4.bspsrc.lib.struct;
+
+import java.util.function.Supplier;
+
+/**
+ * Columnar storage for {@link DEdge} structs.
+ */
+public class EdgeColumns extends StructColumns<DEdge> {
+
+    private final int[] v0;
+    private final int[] v1;
+
+    public EdgeColumns(Supplier<? extends DEdge> structSupplier, int size) {
+        super(structSupplier, size);
+        v0 = new int[size];
+        v1 = new int[size];
+    }
+
+    /**
+     * Returns a vertex index of an edge, like {@code edges.get(index).v[end]}.
+     *
+     * @param index edge index
+     * @param end 0 for the start vertex, 1 for the end vertex
+     * @return vertex index
+     */
+    public int getVertex(int index, int end) {
+        return switch (end) {
+            case 0 -> v0[index];
+            case 1 -> v1[index];
+            default -> throw new IndexOutOfBoundsException(end);
+        };
+    }
+
+    @Override
+    public void store(int index, DEdge edge) {
+        v0[index] = edge.v[0];
+        v1[index] = edge.v[1];
+    }
+
+    @Override
+    protected void load(int index, DEdge edge) {
+        edge.v[0] = v0[index];
+        edge.v[1] = v1[index];
+    }
+}
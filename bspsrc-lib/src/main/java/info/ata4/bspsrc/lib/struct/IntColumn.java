@@ -0,0 +1,33 @@
+package info.ata4.bspsrc.lib.struct;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of ints backed by a primitive array, for index lumps like
+ * surface edges, leaf faces and leaf brushes. {@link #getInt} avoids the
+ * boxing of {@link #get}.
+ */
+public final class IntColumn extends AbstractList<Integer> implements RandomAccess {
+
+    private final int[] values;
+
+    public IntColumn(int[] values) {
+        this.values = Objects.requireNonNull(values);
+    }
+
+    public int getInt(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Integer get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
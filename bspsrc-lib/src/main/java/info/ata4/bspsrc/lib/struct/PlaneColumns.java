@@ -0,0 +1,66 @@
+package info.ata4.bspsrc.lib.struct;
+
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.util.function.Supplier;
+
+/**
+ * Columnar storage for {@link DPlane} structs.
+ */
+public class PlaneColumns extends StructColumns<DPlane> {
+
+    private final float[] normalX;
+    private final float[] normalY;
+    private final float[] normalZ;
+    private final float[] dist;
+    private final int[] type;
+
+    public PlaneColumns(Supplier<? extends DPlane> structSupplier, int size) {
+        super(structSupplier, size);
+        normalX = new float[size];
+        normalY = new float[size];
+        normalZ = new float[size];
+        dist = new float[size];
+        type = new int[size];
+    }
+
+    public float getNormalX(int index) {
+        return normalX[index];
+    }
+
+    public float getNormalY(int index) {
+        return normalY[index];
+    }
+
+    public float getNormalZ(int index) {
+        return normalZ[index];
+    }
+
+    public Vector3f getNormal(int index) {
+        return new Vector3f(normalX[index], normalY[index], normalZ[index]);
+    }
+
+    public float getDist(int index) {
+        return dist[index];
+    }
+
+    public int getType(int index) {
+        return type[index];
+    }
+
+    @Override
+    public void store(int index, DPlane plane) {
+        normalX[index] = plane.normal.x();
+        normalY[index] = plane.normal.y();
+        normalZ[index] = plane.normal.z();
+        dist[index] = plane.dist;
+        type[index] = plane.type;
+    }
+
+    @Override
+    protected void load(int index, DPlane plane) {
+        plane.normal = getNormal(index);
+        plane.dist = dist[index];
+        plane.type = type[index];
+    }
+}
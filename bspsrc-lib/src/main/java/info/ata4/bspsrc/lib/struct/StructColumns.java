@@ -0,0 +1,58 @@
+package info.ata4.bspsrc.lib.struct;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+/**
+ * Struct-of-arrays storage for the structs of a lump.
+ * <p>
+ * The fields of all structs are kept in primitive arrays, one per field,
+ * instead of one heap object per struct. Subclasses provide typed accessors
+ * for the fields, which should be preferred in hot code. The {@link java.util.List}
+ * view creates a new struct on every {@link #get} call, so code that still
+ * works with struct objects keeps working unchanged. The storage is
+ * read-only.
+ *
+ * @param <T> struct type
+ */
+public abstract class StructColumns<T extends DStruct> extends AbstractList<T> implements RandomAccess {
+
+    private final Supplier<? extends T> structSupplier;
+    private final int size;
+
+    protected StructColumns(Supplier<? extends T> structSupplier, int size) {
+        this.structSupplier = Objects.requireNonNull(structSupplier);
+        this.size = size;
+    }
+
+    /**
+     * Copies the fields of a struct into the columns.
+     *
+     * @param index struct index
+     * @param struct struct to copy the fields from
+     */
+    public abstract void store(int index, T struct);
+
+    /**
+     * Copies the fields at an index from the columns into a struct.
+     *
+     * @param index struct index
+     * @param struct struct to copy the fields to
+     */
+    protected abstract void load(int index, T struct);
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        T struct = structSupplier.get();
+        load(index, struct);
+        return struct;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
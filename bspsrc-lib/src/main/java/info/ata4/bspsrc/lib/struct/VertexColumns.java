@@ -0,0 +1,50 @@
+package info.ata4.bspsrc.lib.struct;
+
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.util.function.Supplier;
+
+/**
+ * Columnar storage for {@link DVertex} structs.
+ */
+public class VertexColumns extends StructColumns<DVertex> {
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+
+    public VertexColumns(Supplier<? extends DVertex> structSupplier, int size) {
+        super(structSupplier, size);
+        x = new float[size];
+        y = new float[size];
+        z = new float[size];
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public float getZ(int index) {
+        return z[index];
+    }
+
+    public Vector3f getPoint(int index) {
+        return new Vector3f(x[index], y[index], z[index]);
+    }
+
+    @Override
+    public void store(int index, DVertex vertex) {
+        x[index] = vertex.point.x();
+        y[index] = vertex.point.y();
+        z[index] = vertex.point.z();
+    }
+
+    @Override
+    protected void load(int index, DVertex vertex) {
+        vertex.point = getPoint(index);
+    }
+}
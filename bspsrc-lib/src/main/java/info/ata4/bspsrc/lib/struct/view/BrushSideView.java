@@ -0,0 +1,82 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.*;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.*;
+
+/**
+ * Flyweight view for {@link DBrushSide} structs and their subtypes.
+ */
+public class BrushSideView extends StructView<BrushSideView> {
+
+    private static final Map<Class<? extends DBrushSide>, Layout> LAYOUTS = Map.of(
+            DBrushSide.class, new Layout(DBrushSide::new, UINT16, INT16, INT16),
+            DBrushSideV0New.class, new Layout(DBrushSideV0New::new, UINT16, INT16, BOOL8),
+            DBrushSideVin.class, new Layout(DBrushSideVin::new, INT32, INT32_AS_INT16, INT32_AS_INT16),
+            DBrushSideStrataV1.class, new Layout(DBrushSideStrataV1::new, INT32, INT32, BOOL8)
+    );
+
+    private final Layout layout;
+
+    public BrushSideView(ByteBuffer buffer, Class<? extends DBrushSide> structClass) {
+        this(buffer, layoutOf(structClass));
+    }
+
+    private BrushSideView(ByteBuffer buffer, Layout layout) {
+        super(buffer, layout.size);
+        this.layout = layout;
+    }
+
+    public int getPlaneIndex() {
+        return layout.pnum.getInt(bb, base);
+    }
+
+    public int getTexinfo() {
+        return layout.texinfo.getInt(bb, base);
+    }
+
+    public int getDispinfo() {
+        return layout.dispinfo.getInt(bb, base);
+    }
+
+    public boolean isBevel() {
+        return layout.bevel.getInt(bb, base) == 1;
+    }
+
+    public boolean isThin() {
+        return StructField.getInt(layout.thin, bb, base) == 1;
+    }
+
+    private static Layout layoutOf(Class<? extends DBrushSide> structClass) {
+        Layout layout = LAYOUTS.get(structClass);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unsupported brush side struct " + structClass.getSimpleName());
+        }
+        return layout;
+    }
+
+    private static class Layout {
+
+        final StructField pnum;
+        final StructField texinfo;
+        final StructField dispinfo;
+        final StructField bevel;
+        final StructField thin;
+        final int size;
+
+        Layout(Supplier<? extends DBrushSide> supplier, StructField.Type pnumType, StructField.Type indexType, StructField.Type bevelType) {
+            StructLayout<DBrushSide> layout = new StructLayout<>(supplier);
+            pnum = layout.field(pnumType, bs -> bs.pnum);
+            texinfo = layout.field(indexType, bs -> bs.texinfo);
+            dispinfo = layout.field(indexType, bs -> bs.dispinfo);
+            bevel = layout.field(bevelType, bs -> bs.bevel);
+            // only read by the newer brush side structs
+            thin = layout.optionalField(BOOL8, bs -> bs instanceof DBrushSideV0New bs0 && bs0.thin);
+            size = layout.size();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.DEdge;
+import info.ata4.bspsrc.lib.struct.DEdgeStrataV1;
+import info.ata4.bspsrc.lib.struct.DEdgeVin;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.INT32;
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.UINT16;
+
+/**
+ * Flyweight view for {@link DEdge} structs and their subtypes.
+ */
+public class EdgeView extends StructView<EdgeView> {
+
+    private static final Map<Class<? extends DEdge>, Layout> LAYOUTS = Map.of(
+            DEdge.class, new Layout(DEdge::new, UINT16),
+            DEdgeVin.class, new Layout(DEdgeVin::new, INT32),
+            DEdgeStrataV1.class, new Layout(DEdgeStrataV1::new, INT32)
+    );
+
+    private final Layout layout;
+
+    public EdgeView(ByteBuffer buffer, Class<? extends DEdge> structClass) {
+        this(buffer, layoutOf(structClass));
+    }
+
+    private EdgeView(ByteBuffer buffer, Layout layout) {
+        super(buffer, layout.size);
+        this.layout = layout;
+    }
+
+    /**
+     * Returns a vertex index of the current edge, like {@code edge.v[end]}.
+     *
+     * @param end 0 for the start vertex, 1 for the end vertex
+     * @return vertex index
+     */
+    public int getVertex(int end) {
+        return switch (end) {
+            case 0 -> layout.v0.getInt(bb, base);
+            case 1 -> layout.v1.getInt(bb, base);
+            default -> throw new IndexOutOfBoundsException(end);
+        };
+    }
+
+    private static Layout layoutOf(Class<? extends DEdge> structClass) {
+        Layout layout = LAYOUTS.get(structClass);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unsupported edge struct " + structClass.getSimpleName());
+        }
+        return layout;
+    }
+
+    private static class Layout {
+
+        final StructField v0;
+        final StructField v1;
+        final int size;
+
+        Layout(Supplier<? extends DEdge> supplier, StructField.Type type) {
+            StructLayout<DEdge> layout = new StructLayout<>(supplier);
+            v0 = layout.field(type, e -> e.v[0]);
+            v1 = layout.field(type, e -> e.v[1]);
+            size = layout.size();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.*;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.*;
+
+/**
+ * Flyweight view for {@link DFace} structs and their subtypes.
+ * <p>
+ * Lightmap styles and extents aren't exposed, fields that don't exist in a
+ * layout read as 0, like the defaults of the structs.
+ */
+public class FaceView extends StructView<FaceView> {
+
+    private static final Map<Class<? extends DFace>, Layout> LAYOUTS = Map.of(
+            DFace.class, new Layout(DFace::new, UINT16, INT16),
+            DFaceBSP17.class, new Layout(DFaceBSP17::new, UINT16, INT16),
+            DFaceBSP18.class, new Layout(DFaceBSP18::new, UINT16, INT16),
+            DFaceVTMB.class, new Layout(DFaceVTMB::new, UINT16, INT16),
+            DFaceVinV1.class, new Layout(DFaceVinV1::new, INT32, INT32_AS_INT16),
+            DFaceVinV2.class, new Layout(DFaceVinV2::new, INT32, INT32_AS_INT16),
+            DFaceStrataV2.class, new Layout(DFaceStrataV2::new, INT32, INT32)
+    );
+
+    private final Layout layout;
+
+    public FaceView(ByteBuffer buffer, Class<? extends DFace> structClass) {
+        this(buffer, layoutOf(structClass));
+    }
+
+    private FaceView(ByteBuffer buffer, Layout layout) {
+        super(buffer, layout.size);
+        this.layout = layout;
+    }
+
+    public int getPlaneIndex() {
+        return layout.pnum.getInt(bb, base);
+    }
+
+    public int getSide() {
+        return layout.side.getInt(bb, base);
+    }
+
+    public int getOnNode() {
+        return layout.onnode.getInt(bb, base);
+    }
+
+    public int getFirstEdge() {
+        return layout.fstedge.getInt(bb, base);
+    }
+
+    public int getNumEdges() {
+        return layout.numedge.getInt(bb, base);
+    }
+
+    public int getTexinfo() {
+        return layout.texinfo.getInt(bb, base);
+    }
+
+    public int getDispInfo() {
+        return layout.dispInfo.getInt(bb, base);
+    }
+
+    public int getSurfaceFogVolumeID() {
+        return layout.surfaceFogVolumeID.getInt(bb, base);
+    }
+
+    public int getLightOffset() {
+        return layout.lightofs.getInt(bb, base);
+    }
+
+    public float getArea() {
+        return layout.area.getFloat(bb, base);
+    }
+
+    public int getOrigFace() {
+        return layout.origFace.getInt(bb, base);
+    }
+
+    public int getNumPrims() {
+        return StructField.getInt(layout.numPrims, bb, base);
+    }
+
+    public int getFirstPrimID() {
+        return StructField.getInt(layout.firstPrimID, bb, base);
+    }
+
+    public int getSmoothingGroups() {
+        return layout.smoothingGroups.getInt(bb, base);
+    }
+
+    private static Layout layoutOf(Class<? extends DFace> structClass) {
+        Layout layout = LAYOUTS.get(structClass);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unsupported face struct " + structClass.getSimpleName());
+        }
+        return layout;
+    }
+
+    private static class Layout {
+
+        final StructField pnum;
+        final StructField side;
+        final StructField onnode;
+        final StructField fstedge;
+        final StructField numedge;
+        final StructField texinfo;
+        final StructField dispInfo;
+        final StructField surfaceFogVolumeID;
+        final StructField lightofs;
+        final StructField area;
+        final StructField origFace;
+        final StructField numPrims;
+        final StructField firstPrimID;
+        final StructField smoothingGroups;
+        final int size;
+
+        /**
+         * @param supplier face struct supplier
+         * @param indexType type of the plane, fog volume and primitive fields
+         * @param shortType type of the edge count, texinfo and dispinfo fields
+         */
+        Layout(Supplier<? extends DFace> supplier, StructField.Type indexType, StructField.Type shortType) {
+            StructLayout<DFace> layout = new StructLayout<>(supplier);
+            pnum = layout.field(indexType, f -> f.pnum);
+            side = layout.field(INT8, f -> f.side);
+            onnode = layout.field(INT8, f -> f.onnode);
+            fstedge = layout.field(INT32, f -> f.fstedge);
+            numedge = layout.field(shortType, f -> f.numedge);
+            texinfo = layout.field(shortType, f -> f.texinfo);
+            dispInfo = layout.field(shortType, f -> f.dispInfo);
+            surfaceFogVolumeID = layout.field(indexType, f -> f.surfaceFogVolumeID);
+            lightofs = layout.field(INT32, f -> f.lightofs);
+            area = layout.field(FLOAT32, f -> f.area);
+            origFace = layout.field(INT32, f -> f.origFace);
+            // not read by BSP 17 and VTMB faces
+            numPrims = layout.optionalField(indexType, f -> f.numPrims);
+            firstPrimID = layout.optionalField(indexType, f -> f.firstPrimID);
+            smoothingGroups = layout.field(INT32, f -> f.smoothingGroups);
+            size = layout.size();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.nio.ByteBuffer;
+
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.FLOAT32;
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.INT32;
+
+/**
+ * Flyweight view for {@link DPlane} structs.
+ */
+public class PlaneView extends StructView<PlaneView> {
+
+    private static final StructLayout<DPlane> LAYOUT = new StructLayout<>(DPlane::new);
+    private static final StructField NORMAL_X = LAYOUT.field(FLOAT32, p -> p.normal.x());
+    private static final StructField NORMAL_Y = LAYOUT.field(FLOAT32, p -> p.normal.y());
+    private static final StructField NORMAL_Z = LAYOUT.field(FLOAT32, p -> p.normal.z());
+    private static final StructField DIST = LAYOUT.field(FLOAT32, p -> p.dist);
+    private static final StructField TYPE = LAYOUT.field(INT32, p -> p.type);
+
+    public PlaneView(ByteBuffer buffer) {
+        super(buffer, LAYOUT.size());
+    }
+
+    public float getNormalX() {
+        return NORMAL_X.getFloat(bb, base);
+    }
+
+    public float getNormalY() {
+        return NORMAL_Y.getFloat(bb, base);
+    }
+
+    public float getNormalZ() {
+        return NORMAL_Z.getFloat(bb, base);
+    }
+
+    public Vector3f getNormal() {
+        return new Vector3f(getNormalX(), getNormalY(), getNormalZ());
+    }
+
+    public float getDist() {
+        return DIST.getFloat(bb, base);
+    }
+
+    public int getType() {
+        return TYPE.getInt(bb, base);
+    }
+}
@@ -0,0 +1,59 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single field of a struct layout, read with absolute gets from a buffer.
+ *
+ * @param offset byte offset of the field inside the struct
+ * @param type field type
+ */
+record StructField(int offset, Type type) {
+
+    enum Type {
+        INT8(1),
+        BOOL8(1),
+        INT16(2),
+        UINT16(2),
+        // unsigned 32 bit fields are stored as int, like (int) readUnsignedInt()
+        INT32(4),
+        // 32 bit fields truncated to short, used by Vindictus
+        INT32_AS_INT16(4),
+        FLOAT32(4);
+
+        final int size;
+
+        Type(int size) {
+            this.size = size;
+        }
+    }
+
+    int getInt(ByteBuffer bb, int base) {
+        int pos = base + offset;
+        return switch (type) {
+            case INT8 -> bb.get(pos);
+            case BOOL8 -> bb.get(pos) != 0 ? 1 : 0;
+            case INT16 -> bb.getShort(pos);
+            case UINT16 -> Short.toUnsignedInt(bb.getShort(pos));
+            case INT32 -> bb.getInt(pos);
+            case INT32_AS_INT16 -> (short) bb.getInt(pos);
+            case FLOAT32 -> (int) bb.getFloat(pos);
+        };
+    }
+
+    float getFloat(ByteBuffer bb, int base) {
+        if (type == Type.FLOAT32) {
+            return bb.getFloat(base + offset);
+        }
+        return getInt(bb, base);
+    }
+
+    /**
+     * Reads an int from an optional field.
+     *
+     * @return the field value or 0 if the field is absent in this layout
+     */
+    static int getInt(StructField field, ByteBuffer bb, int base) {
+        return field != null ? field.getInt(bb, base) : 0;
+    }
+}
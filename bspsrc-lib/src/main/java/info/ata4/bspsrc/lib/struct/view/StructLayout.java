@@ -0,0 +1,93 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.DStruct;
+import info.ata4.bspsrc.lib.struct.view.StructField.Type;
+import info.ata4.io.DataReaders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Struct layout derived from the {@code read} method of the matching struct,
+ * so views and structs can't disagree about field offsets or the struct size.
+ * <p>
+ * The offset of a field is found by reading the struct from zeroed buffers
+ * with a single byte set to 1 and looking for the first byte that changes the
+ * field. Since the layouts are probed in little endian order, that's the first
+ * byte of the field. The field types are still declared by the views.
+ *
+ * @param <T> struct type
+ */
+class StructLayout<T extends DStruct> {
+
+    private final Supplier<? extends T> supplier;
+    private final int size;
+    private final T zero;
+
+    StructLayout(Supplier<? extends T> supplier) {
+        this.supplier = supplier;
+        this.size = supplier.get().getSize();
+        this.zero = read(new byte[size]);
+    }
+
+    /**
+     * Declares a field that is read by the struct.
+     *
+     * @param type field type
+     * @param getter returns the value of the field from a struct
+     * @return field at the offset the struct reads it from
+     * @throws IllegalArgumentException if the struct doesn't read the field
+     */
+    StructField field(Type type, Function<? super T, ?> getter) {
+        StructField field = optionalField(type, getter);
+        if (field == null) {
+            throw new IllegalArgumentException("Field not read by "
+                    + zero.getClass().getSimpleName());
+        }
+        return field;
+    }
+
+    /**
+     * Declares a field that may be absent in this struct type.
+     *
+     * @param type field type
+     * @param getter returns the value of the field from a struct
+     * @return field at the offset the struct reads it from or {@code null} if
+     *         the struct doesn't read the field
+     */
+    StructField optionalField(Type type, Function<? super T, ?> getter) {
+        Object base = getter.apply(zero);
+        byte[] data = new byte[size];
+
+        for (int offset = 0; offset <= size - type.size; offset++) {
+            data[offset] = 1;
+            Object value = getter.apply(read(data));
+            data[offset] = 0;
+
+            if (!Objects.equals(base, value)) {
+                return new StructField(offset, type);
+            }
+        }
+
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private T read(byte[] data) {
+        T struct = supplier.get();
+        try {
+            struct.read(DataReaders.forByteBuffer(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return struct;
+    }
+}
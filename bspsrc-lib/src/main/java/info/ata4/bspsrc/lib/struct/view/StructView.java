@@ -0,0 +1,69 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Flyweight cursor over the structs of a lump.
+ * <p>
+ * A view reads the fields of the current struct on demand straight from the
+ * lump buffer, so a memory mapped lump can be inspected without creating any
+ * objects per struct. Move the cursor with {@link #moveTo} before reading
+ * fields. Views don't copy the buffer and aren't thread-safe, create one view
+ * per thread instead.
+ *
+ * @param <V> view type
+ */
+public abstract class StructView<V extends StructView<V>> {
+
+    private static final Logger L = LogManager.getLogger();
+
+    protected final ByteBuffer bb;
+    protected int base;
+
+    private final int structSize;
+    private final int count;
+    private int index = -1;
+
+    protected StructView(ByteBuffer buffer, int structSize) {
+        bb = buffer.slice().order(buffer.order());
+        this.structSize = structSize;
+        count = bb.limit() / structSize;
+
+        if (bb.limit() % structSize != 0) {
+            L.warn("Lump size {} is not a multiple of the struct size {}, ignoring the last {} bytes",
+                    bb.limit(), structSize, bb.limit() % structSize);
+        }
+    }
+
+    /**
+     * @return number of structs in the lump
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return index of the current struct, or -1 if the cursor wasn't moved yet
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Moves the cursor to a struct.
+     *
+     * @param index struct index
+     * @return this view
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public V moveTo(int index) {
+        base = Objects.checkIndex(index, count) * structSize;
+        this.index = index;
+        return (V) this;
+    }
+}
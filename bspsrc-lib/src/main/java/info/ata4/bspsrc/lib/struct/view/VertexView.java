@@ -0,0 +1,39 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.DVertex;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.nio.ByteBuffer;
+
+import static info.ata4.bspsrc.lib.struct.view.StructField.Type.FLOAT32;
+
+/**
+ * Flyweight view for {@link DVertex} structs.
+ */
+public class VertexView extends StructView<VertexView> {
+
+    private static final StructLayout<DVertex> LAYOUT = new StructLayout<>(DVertex::new);
+    private static final StructField X = LAYOUT.field(FLOAT32, v -> v.point.x());
+    private static final StructField Y = LAYOUT.field(FLOAT32, v -> v.point.y());
+    private static final StructField Z = LAYOUT.field(FLOAT32, v -> v.point.z());
+
+    public VertexView(ByteBuffer buffer) {
+        super(buffer, LAYOUT.size());
+    }
+
+    public float getX() {
+        return X.getFloat(bb, base);
+    }
+
+    public float getY() {
+        return Y.getFloat(bb, base);
+    }
+
+    public float getZ() {
+        return Z.getFloat(bb, base);
+    }
+
+    public Vector3f getPoint() {
+        return new Vector3f(getX(), getY(), getZ());
+    }
+}
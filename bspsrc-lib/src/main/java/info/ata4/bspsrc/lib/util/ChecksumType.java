@@ -0,0 +1,154 @@
+package info.ata4.bspsrc.lib.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+
+/**
+ * 32 bit CRC variants for hashing BSP data.
+ * <p>
+ * Large buffers are split into chunks that are hashed in parallel. The
+ * chunk checksums are merged with the same method as zlib's
+ * {@code crc32_combine}, so the result equals hashing the buffer in one
+ * piece.
+ */
+public enum ChecksumType {
+
+    /**
+     * CRC-32 as used by zip and Source's map CRC check.
+     */
+    CRC32(java.util.zip.CRC32::new, 0xedb88320L),
+
+    /**
+     * CRC-32C (Castagnoli), which is usually faster thanks to dedicated CPU
+     * instructions.
+     */
+    CRC32C(java.util.zip.CRC32C::new, 0x82f63b78L);
+
+    // large enough to keep the task overhead low, small enough to split
+    // typical lumps
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    private final Supplier<Checksum> factory;
+    private final long poly;
+
+    ChecksumType(Supplier<Checksum> factory, long poly) {
+        this.factory = factory;
+        this.poly = poly;
+    }
+
+    public Checksum create() {
+        return factory.get();
+    }
+
+    /**
+     * Computes the checksum of the remaining bytes in a buffer. The buffer
+     * position isn't changed.
+     *
+     * @param bb buffer to hash
+     * @return checksum
+     */
+    public long compute(ByteBuffer bb) {
+        Checksum checksum = create();
+        checksum.update(bb.duplicate());
+        return checksum.getValue();
+    }
+
+    /**
+     * Computes the checksum of the remaining bytes in a buffer in chunks
+     * that run on the given executor. The buffer position isn't changed.
+     *
+     * @param bb buffer to hash
+     * @param executor executor for the chunks
+     * @return future checksum
+     */
+    public CompletableFuture<Long> computeAsync(ByteBuffer bb, Executor executor) {
+        List<CompletableFuture<Long>> chunks = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+
+        int pos = bb.position();
+        do {
+            int length = Math.min(CHUNK_SIZE, bb.limit() - pos);
+            ByteBuffer chunk = bb.slice(pos, length);
+            chunks.add(CompletableFuture.supplyAsync(() -> compute(chunk), executor));
+            lengths.add(length);
+            pos += length;
+        } while (pos < bb.limit());
+
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            long value = chunks.get(0).join();
+            for (int i = 1; i < chunks.size(); i++) {
+                value = combine(value, chunks.get(i).join(), lengths.get(i));
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Returns the checksum of two concatenated blocks of data.
+     *
+     * @param crc1 checksum of the first block
+     * @param crc2 checksum of the second block
+     * @param length2 length of the second block
+     * @return checksum of both blocks
+     */
+    public long combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        // operators for one zero bit and two zero bits
+        long[] odd = new long[32];
+        long[] even = new long[32];
+
+        odd[0] = poly;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = 1L << (n - 1);
+        }
+
+        square(even, odd);
+        square(odd, even);
+
+        // apply length2 zero bytes to crc1, the first square below puts the
+        // operator for one zero byte in even
+        do {
+            square(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>= 1;
+
+            if (length2 == 0) {
+                break;
+            }
+
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(mat, mat[n]);
+        }
+    }
+}
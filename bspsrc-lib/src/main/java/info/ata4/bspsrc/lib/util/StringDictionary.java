@@ -0,0 +1,208 @@
+package info.ata4.bspsrc.lib.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interning dictionary for strings that are decoded from ISO-8859-1 bytes,
+ * like entity keys and class names.
+ * <p>
+ * Lookups hash and compare the raw bytes, so a string is only created the
+ * first time a byte sequence is seen. Hashes are computed like
+ * {@link String#hashCode()}, which makes byte and string lookups
+ * interchangeable. Every string gets a dense id in insertion order, which
+ * can be used to store references to it in primitive arrays. Instances are
+ * not thread-safe.
+ */
+public class StringDictionary {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // open addressing table of id + 1, 0 marks a free slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private String[] strings = new String[INITIAL_CAPACITY / 2];
+    private int size;
+
+    /**
+     * Returns the interned string for a range of bytes.
+     *
+     * @param bb source buffer
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes
+     * @return interned string
+     */
+    public String intern(ByteBuffer bb, int offset, int length) {
+        return strings[add(bb, offset, length)];
+    }
+
+    /**
+     * Returns the interned instance of a string.
+     *
+     * @param str string to intern
+     * @return interned string
+     */
+    public String intern(String str) {
+        return strings[add(str)];
+    }
+
+    /**
+     * Returns the id for a range of bytes, adding it as new string if
+     * required.
+     *
+     * @param bb source buffer
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes
+     * @return string id
+     */
+    public int add(ByteBuffer bb, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (bb.get(offset + i) & 0xff);
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return insert(slot, hash, decode(bb, offset, length));
+            }
+            if (hashes[slot] == hash && equals(strings[id], bb, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id for a string, adding it if required.
+     *
+     * @param str string to add
+     * @return string id
+     */
+    public int add(String str) {
+        int hash = str.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return insert(slot, hash, str);
+            }
+            if (hashes[slot] == hash && strings[id].equals(str)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id for a string without adding it.
+     *
+     * @param str string to look up
+     * @return string id or -1 if the string isn't in this dictionary
+     */
+    public int indexOf(String str) {
+        int hash = str.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[slot] == hash && strings[id].equals(str)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @param id string id, as returned by {@link #add(String)}
+     * @return string for the id
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return strings[id];
+    }
+
+    /**
+     * @return number of interned strings, ids range from 0 to size - 1
+     */
+    public int size() {
+        return size;
+    }
+
+    private int insert(int slot, int hash, String str) {
+        int id = size++;
+        if (id == strings.length) {
+            strings = Arrays.copyOf(strings, id * 2);
+        }
+
+        strings[id] = str;
+        slots[slot] = id + 1;
+        hashes[slot] = hash;
+
+        // keep the load factor below 0.5
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+
+        return id;
+    }
+
+    private void rehash() {
+        int[] oldSlots = slots;
+        int[] oldHashes = hashes;
+
+        slots = new int[oldSlots.length * 2];
+        hashes = new int[oldSlots.length * 2];
+
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] == 0) {
+                continue;
+            }
+
+            int slot = oldHashes[i] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            slots[slot] = oldSlots[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    private static boolean equals(String str, ByteBuffer bb, int offset, int length) {
+        if (str.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (str.charAt(i) != (bb.get(offset + i) & 0xff)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes a range of bytes as ISO-8859-1, which maps every byte to the
+     * char with the same value.
+     *
+     * @param bb source buffer
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes
+     * @return decoded string
+     */
+    public static String decode(ByteBuffer bb, int offset, int length) {
+        if (bb.hasArray()) {
+            return new String(bb.array(), bb.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+        }
+
+        byte[] bytes = new byte[length];
+        bb.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
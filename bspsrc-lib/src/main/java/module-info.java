@@ -15,6 +15,7 @@ module info.ata4.bspsrc.lib {
     exports info.ata4.bspsrc.lib.lump;
     exports info.ata4.bspsrc.lib.nmo;
     exports info.ata4.bspsrc.lib.struct;
+    exports info.ata4.bspsrc.lib.struct.view;
     exports info.ata4.bspsrc.lib.vector;
     exports info.ata4.bspsrc.lib.exceptions;
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package info.ata4.bspsrc.lib;
+
+import info.ata4.bspsrc.lib.lump.GameLump;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test BspFile")
+class BspFileTest {
+
+	// the first lump must not be empty, v21 maps with a zero offset there are
+	// detected as Left 4 Dead 2 maps
+	private static final List<LumpType> LUMPS = List.of(
+			LumpType.LUMP_ENTITIES,
+			LumpType.LUMP_PLANES,
+			LumpType.LUMP_VERTEXES,
+			LumpType.LUMP_BRUSHES,
+			LumpType.LUMP_BRUSHSIDES
+	);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Game lumps can be saved and read back")
+	void gameLumpRoundTrip() throws Exception {
+		var bspFile = new BspFile();
+		bspFile.create(20, ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < LUMPS.size(); i++) {
+			bspFile.getLump(LUMPS.get(i)).setBuffer(testData(1024 * (i + 1), i));
+		}
+
+		var staticProps = new GameLump();
+		staticProps.setFourCC('s' << 24 | 'p' << 16 | 'r' << 8 | 'p');
+		staticProps.setVersion(6);
+		staticProps.setBuffer(testData(2048, 7));
+		bspFile.addGameLump(staticProps);
+
+		var detailProps = new GameLump();
+		detailProps.setFourCC('d' << 24 | 'p' << 16 | 'r' << 8 | 'p');
+		detailProps.setVersion(4);
+		detailProps.setBuffer(testData(300, 8));
+		bspFile.addGameLump(detailProps);
+
+		bspFile.save(dir.resolve("map.bsp"));
+
+		var map = new BspFile();
+		map.load(dir.resolve("map.bsp"));
+
+		assertEquals(2, map.getGameLumps().size());
+		assertEquals(6, map.getGameLump("sprp").getVersion());
+		assertEquals(testData(2048, 7), map.getGameLump("sprp").getBuffer());
+		assertEquals(4, map.getGameLump("dprp").getVersion());
+		assertEquals(testData(300, 8), map.getGameLump("dprp").getBuffer());
+		for (int i = 0; i < LUMPS.size(); i++) {
+			assertEquals(testData(1024 * (i + 1), i), map.getLump(LUMPS.get(i)).getBuffer());
+		}
+
+		// saving the loaded map again must keep the game lumps intact
+		map.save(dir.resolve("resaved.bsp"));
+
+		var resaved = new BspFile();
+		resaved.load(dir.resolve("resaved.bsp"));
+		assertEquals(testData(2048, 7), resaved.getGameLump("sprp").getBuffer());
+		assertEquals(testData(300, 8), resaved.getGameLump("dprp").getBuffer());
+	}
+
+	@Test
+	@DisplayName("Compressed maps can be saved, read back and uncompressed")
+	void compressRoundTrip() throws Exception {
+		var bspFile = new BspFile();
+		bspFile.create(21, ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < LUMPS.size(); i++) {
+			bspFile.getLump(LUMPS.get(i)).setBuffer(testData(4096 * (i + 1), i));
+		}
+
+		var gameLump = new GameLump();
+		gameLump.setFourCC('s' << 24 | 'p' << 16 | 'r' << 8 | 'p');
+		gameLump.setVersion(10);
+		gameLump.setBuffer(testData(2048, 7));
+		bspFile.addGameLump(gameLump);
+		bspFile.save(dir.resolve("map.bsp"));
+
+		var map = new BspFile();
+		map.load(dir.resolve("map.bsp"));
+		long size = map.getUncompressedSize();
+		try (var executor = Executors.newFixedThreadPool(4)) {
+			map.compress(executor);
+		}
+		assertTrue(map.hasCompressedLumps());
+		map.save(dir.resolve("compressed.bsp"));
+
+		var compressed = new BspFile();
+		compressed.load(dir.resolve("compressed.bsp"));
+		assertTrue(compressed.hasCompressedLumps());
+		// compress() adds a dummy game lump entry
+		assertEquals(size + 16, compressed.getUncompressedSize());
+
+		for (int i = 0; i < LUMPS.size(); i++) {
+			var lump = compressed.getLump(LUMPS.get(i));
+			assertTrue(lump.isCompressed(), lump.getName());
+			assertEquals(testData(4096 * (i + 1), i), lump.getUncompressedBuffer());
+		}
+
+		var compressedGameLump = compressed.getGameLump("sprp");
+		assertTrue(compressedGameLump.isCompressed());
+		assertEquals(1, compressedGameLump.getFlags());
+		assertEquals(testData(2048, 7), compressedGameLump.getUncompressedBuffer());
+
+		compressed.uncompress(Runnable::run);
+		assertFalse(compressed.hasCompressedLumps());
+		compressed.save(dir.resolve("uncompressed.bsp"));
+
+		var uncompressed = new BspFile();
+		uncompressed.load(dir.resolve("uncompressed.bsp"));
+		assertFalse(uncompressed.hasCompressedLumps());
+		assertEquals(size + 16, uncompressed.getUncompressedSize());
+
+		for (int i = 0; i < LUMPS.size(); i++) {
+			assertEquals(testData(4096 * (i + 1), i), uncompressed.getLump(LUMPS.get(i)).getBuffer());
+		}
+		assertEquals(0, uncompressed.getGameLump("sprp").getFlags());
+		assertEquals(testData(2048, 7), uncompressed.getGameLump("sprp").getBuffer());
+	}
+
+	@Test
+	@DisplayName("Lumps too small to shrink are left uncompressed")
+	void smallLumps() {
+		var bspFile = new BspFile();
+		bspFile.create(21, ByteOrder.LITTLE_ENDIAN);
+		bspFile.getLump(LumpType.LUMP_PLANES).setBuffer(testData(8, 0));
+		bspFile.getLump(LumpType.LUMP_VERTEXES).setBuffer(testData(4096, 1));
+
+		bspFile.compress(Runnable::run);
+
+		assertFalse(bspFile.getLump(LumpType.LUMP_PLANES).isCompressed());
+		assertTrue(bspFile.getLump(LumpType.LUMP_VERTEXES).isCompressed());
+		assertEquals(testData(8, 0), bspFile.getLump(LumpType.LUMP_PLANES).getBuffer());
+	}
+
+	private static ByteBuffer testData(int size, int seed) {
+		ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < size; i++) {
+			bb.put((byte) ((i * 31 + seed) % 97));
+		}
+		return bb.flip();
+	}
+}
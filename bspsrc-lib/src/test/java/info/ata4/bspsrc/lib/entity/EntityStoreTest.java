@@ -0,0 +1,128 @@
+package info.ata4.bspsrc.lib.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test EntityStore")
+class EntityStoreTest {
+
+	private static final String[] KEYS = {
+			"origin", "angles", "targetname", "model", "spawnflags", "rendercolor", "parentname", "hammerid"
+	};
+
+	@Test
+	@DisplayName("Entities behave like maps")
+	void matchesMap() {
+		var rnd = new Random(0);
+		var store = new EntityStore(1, 1);
+
+		List<Entity> entities = new ArrayList<>();
+		List<Map<String, String>> maps = new ArrayList<>();
+
+		for (int i = 0; i < 20000; i++) {
+			if (entities.isEmpty() || rnd.nextInt(50) == 0) {
+				entities.add(store.add("info_target"));
+				maps.add(new LinkedHashMap<>());
+			}
+
+			int e = rnd.nextInt(entities.size());
+			Entity ent = entities.get(e);
+			Map<String, String> map = maps.get(e);
+			String key = KEYS[rnd.nextInt(KEYS.length)];
+
+			switch (rnd.nextInt(10)) {
+				case 0, 1, 2, 3, 4 -> {
+					String value = Integer.toString(i);
+					ent.setValue(key, value);
+					map.put(key, value);
+				}
+				case 5, 6 -> {
+					ent.removeValue(key);
+					map.remove(key);
+				}
+				case 7 -> {
+					if (rnd.nextInt(20) == 0) {
+						ent.clear();
+						map.clear();
+					}
+				}
+				default -> {
+					assertEquals(map.get(key), ent.getValue(key));
+					assertEquals(map.containsKey(key), ent.hasKey(key));
+				}
+			}
+		}
+
+		assertEquals(entities.size(), store.size());
+		for (int e = 0; e < entities.size(); e++) {
+			Entity ent = entities.get(e);
+			Map<String, String> map = maps.get(e);
+
+			assertEquals(map.entrySet(), ent.getEntrySet());
+			assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(ent.getKeys()));
+			assertEquals(new ArrayList<>(map.values()), new ArrayList<>(ent.getValues()));
+			for (String key : KEYS) {
+				assertEquals(map.get(key), ent.getValue(key));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Raw key-values are split into class name, keys and I/O")
+	void keyValues() {
+		var store = new EntityStore();
+		Entity ent = store.add(List.of(
+				new KeyValue("origin", "0 0 0"),
+				new KeyValue("classname", "logic_relay"),
+				new KeyValue("OnTrigger", "door,Open,,0,-1"),
+				new KeyValue("classname", "ignored"),
+				new KeyValue("origin", "1 2 3"),
+				new KeyValue("OnTrigger", "door,Close,,5,-1")
+		));
+
+		assertEquals("logic_relay", ent.getClassName());
+		assertEquals("1 2 3", ent.getValue("origin"));
+		assertEquals(Set.of("origin"), ent.getKeys());
+		assertEquals(2, ent.getIO().size());
+
+		assertEquals("unknown_entity", store.add(List.of()).getClassName());
+		assertTrue(store.add(List.of(new KeyValue("classname", "a"))).getIO().isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> store.add(""));
+	}
+
+	@Test
+	@DisplayName("I/O of entities without I/O can be added")
+	void addIO() {
+		var store = new EntityStore();
+		var ent = store.add("logic_relay");
+		var other = store.add("logic_relay");
+
+		var io = ent.getIO();
+		assertTrue(io.isEmpty());
+		io.add(new KeyValue("OnTrigger", "door,Open,,0,-1"));
+
+		assertEquals(1, io.size());
+		assertEquals(List.of(new KeyValue("OnTrigger", "door,Open,,0,-1")), ent.getIO());
+		assertTrue(other.getIO().isEmpty());
+		assertThrows(IndexOutOfBoundsException.class, () -> other.getIO().get(0));
+	}
+
+	@Test
+	@DisplayName("Entries write through")
+	void entries() {
+		var ent = new Entity("info_target");
+		ent.setValue("targetname", "a");
+		ent.setValue("message", "b");
+
+		for (Map.Entry<String, String> kv : ent.getEntrySet()) {
+			kv.setValue(kv.getValue() + "!");
+		}
+
+		assertEquals("a!", ent.getTargetName());
+		assertEquals("b!", ent.getValue("message"));
+	}
+}
@@ -0,0 +1,176 @@
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.entity.EntityStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test EntityBufferReader")
+class EntityBufferReaderTest {
+
+	private static final String[] INPUTS = {
+			"",
+			"{\n\"classname\" \"worldspawn\"\n\"mapversion\" \"42\"\n}\n{\n\"classname\" \"light\"\n\"origin\" \"0 0 64\"\n}\n\0",
+			"{ \"classname\" \"logic_relay\" \"OnTrigger\" \"door,Open,,0,-1\" \"OnTrigger\" \"door,Close,,5,-1\" }",
+			// braces inside strings
+			"{ \"classname\" \"info_target\" \"message\" \"{ not a section }\" }",
+			// empty key, empty value, missing classname
+			"{ \"\" \"lost\" \"key\" \"\" }",
+			// duplicate classname
+			"{ \"classname\" \"a\" \"classname\" \"b\" }",
+			// string in unopened section
+			"\"classname\" \"x\" { \"classname\" \"y\" }",
+			// opened unclosed section
+			"{ \"classname\" \"a\" { \"classname\" \"b\" } { \"classname\" \"c\" }",
+			// closed unopened section
+			"} { \"classname\" \"a\" }",
+			// unterminated
+			"{ \"classname\" \"a\" } { \"classname\" \"b",
+			"{ \"classname\" \"a\" } { \"classname\" \"b\"",
+			// escaped quotes
+			"{ \"classname\" \"a\" \"message\" \"say \\\"hi\\\"\" }",
+			"{ \"classname\" \"a\" \"path\" \"c:\\\\dir\\\\\" \"next\" \"x\" }",
+			"\\\"{ \"classname\" \"a\" }",
+			// high bytes
+			"{ \"classname\" \"a\" \"message\" \"caf\u00e9 \u00ff\" }",
+	};
+
+	@ParameterizedTest(name = "escape sequences {0}")
+	@ValueSource(booleans = {false, true})
+	@DisplayName("Matches EntityInputStream")
+	void matchesStream(boolean allowEsc) throws IOException {
+		for (String input : INPUTS) {
+			byte[] data = input.getBytes(StandardCharsets.ISO_8859_1);
+			assertEquals(readStream(data, allowEsc), readBuffer(data, allowEsc), () -> "Input: " + input);
+		}
+	}
+
+	@ParameterizedTest(name = "escape sequences {0}")
+	@ValueSource(booleans = {false, true})
+	@DisplayName("Matches EntityInputStream on random input")
+	void matchesStreamRandom(boolean allowEsc) throws IOException {
+		var rnd = new Random(allowEsc ? 1 : 0);
+		byte[] alphabet = "{}\"\\ ab\n".getBytes(StandardCharsets.ISO_8859_1);
+
+		for (int i = 0; i < 2000; i++) {
+			byte[] data = new byte[rnd.nextInt(64)];
+			for (int j = 0; j < data.length; j++) {
+				data[j] = alphabet[rnd.nextInt(alphabet.length)];
+			}
+
+			assertEquals(readStream(data, allowEsc), readBuffer(data, allowEsc),
+					() -> "Input: " + new String(data, StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	@Test
+	@DisplayName("Only reads between position and limit")
+	void bufferRange() throws IOException {
+		byte[] prefix = "\"}{".getBytes(StandardCharsets.ISO_8859_1);
+		byte[] suffix = "\"}".getBytes(StandardCharsets.ISO_8859_1);
+
+		for (String input : INPUTS) {
+			byte[] data = input.getBytes(StandardCharsets.ISO_8859_1);
+			byte[] padded = new byte[prefix.length + data.length + suffix.length];
+			System.arraycopy(prefix, 0, padded, 0, prefix.length);
+			System.arraycopy(data, 0, padded, prefix.length, data.length);
+			System.arraycopy(suffix, 0, padded, prefix.length + data.length, suffix.length);
+
+			var expected = readStream(data, false);
+			var buffer = ByteBuffer.wrap(padded, prefix.length, data.length);
+			assertEquals(expected, readBuffer(buffer, false), () -> "Input: " + input);
+			assertEquals(expected, readBuffer(buffer.slice(), false), () -> "Slice: " + input);
+			assertEquals(expected, readBuffer(buffer.asReadOnlyBuffer(), false), () -> "Read-only: " + input);
+		}
+	}
+
+	@ParameterizedTest(name = "chunk size {0}")
+	@ValueSource(ints = {1, 2, 3, 7, 64})
+	@DisplayName("Scans direct buffers in chunks")
+	void directChunks(int chunkSize) throws IOException {
+		var rnd = new Random(chunkSize);
+		byte[] alphabet = "{}\"\\ ab\n".getBytes(StandardCharsets.ISO_8859_1);
+
+		for (int i = 0; i < 500; i++) {
+			byte[] data = new byte[rnd.nextInt(128)];
+			for (int j = 0; j < data.length; j++) {
+				data[j] = alphabet[rnd.nextInt(alphabet.length)];
+			}
+
+			var buffer = ByteBuffer.allocateDirect(data.length + 2).put((byte) '{').put(data).put((byte) '}')
+					.flip().position(1).limit(data.length + 1);
+			var reader = new EntityBufferReader(buffer, new EntityStore(), chunkSize);
+			reader.setAllowEscSeq(i % 2 == 0);
+
+			List<String> entities = new ArrayList<>();
+			Entity ent;
+			while ((ent = reader.readEntity()) != null) {
+				entities.add(toString(ent));
+			}
+
+			assertEquals(readStream(data, i % 2 == 0), entities,
+					() -> "Input: " + new String(data, StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	@Test
+	@DisplayName("Interns keys and class names")
+	void interning() {
+		byte[] data = INPUTS[1].getBytes(StandardCharsets.ISO_8859_1);
+		var store = new EntityStore();
+
+		var reader1 = new EntityBufferReader(ByteBuffer.wrap(data), store);
+		var reader2 = new EntityBufferReader(ByteBuffer.allocateDirect(data.length).put(data).flip(), store);
+		Entity world1 = reader1.readEntity();
+		Entity world2 = reader2.readEntity();
+
+		assertSame(world1.getClassName(), world2.getClassName());
+		assertSame(world1.getKeys().iterator().next(), world2.getKeys().iterator().next());
+		assertEquals("light", reader1.readEntity().getClassName());
+		assertNull(reader1.readEntity());
+		assertEquals(3, store.size());
+	}
+
+	private static List<String> readStream(byte[] data, boolean allowEsc) throws IOException {
+		List<String> entities = new ArrayList<>();
+		try (var in = new EntityInputStream(new ByteArrayInputStream(data))) {
+			in.setAllowEscSeq(allowEsc);
+			Entity ent;
+			while ((ent = in.readEntity()) != null) {
+				entities.add(toString(ent));
+			}
+		}
+		return entities;
+	}
+
+	private static List<String> readBuffer(byte[] data, boolean allowEsc) {
+		return readBuffer(ByteBuffer.wrap(data), allowEsc);
+	}
+
+	private static List<String> readBuffer(ByteBuffer buffer, boolean allowEsc) {
+		List<String> entities = new ArrayList<>();
+		var reader = new EntityBufferReader(buffer);
+		reader.setAllowEscSeq(allowEsc);
+		Entity ent;
+		while ((ent = reader.readEntity()) != null) {
+			entities.add(toString(ent));
+		}
+		return entities;
+	}
+
+	private static String toString(Entity ent) {
+		return ent.getClassName() + ent.getEntrySet() + ent.getIO();
+	}
+}
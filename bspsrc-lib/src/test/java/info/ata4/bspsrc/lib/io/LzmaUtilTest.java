@@ -0,0 +1,53 @@
+package info.ata4.bspsrc.lib.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test LzmaUtil")
+class LzmaUtilTest {
+
+	@Test
+	@DisplayName("Compressed data can be uncompressed again")
+	void roundTrip() throws IOException {
+		ByteBuffer data = testData(ByteBuffer.allocate(65536));
+		ByteBuffer compressed = LzmaUtil.compress(data);
+
+		assertTrue(LzmaUtil.isCompressed(compressed));
+		assertEquals(data.limit(), LzmaUtil.getUncompressedSize(compressed));
+		assertEquals(ByteOrder.LITTLE_ENDIAN, compressed.order());
+		assertEquals(data, LzmaUtil.uncompress(compressed));
+	}
+
+	@Test
+	@DisplayName("Direct buffers can be compressed")
+	void directBuffer() throws IOException {
+		ByteBuffer data = testData(ByteBuffer.allocateDirect(65536));
+
+		assertEquals(data, LzmaUtil.uncompress(LzmaUtil.compress(data)));
+	}
+
+	@Test
+	@DisplayName("Compressed buffers don't keep unused capacity")
+	void exactSize() throws IOException {
+		ByteBuffer compressed = LzmaUtil.compress(testData(ByteBuffer.allocate(65536)));
+
+		// well compressible data is much smaller than the initial capacity
+		assertTrue(compressed.limit() < 65536 / 4);
+		assertEquals(compressed.limit(), compressed.capacity());
+		assertEquals(compressed.limit(), compressed.array().length);
+	}
+
+	private static ByteBuffer testData(ByteBuffer bb) {
+		bb.order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 1; i < bb.capacity() / 4; i++) {
+			bb.putInt(i * 4, i % 37);
+		}
+		return bb;
+	}
+}
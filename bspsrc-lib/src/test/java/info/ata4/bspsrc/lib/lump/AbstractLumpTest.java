@@ -0,0 +1,74 @@
+package info.ata4.bspsrc.lib.lump;
+
+import info.ata4.bspsrc.lib.io.LzmaUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test AbstractLump")
+class AbstractLumpTest {
+
+	@Test
+	@DisplayName("Compressed lumps are uncompressed on demand")
+	void lazyUncompress() throws IOException {
+		ByteBuffer data = testData();
+		ByteBuffer compressed = LzmaUtil.compress(data);
+
+		Lump lump = new Lump(LumpType.LUMP_PLANES);
+		lump.setBuffer(compressed);
+
+		assertTrue(lump.isCompressed());
+		assertEquals(compressed.limit(), lump.getLength());
+		assertEquals(data.limit(), lump.getUncompressedLength());
+
+		ByteBuffer uncompressed = lump.getUncompressedBuffer();
+		assertEquals(data, uncompressed);
+		assertEquals(ByteOrder.LITTLE_ENDIAN, uncompressed.order());
+
+		// the lump itself stays compressed
+		assertTrue(lump.isCompressed());
+		assertEquals(compressed, lump.getBuffer());
+	}
+
+	@Test
+	@DisplayName("Uncompressed buffer is kept until the buffer is replaced")
+	void cachedBuffer() throws IOException {
+		Lump lump = new Lump(LumpType.LUMP_PLANES);
+		lump.setBuffer(LzmaUtil.compress(testData()));
+
+		ByteBuffer first = lump.getUncompressedBuffer();
+		first.putInt(0, 1234);
+		assertEquals(1234, lump.getUncompressedBuffer().getInt(0));
+
+		lump.setBuffer(LzmaUtil.compress(testData()));
+		assertEquals(0, lump.getUncompressedBuffer().getInt(0));
+
+		lump.uncompress();
+		assertFalse(lump.isCompressed());
+		assertEquals(testData(), lump.getBuffer());
+	}
+
+	@Test
+	@DisplayName("Uncompressed lumps return their own buffer")
+	void uncompressedLump() {
+		Lump lump = new Lump(LumpType.LUMP_PLANES);
+		lump.setBuffer(testData());
+
+		assertFalse(lump.isCompressed());
+		assertEquals(lump.getLength(), lump.getUncompressedLength());
+		assertEquals(lump.getBuffer(), lump.getUncompressedBuffer());
+	}
+
+	private static ByteBuffer testData() {
+		ByteBuffer bb = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 1; i < 1024; i++) {
+			bb.putInt(i * 4, i % 37);
+		}
+		return bb;
+	}
+}
@@ -0,0 +1,112 @@
+package info.ata4.bspsrc.lib.lump;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.io.LzmaUtil;
+import info.ata4.bspsrc.lib.util.ChecksumType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Checksum;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test LumpDigests")
+class LumpDigestsTest {
+
+	@ParameterizedTest
+	@EnumSource(ChecksumType.class)
+	@DisplayName("Chunked checksums equal sequential checksums")
+	void chunks(ChecksumType type) {
+		var rnd = new Random(0);
+		for (int size : new int[] {0, 1, 1000, (1 << 22) - 1, 1 << 22, (1 << 23) + 12345}) {
+			byte[] data = new byte[size];
+			rnd.nextBytes(data);
+
+			Checksum checksum = type.create();
+			checksum.update(data);
+
+			ByteBuffer bb = ByteBuffer.wrap(data);
+			assertEquals(checksum.getValue(), type.computeAsync(bb, ForkJoinPool.commonPool()).join());
+			assertEquals(checksum.getValue(), type.compute(bb));
+			assertEquals(0, bb.position());
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(ChecksumType.class)
+	@DisplayName("Combined checksums equal checksums of concatenated data")
+	void combine(ChecksumType type) {
+		var rnd = new Random(1);
+		for (int i = 0; i < 50; i++) {
+			byte[] a = new byte[rnd.nextInt(5000)];
+			byte[] b = new byte[rnd.nextInt(5000)];
+			rnd.nextBytes(a);
+			rnd.nextBytes(b);
+
+			Checksum all = type.create();
+			all.update(a);
+			all.update(b);
+
+			long combined = type.combine(type.compute(ByteBuffer.wrap(a)), type.compute(ByteBuffer.wrap(b)), b.length);
+			assertEquals(all.getValue(), combined);
+		}
+	}
+
+	@Test
+	@DisplayName("Map checksum skips the entities and ignores compression")
+	void mapChecksum() throws IOException {
+		BspFile bsp = testFile();
+		LumpDigests digests = LumpDigests.compute(bsp, ChecksumType.CRC32);
+
+		Checksum crc = ChecksumType.CRC32.create();
+		for (Lump lump : bsp.getLumps()) {
+			if (lump.getType() != LumpType.LUMP_ENTITIES) {
+				crc.update(lump.getBuffer().duplicate());
+			}
+		}
+		assertEquals(crc.getValue(), digests.getMapChecksum());
+
+		bsp.getLump(LumpType.LUMP_PLANES).setBuffer(LzmaUtil.compress(bsp.getLump(LumpType.LUMP_PLANES).getBuffer()));
+		LumpDigests compressed = LumpDigests.compute(bsp, ChecksumType.CRC32);
+		assertEquals(digests.getMapChecksum(), compressed.getMapChecksum());
+		assertEquals(List.of(), digests.getChanged(compressed));
+	}
+
+	@Test
+	@DisplayName("Changed lumps are detected")
+	void changed() {
+		BspFile bsp = testFile();
+		LumpDigests before = LumpDigests.compute(bsp, ChecksumType.CRC32C);
+
+		ByteBuffer entities = bsp.getLump(LumpType.LUMP_ENTITIES).getBuffer();
+		entities.put(0, (byte) (entities.get(0) + 1));
+		LumpDigests after = LumpDigests.compute(bsp, ChecksumType.CRC32C);
+
+		assertEquals(List.of(LumpType.LUMP_ENTITIES.name()), before.getChanged(after));
+		assertEquals(before.getMapChecksum(), after.getMapChecksum());
+		assertThrows(IllegalArgumentException.class,
+				() -> before.getChanged(LumpDigests.compute(bsp, ChecksumType.CRC32)));
+	}
+
+	private static BspFile testFile() {
+		var bsp = new BspFile();
+		bsp.create(20, ByteOrder.LITTLE_ENDIAN);
+
+		var rnd = new Random(2);
+		for (Lump lump : bsp.getLumps()) {
+			byte[] data = new byte[rnd.nextInt(2000)];
+			rnd.nextBytes(data);
+			lump.setBuffer(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN));
+		}
+
+		return bsp;
+	}
+}
@@ -0,0 +1,125 @@
+package info.ata4.bspsrc.lib.struct;
+
+import info.ata4.bspsrc.lib.io.lumpreader.IntegerChunksLumpReader;
+import info.ata4.bspsrc.lib.io.lumpreader.StructColumnsLumpReader;
+import info.ata4.bspsrc.lib.io.lumpreader.UShortChunksLumpReader;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import info.ata4.io.DataWriter;
+import info.ata4.io.DataWriters;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test StructColumns")
+class StructColumnsTest {
+
+	@Test
+	@DisplayName("Planes are stored and loaded")
+	void planes() throws IOException {
+		var planes = List.of(plane(1, 0, 0, 64, 0), plane(0, -1, 0, -32.5f, 1), plane(0.6f, 0, 0.8f, 12, 5));
+		var columns = new StructColumnsLumpReader<>(DPlane::new, PlaneColumns::new).read(write(planes));
+
+		assertEquals(planes.size(), columns.size());
+		for (int i = 0; i < planes.size(); i++) {
+			var expected = planes.get(i);
+			var actual = columns.get(i);
+
+			assertEquals(expected.normal, actual.normal);
+			assertEquals(expected.dist, actual.dist);
+			assertEquals(expected.type, actual.type);
+			assertEquals(expected.normal, columns.getNormal(i));
+			assertEquals(expected.dist, columns.getDist(i));
+		}
+	}
+
+	@Test
+	@DisplayName("Vertices and edges are stored and loaded")
+	void vertsAndEdges() throws IOException {
+		var vert = new DVertex();
+		vert.point = new Vector3f(-16, 8.25f, 4096);
+		var verts = new StructColumnsLumpReader<>(DVertex::new, VertexColumns::new).read(write(List.of(vert)));
+
+		assertEquals(vert.point, verts.get(0).point);
+		assertEquals(-16, verts.getX(0));
+		assertEquals(8.25f, verts.getY(0));
+		assertEquals(4096, verts.getZ(0));
+
+		var edge = new DEdge();
+		edge.v[0] = 65535;
+		edge.v[1] = 7;
+		var edges = new StructColumnsLumpReader<>(DEdge::new, EdgeColumns::new).read(write(List.of(edge)));
+
+		assertArrayEquals(edge.v, edges.get(0).v);
+		assertEquals(65535, edges.getVertex(0, 0));
+		assertEquals(7, edges.getVertex(0, 1));
+		assertThrows(IndexOutOfBoundsException.class, () -> edges.getVertex(0, 2));
+	}
+
+	@Test
+	@DisplayName("Brush sides keep their subtype and flags")
+	void brushSides() throws IOException {
+		var side = new DBrushSideV0New();
+		side.pnum = 40000;
+		side.texinfo = -1;
+		side.dispinfo = 3;
+		side.bevel = true;
+		side.thin = true;
+		var columns = new StructColumnsLumpReader<>(DBrushSideV0New::new, BrushSideColumns::new)
+				.read(write(List.of(side)));
+
+		var actual = assertInstanceOf(DBrushSideV0New.class, columns.get(0));
+		assertEquals(side.pnum, actual.pnum);
+		assertEquals(side.texinfo, actual.texinfo);
+		assertEquals(side.dispinfo, actual.dispinfo);
+		assertTrue(actual.bevel);
+		assertTrue(actual.thin);
+		assertTrue(columns.isBevel(0));
+		assertTrue(columns.isThin(0));
+		assertEquals(side.pnum, columns.getPlaneIndex(0));
+	}
+
+	@Test
+	@DisplayName("Invalid lump sizes are rejected")
+	void invalidSize() {
+		var reader = new StructColumnsLumpReader<>(DVertex::new, VertexColumns::new);
+
+		assertThrows(IOException.class, () -> reader.read(ByteBuffer.allocate(13)));
+		assertTrue(reader.defaultData().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Index lumps are read as int columns")
+	void intColumns() throws IOException {
+		var ints = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putInt(-5).putInt(0).putInt(123456).flip();
+		assertEquals(List.of(-5, 0, 123456), new IntegerChunksLumpReader().read(ints));
+
+		var shorts = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN)
+				.putShort((short) 65535).putShort((short) 1).putShort((short) 32768).flip();
+		var column = new UShortChunksLumpReader().read(shorts);
+		assertEquals(List.of(65535, 1, 32768), column);
+		assertEquals(32768, column.getInt(2));
+	}
+
+	private static DPlane plane(float x, float y, float z, float dist, int type) {
+		var plane = new DPlane();
+		plane.normal = new Vector3f(x, y, z);
+		plane.dist = dist;
+		plane.type = type;
+		return plane;
+	}
+
+	private static ByteBuffer write(List<? extends DStruct> structs) throws IOException {
+		var buffer = ByteBuffer.allocate(structs.stream().mapToInt(DStruct::getSize).sum()).order(ByteOrder.LITTLE_ENDIAN);
+		DataWriter out = DataWriters.forByteBuffer(buffer);
+		for (DStruct struct : structs) {
+			struct.write(out);
+		}
+		return buffer.flip();
+	}
+}
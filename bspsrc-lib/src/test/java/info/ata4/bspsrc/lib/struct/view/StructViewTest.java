@@ -0,0 +1,177 @@
+package info.ata4.bspsrc.lib.struct.view;
+
+import info.ata4.bspsrc.lib.struct.*;
+import info.ata4.io.DataReader;
+import info.ata4.io.DataReaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test StructViews")
+class StructViewTest {
+
+	private static final int COUNT = 100;
+
+	@Test
+	@DisplayName("Plane view matches DPlane")
+	void planes() throws IOException {
+		ByteBuffer bb = randomBuffer(new DPlane().getSize());
+		var view = new PlaneView(bb);
+		DataReader in = DataReaders.forByteBuffer(bb.duplicate().order(bb.order()));
+
+		assertEquals(COUNT, view.size());
+		for (int i = 0; i < COUNT; i++) {
+			var plane = new DPlane();
+			plane.read(in);
+			view.moveTo(i);
+
+			assertEquals(plane.normal, view.getNormal());
+			assertEquals(plane.dist, view.getDist());
+			assertEquals(plane.type, view.getType());
+		}
+	}
+
+	@Test
+	@DisplayName("Vertex view matches DVertex")
+	void vertices() throws IOException {
+		ByteBuffer bb = randomBuffer(new DVertex().getSize());
+		var view = new VertexView(bb);
+		DataReader in = DataReaders.forByteBuffer(bb.duplicate().order(bb.order()));
+
+		for (int i = 0; i < COUNT; i++) {
+			var vertex = new DVertex();
+			vertex.read(in);
+
+			assertEquals(vertex.point, view.moveTo(i).getPoint());
+		}
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@ValueSource(classes = {DEdge.class, DEdgeVin.class, DEdgeStrataV1.class})
+	@DisplayName("Edge view matches all edge structs")
+	void edges(Class<? extends DEdge> structClass) throws IOException {
+		Supplier<DEdge> supplier = supplier(structClass);
+		ByteBuffer bb = randomBuffer(supplier.get().getSize());
+		var view = new EdgeView(bb, structClass);
+		DataReader in = DataReaders.forByteBuffer(bb.duplicate().order(bb.order()));
+
+		for (int i = 0; i < COUNT; i++) {
+			var edge = supplier.get();
+			edge.read(in);
+			view.moveTo(i);
+
+			assertEquals(edge.v[0], view.getVertex(0));
+			assertEquals(edge.v[1], view.getVertex(1));
+		}
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@ValueSource(classes = {DBrushSide.class, DBrushSideV0New.class, DBrushSideVin.class, DBrushSideStrataV1.class})
+	@DisplayName("Brush side view matches all brush side structs")
+	void brushSides(Class<? extends DBrushSide> structClass) throws IOException {
+		Supplier<DBrushSide> supplier = supplier(structClass);
+		ByteBuffer bb = randomBuffer(supplier.get().getSize());
+		var view = new BrushSideView(bb, structClass);
+		DataReader in = DataReaders.forByteBuffer(bb.duplicate().order(bb.order()));
+
+		for (int i = 0; i < COUNT; i++) {
+			var side = supplier.get();
+			side.read(in);
+			view.moveTo(i);
+
+			assertEquals(side.pnum, view.getPlaneIndex());
+			assertEquals(side.texinfo, view.getTexinfo());
+			assertEquals(side.dispinfo, view.getDispinfo());
+			assertEquals(side.bevel, view.isBevel());
+			assertEquals(side instanceof DBrushSideV0New s && s.thin, view.isThin());
+		}
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@ValueSource(classes = {DFace.class, DFaceBSP17.class, DFaceBSP18.class, DFaceVTMB.class,
+			DFaceVinV1.class, DFaceVinV2.class, DFaceStrataV2.class})
+	@DisplayName("Face view matches all face structs")
+	void faces(Class<? extends DFace> structClass) throws IOException {
+		Supplier<DFace> supplier = supplier(structClass);
+		ByteBuffer bb = randomBuffer(supplier.get().getSize());
+		var view = new FaceView(bb, structClass);
+		DataReader in = DataReaders.forByteBuffer(bb.duplicate().order(bb.order()));
+
+		assertEquals(COUNT, view.size());
+		for (int i = 0; i < COUNT; i++) {
+			var face = supplier.get();
+			face.read(in);
+			view.moveTo(i);
+
+			assertEquals(face.pnum, view.getPlaneIndex());
+			assertEquals(face.side, view.getSide());
+			assertEquals(face.onnode, view.getOnNode());
+			assertEquals(face.fstedge, view.getFirstEdge());
+			assertEquals(face.numedge, view.getNumEdges());
+			assertEquals(face.texinfo, view.getTexinfo());
+			assertEquals(face.dispInfo, view.getDispInfo());
+			assertEquals(face.surfaceFogVolumeID, view.getSurfaceFogVolumeID());
+			assertEquals(face.lightofs, view.getLightOffset());
+			assertEquals(face.area, view.getArea());
+			assertEquals(face.origFace, view.getOrigFace());
+			assertEquals(face.numPrims, view.getNumPrims());
+			assertEquals(face.firstPrimID, view.getFirstPrimID());
+			assertEquals(face.smoothingGroups, view.getSmoothingGroups());
+		}
+	}
+
+	@Test
+	@DisplayName("Cursor is bounds checked")
+	void bounds() {
+		var view = new VertexView(ByteBuffer.allocate(12 * 3 + 5));
+
+		assertEquals(3, view.size());
+		assertEquals(-1, view.index());
+		assertEquals(2, view.moveTo(2).index());
+		assertThrows(IndexOutOfBoundsException.class, () -> view.moveTo(3));
+		assertThrows(IndexOutOfBoundsException.class, () -> view.moveTo(-1));
+	}
+
+	@Test
+	@DisplayName("Layouts are derived from the read methods")
+	void layouts() {
+		var planes = new StructLayout<DPlane>(DPlane::new);
+		assertEquals(new DPlane().getSize(), planes.size());
+		assertEquals(new StructField(12, StructField.Type.FLOAT32), planes.field(StructField.Type.FLOAT32, p -> p.dist));
+		assertEquals(new StructField(16, StructField.Type.INT32), planes.field(StructField.Type.INT32, p -> p.type));
+
+		var sides = new StructLayout<DBrushSide>(DBrushSideStrataV1::new);
+		assertEquals(16, sides.size());
+		assertEquals(new StructField(13, StructField.Type.BOOL8),
+				sides.optionalField(StructField.Type.BOOL8, bs -> ((DBrushSideV0New) bs).thin));
+
+		var faces = new StructLayout<DFace>(DFaceBSP17::new);
+		assertNull(faces.optionalField(StructField.Type.UINT16, f -> f.numPrims));
+		assertThrows(IllegalArgumentException.class, () -> faces.field(StructField.Type.UINT16, f -> f.firstPrimID));
+	}
+
+	private static ByteBuffer randomBuffer(int structSize) {
+		byte[] data = new byte[structSize * COUNT];
+		new Random(structSize).nextBytes(data);
+		return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static <T> Supplier<T> supplier(Class<? extends T> structClass) {
+		return () -> {
+			try {
+				return structClass.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException ex) {
+				throw new RuntimeException(ex);
+			}
+		};
+	}
+}